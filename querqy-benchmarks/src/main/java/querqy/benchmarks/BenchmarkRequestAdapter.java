@@ -0,0 +1,224 @@
+package querqy.benchmarks;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import querqy.infologging.InfoLoggingContext;
+import querqy.lucene.LuceneSearchEngineRequestAdapter;
+import querqy.lucene.QuerySimilarityScoring;
+import querqy.lucene.rewrite.SearchFieldsAndBoosting.FieldBoostModel;
+import querqy.lucene.rewrite.cache.TermQueryCache;
+import querqy.model.QuerqyQuery;
+import querqy.model.RawQuery;
+import querqy.parser.QuerqyParser;
+import querqy.rewrite.RewriteChain;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A minimal {@link LuceneSearchEngineRequestAdapter} that only provides what the benchmarks need. A new instance must
+ * be created per request as the request context is mutable.
+ */
+public class BenchmarkRequestAdapter implements LuceneSearchEngineRequestAdapter {
+
+    private final String queryString;
+    private final RewriteChain rewriteChain;
+    private final Analyzer queryAnalyzer;
+    private final Map<String, Float> queryFieldsAndBoostings;
+    private final Map<String, String> params;
+    private final Map<String, Object> context = new HashMap<>();
+
+    public BenchmarkRequestAdapter(final String queryString, final RewriteChain rewriteChain,
+                                   final Analyzer queryAnalyzer, final Map<String, Float> queryFieldsAndBoostings,
+                                   final Map<String, String> params) {
+        this.queryString = queryString;
+        this.rewriteChain = rewriteChain;
+        this.queryAnalyzer = queryAnalyzer;
+        this.queryFieldsAndBoostings = queryFieldsAndBoostings;
+        this.params = params;
+    }
+
+    public BenchmarkRequestAdapter(final RewriteChain rewriteChain) {
+        this(null, rewriteChain, null, Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public boolean isMatchAllQuery(final String queryString) {
+        return "*".equals(queryString) || "*:*".equals(queryString);
+    }
+
+    @Override
+    public boolean needsScores() {
+        return getBooleanRequestParam("needsScores").orElse(true);
+    }
+
+    @Override
+    public Analyzer getQueryAnalyzer() {
+        return queryAnalyzer;
+    }
+
+    @Override
+    public Optional<TermQueryCache> getTermQueryCache() {
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean addQuerqyBoostQueriesToMainQuery() {
+        return true;
+    }
+
+    @Override
+    public Optional<QuerySimilarityScoring> getUserQuerySimilarityScoring() {
+        return getRequestParam("uq.similarityScore").map(this::parseSimilarityScoring);
+    }
+
+    @Override
+    public Optional<QuerySimilarityScoring> getBoostQuerySimilarityScoring() {
+        return getRequestParam("qboost.similarityScore").map(this::parseSimilarityScoring);
+    }
+
+    @Override
+    public Map<String, Float> getQueryFieldsAndBoostings() {
+        return queryFieldsAndBoostings;
+    }
+
+    @Override
+    public Map<String, Float> getGeneratedQueryFieldsAndBoostings() {
+        // the caller might update the map
+        return new HashMap<>();
+    }
+
+    @Override
+    public Optional<QuerqyParser> createQuerqyParser() {
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean useFieldBoostingInQuerqyBoostQueries() {
+        return getRequestParam("qboost.fieldBoost").map("on"::equals).orElse(true);
+    }
+
+    @Override
+    public Optional<Float> getTiebreaker() {
+        return getFloatRequestParam("tie");
+    }
+
+    @Override
+    public Query applyMinimumShouldMatch(final BooleanQuery query) {
+        return query;
+    }
+
+    @Override
+    public Optional<Float> getUserQueryWeight() {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Float> getGeneratedFieldBoost() {
+        return getFloatRequestParam("gfb");
+    }
+
+    @Override
+    public Optional<Float> getPositiveQuerqyBoostWeight() {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Float> getNegativeQuerqyBoostWeight() {
+        return Optional.empty();
+    }
+
+    @Override
+    public List<Query> getAdditiveBoosts(final QuerqyQuery<?> userQuery) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<Query> getMultiplicativeBoosts(final QuerqyQuery<?> userQuery) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Optional<Query> parseRankQuery() {
+        return Optional.empty();
+    }
+
+    @Override
+    public Query parseRawQuery(final RawQuery rawQuery) throws SyntaxException {
+        throw new SyntaxException("Raw queries are not supported in benchmarks");
+    }
+
+    @Override
+    public Optional<FieldBoostModel> getFieldBoostModel() {
+        return Optional.empty();
+    }
+
+    @Override
+    public RewriteChain getRewriteChain() {
+        return rewriteChain;
+    }
+
+    @Override
+    public Map<String, Object> getContext() {
+        return context;
+    }
+
+    @Override
+    public Optional<String> getRequestParam(final String name) {
+        return Optional.ofNullable(params.get(name));
+    }
+
+    @Override
+    public String[] getRequestParams(final String name) {
+        final String value = params.get(name);
+        return value == null ? new String[0] : new String[] {value};
+    }
+
+    @Override
+    public Optional<Boolean> getBooleanRequestParam(final String name) {
+        return getRequestParam(name).map(Boolean::valueOf);
+    }
+
+    @Override
+    public Optional<Integer> getIntegerRequestParam(final String name) {
+        return getRequestParam(name).map(Integer::valueOf);
+    }
+
+    @Override
+    public Optional<Float> getFloatRequestParam(final String name) {
+        return getRequestParam(name).map(Float::valueOf);
+    }
+
+    @Override
+    public Optional<Double> getDoubleRequestParam(final String name) {
+        return getRequestParam(name).map(Double::valueOf);
+    }
+
+    @Override
+    public Optional<InfoLoggingContext> getInfoLoggingContext() {
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean isDebugQuery() {
+        return false;
+    }
+
+    private QuerySimilarityScoring parseSimilarityScoring(final String value) {
+        switch (value) {
+            case "dfc": return QuerySimilarityScoring.DFC;
+            case "on": return QuerySimilarityScoring.SIMILARITY_SCORE_ON;
+            case "off": return QuerySimilarityScoring.SIMILARITY_SCORE_OFF;
+            default: throw new IllegalArgumentException("Invalid similarity scoring: " + value);
+        }
+    }
+}
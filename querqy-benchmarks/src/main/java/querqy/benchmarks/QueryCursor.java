@@ -0,0 +1,20 @@
+package querqy.benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cycles through a query set, one position per benchmark thread.
+ */
+@State(Scope.Thread)
+public class QueryCursor {
+
+    private int next = 0;
+
+    public int next(final int size) {
+        final int current = next;
+        next = (current + 1) % size;
+        return current;
+    }
+
+}
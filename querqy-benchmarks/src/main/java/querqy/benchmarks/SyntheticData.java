@@ -0,0 +1,124 @@
+package querqy.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>Creates reproducible synthetic rule sets and query sets for the benchmarks.</p>
+ *
+ * <p>Words are derived from an index so that the i-th word is always the same and all words are distinct. Rule
+ * inputs use the words [0, numRules), outputs use words from [2 * numRules, 3 * numRules) and query terms that must
+ * not match any rule use words from [3 * numRules, 4 * numRules).</p>
+ */
+public final class SyntheticData {
+
+    public static final long SEED = 0x5175657271794cL;
+
+    private SyntheticData() {
+    }
+
+    /**
+     * @param i The index of the word
+     * @return A lower case word that only depends on i and that is different for every i
+     */
+    public static String word(final int i) {
+        // multiplication by an odd number is a bijection on 32 bit
+        long v = ((i + 1L) * 0x9E3779B1L) & 0xffffffffL;
+        final StringBuilder sb = new StringBuilder(8);
+        do {
+            sb.append((char) ('a' + (v % 26)));
+            v /= 26;
+        } while (v > 0);
+        return sb.toString();
+    }
+
+    public static List<String> words(final int offset, final int count) {
+        final List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            words.add(word(offset + i));
+        }
+        return words;
+    }
+
+    /**
+     * @param i The index of the rule
+     * @param numRules The total number of rules
+     * @return The input of the i-th rule. Every third input consists of two words.
+     */
+    public static String ruleInput(final int i, final int numRules) {
+        return i % 3 == 1 ? word(i) + " " + word(numRules + i) : word(i);
+    }
+
+    public static String ruleOutput(final int i, final int numRules) {
+        return word(2 * numRules + i);
+    }
+
+    public static String nonMatchingWord(final Random random, final int numRules) {
+        return word(3 * numRules + random.nextInt(numRules));
+    }
+
+    /**
+     * @param numRules The number of rules
+     * @return Common rules that alternate between SYNONYM, UP, DOWN and FILTER instructions
+     */
+    public static String commonRules(final int numRules) {
+        final StringBuilder sb = new StringBuilder(numRules * 40);
+        for (int i = 0; i < numRules; i++) {
+            sb.append(ruleInput(i, numRules)).append(" =>\n");
+            switch (i % 4) {
+                case 0: sb.append(" SYNONYM: "); break;
+                case 1: sb.append(" UP(10): "); break;
+                case 2: sb.append(" DOWN(10): "); break;
+                default: sb.append(" FILTER: ");
+            }
+            sb.append(ruleOutput(i, numRules)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param numRules The number of rules
+     * @return Replace rules. Every 100th rule is a prefix rule, all other rules have exact inputs.
+     */
+    public static String replaceRules(final int numRules) {
+        final StringBuilder sb = new StringBuilder(numRules * 24);
+        for (int i = 0; i < numRules; i++) {
+            if (i % 100 == 0) {
+                sb.append(word(i)).append("* => ").append(ruleOutput(i, numRules)).append(" $1");
+            } else {
+                sb.append(ruleInput(i, numRules)).append(" => ").append(ruleOutput(i, numRules));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param numQueries The number of queries to create
+     * @param numRules The number of rules from which inputs will be picked
+     * @param hitRatio The probability of a query token to be a rule input
+     * @param maxTokens The max. number of tokens (1 to maxTokens) per query
+     * @return Whitespace-separated query strings
+     */
+    public static List<String> queries(final int numQueries, final int numRules, final double hitRatio,
+                                       final int maxTokens) {
+        final Random random = new Random(SEED);
+        final List<String> queries = new ArrayList<>(numQueries);
+        for (int q = 0; q < numQueries; q++) {
+            final int numTokens = 1 + random.nextInt(maxTokens);
+            final StringBuilder sb = new StringBuilder();
+            for (int t = 0; t < numTokens; t++) {
+                if (t > 0) {
+                    sb.append(' ');
+                }
+                sb.append(random.nextDouble() < hitRatio
+                        ? ruleInput(random.nextInt(numRules), numRules)
+                        : nonMatchingWord(random, numRules));
+            }
+            queries.add(sb.toString());
+        }
+        return queries;
+    }
+
+}
@@ -0,0 +1,68 @@
+package querqy.benchmarks.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import querqy.benchmarks.BenchmarkRequestAdapter;
+import querqy.benchmarks.QueryCursor;
+import querqy.benchmarks.SyntheticData;
+import querqy.model.ExpandedQuery;
+import querqy.parser.WhiteSpaceQuerqyParser;
+import querqy.rewrite.RewriteChain;
+import querqy.rewrite.commonrules.SimpleCommonRulesRewriterFactory;
+import querqy.rewrite.commonrules.WhiteSpaceQuerqyParserFactory;
+import querqy.rewrite.commonrules.select.ExpressionCriteriaSelectionStrategyFactory;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the complete common rules rewriting, including parsing the query string, rule lookup and applying the
+ * instructions. See {@link ParserBaselineBenchmark} for the parsing costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CommonRulesRewriterBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int numRules;
+
+    @Param({"1000"})
+    public int numQueries;
+
+    @Param({"0.5"})
+    public double hitRatio;
+
+    private RewriteChain rewriteChain;
+    private List<String> queries;
+
+    @Setup
+    public void setUp() throws Exception {
+        rewriteChain = new RewriteChain(Collections.singletonList(new SimpleCommonRulesRewriterFactory("rules",
+                new StringReader(SyntheticData.commonRules(numRules)), false, new WhiteSpaceQuerqyParserFactory(),
+                true, Collections.emptyMap(), new ExpressionCriteriaSelectionStrategyFactory(), false)));
+        queries = SyntheticData.queries(numQueries, numRules, hitRatio, 4);
+    }
+
+    @Benchmark
+    public ExpandedQuery rewrite(final QueryCursor cursor) {
+        final ExpandedQuery query = new ExpandedQuery(
+                WhiteSpaceQuerqyParser.parseString(queries.get(cursor.next(numQueries))));
+        return rewriteChain.rewrite(query, new BenchmarkRequestAdapter(rewriteChain));
+    }
+
+}
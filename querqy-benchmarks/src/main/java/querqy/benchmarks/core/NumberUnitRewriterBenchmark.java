@@ -0,0 +1,107 @@
+package querqy.benchmarks.core;
+
+import static querqy.benchmarks.SyntheticData.word;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import querqy.benchmarks.BenchmarkRequestAdapter;
+import querqy.benchmarks.QueryCursor;
+import querqy.benchmarks.SyntheticData;
+import querqy.model.ExpandedQuery;
+import querqy.parser.WhiteSpaceQuerqyParser;
+import querqy.rewrite.RewriteChain;
+import querqy.rewrite.contrib.NumberUnitRewriterFactory;
+import querqy.rewrite.contrib.numberunit.model.FieldDefinition;
+import querqy.rewrite.contrib.numberunit.model.NumberUnitDefinition;
+import querqy.rewrite.contrib.numberunit.model.UnitDefinition;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the number-unit rewriter. The number of units corresponds to the number of rules. Ten units share a
+ * definition and each definition has its own field.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class NumberUnitRewriterBenchmark {
+
+    private static final int UNITS_PER_DEFINITION = 10;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int numUnits;
+
+    @Param({"1000"})
+    public int numQueries;
+
+    @Param({"0.5"})
+    public double hitRatio;
+
+    private RewriteChain rewriteChain;
+    private List<String> queries;
+
+    @Setup
+    public void setUp() {
+
+        final List<NumberUnitDefinition> definitions = new ArrayList<>();
+        for (int d = 0; d * UNITS_PER_DEFINITION < numUnits; d++) {
+            final List<UnitDefinition> units = new ArrayList<>();
+            for (int u = d * UNITS_PER_DEFINITION; u < Math.min(numUnits, (d + 1) * UNITS_PER_DEFINITION); u++) {
+                units.add(new UnitDefinition(word(u), BigDecimal.valueOf(1 + u % UNITS_PER_DEFINITION)));
+            }
+            definitions.add(NumberUnitDefinition.builder()
+                    .addUnits(units)
+                    .addFields(Collections.singletonList(new FieldDefinition("f" + d, 1)))
+                    .setMaxScoreForExactMatch(BigDecimal.valueOf(20))
+                    .setMinScoreAtUpperBoundary(BigDecimal.valueOf(5))
+                    .setMinScoreAtLowerBoundary(BigDecimal.valueOf(5))
+                    .setAdditionalScoreForExactMatch(BigDecimal.valueOf(10))
+                    .setBoostPercentageUpperBoundary(BigDecimal.valueOf(20))
+                    .setBoostPercentageLowerBoundary(BigDecimal.valueOf(20))
+                    .setBoostPercentageUpperBoundaryExactMatch(BigDecimal.valueOf(5))
+                    .setBoostPercentageLowerBoundaryExactMatch(BigDecimal.valueOf(5))
+                    .setFilterPercentageUpperBoundary(BigDecimal.valueOf(10))
+                    .setFilterPercentageLowerBoundary(BigDecimal.valueOf(10))
+                    .build());
+        }
+
+        rewriteChain = new RewriteChain(Collections.singletonList(
+                new NumberUnitRewriterFactory("numberunit", definitions, new RangeNumberUnitQueryCreator(3))));
+
+        final Random random = new Random(SyntheticData.SEED);
+        queries = new ArrayList<>(numQueries);
+        for (int i = 0; i < numQueries; i++) {
+            final String unit = random.nextDouble() < hitRatio
+                    ? word(random.nextInt(numUnits))
+                    : SyntheticData.nonMatchingWord(random, numUnits);
+            // alternate between "12 unit" and "12unit"
+            queries.add(SyntheticData.nonMatchingWord(random, numUnits) + " " + (1 + random.nextInt(1000))
+                    + (i % 2 == 0 ? " " : "") + unit);
+        }
+    }
+
+    @Benchmark
+    public ExpandedQuery rewrite(final QueryCursor cursor) {
+        final ExpandedQuery query = new ExpandedQuery(
+                WhiteSpaceQuerqyParser.parseString(queries.get(cursor.next(numQueries))));
+        return rewriteChain.rewrite(query, new BenchmarkRequestAdapter(rewriteChain));
+    }
+
+}
@@ -0,0 +1,49 @@
+package querqy.benchmarks.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import querqy.benchmarks.QueryCursor;
+import querqy.benchmarks.SyntheticData;
+import querqy.model.ExpandedQuery;
+import querqy.parser.WhiteSpaceQuerqyParser;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The rewriter benchmarks have to parse the query for each invocation as rewriting changes the query. This benchmark
+ * measures the parsing costs alone so that they can be subtracted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParserBaselineBenchmark {
+
+    @Param({"1000"})
+    public int numQueries;
+
+    private List<String> queries;
+
+    @Setup
+    public void setUp() {
+        queries = SyntheticData.queries(numQueries, 1000, 0.5, 4);
+    }
+
+    @Benchmark
+    public ExpandedQuery parse(final QueryCursor cursor) {
+        return new ExpandedQuery(WhiteSpaceQuerqyParser.parseString(queries.get(cursor.next(numQueries))));
+    }
+
+}
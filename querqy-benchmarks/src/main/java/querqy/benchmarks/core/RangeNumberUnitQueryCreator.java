@@ -0,0 +1,51 @@
+package querqy.benchmarks.core;
+
+import querqy.model.BoostQuery;
+import querqy.model.Clause;
+import querqy.model.StringRawQuery;
+import querqy.rewrite.contrib.numberunit.NumberUnitQueryCreator;
+import querqy.rewrite.contrib.numberunit.model.PerUnitNumberUnitDefinition;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A simple {@link NumberUnitQueryCreator} that creates range queries as raw query strings. It only exists to make
+ * {@link NumberUnitRewriterBenchmark} independent from a search engine.
+ */
+public class RangeNumberUnitQueryCreator extends NumberUnitQueryCreator {
+
+    public RangeNumberUnitQueryCreator(final int scale) {
+        super(scale);
+    }
+
+    @Override
+    public StringRawQuery createFilterQuery(final BigDecimal value,
+                                            final List<PerUnitNumberUnitDefinition> perUnitNumberUnitDefinitions) {
+        return new StringRawQuery(null, perUnitNumberUnitDefinitions.stream().map(def -> {
+            final BigDecimal multipliedValue = value.multiply(def.multiplier);
+            return rangeQuery(def,
+                    subtractPercentage(multipliedValue, def.numberUnitDefinition.filterPercentageLowerBoundary),
+                    addPercentage(multipliedValue, def.numberUnitDefinition.filterPercentageUpperBoundary));
+        }).collect(Collectors.joining(" OR ")), Clause.Occur.MUST, true);
+    }
+
+    @Override
+    public BoostQuery createBoostQuery(final BigDecimal value,
+                                       final List<PerUnitNumberUnitDefinition> perUnitNumberUnitDefinitions) {
+        return new BoostQuery(new StringRawQuery(null, perUnitNumberUnitDefinitions.stream().map(def -> {
+            final BigDecimal multipliedValue = value.multiply(def.multiplier);
+            return rangeQuery(def,
+                    subtractPercentage(multipliedValue, def.numberUnitDefinition.boostPercentageLowerBoundary),
+                    addPercentage(multipliedValue, def.numberUnitDefinition.boostPercentageUpperBoundary));
+        }).collect(Collectors.joining(" OR ")), Clause.Occur.SHOULD, true), 1f);
+    }
+
+    private String rangeQuery(final PerUnitNumberUnitDefinition def, final BigDecimal lower, final BigDecimal upper) {
+        return def.numberUnitDefinition.fields.stream()
+                .map(field -> field.fieldName + ":[" + lower.setScale(field.scale, getRoundingMode()) + " TO "
+                        + upper.setScale(field.scale, getRoundingMode()) + "]")
+                .collect(Collectors.joining(" OR "));
+    }
+}
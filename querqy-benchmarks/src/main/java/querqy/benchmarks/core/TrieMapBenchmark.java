@@ -0,0 +1,84 @@
+package querqy.benchmarks.core;
+
+import static querqy.benchmarks.SyntheticData.word;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import querqy.benchmarks.QueryCursor;
+import querqy.benchmarks.SyntheticData;
+import querqy.trie.States;
+import querqy.trie.TrieMap;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TrieMapBenchmark {
+
+    private static final int NUM_LOOKUPS = 10000;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<String> keys;
+    private TrieMap<Integer> trieMap;
+    private String[] hits;
+    private String[] misses;
+
+    @Setup
+    public void setUp() {
+        keys = SyntheticData.words(0, size);
+        trieMap = new TrieMap<>();
+        for (int i = 0; i < size; i++) {
+            trieMap.put(keys.get(i), i);
+        }
+
+        final Random random = new Random(SyntheticData.SEED);
+        hits = new String[NUM_LOOKUPS];
+        misses = new String[NUM_LOOKUPS];
+        for (int i = 0; i < NUM_LOOKUPS; i++) {
+            hits[i] = keys.get(random.nextInt(size));
+            misses[i] = word(size + random.nextInt(size));
+        }
+    }
+
+    /**
+     * Builds a map with all keys. The time is reported per map, not per key.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public TrieMap<Integer> put() {
+        final TrieMap<Integer> map = new TrieMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(keys.get(i), i);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public States<Integer> getHit(final QueryCursor cursor) {
+        return trieMap.get(hits[cursor.next(NUM_LOOKUPS)]);
+    }
+
+    @Benchmark
+    public States<Integer> getMiss(final QueryCursor cursor) {
+        return trieMap.get(misses[cursor.next(NUM_LOOKUPS)]);
+    }
+
+}
@@ -0,0 +1,96 @@
+package querqy.benchmarks.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import querqy.benchmarks.QueryCursor;
+import querqy.benchmarks.SyntheticData;
+import querqy.model.DisjunctionMaxQuery;
+import querqy.model.InputSequenceElement;
+import querqy.model.Query;
+import querqy.parser.WhiteSpaceQuerqyParser;
+import querqy.rewrite.commonrules.SimpleCommonRulesParser;
+import querqy.rewrite.commonrules.WhiteSpaceQuerqyParserFactory;
+import querqy.rewrite.commonrules.model.PositionSequence;
+import querqy.rewrite.commonrules.model.RulesCollection;
+import querqy.rewrite.commonrules.model.RulesCollectionBuilder;
+import querqy.rewrite.commonrules.model.TokenIdRulesCollectionBuilder;
+import querqy.rewrite.commonrules.model.TrieMapRulesCollectionBuilder;
+import querqy.rewrite.commonrules.select.SelectionStrategyFactory;
+import querqy.rewrite.commonrules.select.TopRewritingActionCollector;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the rule lookup only, without applying the instructions of the matching rules. The 'collection' param
+ * compares the char-based TrieMapRulesCollection with the TokenIdRulesCollection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TrieMapRulesCollectionBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int numRules;
+
+    @Param({"1000"})
+    public int numQueries;
+
+    @Param({"0.5"})
+    public double hitRatio;
+
+    @Param({"trieMap", "tokenId"})
+    public String collection;
+
+    private RulesCollection rules;
+    private PositionSequence<InputSequenceElement>[] sequences;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+
+        final RulesCollectionBuilder builder = "tokenId".equals(collection)
+                ? new TokenIdRulesCollectionBuilder(true)
+                : new TrieMapRulesCollectionBuilder(true);
+
+        rules = new SimpleCommonRulesParser(new StringReader(SyntheticData.commonRules(numRules)), false,
+                new WhiteSpaceQuerqyParserFactory(), builder).parse();
+
+        final List<String> queries = SyntheticData.queries(numQueries, numRules, hitRatio, 4);
+        sequences = new PositionSequence[numQueries];
+        for (int i = 0; i < numQueries; i++) {
+            sequences[i] = toPositionSequence(WhiteSpaceQuerqyParser.parseString(queries.get(i)));
+        }
+    }
+
+    @Benchmark
+    public TopRewritingActionCollector collectRewriteActions(final QueryCursor cursor) {
+        final TopRewritingActionCollector collector = SelectionStrategyFactory.DEFAULT_SELECTION_STRATEGY
+                .createTopRewritingActionCollector();
+        rules.collectRewriteActions(sequences[cursor.next(numQueries)], collector);
+        return collector;
+    }
+
+    private static PositionSequence<InputSequenceElement> toPositionSequence(final Query query) {
+        final PositionSequence<InputSequenceElement> sequence = new PositionSequence<>();
+        for (final DisjunctionMaxQuery dmq : query.getClauses(DisjunctionMaxQuery.class)) {
+            sequence.nextPosition();
+            dmq.getTerms().forEach(sequence::addElement);
+        }
+        return sequence;
+    }
+
+}
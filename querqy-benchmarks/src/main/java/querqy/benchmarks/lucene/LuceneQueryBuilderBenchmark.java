@@ -0,0 +1,141 @@
+package querqy.benchmarks.lucene;
+
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Weight;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import querqy.benchmarks.BenchmarkRequestAdapter;
+import querqy.benchmarks.QueryCursor;
+import querqy.benchmarks.SyntheticData;
+import querqy.lucene.rewrite.DependentTermQueryBuilder;
+import querqy.lucene.rewrite.DocumentFrequencyCorrection;
+import querqy.lucene.rewrite.FieldBoostTermQueryBuilder;
+import querqy.lucene.rewrite.LuceneQueryBuilder;
+import querqy.lucene.rewrite.SearchFieldsAndBoosting;
+import querqy.lucene.rewrite.SearchFieldsAndBoosting.FieldBoostModel;
+import querqy.lucene.rewrite.SimilarityTermQueryBuilder;
+import querqy.lucene.rewrite.TermQueryBuilder;
+import querqy.model.ExpandedQuery;
+import querqy.model.QuerqyQuery;
+import querqy.parser.WhiteSpaceQuerqyParser;
+import querqy.rewrite.RewriteChain;
+import querqy.rewrite.commonrules.SimpleCommonRulesRewriterFactory;
+import querqy.rewrite.commonrules.WhiteSpaceQuerqyParserFactory;
+import querqy.rewrite.commonrules.select.ExpressionCriteriaSelectionStrategyFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the translation of rewritten querqy queries into Lucene queries ({@link #createQuery(QueryCursor)}) and
+ * the creation of their weights against a {@link SyntheticIndex} ({@link #createWeight(QueryCursor)}), which is
+ * where the document frequency correction happens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LuceneQueryBuilderBenchmark {
+
+    public enum Scoring { DFC, SIMILARITY_SCORE_ON, SIMILARITY_SCORE_OFF }
+
+    @Param({"10000", "100000", "1000000"})
+    public int numDocs;
+
+    @Param({"100000"})
+    public int vocabularySize;
+
+    @Param({"DFC", "SIMILARITY_SCORE_ON", "SIMILARITY_SCORE_OFF"})
+    public Scoring scoring;
+
+    @Param({"1000"})
+    public int numQueries;
+
+    private SyntheticIndex index;
+    private SearchFieldsAndBoosting searchFieldsAndBoosting;
+    private QuerqyQuery<?>[] userQueries;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        index = new SyntheticIndex(numDocs, vocabularySize);
+
+        final Map<String, Float> queryFields = new HashMap<>();
+        queryFields.put(SyntheticIndex.FIELD_TITLE, 10f);
+        queryFields.put(SyntheticIndex.FIELD_BODY, 1f);
+        searchFieldsAndBoosting = new SearchFieldsAndBoosting(FieldBoostModel.FIXED, queryFields, queryFields, 0.5f);
+
+        // rule inputs and outputs are within the vocabulary of the index
+        final int numRules = vocabularySize / 4;
+        final RewriteChain rewriteChain = new RewriteChain(Collections.singletonList(
+                new SimpleCommonRulesRewriterFactory("rules", new StringReader(SyntheticData.commonRules(numRules)),
+                        false, new WhiteSpaceQuerqyParserFactory(), true, Collections.emptyMap(),
+                        new ExpressionCriteriaSelectionStrategyFactory(), false)));
+
+        final List<String> queries = SyntheticData.queries(numQueries, numRules, 0.5, 4);
+        userQueries = new QuerqyQuery<?>[numQueries];
+        for (int i = 0; i < numQueries; i++) {
+            final ExpandedQuery query = new ExpandedQuery(WhiteSpaceQuerqyParser.parseString(queries.get(i)));
+            userQueries[i] = rewriteChain.rewrite(query, new BenchmarkRequestAdapter(rewriteChain)).getUserQuery();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Benchmark
+    public Query createQuery(final QueryCursor cursor) {
+        return buildQuery(userQueries[cursor.next(numQueries)]);
+    }
+
+    @Benchmark
+    public Weight createWeight(final QueryCursor cursor) throws IOException {
+        final Query query = index.searcher.rewrite(buildQuery(userQueries[cursor.next(numQueries)]));
+        return index.searcher.createWeight(query, ScoreMode.COMPLETE, 1f);
+    }
+
+    private Query buildQuery(final QuerqyQuery<?> userQuery) {
+        final TermQueryBuilder termQueryBuilder;
+        final DocumentFrequencyCorrection dfc;
+        switch (scoring) {
+            case DFC:
+                dfc = new DocumentFrequencyCorrection();
+                termQueryBuilder = new DependentTermQueryBuilder(dfc);
+                break;
+            case SIMILARITY_SCORE_ON:
+                dfc = null;
+                termQueryBuilder = new SimilarityTermQueryBuilder();
+                break;
+            default:
+                dfc = null;
+                termQueryBuilder = new FieldBoostTermQueryBuilder();
+        }
+        final Query query = new LuceneQueryBuilder(termQueryBuilder, index.analyzer, searchFieldsAndBoosting, 0.01f,
+                null).createQuery(userQuery);
+        if (dfc != null) {
+            dfc.finishedUserQuery();
+        }
+        return query;
+    }
+
+}
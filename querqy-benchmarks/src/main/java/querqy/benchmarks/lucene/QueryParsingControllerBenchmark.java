@@ -0,0 +1,121 @@
+package querqy.benchmarks.lucene;
+
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import querqy.benchmarks.BenchmarkRequestAdapter;
+import querqy.benchmarks.QueryCursor;
+import querqy.benchmarks.SyntheticData;
+import querqy.lucene.LuceneQueries;
+import querqy.lucene.LuceneSearchEngineRequestAdapter.SyntaxException;
+import querqy.lucene.QueryParsingController;
+import querqy.rewrite.RewriteChain;
+import querqy.rewrite.commonrules.SimpleCommonRulesRewriterFactory;
+import querqy.rewrite.commonrules.WhiteSpaceQuerqyParserFactory;
+import querqy.rewrite.commonrules.select.ExpressionCriteriaSelectionStrategyFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the complete query processing of {@link QueryParsingController#process()} - parsing, common rules
+ * rewriting and creating the Lucene queries - and, in {@link #processAndSearch(QueryCursor)}, searching the resulting
+ * queries in a {@link SyntheticIndex}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class QueryParsingControllerBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int numRules;
+
+    @Param({"100000"})
+    public int numDocs;
+
+    @Param({"dfc", "on", "off"})
+    public String userQuerySimilarityScore;
+
+    @Param({"1000"})
+    public int numQueries;
+
+    @Param({"0.5"})
+    public double hitRatio;
+
+    private SyntheticIndex index;
+    private RewriteChain rewriteChain;
+    private Map<String, Float> queryFields;
+    private Map<String, String> params;
+    private List<String> queries;
+
+    @Setup
+    public void setUp() throws IOException {
+        // all rule inputs and outputs are within the vocabulary of the index
+        index = new SyntheticIndex(numDocs, 4 * numRules);
+        rewriteChain = new RewriteChain(Collections.singletonList(
+                new SimpleCommonRulesRewriterFactory("rules", new StringReader(SyntheticData.commonRules(numRules)),
+                        false, new WhiteSpaceQuerqyParserFactory(), true, Collections.emptyMap(),
+                        new ExpressionCriteriaSelectionStrategyFactory(), false)));
+
+        queryFields = new HashMap<>();
+        queryFields.put(SyntheticIndex.FIELD_TITLE, 10f);
+        queryFields.put(SyntheticIndex.FIELD_BODY, 1f);
+
+        params = new HashMap<>();
+        params.put("uq.similarityScore", userQuerySimilarityScore);
+        params.put("tie", "0.01");
+
+        queries = SyntheticData.queries(numQueries, numRules, hitRatio, 4);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Benchmark
+    public LuceneQueries process(final QueryCursor cursor) throws SyntaxException {
+        return newController(cursor).process();
+    }
+
+    @Benchmark
+    public TopDocs processAndSearch(final QueryCursor cursor) throws SyntaxException, IOException {
+        final LuceneQueries queries = newController(cursor).process();
+
+        final BooleanQuery.Builder builder = new BooleanQuery.Builder()
+                .add(queries.mainQuery, BooleanClause.Occur.MUST);
+        if (queries.filterQueries != null) {
+            for (final Query filterQuery : queries.filterQueries) {
+                builder.add(filterQuery, BooleanClause.Occur.FILTER);
+            }
+        }
+        return index.searcher.search(builder.build(), 10);
+    }
+
+    private QueryParsingController newController(final QueryCursor cursor) {
+        return new QueryParsingController(new BenchmarkRequestAdapter(queries.get(cursor.next(numQueries)),
+                rewriteChain, index.analyzer, queryFields, params));
+    }
+
+}
@@ -0,0 +1,98 @@
+package querqy.benchmarks.lucene;
+
+import static querqy.benchmarks.SyntheticData.word;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import querqy.benchmarks.SyntheticData;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * <p>An in-memory index of synthetic documents.</p>
+ *
+ * <p>Field {@link #FIELD_TITLE} contains 3 and field {@link #FIELD_BODY} contains 10 words from
+ * {@link SyntheticData#word(int)} with index [0, vocabularySize). {@link #FIELD_DICTIONARY} contains the title words
+ * and, for every 10th document, a compound {@link #compound(int)}.</p>
+ */
+public class SyntheticIndex implements Closeable {
+
+    public static final String FIELD_TITLE = "f1";
+    public static final String FIELD_BODY = "f2";
+    public static final String FIELD_DICTIONARY = "dict";
+
+    public final Directory directory;
+    public final DirectoryReader reader;
+    public final IndexSearcher searcher;
+    public final Analyzer analyzer;
+    public final int vocabularySize;
+
+    public SyntheticIndex(final int numDocs, final int vocabularySize) throws IOException {
+
+        this.vocabularySize = vocabularySize;
+        analyzer = new WhitespaceAnalyzer();
+        directory = new ByteBuffersDirectory();
+
+        final Random random = new Random(SyntheticData.SEED);
+
+        try (final IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+            for (int i = 0; i < numDocs; i++) {
+                final String title = words(random, 3);
+                final Document doc = new Document();
+                doc.add(new TextField(FIELD_TITLE, title, Field.Store.NO));
+                doc.add(new TextField(FIELD_BODY, words(random, 10), Field.Store.NO));
+                doc.add(new TextField(FIELD_DICTIONARY,
+                        i % 10 == 0 ? title + " " + compound(random.nextInt(numCompounds())) : title,
+                        Field.Store.NO));
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+        }
+
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+    }
+
+    /**
+     * @return The number of distinct compounds that can be contained in the dictionary field
+     */
+    public int numCompounds() {
+        return vocabularySize / 2;
+    }
+
+    /**
+     * @param k The index of the compound, [0, {@link #numCompounds()})
+     * @return The compound of the words 2k and 2k + 1
+     */
+    public static String compound(final int k) {
+        return word(2 * k) + word(2 * k + 1);
+    }
+
+    private String words(final Random random, final int count) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(word(random.nextInt(vocabularySize)));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+        directory.close();
+    }
+}
@@ -0,0 +1,112 @@
+package querqy.benchmarks.lucene;
+
+import static querqy.benchmarks.SyntheticData.word;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import querqy.benchmarks.BenchmarkRequestAdapter;
+import querqy.benchmarks.QueryCursor;
+import querqy.benchmarks.SyntheticData;
+import querqy.lucene.contrib.rewrite.wordbreak.CompounderType;
+import querqy.lucene.contrib.rewrite.wordbreak.Morphology;
+import querqy.lucene.contrib.rewrite.wordbreak.WordBreakCompoundRewriterFactory;
+import querqy.model.ExpandedQuery;
+import querqy.parser.WhiteSpaceQuerqyParser;
+import querqy.rewrite.RewriteChain;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks decompounding and compounding against the dictionary field of a {@link SyntheticIndex}. A third of the
+ * queries contains a compound to be split, a third contains two tokens that form an indexed compound and a third
+ * contains words that neither can be split nor combined into an indexed compound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class WordBreakCompoundRewriterBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int numDocs;
+
+    @Param({"10000"})
+    public int vocabularySize;
+
+    @Param({"DEFAULT", "GERMAN"})
+    public Morphology morphology;
+
+    @Param({"false", "true"})
+    public boolean verifyDecompoundCollation;
+
+    @Param({"false", "true"})
+    public boolean precomputedDecompoundDictionary;
+
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    @Param({"SPELL_CHECKER", "MORPHOLOGICAL"})
+    public CompounderType compounderType;
+
+    @Param({"1000"})
+    public int numQueries;
+
+    private SyntheticIndex index;
+    private RewriteChain rewriteChain;
+    private List<String> queries;
+
+    @Setup
+    public void setUp() throws IOException {
+        index = new SyntheticIndex(numDocs, vocabularySize);
+        rewriteChain = new RewriteChain(Collections.singletonList(new WordBreakCompoundRewriterFactory("wordbreak",
+                () -> index.reader, morphology, SyntheticIndex.FIELD_DICTIONARY, true, 1, 30, 3,
+                Collections.emptyList(), false, 3, verifyDecompoundCollation, Collections.emptyList(),
+                precomputedDecompoundDictionary, cacheSize, compounderType)));
+
+        final Random random = new Random(SyntheticData.SEED);
+        queries = new ArrayList<>(numQueries);
+        for (int i = 0; i < numQueries; i++) {
+            final int k = random.nextInt(index.numCompounds());
+            switch (i % 3) {
+                case 0:
+                    queries.add(SyntheticIndex.compound(k));
+                    break;
+                case 1:
+                    queries.add(word(2 * k) + " " + word(2 * k + 1));
+                    break;
+                default:
+                    queries.add(word(vocabularySize + random.nextInt(vocabularySize)));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Benchmark
+    public ExpandedQuery rewrite(final QueryCursor cursor) {
+        final ExpandedQuery query = new ExpandedQuery(
+                WhiteSpaceQuerqyParser.parseString(queries.get(cursor.next(numQueries))));
+        return rewriteChain.rewrite(query, new BenchmarkRequestAdapter(rewriteChain));
+    }
+
+}
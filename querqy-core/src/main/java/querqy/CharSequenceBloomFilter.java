@@ -0,0 +1,89 @@
+package querqy;
+
+import java.util.Collection;
+
+/**
+ * <p>A Bloom filter for {@link CharSequence}s.</p>
+ *
+ * <p>{@link #mightContain(CharSequence)} never returns false for a sequence that has been added to the filter, but it
+ * might return true for a sequence that hasn't been added (with a probability of about 1%). The hashes only depend on
+ * the characters of a sequence, not on its implementation, so that any {@link CharSequence} can be looked up without
+ * creating a String first.</p>
+ */
+public class CharSequenceBloomFilter {
+
+    static final int BITS_PER_ENTRY = 10;
+    static final int NUM_HASHES = 7;
+
+    private final long[] bits;
+    private final int numBits;
+
+    /**
+     * Create a filter that contains the given sequences.
+     *
+     * @param sequences The sequences to add to the filter
+     */
+    public CharSequenceBloomFilter(final Collection<? extends CharSequence> sequences) {
+        // use at least one long
+        numBits = Math.max(64, sequences.size() * BITS_PER_ENTRY);
+        bits = new long[(numBits + 63) >>> 6];
+        for (final CharSequence seq : sequences) {
+            add(seq);
+        }
+    }
+
+    private void add(final CharSequence seq) {
+        final int h1 = hash1(seq);
+        final int h2 = hash2(seq);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            final int bit = bitIndex(h1, h2, i);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * @param seq The sequence to look up
+     * @return false if the sequence is definitely not contained, true if it might be contained
+     */
+    public boolean mightContain(final CharSequence seq) {
+        final int h1 = hash1(seq);
+        final int h2 = hash2(seq);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            final int bit = bitIndex(h1, h2, i);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int bitIndex(final int h1, final int h2, final int i) {
+        // double hashing (Kirsch/Mitzenmacher)
+        return ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+    }
+
+    // FNV-1a
+    static int hash1(final CharSequence seq) {
+        int h = 0x811c9dc5;
+        for (int i = 0, len = seq.length(); i < len; i++) {
+            h ^= seq.charAt(i);
+            h *= 0x01000193;
+        }
+        return h;
+    }
+
+    // polynomial hash with the MurmurHash3 finalizer, forced to be odd so that the hash functions differ for all i
+    static int hash2(final CharSequence seq) {
+        int h = 0;
+        for (int i = 0, len = seq.length(); i < len; i++) {
+            h = 31 * h + seq.charAt(i);
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h | 1;
+    }
+
+}
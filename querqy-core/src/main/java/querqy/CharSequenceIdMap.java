@@ -0,0 +1,127 @@
+package querqy;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * <p>Maps {@link CharSequence}s to int ids (&gt;= 0).</p>
+ *
+ * <p>The keys are compared by their characters so that any {@link CharSequence} implementation can be looked up
+ * without creating a String first. The map uses open addressing and the hash of a key is calculated in a single pass
+ * over its characters.</p>
+ *
+ * <p>This class is not thread-safe for writing. It can be read concurrently once all entries have been put.</p>
+ */
+public class CharSequenceIdMap {
+
+    public static final int NOT_FOUND = -1;
+
+    private String[] keys;
+    private int[] ids;
+    private int size = 0;
+
+    public CharSequenceIdMap() {
+        this(16);
+    }
+
+    public CharSequenceIdMap(final int expectedSize) {
+        final int capacity = capacityFor(expectedSize);
+        keys = new String[capacity];
+        ids = new int[capacity];
+    }
+
+    /**
+     * @param seq The key
+     * @return The id for the key or {@link #NOT_FOUND}
+     */
+    public int get(final CharSequence seq) {
+        final int mask = keys.length - 1;
+        int slot = hash(seq) & mask;
+        String key;
+        while ((key = keys[slot]) != null) {
+            if (key.contentEquals(seq)) {
+                return ids[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Put an id.
+     *
+     * @param seq The key
+     * @param id The id (&gt;= 0)
+     * @return The previous id for this key or {@link #NOT_FOUND}
+     */
+    public int put(final CharSequence seq, final int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("id must not be negative");
+        }
+        final int mask = keys.length - 1;
+        int slot = hash(seq) & mask;
+        String key;
+        while ((key = keys[slot]) != null) {
+            if (key.contentEquals(seq)) {
+                final int previous = ids[slot];
+                ids[slot] = id;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = seq.toString();
+        ids[slot] = id;
+        if (++size * 4 > keys.length * 3) {
+            resize();
+        }
+        return NOT_FOUND;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(final ObjIntConsumer<String> consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                consumer.accept(keys[i], ids[i]);
+            }
+        }
+    }
+
+    private void resize() {
+        final String[] oldKeys = keys;
+        final int[] oldIds = ids;
+        keys = new String[oldKeys.length * 2];
+        ids = new int[oldKeys.length * 2];
+        final int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                ids[slot] = oldIds[i];
+            }
+        }
+    }
+
+    private static int capacityFor(final int expectedSize) {
+        int capacity = 16;
+        while (capacity * 3 < expectedSize * 4) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(final CharSequence seq) {
+        final int h = CharSequenceUtil.hashCode(seq) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return "CharSequenceIdMap{size=" + size + ", keys=" + Arrays.toString(keys) + '}';
+    }
+}
@@ -3,29 +3,60 @@
  */
 package querqy.rewrite;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
+import querqy.model.AbstractNodeVisitor;
+import querqy.model.BoostQuery;
 import querqy.model.ExpandedQuery;
+import querqy.model.QuerqyQuery;
 import querqy.model.Query;
 import querqy.infologging.InfoLoggingContext;
+import querqy.model.Term;
 
 /**
- * The chain of rewriters to manipulate a {@link Query}.
+ * <p>The chain of rewriters to manipulate a {@link Query}.</p>
+ *
+ * <p>The time that the rewriters may spend can be limited per request using the parameters
+ * {@value #PARAM_TIME_BUDGET} (for the whole chain) and querqy.&lt;rewriterId&gt;{@value #PARAM_SUFFIX_TIME_BUDGET}
+ * (per rewriter), both in milliseconds. If a rewriter exceeds its budget (see {@link TimeBudget}), the chain continues
+ * with the query as it was before that rewriter. Once the budget of the chain is exhausted, the remaining rewriters
+ * are skipped. The ids of the aborted and skipped rewriters are put into the request context under
+ * {@value #CONTEXT_KEY_TIME_BUDGET_EXCEEDED}. Note that objects that an aborted rewriter had already put into the request
+ * context (like decorations) are not removed. The chain counts the aborted and skipped rewriters over all requests
+ * (see {@link #getNumRewritersAbortedByTimeBudget()} and {@link #getNumRewritersSkippedByTimeBudget()}) so that it can
+ * be monitored how often the budgets take effect.</p>
  * 
  * @author rene
  *
  */
 public class RewriteChain {
 
+    public static final String PARAM_TIME_BUDGET = "querqy.timeBudget";
+    public static final String PARAM_SUFFIX_TIME_BUDGET = ".timeBudget";
+
+    /**
+     * The context key under which the ids of the rewriters that exceeded the time budget are stored (as a Set)
+     */
+    public static final String CONTEXT_KEY_TIME_BUDGET_EXCEEDED = "querqy.rewrite.timeBudgetExceeded";
+
     final List<RewriterFactory> factories;
 
     @Deprecated
     final Map<String, RewriterFactory> factoriesByName;
 
+    private final LongAdder numRewritersAborted = new LongAdder();
+    private final LongAdder numRewritersSkipped = new LongAdder();
+
     public RewriteChain() {
         this(Collections.emptyList());
     }
@@ -53,17 +84,61 @@ public class RewriteChain {
 
         final String oldRewriterId = loggingContext.map(InfoLoggingContext::getRewriterId).orElse(null);
 
-        try {
+        // debug output should show all rewriters
+        final boolean preCheck = !searchEngineRequestAdapter.isDebugQuery();
 
-            for (final RewriterFactory factory : factories) {
+        // the terms of the current query, collected when needed
+        List<Term> queryTerms = null;
 
-                loggingContext.ifPresent(context -> context.setRewriterId(factory.getRewriterId()));
+        final TimeBudget chainBudget = getTimeBudget(searchEngineRequestAdapter, PARAM_TIME_BUDGET);
 
-                final QueryRewriter rewriter = factory.createRewriter(work, searchEngineRequestAdapter);
+        try {
 
-                work = (rewriter instanceof ContextAwareQueryRewriter)
-                        ? ((ContextAwareQueryRewriter) rewriter).rewrite(work, searchEngineRequestAdapter)
-                        : rewriter.rewrite(work);
+            for (final RewriterFactory factory : factories) {
+
+                if (preCheck) {
+                    if (queryTerms == null) {
+                        queryTerms = collectTerms(work.getUserQuery());
+                    }
+                    if (!factory.mayApply(queryTerms)) {
+                        continue;
+                    }
+                    // the rewriter might change the query
+                    queryTerms = null;
+                }
+
+                final String rewriterId = factory.getRewriterId();
+
+                loggingContext.ifPresent(context -> context.setRewriterId(rewriterId));
+
+                final TimeBudget rewriterBudget = getTimeBudget(searchEngineRequestAdapter,
+                        "querqy." + rewriterId + PARAM_SUFFIX_TIME_BUDGET);
+                final TimeBudget budget = rewriterBudget == null ? chainBudget : rewriterBudget.min(chainBudget);
+
+                if (budget == null) {
+                    work = applyRewriter(factory, work, searchEngineRequestAdapter);
+                    continue;
+                }
+
+                if (budget.isExceeded()) {
+                    // the budget of the chain has been used up by the previous rewriters
+                    numRewritersSkipped.increment();
+                    notifyTimeBudgetExceeded(rewriterId, "skipped", searchEngineRequestAdapter);
+                    continue;
+                }
+
+                // the rewriter might change the query in place
+                final ExpandedQuery before = copy(work);
+                final TimeBudget previousBudget = TimeBudget.activate(budget);
+                try {
+                    work = applyRewriter(factory, work, searchEngineRequestAdapter);
+                } catch (final TimeBudgetExceededException e) {
+                    numRewritersAborted.increment();
+                    notifyTimeBudgetExceeded(rewriterId, "aborted", searchEngineRequestAdapter);
+                    work = before;
+                } finally {
+                    TimeBudget.activate(previousBudget);
+                }
 
             }
 
@@ -74,6 +149,96 @@ public class RewriteChain {
         return work;
     }
 
+    private static ExpandedQuery applyRewriter(final RewriterFactory factory, final ExpandedQuery query,
+                                               final SearchEngineRequestAdapter searchEngineRequestAdapter) {
+
+        final QueryRewriter rewriter = factory.createRewriter(query, searchEngineRequestAdapter);
+
+        return (rewriter instanceof ContextAwareQueryRewriter)
+                ? ((ContextAwareQueryRewriter) rewriter).rewrite(query, searchEngineRequestAdapter)
+                : rewriter.rewrite(query);
+    }
+
+    private static TimeBudget getTimeBudget(final SearchEngineRequestAdapter searchEngineRequestAdapter,
+                                            final String paramName) {
+        return searchEngineRequestAdapter.getIntegerRequestParam(paramName).map(millis -> {
+            if (millis < 0) {
+                throw new IllegalArgumentException(paramName + " must not be negative");
+            }
+            return TimeBudget.ofMillis(millis);
+        }).orElse(null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void notifyTimeBudgetExceeded(final String rewriterId, final String action,
+                                                 final SearchEngineRequestAdapter searchEngineRequestAdapter) {
+
+        final Map<String, Object> context = searchEngineRequestAdapter.getContext();
+
+        ((Set<String>) context.computeIfAbsent(CONTEXT_KEY_TIME_BUDGET_EXCEEDED, key -> new LinkedHashSet<>()))
+                .add(rewriterId);
+
+        if (Boolean.TRUE.equals(context.get(AbstractLoggingRewriter.CONTEXT_KEY_DEBUG_ENABLED))) {
+            ((List<String>) context.computeIfAbsent(AbstractLoggingRewriter.CONTEXT_KEY_DEBUG_DATA,
+                    key -> new LinkedList<>()))
+                    .add("Time budget exceeded, rewriter " + action + ": " + rewriterId);
+        }
+    }
+
+    static ExpandedQuery copy(final ExpandedQuery query) {
+
+        final ExpandedQuery copy = new ExpandedQuery(query.getUserQuery().clone(null));
+
+        final Collection<QuerqyQuery<?>> filterQueries = query.getFilterQueries();
+        if (filterQueries != null) {
+            filterQueries.forEach(filterQuery -> copy.addFilterQuery(filterQuery.clone(null)));
+        }
+
+        final Collection<BoostQuery> boostUpQueries = query.getBoostUpQueries();
+        if (boostUpQueries != null) {
+            boostUpQueries.forEach(boostQuery ->
+                    copy.addBoostUpQuery(new BoostQuery(boostQuery.getQuery().clone(null), boostQuery.getBoost())));
+        }
+
+        final Collection<BoostQuery> boostDownQueries = query.getBoostDownQueries();
+        if (boostDownQueries != null) {
+            boostDownQueries.forEach(boostQuery ->
+                    copy.addBoostDownQuery(new BoostQuery(boostQuery.getQuery().clone(null), boostQuery.getBoost())));
+        }
+
+        return copy;
+    }
+
+    static List<Term> collectTerms(final QuerqyQuery<?> userQuery) {
+        if (!(userQuery instanceof Query)) {
+            return Collections.emptyList();
+        }
+        final List<Term> terms = new ArrayList<>();
+        new AbstractNodeVisitor<Void>() {
+            @Override
+            public Void visit(final Term term) {
+                terms.add(term);
+                return null;
+            }
+        }.visit((Query) userQuery);
+        return terms;
+    }
+
+    /**
+     * @return The number of times a rewriter of this chain has been aborted because it exceeded its time budget
+     */
+    public long getNumRewritersAbortedByTimeBudget() {
+        return numRewritersAborted.sum();
+    }
+
+    /**
+     * @return The number of times a rewriter of this chain has been skipped because the time budget of the chain had
+     * been used up by the previous rewriters
+     */
+    public long getNumRewritersSkippedByTimeBudget() {
+        return numRewritersSkipped.sum();
+    }
+
     @Deprecated
     public List<RewriterFactory> getRewriterFactories() {
         return factories;
@@ -4,6 +4,7 @@
 package querqy.rewrite;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import querqy.model.ExpandedQuery;
@@ -47,6 +48,21 @@ public abstract class RewriterFactory {
         return getGenerableTerms();
     }
 
+    /**
+     * <p>A fast pre-check whether a rewriter created by this factory could change a query that contains the given
+     * terms. The {@link RewriteChain} will not create and apply a rewriter for the query if this method returns
+     * false.</p>
+     * <p>Implementations must not return false if the rewriter might change the query. The default implementation
+     * always returns true.</p>
+     *
+     * @param queryTerms The terms of the user query, including generated terms. The list is empty if the user query
+     *                   doesn't contain any term or if it isn't a {@link querqy.model.Query}.
+     * @return false if the rewriter would not change the query
+     */
+    public boolean mayApply(final List<Term> queryTerms) {
+        return true;
+    }
+
     public String getRewriterId() {
         return rewriterId;
     }
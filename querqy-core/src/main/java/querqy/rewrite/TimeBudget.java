@@ -0,0 +1,74 @@
+package querqy.rewrite;
+
+/**
+ * <p>A time budget for rewriting.</p>
+ *
+ * <p>The {@link RewriteChain} activates a budget for the current thread while a rewriter is running. Long-running loops
+ * in rewriters call {@link #check()}, which throws a {@link TimeBudgetExceededException} once the budget is exhausted.
+ * The chain then discards the result of the rewriter and continues with the query as it was before the rewriter.</p>
+ *
+ * <p>{@link #check()} does nothing if no budget is active.</p>
+ */
+public final class TimeBudget {
+
+    private static final ThreadLocal<TimeBudget> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private TimeBudget(final long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Create a budget that expires after the given number of milliseconds from now.
+     *
+     * @param millis The budget in milliseconds
+     * @return The budget
+     */
+    public static TimeBudget ofMillis(final long millis) {
+        return new TimeBudget(System.nanoTime() + millis * 1_000_000L);
+    }
+
+    /**
+     * Get the budget that expires first.
+     *
+     * @param other Another budget or null
+     * @return This or the other budget, whichever expires first
+     */
+    public TimeBudget min(final TimeBudget other) {
+        return (other == null || deadlineNanos - other.deadlineNanos <= 0L) ? this : other;
+    }
+
+    public boolean isExceeded() {
+        return System.nanoTime() - deadlineNanos > 0L;
+    }
+
+    /**
+     * Check the budget that is active for the current thread.
+     *
+     * @throws TimeBudgetExceededException if the budget is exhausted
+     */
+    public static void check() {
+        final TimeBudget budget = CURRENT.get();
+        if (budget != null && budget.isExceeded()) {
+            throw new TimeBudgetExceededException("Time budget exceeded");
+        }
+    }
+
+    /**
+     * Make a budget the active budget of the current thread.
+     *
+     * @param budget The budget or null to deactivate the current budget
+     * @return The previously active budget or null
+     */
+    static TimeBudget activate(final TimeBudget budget) {
+        final TimeBudget previous = CURRENT.get();
+        if (budget == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(budget);
+        }
+        return previous;
+    }
+
+}
@@ -0,0 +1,13 @@
+package querqy.rewrite;
+
+/**
+ * Thrown by {@link TimeBudget#check()} if the time budget of the current rewriter is exhausted.
+ */
+public class TimeBudgetExceededException extends RuntimeException {
+
+    public TimeBudgetExceededException(final String message) {
+        // we don't need the stack trace, the exception is caught by the RewriteChain
+        super(message, null, false, false);
+    }
+
+}
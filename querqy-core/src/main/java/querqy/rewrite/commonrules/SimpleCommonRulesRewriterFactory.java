@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.Reader;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -16,6 +17,10 @@ import querqy.rewrite.RewriterFactory;
 import querqy.rewrite.SearchEngineRequestAdapter;
 import querqy.rewrite.TemplateParseException;
 import querqy.rewrite.commonrules.model.RulesCollection;
+import querqy.rewrite.commonrules.model.RulesCollectionBuilder;
+import querqy.rewrite.commonrules.model.TokenIdRulesCollectionBuilder;
+import querqy.rewrite.commonrules.model.TrieMapRulesCollection;
+import querqy.rewrite.commonrules.model.TrieMapRulesCollectionBuilder;
 import querqy.rewrite.commonrules.select.SelectionStrategy;
 import querqy.rewrite.commonrules.select.RuleSelectionParams;
 import querqy.rewrite.commonrules.select.SelectionStrategyFactory;
@@ -54,6 +59,68 @@ public class SimpleCommonRulesRewriterFactory extends RewriterFactory {
                                             final SelectionStrategyFactory defaultSelectionStrategyFactory,
                                             final boolean buildTermCache)
             throws IOException {
+        this(rewriterId, reader, allowBooleanInput, querqyParserFactory, ignoreCase, selectionStrategyFactories,
+                defaultSelectionStrategyFactory, buildTermCache, TrieMapRulesCollection.NO_LIMIT,
+                TrieMapRulesCollection.NO_LIMIT);
+    }
+
+    /**
+     *
+     * @param rewriterId The id of this rewriter
+     * @param reader The reader to access the rewriter configuration
+     * @param allowBooleanInput Iff true, rule input can have boolean expressions
+     * @param querqyParserFactory A parser for the right-hand side of rules
+     * @param ignoreCase Iff true, rule input matching is case insensitive.
+     * @param selectionStrategyFactories A mapping between names of rule selection strategies and their factories.
+     * @param defaultSelectionStrategyFactory The default {@link SelectionStrategyFactory} to be used if no strategy is
+     *                                       specified as a request parameter
+     * @param buildTermCache If true, build the term cache for terms from the rhs of rules
+     * @param maxPrefixesPerPosition The max. number of partial rule input matches that are kept per query position
+     *                               ({@link TrieMapRulesCollection#NO_LIMIT} for no limit)
+     * @param maxInputTerms The max. number of terms of a rule input that will be matched
+     *                      ({@link TrieMapRulesCollection#NO_LIMIT} for no limit)
+     * @throws IOException if rules cannot be read or parsed
+     */
+    public SimpleCommonRulesRewriterFactory(final String rewriterId,
+                                            final Reader reader,
+                                            final boolean allowBooleanInput,
+                                            final QuerqyParserFactory querqyParserFactory,
+                                            final boolean ignoreCase,
+                                            final Map<String, SelectionStrategyFactory> selectionStrategyFactories,
+                                            final SelectionStrategyFactory defaultSelectionStrategyFactory,
+                                            final boolean buildTermCache,
+                                            final int maxPrefixesPerPosition,
+                                            final int maxInputTerms)
+            throws IOException {
+        this(rewriterId, reader, allowBooleanInput, querqyParserFactory,
+                new TrieMapRulesCollectionBuilder(ignoreCase, maxPrefixesPerPosition, maxInputTerms),
+                selectionStrategyFactories, defaultSelectionStrategyFactory, buildTermCache);
+    }
+
+    /**
+     *
+     * @param rewriterId The id of this rewriter
+     * @param reader The reader to access the rewriter configuration
+     * @param allowBooleanInput Iff true, rule input can have boolean expressions
+     * @param querqyParserFactory A parser for the right-hand side of rules
+     * @param rulesCollectionBuilder The builder for the rules collection, for example, a
+     *                               {@link TrieMapRulesCollectionBuilder} or a {@link TokenIdRulesCollectionBuilder}.
+     *                               The builder controls whether rule input matching is case insensitive.
+     * @param selectionStrategyFactories A mapping between names of rule selection strategies and their factories.
+     * @param defaultSelectionStrategyFactory The default {@link SelectionStrategyFactory} to be used if no strategy is
+     *                                       specified as a request parameter
+     * @param buildTermCache If true, build the term cache for terms from the rhs of rules
+     * @throws IOException if rules cannot be read or parsed
+     */
+    public SimpleCommonRulesRewriterFactory(final String rewriterId,
+                                            final Reader reader,
+                                            final boolean allowBooleanInput,
+                                            final QuerqyParserFactory querqyParserFactory,
+                                            final RulesCollectionBuilder rulesCollectionBuilder,
+                                            final Map<String, SelectionStrategyFactory> selectionStrategyFactories,
+                                            final SelectionStrategyFactory defaultSelectionStrategyFactory,
+                                            final boolean buildTermCache)
+            throws IOException {
 
         super(rewriterId);
 
@@ -68,7 +135,7 @@ public class SimpleCommonRulesRewriterFactory extends RewriterFactory {
         try {
             final QuerqyTemplateEngine querqyTemplateEngine = new QuerqyTemplateEngine(reader);
             rules = new SimpleCommonRulesParser(querqyTemplateEngine.renderedRules.reader, allowBooleanInput,
-                    querqyParserFactory, ignoreCase)
+                    querqyParserFactory, rulesCollectionBuilder)
                     .setLineNumberMapper(querqyTemplateEngine.renderedRules.lineNumberMapping::get)
                     .parse();
         } catch (final RuleParseException | TemplateParseException e) {
@@ -109,6 +176,12 @@ public class SimpleCommonRulesRewriterFactory extends RewriterFactory {
         return Collections.emptySet();
     }
 
+    @Override
+    public boolean mayApply(final List<Term> queryTerms) {
+        // the rewriter replaces an empty query with a MatchAllQuery
+        return queryTerms.isEmpty() || rules.mayMatch(queryTerms);
+    }
+
     RulesCollection getRules() {
         return rules;
     }
@@ -91,4 +91,18 @@ public class Action {
       return endPosition;
    }
 
+   /**
+    * @return The sum of the edit distances of the term matches. This is greater than 0 if query terms matched the
+    * rule input fuzzily (see {@link FuzzyInputMatching}) and can be used to weight down the instructions.
+    */
+   public int getEditDistance() {
+      int editDistance = 0;
+      if (termMatches != null) {
+         for (final TermMatch termMatch : termMatches) {
+            editDistance += termMatch.editDistance;
+         }
+      }
+      return editDistance;
+   }
+
 }
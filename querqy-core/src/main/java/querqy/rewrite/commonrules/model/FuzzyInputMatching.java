@@ -0,0 +1,65 @@
+package querqy.rewrite.commonrules.model;
+
+/**
+ * <p>Controls the fuzzy matching of query terms against the terms of the rule inputs.</p>
+ *
+ * <p>A query term can match an input term within an edit distance of 1 or 2 if it has the minimum length for that
+ * distance. Fuzzy matching is not applied to prefix (wildcard) input terms and boundaries. The edit distance of a
+ * match is available from {@link TermMatch#getEditDistance()} and {@link Action#getEditDistance()}.</p>
+ */
+public class FuzzyInputMatching {
+
+    /**
+     * No fuzzy matching
+     */
+    public static final FuzzyInputMatching DISABLED = new FuzzyInputMatching(Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    private final int minLengthForDistance1;
+    private final int minLengthForDistance2;
+
+    /**
+     * @param minLengthForDistance1 The min. length of a query term to match within an edit distance of 1. Must be
+     *                              greater than 2. Integer.MAX_VALUE disables this distance.
+     * @param minLengthForDistance2 The min. length of a query term to match within an edit distance of 2. Must be
+     *                              greater than 3 and not less than minLengthForDistance1. Integer.MAX_VALUE disables
+     *                              this distance.
+     */
+    public FuzzyInputMatching(final int minLengthForDistance1, final int minLengthForDistance2) {
+        // a shorter term would consist mostly of edits
+        if (minLengthForDistance1 < 3) {
+            throw new IllegalArgumentException("minLengthForDistance1 must be > 2");
+        }
+        if (minLengthForDistance2 < 4) {
+            throw new IllegalArgumentException("minLengthForDistance2 must be > 3");
+        }
+        if (minLengthForDistance2 < minLengthForDistance1) {
+            throw new IllegalArgumentException("minLengthForDistance2 must be >= minLengthForDistance1");
+        }
+        this.minLengthForDistance1 = minLengthForDistance1;
+        this.minLengthForDistance2 = minLengthForDistance2;
+    }
+
+    /**
+     * @param termLength The length of a query term
+     * @return The max. edit distance for fuzzy matching the term, 0 if the term must match exactly
+     */
+    public int getMaxEditDistance(final int termLength) {
+        if (termLength >= minLengthForDistance2) {
+            return 2;
+        }
+        return termLength >= minLengthForDistance1 ? 1 : 0;
+    }
+
+    public boolean isEnabled() {
+        return minLengthForDistance1 != Integer.MAX_VALUE;
+    }
+
+    public int getMinLengthForDistance1() {
+        return minLengthForDistance1;
+    }
+
+    public int getMinLengthForDistance2() {
+        return minLengthForDistance2;
+    }
+
+}
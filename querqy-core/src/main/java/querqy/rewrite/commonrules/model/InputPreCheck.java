@@ -0,0 +1,138 @@
+package querqy.rewrite.commonrules.model;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import querqy.CharSequenceBloomFilter;
+import querqy.ComparableCharSequence;
+import querqy.trie.States;
+import querqy.trie.TrieMap;
+
+/**
+ * <p>A fast check whether a query term can be the first term of a rule input.</p>
+ *
+ * <p>The first terms of the rule inputs are kept in a {@link CharSequenceBloomFilter}. First terms that are
+ * prefix terms (like 'lapto*') are kept in a {@link TrieMap}. A rule can only match if the query contains a term that
+ * passes this check. The check might accept terms that are not the first term of any input but it never rejects a
+ * term that is.</p>
+ */
+public class InputPreCheck {
+
+    /**
+     * A check that accepts all terms
+     */
+    public static final InputPreCheck ACCEPT_ALL = new InputPreCheck(null, null, true);
+
+    private final CharSequenceBloomFilter firstTerms;
+    private final TrieMap<Boolean> firstTermPrefixes;
+    private final boolean acceptAll;
+
+    private InputPreCheck(final CharSequenceBloomFilter firstTerms, final TrieMap<Boolean> firstTermPrefixes,
+                          final boolean acceptAll) {
+        this.firstTerms = firstTerms;
+        this.firstTermPrefixes = firstTermPrefixes;
+        this.acceptAll = acceptAll;
+    }
+
+    /**
+     * @param term The query term in the same form as it is looked up in the rules (i.e. with field name and lower-cased
+     *             if case is ignored)
+     * @return false if the term is definitely not the first term of a rule input
+     */
+    public boolean mayMatch(final CharSequence term) {
+
+        if (acceptAll) {
+            return true;
+        }
+
+        // A query term that contains spaces can match the terms of a multi-term input (the query term 'a b' matches the
+        // input 'a b'). Only its part before the first space has to be the first term of the input.
+        final CharSequence firstPart = beforeFirstSpace(term);
+        if (firstPart.length() == 0) {
+            return true;
+        }
+
+        if (firstTerms.mightContain(firstPart)) {
+            return true;
+        }
+
+        if (firstTermPrefixes != null) {
+            final States<Boolean> states = firstTermPrefixes.get(firstPart);
+            return states.getPrefixes() != null || states.getStateForCompleteSequence().isFinal();
+        }
+
+        return false;
+    }
+
+    private static CharSequence beforeFirstSpace(final CharSequence term) {
+        for (int i = 0, len = term.length(); i < len; i++) {
+            if (term.charAt(i) == ' ') {
+                return term.subSequence(0, i);
+            }
+        }
+        return term;
+    }
+
+    public static class Builder {
+
+        private final Set<CharSequence> firstTerms = new HashSet<>();
+        private TrieMap<Boolean> firstTermPrefixes = null;
+        private boolean acceptAll = false;
+
+        /**
+         * Add the first term of a rule input to the check.
+         *
+         * @param inputTerms The terms of the rule input
+         * @param ignoreCase Iff true, rule input matching is case insensitive.
+         * @return This builder
+         */
+        public Builder addInputTerms(final List<Term> inputTerms, final boolean ignoreCase) {
+            if (inputTerms.isEmpty()) {
+                return acceptAll();
+            }
+            final Term firstTerm = inputTerms.get(0);
+            // only the last term of an input can be a prefix
+            final boolean isPrefix = inputTerms.size() == 1 && firstTerm instanceof PrefixTerm;
+            for (final ComparableCharSequence seq : firstTerm.getCharSequences(ignoreCase)) {
+                if (isPrefix) {
+                    addFirstTermPrefix(seq);
+                } else {
+                    addFirstTerm(seq);
+                }
+            }
+            return this;
+        }
+
+        public Builder addFirstTerm(final CharSequence term) {
+            // store Strings so that the set removes duplicates
+            firstTerms.add(term.toString());
+            return this;
+        }
+
+        public Builder addFirstTermPrefix(final CharSequence prefix) {
+            if (firstTermPrefixes == null) {
+                firstTermPrefixes = new TrieMap<>();
+            }
+            firstTermPrefixes.putPrefix(prefix, true);
+            return this;
+        }
+
+        /**
+         * Make the check accept all terms. This is needed for inputs that don't have any terms.
+         *
+         * @return This builder
+         */
+        public Builder acceptAll() {
+            acceptAll = true;
+            return this;
+        }
+
+        public InputPreCheck build() {
+            return acceptAll
+                    ? ACCEPT_ALL
+                    : new InputPreCheck(new CharSequenceBloomFilter(firstTerms), firstTermPrefixes, false);
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package querqy.rewrite.commonrules.model;
+
+import java.util.Map;
+
+/**
+ * An immutable list of {@link TermMatch}es that is linked from the last to the first match. Partial input matches
+ * that were extended from the same partial match share its chain instead of copying it.
+ */
+final class MatchChain {
+
+    static final MatchChain EMPTY = new MatchChain(null, null);
+
+    final TermMatch last;
+    final MatchChain previous;
+    final int size;
+
+    private MatchChain(final TermMatch last, final MatchChain previous) {
+        this.last = last;
+        this.previous = previous;
+        this.size = previous == null ? 0 : previous.size + 1;
+    }
+
+    MatchChain append(final TermMatch match) {
+        return new MatchChain(match, this);
+    }
+
+    /**
+     * Replaces the query terms of the matches.
+     *
+     * @param terms The replacements. Terms that are not mapped are kept.
+     * @param remapped The chains that have already been remapped, so that chains that share their beginning still
+     *                 share it after remapping
+     * @return The chain with the replaced terms
+     */
+    MatchChain remap(final Map<querqy.model.Term, querqy.model.Term> terms,
+                     final Map<MatchChain, MatchChain> remapped) {
+        if (previous == null) {
+            return this;
+        }
+        final MatchChain done = remapped.get(this);
+        if (done != null) {
+            return done;
+        }
+        final querqy.model.Term term = terms.get(last.queryTerm);
+        final MatchChain result = previous.remap(terms, remapped)
+                .append(term == null ? last : new TermMatch(term, last.isPrefix, last.wildcardMatch, last.editDistance));
+        remapped.put(this, result);
+        return result;
+    }
+
+    TermMatches toTermMatches() {
+        final TermMatch[] matches = new TermMatch[size];
+        MatchChain chain = this;
+        for (int i = size - 1; i >= 0; i--) {
+            matches[i] = chain.last;
+            chain = chain.previous;
+        }
+        final TermMatches termMatches = new TermMatches();
+        for (final TermMatch match : matches) {
+            termMatches.add(match);
+        }
+        return termMatches;
+    }
+}
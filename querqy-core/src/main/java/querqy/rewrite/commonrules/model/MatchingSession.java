@@ -0,0 +1,210 @@
+package querqy.rewrite.commonrules.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import querqy.CharSequenceUtil;
+import querqy.model.InputSequenceElement;
+import querqy.model.Term;
+import querqy.rewrite.commonrules.model.TrieMapRulesCollection.MatchConsumer;
+import querqy.rewrite.commonrules.model.TrieMapRulesCollection.Prefix;
+import querqy.rewrite.commonrules.select.TopRewritingActionCollector;
+
+/**
+ * <p>Matches the rules of a {@link TrieMapRulesCollection} against a sequence of queries that share their beginning,
+ * like the queries that are sent while the user is typing.</p>
+ *
+ * <p>The session keeps the input sequence of the previous call, the partial input matches that end at each position
+ * and the complete matches that were found at each position. The positions that the new input sequence shares with
+ * the previous one are not matched again: their complete matches are passed to the collector again and matching
+ * continues with the partial matches of the last shared position. Appending a term or changing the last term only
+ * matches the last position(s) again.</p>
+ *
+ * <p>The query terms in the actions are the terms of the current input sequence, also for reused matches.</p>
+ *
+ * <p>Sessions are not thread-safe.</p>
+ */
+public class MatchingSession implements RulesCollection {
+
+    private final TrieMapRulesCollection rules;
+    private final List<PositionState> positionStates = new ArrayList<>();
+    private int numberOfReusedPositions = 0;
+
+    MatchingSession(final TrieMapRulesCollection rules) {
+        this.rules = rules;
+    }
+
+    @Override
+    public boolean mayMatch(final List<Term> queryTerms) {
+        return rules.mayMatch(queryTerms);
+    }
+
+    @Override
+    public void collectRewriteActions(final PositionSequence<InputSequenceElement> sequence,
+                                      final TopRewritingActionCollector collector) {
+
+        final List<List<InputSequenceElement>> positions = new ArrayList<>(sequence);
+
+        // old term -> term of the current sequence
+        final Map<Term, Term> terms = new IdentityHashMap<>();
+
+        int numReused = 0;
+        final int maxReusable = Math.min(positionStates.size(), positions.size());
+        while (numReused < maxReusable
+                && sameElements(positionStates.get(numReused).elements, positions.get(numReused), terms)) {
+            numReused++;
+        }
+
+        positionStates.subList(numReused, positionStates.size()).clear();
+        numberOfReusedPositions = numReused;
+
+        if (!terms.isEmpty()) {
+            remap(terms);
+        }
+
+        for (int i = 0; i < numReused; i++) {
+            final PositionState state = positionStates.get(i);
+            state.elements = new ArrayList<>(positions.get(i));
+            for (final RecordedMatch match : state.matches) {
+                collect(collector, match.value, match.matches, match.start, match.end);
+            }
+        }
+
+        List<Prefix<InstructionsSupplier>> prefixes;
+        int pos;
+        if (numReused == 0) {
+            prefixes = Collections.emptyList();
+            pos = 0;
+        } else {
+            final PositionState lastReused = positionStates.get(numReused - 1);
+            prefixes = lastReused.prefixes;
+            pos = lastReused.pos;
+        }
+
+        for (int i = numReused, len = positions.size(); i < len; i++) {
+
+            final List<InputSequenceElement> position = positions.get(i);
+            final List<RecordedMatch> matches = new ArrayList<>();
+
+            final MatchConsumer consumer = (value, chain, start, end) -> {
+                matches.add(new RecordedMatch(value, chain, start, end));
+                collect(collector, value, chain, start, end);
+            };
+
+            prefixes = rules.matchPosition(position, pos, prefixes, consumer);
+
+            if (TrieMapRulesCollection.hasTerm(position)) {
+                pos++;
+            }
+
+            positionStates.add(new PositionState(new ArrayList<>(position), prefixes, matches, pos));
+        }
+
+    }
+
+    @Override
+    public Set<Instruction> getInstructions() {
+        return rules.getInstructions();
+    }
+
+    /**
+     * @return The number of positions at the beginning of the input sequence that were not matched again in the last
+     * call to {@link #collectRewriteActions(PositionSequence, TopRewritingActionCollector)}
+     */
+    public int getNumberOfReusedPositions() {
+        return numberOfReusedPositions;
+    }
+
+    private boolean sameElements(final List<InputSequenceElement> previous, final List<InputSequenceElement> current,
+                                 final Map<Term, Term> terms) {
+
+        if (previous.size() != current.size()) {
+            return false;
+        }
+
+        for (int i = 0, len = previous.size(); i < len; i++) {
+
+            final InputSequenceElement previousElement = previous.get(i);
+            final InputSequenceElement currentElement = current.get(i);
+
+            if (previousElement instanceof Term) {
+
+                if (!(currentElement instanceof Term)) {
+                    return false;
+                }
+
+                final Term previousTerm = (Term) previousElement;
+                final Term currentTerm = (Term) currentElement;
+                if (previousTerm != currentTerm) {
+                    if (!CharSequenceUtil.equals(previousTerm.toCharSequenceWithField(rules.ignoreCase),
+                            currentTerm.toCharSequenceWithField(rules.ignoreCase))) {
+                        return false;
+                    }
+                    terms.put(previousTerm, currentTerm);
+                }
+
+            } else if (!previousElement.equals(currentElement)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void remap(final Map<Term, Term> terms) {
+        final Map<MatchChain, MatchChain> remapped = new IdentityHashMap<>();
+        for (final PositionState state : positionStates) {
+            for (final RecordedMatch match : state.matches) {
+                match.matches = match.matches.remap(terms, remapped);
+            }
+            final List<Prefix<InstructionsSupplier>> prefixes = new ArrayList<>(state.prefixes.size());
+            for (final Prefix<InstructionsSupplier> prefix : state.prefixes) {
+                prefixes.add(new Prefix<>(prefix.matches.remap(terms, remapped), prefix.stateInfo));
+            }
+            state.prefixes = prefixes;
+        }
+    }
+
+    private static void collect(final TopRewritingActionCollector collector, final InstructionsSupplier value,
+                                final MatchChain matches, final int start, final int end) {
+        collector.collect(value, instructions -> new Action(instructions, matches.toTermMatches(), start, end));
+    }
+
+    private static class PositionState {
+
+        List<InputSequenceElement> elements;
+        // the partial matches that end at this position
+        List<Prefix<InstructionsSupplier>> prefixes;
+        final List<RecordedMatch> matches;
+        // the term position after this position
+        final int pos;
+
+        PositionState(final List<InputSequenceElement> elements, final List<Prefix<InstructionsSupplier>> prefixes,
+                      final List<RecordedMatch> matches, final int pos) {
+            this.elements = elements;
+            this.prefixes = prefixes;
+            this.matches = matches;
+            this.pos = pos;
+        }
+    }
+
+    private static class RecordedMatch {
+
+        final InstructionsSupplier value;
+        MatchChain matches;
+        final int start;
+        final int end;
+
+        RecordedMatch(final InstructionsSupplier value, final MatchChain matches, final int start, final int end) {
+            this.value = value;
+            this.matches = matches;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package querqy.rewrite.commonrules.model;
 
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -14,6 +15,17 @@ public interface RulesCollection {
      * @param collector The collector of rewriting actions
      */
     void collectRewriteActions(PositionSequence<InputSequenceElement> sequence, TopRewritingActionCollector collector);
+
+    /**
+     * A fast check whether any rule might match a query that contains the given terms. Implementations must not
+     * return false if a rule could match.
+     *
+     * @param queryTerms The terms of the query
+     * @return false if no rule can match
+     */
+    default boolean mayMatch(List<querqy.model.Term> queryTerms) {
+        return true;
+    }
     
     /**
      * 
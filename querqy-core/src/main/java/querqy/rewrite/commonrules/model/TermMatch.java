@@ -14,6 +14,7 @@ public class TermMatch {
     final querqy.model.Term queryTerm;
     final boolean isPrefix;
     final ComparableCharSequence wildcardMatch;
+    final int editDistance;
     //final Term ruleInputTerm;
     
     public TermMatch(querqy.model.Term queryTerm) {
@@ -21,6 +22,18 @@ public class TermMatch {
     }
     
     public TermMatch(querqy.model.Term queryTerm, boolean isPrefix, ComparableCharSequence wildcardMatch) {
+        this(queryTerm, isPrefix, wildcardMatch, 0);
+    }
+
+    /**
+     * @param queryTerm The matching query term
+     * @param isPrefix Iff true, the query term matched a prefix (wildcard) input term
+     * @param wildcardMatch The part of the query term that matched the wildcard
+     * @param editDistance The edit distance between the query term and the input term if the term was matched
+     *                     fuzzily (see {@link FuzzyInputMatching}), 0 otherwise
+     */
+    public TermMatch(querqy.model.Term queryTerm, boolean isPrefix, ComparableCharSequence wildcardMatch,
+                     int editDistance) {
         if (isPrefix) {
             if ((wildcardMatch == null) || (wildcardMatch.length() == 0)) {
                 throw new IllegalArgumentException("Need a wildcard match if isPrefix for " + queryTerm.toString());
@@ -29,6 +42,7 @@ public class TermMatch {
         this.queryTerm = queryTerm;
         this.isPrefix = isPrefix;
         this.wildcardMatch = wildcardMatch;
+        this.editDistance = editDistance;
     }
 
     public querqy.model.Term getQueryTerm() {
@@ -43,12 +57,17 @@ public class TermMatch {
         return wildcardMatch;
     }
 
+    public int getEditDistance() {
+        return editDistance;
+    }
+
     @Override
     public String toString() {
         return "TermMatch{" +
                 "queryTerm=" + queryTerm +
                 ", isPrefix=" + isPrefix +
                 ", wildcardMatch=" + wildcardMatch +
+                ", editDistance=" + editDistance +
                 '}';
     }
 
@@ -56,6 +75,7 @@ public class TermMatch {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
+        result = prime * result + editDistance;
         result = prime * result + (isPrefix ? 1231 : 1237);
         result = prime * result
                 + ((queryTerm == null) ? 0 : queryTerm.hashCode());
@@ -75,6 +95,8 @@ public class TermMatch {
         TermMatch other = (TermMatch) obj;
         if (isPrefix != other.isPrefix)
             return false;
+        if (editDistance != other.editDistance)
+            return false;
         if (queryTerm == null) {
             if (other.queryTerm != null)
                 return false;
@@ -0,0 +1,361 @@
+package querqy.rewrite.commonrules.model;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import querqy.CharSequenceIdMap;
+import querqy.model.InputSequenceElement;
+import querqy.model.Term;
+import querqy.rewrite.TimeBudget;
+import querqy.rewrite.commonrules.select.TopRewritingActionCollector;
+import querqy.trie.IntSequenceTrie;
+import querqy.trie.State;
+import querqy.trie.TrieMap;
+
+/**
+ * <p>A {@link RulesCollection} that matches rule inputs token by token instead of char by char.</p>
+ *
+ * <p>Each distinct token of the rule inputs (including field-qualified tokens and the boundary marker) is mapped to
+ * an int id when the rules are loaded. The inputs are kept as sequences of token ids in an {@link IntSequenceTrie}.
+ * When matching, each query term is looked up only once in the token dictionary and the trie is walked by token
+ * ids. Tokens that are used as a prefix (like 'lapto*') have their own ids. They are found using a {@link TrieMap}
+ * of the prefixes. A query term that contains spaces is split into tokens so that it can match the terms of a
+ * multi-term input.</p>
+ *
+ * <p>The matching results are the same as those of {@link TrieMapRulesCollection}. This collection is created by a
+ * {@link TokenIdRulesCollectionBuilder}.</p>
+ */
+public class TokenIdRulesCollection implements RulesCollection {
+
+    static final int BOUNDARY_TOKEN_ID = 0;
+
+    final CharSequenceIdMap tokenIds;
+    final TrieMap<Integer> prefixTokenIds;
+    final IntSequenceTrie<InstructionsSupplier> sequences;
+    final boolean ignoreCase;
+    final InputPreCheck inputPreCheck;
+    final int maxPrefixesPerPosition;
+    final int maxInputTerms;
+
+    /**
+     * @param tokenIds The ids of the tokens
+     * @param prefixTokenIds The ids of the prefix tokens or null if there are no prefix tokens
+     * @param sequences The rule inputs as token id sequences
+     * @param ignoreCase Iff true, rule input matching is case insensitive.
+     * @param inputPreCheck A check whether a query term can be the first term of a rule input
+     * @param maxPrefixesPerPosition The max. number of partial input matches that will be continued at a query
+     *                               position (see {@link TrieMapRulesCollection})
+     * @param maxInputTerms Rule inputs that consist of more terms will not be matched.
+     */
+    public TokenIdRulesCollection(final CharSequenceIdMap tokenIds, final TrieMap<Integer> prefixTokenIds,
+                                  final IntSequenceTrie<InstructionsSupplier> sequences, final boolean ignoreCase,
+                                  final InputPreCheck inputPreCheck, final int maxPrefixesPerPosition,
+                                  final int maxInputTerms) {
+        if (tokenIds == null) {
+            throw new IllegalArgumentException("tokenIds must not be null");
+        }
+        if (sequences == null) {
+            throw new IllegalArgumentException("sequences must not be null");
+        }
+        if (inputPreCheck == null) {
+            throw new IllegalArgumentException("inputPreCheck must not be null");
+        }
+        if (maxPrefixesPerPosition < 1) {
+            throw new IllegalArgumentException("maxPrefixesPerPosition must be > 0");
+        }
+        if (maxInputTerms < 1) {
+            throw new IllegalArgumentException("maxInputTerms must be > 0");
+        }
+        this.tokenIds = tokenIds;
+        this.prefixTokenIds = prefixTokenIds;
+        this.sequences = sequences;
+        this.ignoreCase = ignoreCase;
+        this.inputPreCheck = inputPreCheck;
+        this.maxPrefixesPerPosition = maxPrefixesPerPosition;
+        this.maxInputTerms = maxInputTerms;
+    }
+
+    @Override
+    public boolean mayMatch(final List<Term> queryTerms) {
+        for (final Term term : queryTerms) {
+            if (inputPreCheck.mayMatch(term.toCharSequenceWithField(ignoreCase))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void collectRewriteActions(final PositionSequence<InputSequenceElement> sequence,
+                                      final TopRewritingActionCollector collector) {
+
+        if (sequence.isEmpty()) {
+            return;
+        }
+
+        Prefixes prefixes = new Prefixes();
+        Prefixes newPrefixes = new Prefixes();
+
+        int pos = 0;
+
+        for (final List<InputSequenceElement> position : sequence) {
+
+            final int pos1 = pos;
+
+            boolean anyTermAtPosition = false;
+            // only continuations count towards maxPrefixesPerPosition (see TrieMapRulesCollection)
+            int numContinuations = 0;
+
+            for (final InputSequenceElement element : position) {
+
+                TimeBudget.check();
+
+                final boolean isTerm = element instanceof Term;
+                anyTermAtPosition |= isTerm;
+
+                final int tokenId;
+                final List<State<Integer>> prefixTokenStates;
+                final TermMatch termMatch;
+                // the ids of all but the last token if the term contains spaces
+                int[] headTokenIds = null;
+                int wildcardOffset = 0;
+
+                if (isTerm) {
+                    final Term term = (Term) element;
+                    final CharSequence charSequenceForLookup = term.toCharSequenceWithField(ignoreCase);
+                    CharSequence lastToken = charSequenceForLookup;
+
+                    final int lastSpace = lastIndexOfSpace(charSequenceForLookup);
+                    if (lastSpace > -1) {
+                        // like in TrieMapRulesCollection, the term can match the tokens of a multi-term input
+                        headTokenIds = getHeadTokenIds(charSequenceForLookup, lastSpace);
+                        if (headTokenIds == null) {
+                            continue;
+                        }
+                        lastToken = charSequenceForLookup.subSequence(lastSpace + 1, charSequenceForLookup.length());
+                        wildcardOffset = lastSpace + 1;
+                    }
+
+                    tokenId = tokenIds.get(lastToken);
+                    prefixTokenStates = prefixTokenIds == null ? null : prefixTokenIds.get(lastToken).getPrefixes();
+                    termMatch = new TermMatch(term);
+                } else if (element instanceof InputBoundary) {
+                    tokenId = BOUNDARY_TOKEN_ID;
+                    prefixTokenStates = null;
+                    termMatch = null;
+                } else {
+                    throw new IllegalArgumentException("Cannot handle type of element in sequence " + element);
+                }
+
+                if (tokenId == CharSequenceIdMap.NOT_FOUND && prefixTokenStates == null) {
+                    // no rule input contains this token
+                    continue;
+                }
+
+                final int ofs = isTerm ? 1 : 0;
+
+                // combine the token with the partial matches that brought us here
+                for (int i = 0; i < prefixes.size; i++) {
+
+                    final MatchChain matches = prefixes.matches[i];
+
+                    if (isTerm && matches.size >= maxInputTerms) {
+                        continue;
+                    }
+
+                    final int node = walk(prefixes.nodes[i], headTokenIds);
+                    if (node == IntSequenceTrie.NO_NODE) {
+                        continue;
+                    }
+
+                    final int start = pos - matches.size;
+
+                    if (tokenId != CharSequenceIdMap.NOT_FOUND) {
+                        final int child = sequences.getChild(node, tokenId);
+                        if (child != IntSequenceTrie.NO_NODE) {
+
+                            final MatchChain newMatches = isTerm ? matches.append(termMatch) : matches;
+
+                            final InstructionsSupplier value = sequences.getValue(child);
+                            if (value != null) {
+                                collector.collect(value, instructions ->
+                                        new Action(instructions, newMatches.toTermMatches(), start, pos1 + ofs));
+                            }
+
+                            if (numContinuations < maxPrefixesPerPosition) {
+                                newPrefixes.add(child, newMatches);
+                                numContinuations++;
+                            }
+                        }
+                    }
+
+                    if (prefixTokenStates != null) {
+                        for (final State<Integer> prefixTokenState : prefixTokenStates) {
+                            collectPrefixMatch(node, prefixTokenState, wildcardOffset, matches, (Term) element,
+                                    start, pos1 + 1, collector);
+                        }
+                    }
+                }
+
+                // now see whether the token starts an input on its own...
+                final int node = walk(IntSequenceTrie.ROOT, headTokenIds);
+                if (node == IntSequenceTrie.NO_NODE) {
+                    continue;
+                }
+
+                if (tokenId != CharSequenceIdMap.NOT_FOUND) {
+                    final int child = sequences.getChild(node, tokenId);
+                    if (child != IntSequenceTrie.NO_NODE) {
+                        final InstructionsSupplier value = sequences.getValue(child);
+                        // we do not let match the boundary on its own:
+                        if (value != null && isTerm) {
+                            collector.collect(value, instructions ->
+                                    new Action(instructions, new TermMatches(termMatch), pos1, pos1 + 1));
+                        }
+                        // ... and save it as a prefix to the following token
+                        newPrefixes.add(child, isTerm ? MatchChain.EMPTY.append(termMatch) : MatchChain.EMPTY);
+                    }
+                }
+
+                if (prefixTokenStates != null) {
+                    for (final State<Integer> prefixTokenState : prefixTokenStates) {
+                        collectPrefixMatch(node, prefixTokenState, wildcardOffset, MatchChain.EMPTY,
+                                (Term) element, pos1, pos1 + 1, collector);
+                    }
+                }
+
+            }
+
+            final Prefixes tmp = prefixes;
+            prefixes = newPrefixes;
+            newPrefixes = tmp;
+            newPrefixes.clear();
+
+            if (anyTermAtPosition) {
+                pos++;
+            }
+        }
+
+    }
+
+    private void collectPrefixMatch(final int node, final State<Integer> prefixTokenState, final int wildcardOffset,
+                                    final MatchChain matches, final Term term, final int start, final int end,
+                                    final TopRewritingActionCollector collector) {
+
+        if (!(prefixTokenState.isFinal() && prefixTokenState.value != null)) {
+            return;
+        }
+
+        final int child = sequences.getChild(node, prefixTokenState.value);
+        if (child == IntSequenceTrie.NO_NODE) {
+            return;
+        }
+
+        final InstructionsSupplier value = sequences.getValue(child);
+        if (value != null) {
+            collector.collect(value, instructions -> {
+                final TermMatches termMatches = matches.toTermMatches();
+                termMatches.add(new TermMatch(term, true,
+                        term.subSequence(wildcardOffset + prefixTokenState.index + 1, term.length())));
+                return new Action(instructions, termMatches, start, end);
+            });
+        }
+    }
+
+    private int walk(final int node, final int[] tokenIds) {
+        if (tokenIds == null) {
+            return node;
+        }
+        int current = node;
+        for (int i = 0; i < tokenIds.length && current != IntSequenceTrie.NO_NODE; i++) {
+            current = sequences.getChild(current, tokenIds[i]);
+        }
+        return current;
+    }
+
+    /**
+     * Get the ids of the space-separated tokens before the last space of a sequence.
+     *
+     * @param seq The sequence
+     * @param lastSpace The index of the last space in the sequence
+     * @return The token ids or null if one of the tokens is unknown
+     */
+    private int[] getHeadTokenIds(final CharSequence seq, final int lastSpace) {
+        int numSpaces = 0;
+        for (int i = 0; i <= lastSpace; i++) {
+            if (seq.charAt(i) == ' ') {
+                numSpaces++;
+            }
+        }
+        final int[] ids = new int[numSpaces];
+        int numIds = 0;
+        int start = 0;
+        for (int i = 0; i <= lastSpace; i++) {
+            if (seq.charAt(i) == ' ') {
+                final int id = tokenIds.get(seq.subSequence(start, i));
+                if (id == CharSequenceIdMap.NOT_FOUND) {
+                    return null;
+                }
+                ids[numIds++] = id;
+                start = i + 1;
+            }
+        }
+        return ids;
+    }
+
+    private static int lastIndexOfSpace(final CharSequence seq) {
+        for (int i = seq.length() - 1; i >= 0; i--) {
+            if (seq.charAt(i) == ' ') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Set<Instruction> getInstructions() {
+
+        final Set<Instruction> result = new HashSet<>();
+
+        for (final InstructionsSupplier instructionsSupplier : sequences) {
+            for (final Instructions instructions : instructionsSupplier.getInstructionsList()) {
+                result.addAll(instructions);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * The partial input matches at a position, kept in parallel arrays of trie nodes and term matches
+     */
+    private static final class Prefixes {
+
+        int[] nodes = new int[8];
+        MatchChain[] matches = new MatchChain[8];
+        int size = 0;
+
+        void add(final int node, final MatchChain matchChain) {
+            if (size == nodes.length) {
+                final int[] newNodes = new int[size * 2];
+                System.arraycopy(nodes, 0, newNodes, 0, size);
+                nodes = newNodes;
+                final MatchChain[] newMatches = new MatchChain[size * 2];
+                System.arraycopy(matches, 0, newMatches, 0, size);
+                matches = newMatches;
+            }
+            nodes[size] = node;
+            matches[size] = matchChain;
+            size++;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                matches[i] = null;
+            }
+            size = 0;
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package querqy.rewrite.commonrules.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import querqy.CharSequenceIdMap;
+import querqy.ComparableCharSequence;
+import querqy.model.Input;
+import querqy.rewrite.commonrules.select.booleaninput.model.BooleanInputLiteral;
+import querqy.trie.IntSequenceTrie;
+import querqy.trie.TrieMap;
+
+/**
+ * Builds a {@link TokenIdRulesCollection}.
+ */
+public class TokenIdRulesCollectionBuilder implements RulesCollectionBuilder {
+
+    final CharSequenceIdMap tokenIds = new CharSequenceIdMap();
+    final CharSequenceIdMap prefixTokenIds = new CharSequenceIdMap();
+    final IntSequenceTrie<InstructionsSupplier> sequences = new IntSequenceTrie<>();
+    final InputPreCheck.Builder preCheckBuilder = new InputPreCheck.Builder();
+
+    final boolean ignoreCase;
+    final int maxPrefixesPerPosition;
+    final int maxInputTerms;
+
+    private int nextTokenId = TokenIdRulesCollection.BOUNDARY_TOKEN_ID + 1;
+
+    public TokenIdRulesCollectionBuilder(final boolean ignoreCase) {
+        this(ignoreCase, TrieMapRulesCollection.NO_LIMIT, TrieMapRulesCollection.NO_LIMIT);
+    }
+
+    /**
+     * @param ignoreCase Iff true, rule input matching is case insensitive.
+     * @param maxPrefixesPerPosition The max. number of partial input matches per query position (see
+     *                               {@link TrieMapRulesCollection})
+     * @param maxInputTerms The max. number of terms of a rule input that will be matched
+     */
+    public TokenIdRulesCollectionBuilder(final boolean ignoreCase, final int maxPrefixesPerPosition,
+                                         final int maxInputTerms) {
+        this.ignoreCase = ignoreCase;
+        this.maxPrefixesPerPosition = maxPrefixesPerPosition;
+        this.maxInputTerms = maxInputTerms;
+    }
+
+    @Override
+    public void addRule(final Input.SimpleInput input, final Instructions instructions) {
+        addOrMergeInstructionsSupplier(input, new InstructionsSupplier(instructions));
+    }
+
+    @Override
+    public void addRule(final Input.SimpleInput input, final BooleanInputLiteral literal) {
+        addOrMergeInstructionsSupplier(input, new InstructionsSupplier(literal));
+    }
+
+    public void addOrMergeInstructionsSupplier(final Input.SimpleInput input,
+                                               final InstructionsSupplier instructionsSupplier) {
+
+        final List<Term> inputTerms = input.getInputTerms();
+
+        if (inputTerms.isEmpty() && !(input.isRequiresLeftBoundary() && input.isRequiresRightBoundary())) {
+            throw new IllegalArgumentException("Empty input!");
+        }
+
+        preCheckBuilder.addInputTerms(inputTerms, ignoreCase);
+
+        // the alternative token ids per position of the input
+        final List<int[]> slots = new ArrayList<>(inputTerms.size() + 2);
+
+        if (input.isRequiresLeftBoundary()) {
+            slots.add(new int[] {TokenIdRulesCollection.BOUNDARY_TOKEN_ID});
+        }
+
+        for (int i = 0, last = inputTerms.size() - 1; i <= last; i++) {
+            final Term term = inputTerms.get(i);
+            // only the last term of an input can be a prefix
+            final CharSequenceIdMap ids = (i == last && term instanceof PrefixTerm) ? prefixTokenIds : tokenIds;
+            final List<ComparableCharSequence> charSequences = term.getCharSequences(ignoreCase);
+            final int[] slot = new int[charSequences.size()];
+            for (int j = 0; j < slot.length; j++) {
+                slot[j] = getOrCreateTokenId(ids, charSequences.get(j));
+            }
+            slots.add(slot);
+        }
+
+        if (input.isRequiresRightBoundary()) {
+            slots.add(new int[] {TokenIdRulesCollection.BOUNDARY_TOKEN_ID});
+        }
+
+        addSequences(IntSequenceTrie.ROOT, slots, 0, instructionsSupplier);
+
+    }
+
+    private void addSequences(final int node, final List<int[]> slots, final int slotIndex,
+                              final InstructionsSupplier instructionsSupplier) {
+
+        if (slotIndex == slots.size()) {
+            final InstructionsSupplier value = sequences.getValue(node);
+            if (value != null) {
+                value.merge(instructionsSupplier);
+            } else {
+                sequences.setValue(node, instructionsSupplier);
+            }
+        } else {
+            for (final int tokenId : slots.get(slotIndex)) {
+                addSequences(sequences.getOrCreateChild(node, tokenId), slots, slotIndex + 1, instructionsSupplier);
+            }
+        }
+    }
+
+    private int getOrCreateTokenId(final CharSequenceIdMap ids, final CharSequence token) {
+        final int id = ids.get(token);
+        if (id != CharSequenceIdMap.NOT_FOUND) {
+            return id;
+        }
+        ids.put(token, nextTokenId);
+        return nextTokenId++;
+    }
+
+    @Override
+    public RulesCollection build() {
+
+        final TrieMap<Integer> prefixes;
+        if (prefixTokenIds.size() > 0) {
+            prefixes = new TrieMap<>();
+            prefixTokenIds.forEach(prefixes::putPrefix);
+        } else {
+            prefixes = null;
+        }
+
+        return new TokenIdRulesCollection(tokenIds, prefixes, sequences, ignoreCase, preCheckBuilder.build(),
+                maxPrefixesPerPosition, maxInputTerms);
+    }
+
+}
@@ -3,15 +3,20 @@
  */
 package querqy.rewrite.commonrules.model;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
 import querqy.CompoundCharSequence;
+import querqy.LowerCaseCharSequence;
 import querqy.model.InputSequenceElement;
 import querqy.model.Term;
+import querqy.rewrite.TimeBudget;
 import querqy.rewrite.commonrules.select.TopRewritingActionCollector;
+import querqy.trie.FuzzyState;
+import querqy.trie.LevenshteinAutomaton;
 import querqy.trie.State;
 import querqy.trie.States;
 import querqy.trie.TrieMap;
@@ -23,16 +28,87 @@ import querqy.trie.TrieMap;
 public class TrieMapRulesCollection implements RulesCollection {
     
     public static final String BOUNDARY_WORD = "\u0002";
+
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
     
     final TrieMap<InstructionsSupplier> trieMap;
     final boolean ignoreCase;
+    final InputPreCheck inputPreCheck;
+    final int maxPrefixesPerPosition;
+    final int maxInputTerms;
+    final FuzzyInputMatching fuzzyInputMatching;
     
     public TrieMapRulesCollection(final TrieMap<InstructionsSupplier> trieMap, final boolean ignoreCase) {
+        this(trieMap, ignoreCase, InputPreCheck.ACCEPT_ALL);
+    }
+
+    public TrieMapRulesCollection(final TrieMap<InstructionsSupplier> trieMap, final boolean ignoreCase,
+                                  final InputPreCheck inputPreCheck) {
+        this(trieMap, ignoreCase, inputPreCheck, NO_LIMIT, NO_LIMIT);
+    }
+
+    /**
+     * @param trieMap The rules
+     * @param ignoreCase Iff true, rule input matching is case insensitive.
+     * @param inputPreCheck A check whether a query term can be the first term of a rule input
+     * @param maxPrefixesPerPosition The max. number of partial input matches that will be continued at a query
+     *                               position and that can be continued again by the terms at the next position.
+     *                               Further continuations are dropped. This bounds the matching cost if there are many
+     *                               term alternatives (like synonyms) per position. Partial matches that start at a
+     *                               position are always kept.
+     * @param maxInputTerms Rule inputs that consist of more terms will not be matched.
+     */
+    public TrieMapRulesCollection(final TrieMap<InstructionsSupplier> trieMap, final boolean ignoreCase,
+                                  final InputPreCheck inputPreCheck, final int maxPrefixesPerPosition,
+                                  final int maxInputTerms) {
+        this(trieMap, ignoreCase, inputPreCheck, maxPrefixesPerPosition, maxInputTerms, FuzzyInputMatching.DISABLED);
+    }
+
+    /**
+     * @param trieMap The rules
+     * @param ignoreCase Iff true, rule input matching is case insensitive.
+     * @param inputPreCheck A check whether a query term can be the first term of a rule input
+     * @param maxPrefixesPerPosition The max. number of partial input matches that will be continued at a query
+     *                               position. Partial matches that start at a position are always kept.
+     * @param maxInputTerms Rule inputs that consist of more terms will not be matched.
+     * @param fuzzyInputMatching Controls whether query terms can match input terms within an edit distance.
+     */
+    public TrieMapRulesCollection(final TrieMap<InstructionsSupplier> trieMap, final boolean ignoreCase,
+                                  final InputPreCheck inputPreCheck, final int maxPrefixesPerPosition,
+                                  final int maxInputTerms, final FuzzyInputMatching fuzzyInputMatching) {
         if (trieMap == null) {
             throw new IllegalArgumentException("trieMap must not be null");
         }
+        if (inputPreCheck == null) {
+            throw new IllegalArgumentException("inputPreCheck must not be null");
+        }
+        if (maxPrefixesPerPosition < 1) {
+            throw new IllegalArgumentException("maxPrefixesPerPosition must be > 0");
+        }
+        if (maxInputTerms < 1) {
+            throw new IllegalArgumentException("maxInputTerms must be > 0");
+        }
+        if (fuzzyInputMatching == null) {
+            throw new IllegalArgumentException("fuzzyInputMatching must not be null");
+        }
         this.trieMap = trieMap;
         this.ignoreCase = ignoreCase;
+        this.inputPreCheck = inputPreCheck;
+        this.maxPrefixesPerPosition = maxPrefixesPerPosition;
+        this.maxInputTerms = maxInputTerms;
+        this.fuzzyInputMatching = fuzzyInputMatching;
+    }
+
+    @Override
+    public boolean mayMatch(final List<Term> queryTerms) {
+        for (final Term term : queryTerms) {
+            // the pre-check only knows the exact input terms
+            if (fuzzyInputMatching.getMaxEditDistance(term.length()) > 0
+                    || inputPreCheck.mayMatch(term.toCharSequenceWithField(ignoreCase))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /* (non-Javadoc)
@@ -50,184 +126,224 @@ public class TrieMapRulesCollection implements RulesCollection {
         // position. We now find all the combinations of terms in different 
         // positions and look them up as rules input in the dictionary
 
-        if (sequence.size() == 1) {
+        final MatchConsumer consumer = (value, matches, start, end) -> collector.collect(value,
+                instructions -> new Action(instructions, matches.toTermMatches(), start, end));
 
-            sequence.getFirst().stream()
-                    .filter(Term.class::isInstance)
-                    .map(Term.class::cast).forEach(term -> {
+        List<Prefix<InstructionsSupplier>> prefixes = Collections.emptyList();
+        int pos = 0;
 
-                final States<InstructionsSupplier> states = trieMap.get(term.toCharSequenceWithField(ignoreCase));
+        for (final List<InputSequenceElement> position : sequence) {
 
-                final State<InstructionsSupplier> stateExactMatch = states.getStateForCompleteSequence();
-                if (stateExactMatch.isFinal() && stateExactMatch.value != null) {
+            prefixes = matchPosition(position, pos, prefixes, consumer);
 
-                    collector.collect(stateExactMatch.value,
-                            instructions -> new Action(instructions, new TermMatches(new TermMatch(term)), 0, 1));
+            if (hasTerm(position)) {
+                pos++;
+            }
+        }
 
-                }
+    }
 
-                final List<State<InstructionsSupplier>> statesForPrefixes = states.getPrefixes();
-                if (statesForPrefixes != null) {
-                    for (final State<InstructionsSupplier> stateForPrefix: statesForPrefixes) {
+    /**
+     * Match the elements at a position of the input sequence, on their own and as continuations of the partial matches
+     * that ended at the previous position.
+     *
+     * @param position The elements at the position
+     * @param pos The term position, not counting the boundaries
+     * @param prefixes The partial matches that ended at the previous position
+     * @param consumer Receives the complete matches
+     * @return The partial matches that end at this position
+     */
+    List<Prefix<InstructionsSupplier>> matchPosition(final List<InputSequenceElement> position, final int pos,
+                                                     final List<Prefix<InstructionsSupplier>> prefixes,
+                                                     final MatchConsumer consumer) {
 
-                        if (stateForPrefix.isFinal() && stateForPrefix.value != null) {
-                            collector.collect(stateForPrefix.value,
-                                    instructions -> new Action(instructions, new TermMatches(
-                                            new TermMatch(term, true,
-                                                    term.subSequence(stateForPrefix.index + 1, term.length()))), 0, 1));
+        final List<Prefix<InstructionsSupplier>> newPrefixes = new ArrayList<>();
+        // Only continuations of partial matches count towards maxPrefixesPerPosition. Inputs that start at this
+        // position must not be crowded out by the continuations of the previous elements at the same position.
+        int numContinuations = 0;
 
-                        }
-                    }
-                }
-            });
-        } else {
+        for (final InputSequenceElement element : position) {
 
-            List<Prefix<InstructionsSupplier>> prefixes = new LinkedList<>();
-            List<Prefix<InstructionsSupplier>> newPrefixes = new LinkedList<>();
+            // the number of prefixes can grow quickly for long queries
+            TimeBudget.check();
 
-            int pos = 0;
+            final boolean isTerm = element instanceof Term;
 
-            for (final List<InputSequenceElement> position : sequence) {
+            final CharSequence charSequenceForLookup;
+            if (isTerm) {
+                charSequenceForLookup = ((Term) element).toCharSequenceWithField(ignoreCase);
+            } else if (element instanceof InputBoundary) {
+                charSequenceForLookup = BOUNDARY_WORD;
+            } else {
+                throw new IllegalArgumentException("Cannot handle type of element in sequence " + element);
+            }
 
-                final int pos1 = pos;
-                
-                boolean anyTermAtPosition = false;
+            final TermMatch termMatch = isTerm ? new TermMatch((Term) element) : null;
+            final int ofs = isTerm ? 1 : 0;
 
-                for (final InputSequenceElement element : position) {
+            final LevenshteinAutomaton automaton = isTerm ? createAutomaton((Term) element) : null;
 
-                    final boolean isTerm = element instanceof Term;
-                    anyTermAtPosition |= isTerm;
+            // combine term with prefixes (= sequences of terms) that brought us here
+            for (final Prefix<InstructionsSupplier> prefix : prefixes) {
 
-                    final CharSequence charSequenceForLookup;
-                    if (isTerm) {
-                        charSequenceForLookup = ((Term) element).toCharSequenceWithField(ignoreCase);
-                    } else if (element instanceof InputBoundary) {
-                        charSequenceForLookup = BOUNDARY_WORD;
-                    } else {
-                        throw new IllegalArgumentException("Cannot handle type of element in sequence " + element);
-                    }
+                if (isTerm && prefix.matches.size >= maxInputTerms) {
+                    continue;
+                }
+
+                final States<InstructionsSupplier> states = trieMap.get(
+                        new CompoundCharSequence(null, " ", charSequenceForLookup), prefix.stateInfo);
+
+                final int start = pos - prefix.matches.size;
+
+                // exact matches 
+                final State<InstructionsSupplier> stateExactMatch = states.getStateForCompleteSequence();
+                if (stateExactMatch.isKnown()) {
 
-                    // combine term with prefixes (= sequences of terms) that brought us here
-                    for (final Prefix<InstructionsSupplier> prefix : prefixes) {
+                    final MatchChain matches = isTerm ? prefix.matches.append(termMatch) : prefix.matches;
 
-                        final States<InstructionsSupplier> states = trieMap.get(
-                                new CompoundCharSequence(null, " ", charSequenceForLookup), prefix.stateInfo);
+                    if (stateExactMatch.isFinal()) {
+                        consumer.accept(stateExactMatch.value, matches, start, pos + ofs);
+                    }
 
-                        final int ofs = isTerm ? 1 : 0;
+                    if (numContinuations < maxPrefixesPerPosition) {
+                        newPrefixes.add(new Prefix<>(matches, stateExactMatch));
+                        numContinuations++;
+                    }
+
+                }
+                
+                // matches for prefixes (= beginnings of terms)
+                final List<State<InstructionsSupplier>> statesForPrefixes = states.getPrefixes();
+                if (statesForPrefixes != null) {
+                    for (final State<InstructionsSupplier> stateForPrefix: statesForPrefixes) {
                         
-                        // exact matches 
-                        final State<InstructionsSupplier> stateExactMatch = states.getStateForCompleteSequence();
-                        if (stateExactMatch.isKnown()) {
-                            if (stateExactMatch.isFinal()) {
-                                final int start;
-                                if (isTerm) {
-                                    start = pos - (prefix.matches.size() + 1) + ofs;
-                                } else {
-                                    start = pos - prefix.matches.size() + ofs;
-                                }
-
-                                collector.collect(stateExactMatch.value, instructions -> {
-                                    final TermMatches matches = new TermMatches(prefix.matches);
-                                    if (isTerm) {
-                                        matches.add(new TermMatch((Term) element));
-                                    }
-                                    return new Action(instructions, matches, start, pos1 + ofs);
-                                });
-
-                            }
-                            final Prefix<InstructionsSupplier> newPrefix = new Prefix<>(prefix, stateExactMatch);
-                            if (isTerm) {
-                                newPrefix.addTerm(new TermMatch((Term) element));
-                            }
-                            newPrefixes.add(newPrefix);
-                            
+                        if (stateForPrefix.isFinal() && stateForPrefix.value != null) {
+                            consumer.accept(stateForPrefix.value,
+                                    isTerm
+                                            ? prefix.matches.append(prefixMatch((Term) element, stateForPrefix))
+                                            : prefix.matches,
+                                    start, pos + ofs);
                         }
                         
-                        // matches for prefixes (= beginnings of terms)
-                        final List<State<InstructionsSupplier>> statesForPrefixes = states.getPrefixes();
-                        if (statesForPrefixes != null) {
-                            for (final State<InstructionsSupplier> stateForPrefix: statesForPrefixes) {
-                                
-                                if (stateForPrefix.isFinal() && stateForPrefix.value != null) {
-                                    final int start;
-                                    if (isTerm) {
-                                        start = pos - (prefix.matches.size() + 1) + ofs;
-                                    } else {
-                                        start = pos - prefix.matches.size() + ofs;
-                                    }
-
-
-                                    collector.collect(stateForPrefix.value, instructions -> {
-                                        final TermMatches matches = new TermMatches(prefix.matches);
-                                        if (isTerm) {
-                                            final Term term = (Term) element;
-                                            matches.add(
-                                                    new TermMatch(term,
-                                                            true,
-                                                            term.subSequence(stateForPrefix.index + 1, term.length())));
-                                        }
-                                        return new Action(instructions, matches, start, pos1 + ofs);
-                                    });
-
-                                }
-                                
-                                // TODO: continue with next match after prefix match
-                            }
-                        }
+                        // TODO: continue with next match after prefix match
                     }
+                }
 
-                    // now see whether the term matches on its own...
-                    final States<InstructionsSupplier> states = trieMap.get(charSequenceForLookup);
-
-                    final State<InstructionsSupplier> stateExactMatch = states.getStateForCompleteSequence();
-                    if (stateExactMatch.isKnown()) {
-                        if (stateExactMatch.isFinal()) {
-                            // we do not let match the boundary on its own:
-                            if (isTerm) {
-                                collector.collect(stateExactMatch.value,
-                                        instructions ->
-                                                new Action(instructions, new TermMatches(new TermMatch((Term) element)),
-                                                        pos1, pos1 + 1));
-                            }
+                if (automaton != null) {
+                    for (final FuzzyState<InstructionsSupplier> fuzzyState :
+                            getFuzzy((Term) element, automaton, prefix.stateInfo)) {
+                        final MatchChain matches = prefix.matches.append(
+                                new TermMatch((Term) element, false, null, fuzzyState.editDistance));
+                        if (fuzzyState.isFinal()) {
+                            consumer.accept(fuzzyState.value, matches, start, pos + 1);
                         }
-                        // ... and save it as a prefix to the following term
-                        final Prefix<InstructionsSupplier> newPrefix = isTerm
-                                ? new Prefix<>(new TermMatch((Term) element), stateExactMatch)
-                                : new Prefix<>(stateExactMatch);
-                        newPrefixes.add(new Prefix<>(newPrefix, stateExactMatch));
-                    }
-
-                    final List<State<InstructionsSupplier>> statesForPrefixes = states.getPrefixes();
-                    if (statesForPrefixes != null) {
-                        for (final State<InstructionsSupplier> stateForPrefix: statesForPrefixes) {
-                            if (stateForPrefix.isFinal() && stateForPrefix.value != null) {
-                                if (isTerm) {
-                                    collector.collect(stateForPrefix.value, instructions -> {
-                                                final Term term = (Term) element;
-                                                return new Action(instructions,
-                                                        new TermMatches(
-                                                                new TermMatch(term, true,
-                                                                term.subSequence(stateForPrefix.index + 1,
-                                                                        term.length()))), pos1, pos1 + 1);
-                                            });
-                                    // TODO: continue with next match after prefix match
-                                }
-                            }
+                        if (numContinuations < maxPrefixesPerPosition) {
+                            newPrefixes.add(new Prefix<>(matches, fuzzyState));
+                            numContinuations++;
                         }
                     }
+                }
+            }
 
+            // now see whether the term matches on its own...
+            final States<InstructionsSupplier> states = trieMap.get(charSequenceForLookup);
+
+            final State<InstructionsSupplier> stateExactMatch = states.getStateForCompleteSequence();
+            if (stateExactMatch.isKnown()) {
+                // we do not let match the boundary on its own:
+                if (stateExactMatch.isFinal() && isTerm) {
+                    consumer.accept(stateExactMatch.value, MatchChain.EMPTY.append(termMatch), pos, pos + 1);
                 }
+                // ... and save it as a prefix to the following term
+                newPrefixes.add(isTerm
+                        ? new Prefix<>(termMatch, stateExactMatch)
+                        : new Prefix<>(stateExactMatch));
+            }
 
-                prefixes = newPrefixes;
-                newPrefixes = new LinkedList<>();
+            final List<State<InstructionsSupplier>> statesForPrefixes = states.getPrefixes();
+            if (statesForPrefixes != null && isTerm) {
+                for (final State<InstructionsSupplier> stateForPrefix: statesForPrefixes) {
+                    if (stateForPrefix.isFinal() && stateForPrefix.value != null) {
+                        consumer.accept(stateForPrefix.value,
+                                MatchChain.EMPTY.append(prefixMatch((Term) element, stateForPrefix)), pos, pos + 1);
+                        // TODO: continue with next match after prefix match
+                    }
+                }
+            }
 
-                if (anyTermAtPosition) {
-                    pos++;
+            if (automaton != null) {
+                for (final FuzzyState<InstructionsSupplier> fuzzyState : getFuzzy((Term) element, automaton, null)) {
+                    final MatchChain matches = MatchChain.EMPTY.append(
+                            new TermMatch((Term) element, false, null, fuzzyState.editDistance));
+                    if (fuzzyState.isFinal()) {
+                        consumer.accept(fuzzyState.value, matches, pos, pos + 1);
+                    }
+                    newPrefixes.add(new Prefix<>(matches, fuzzyState));
                 }
             }
 
         }
 
+        return newPrefixes;
+
+    }
+
+    private LevenshteinAutomaton createAutomaton(final Term term) {
+        final int maxEditDistance = fuzzyInputMatching.getMaxEditDistance(term.length());
+        return maxEditDistance > 0
+                ? new LevenshteinAutomaton(ignoreCase ? new LowerCaseCharSequence(term) : term.getValue(),
+                        maxEditDistance)
+                : null;
+    }
+
+    /**
+     * Looks up the term fuzzily after the given state. The separator to the previous input term and the field name
+     * must match exactly. Exact matches are not returned as they are found by the exact lookup.
+     */
+    private List<FuzzyState<InstructionsSupplier>> getFuzzy(final Term term, final LevenshteinAutomaton automaton,
+                                                            final State<InstructionsSupplier> prefixState) {
+
+        final String field = term.getField();
+        final CharSequence exactPart = field == null
+                ? (prefixState == null ? null : " ")
+                : (prefixState == null ? field + ":" : " " + field + ":");
+
+        State<InstructionsSupplier> start = prefixState;
+        if (exactPart != null) {
+            start = (prefixState == null ? trieMap.get(exactPart) : trieMap.get(exactPart, prefixState))
+                    .getStateForCompleteSequence();
+            if (!start.isKnown()) {
+                return Collections.emptyList();
+            }
+        }
+
+        final List<FuzzyState<InstructionsSupplier>> states = trieMap.getFuzzy(automaton, start);
+        states.removeIf(state -> state.editDistance == 0);
+        return states;
+    }
+
+    private static TermMatch prefixMatch(final Term term, final State<InstructionsSupplier> stateForPrefix) {
+        return new TermMatch(term, true, term.subSequence(stateForPrefix.index + 1, term.length()));
+    }
+
+    static boolean hasTerm(final List<InputSequenceElement> position) {
+        for (final InputSequenceElement element : position) {
+            if (element instanceof Term) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates a {@link MatchingSession} that keeps the matching state between calls so that a query that grows
+     * by a few characters or terms (like in search-as-you-type) only needs to be matched from the first position that
+     * changed.
+     *
+     * @return A new session. Sessions are not thread-safe.
+     */
+    public MatchingSession createMatchingSession() {
+        return new MatchingSession(this);
     }
     
     @Override
@@ -246,28 +362,32 @@ public class TrieMapRulesCollection implements RulesCollection {
 
     public static class Prefix<T> {
         final State<T> stateInfo;
-        final List<TermMatch> matches;
+        final MatchChain matches;
 
         public Prefix(final Prefix<T> prefix, final State<T> stateInfo) {
-            matches = new LinkedList<>(prefix.matches);
-            this.stateInfo = stateInfo;
+            this(prefix.matches, stateInfo);
         }
 
         public Prefix(final TermMatch match, final State<T> stateInfo) {
-            matches = new LinkedList<>();
-            matches.add(match);
-            this.stateInfo = stateInfo;
+            this(MatchChain.EMPTY.append(match), stateInfo);
         }
         
         public Prefix(final State<T> stateInfo) {
-            matches = new LinkedList<>();
-            this.stateInfo = stateInfo;
+            this(MatchChain.EMPTY, stateInfo);
         }
 
-        private void addTerm(final TermMatch term) {
-            matches.add(term);
+        Prefix(final MatchChain matches, final State<T> stateInfo) {
+            this.matches = matches;
+            this.stateInfo = stateInfo;
         }
 
      }
 
+    /**
+     * Receives the complete input matches
+     */
+    interface MatchConsumer {
+        void accept(InstructionsSupplier value, MatchChain matches, int start, int end);
+    }
+
 }
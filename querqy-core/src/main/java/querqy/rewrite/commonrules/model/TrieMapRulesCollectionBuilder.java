@@ -20,11 +20,41 @@ import querqy.trie.TrieMap;
 public class TrieMapRulesCollectionBuilder implements RulesCollectionBuilder {
     
     final TrieMap<InstructionsSupplier> map = new TrieMap<>();
+    final InputPreCheck.Builder preCheckBuilder = new InputPreCheck.Builder();
 
     final boolean ignoreCase;
+    final int maxPrefixesPerPosition;
+    final int maxInputTerms;
+    final FuzzyInputMatching fuzzyInputMatching;
     
     public TrieMapRulesCollectionBuilder(boolean ignoreCase) {
+        this(ignoreCase, TrieMapRulesCollection.NO_LIMIT, TrieMapRulesCollection.NO_LIMIT);
+    }
+
+    /**
+     * @param ignoreCase Iff true, rule input matching is case insensitive.
+     * @param maxPrefixesPerPosition The max. number of partial input matches per query position (see
+     *                               {@link TrieMapRulesCollection})
+     * @param maxInputTerms The max. number of terms of a rule input that will be matched
+     */
+    public TrieMapRulesCollectionBuilder(final boolean ignoreCase, final int maxPrefixesPerPosition,
+                                         final int maxInputTerms) {
+        this(ignoreCase, maxPrefixesPerPosition, maxInputTerms, FuzzyInputMatching.DISABLED);
+    }
+
+    /**
+     * @param ignoreCase Iff true, rule input matching is case insensitive.
+     * @param maxPrefixesPerPosition The max. number of partial input matches per query position (see
+     *                               {@link TrieMapRulesCollection})
+     * @param maxInputTerms The max. number of terms of a rule input that will be matched
+     * @param fuzzyInputMatching Controls whether query terms can match input terms within an edit distance.
+     */
+    public TrieMapRulesCollectionBuilder(final boolean ignoreCase, final int maxPrefixesPerPosition,
+                                         final int maxInputTerms, final FuzzyInputMatching fuzzyInputMatching) {
         this.ignoreCase = ignoreCase;
+        this.maxPrefixesPerPosition = maxPrefixesPerPosition;
+        this.maxInputTerms = maxInputTerms;
+        this.fuzzyInputMatching = fuzzyInputMatching;
     }
 
     @Override
@@ -40,6 +70,8 @@ public class TrieMapRulesCollectionBuilder implements RulesCollectionBuilder {
     public void addOrMergeInstructionsSupplier(final Input.SimpleInput input,
                                                final InstructionsSupplier instructionsSupplier) {
         final List<Term> inputTerms = input.getInputTerms();
+
+        preCheckBuilder.addInputTerms(inputTerms, ignoreCase);
         
         switch (inputTerms.size()) {
         
@@ -172,7 +204,8 @@ public class TrieMapRulesCollectionBuilder implements RulesCollectionBuilder {
      */
     @Override
     public RulesCollection build() {
-        return new TrieMapRulesCollection(map, ignoreCase);
+        return new TrieMapRulesCollection(map, ignoreCase, preCheckBuilder.build(), maxPrefixesPerPosition,
+                maxInputTerms, fuzzyInputMatching);
     }
 
 }
@@ -1,5 +1,6 @@
 package querqy.rewrite.commonrules.select;
 
+import querqy.rewrite.TimeBudget;
 import querqy.rewrite.commonrules.model.Action;
 import querqy.rewrite.commonrules.model.Instructions;
 import querqy.rewrite.commonrules.model.InstructionsSupplier;
@@ -16,6 +17,8 @@ public abstract class TopRewritingActionCollector {
 
     public void collect(final InstructionsSupplier instructionsSupplier, final Function<Instructions, Action> actionCreator) {
 
+        TimeBudget.check();
+
         if (instructionsSupplier.hasInstructions()) {
             this.offer(instructionsSupplier.getInstructionsList(), actionCreator);
         }
@@ -25,9 +28,11 @@ public abstract class TopRewritingActionCollector {
 
     public TopRewritingActionCollector evaluateBooleanInput() {
         booleanInputQueryHandler.evaluate().forEach(
-                instructionsFromBooleanInput -> offer(
-                        Collections.singletonList(instructionsFromBooleanInput),
-                        instructions -> new Action(instructions, TermMatches.empty(), 0, 0)));
+                instructionsFromBooleanInput -> {
+                    TimeBudget.check();
+                    offer(Collections.singletonList(instructionsFromBooleanInput),
+                            instructions -> new Action(instructions, TermMatches.empty(), 0, 0));
+                });
 
         return this;
     }
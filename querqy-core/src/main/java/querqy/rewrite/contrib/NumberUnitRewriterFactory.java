@@ -61,6 +61,27 @@ public class NumberUnitRewriterFactory extends RewriterFactory {
         return new NumberUnitRewriter(numberUnitMap, numberUnitQueryCreator);
     }
 
+    /**
+     * Units only matter if they follow a number. A term can only start a number-unit input if it starts with a digit
+     * or with a float delimiter.
+     */
+    @Override
+    public boolean mayApply(final List<Term> queryTerms) {
+        if (queryTerms.isEmpty()) {
+            // the rewriter replaces an empty query with a MatchAllQuery
+            return true;
+        }
+        for (final Term term : queryTerms) {
+            if ((!term.isGenerated()) && term.length() > 0) {
+                final char ch = term.charAt(0);
+                if (Character.isDigit(ch) || NumberUnitRewriter.isFloatDelimiter(ch)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     @Override
     public Set<Term> getCacheableGenerableTerms() {
         return QueryRewriter.EMPTY_GENERABLE_TERMS;
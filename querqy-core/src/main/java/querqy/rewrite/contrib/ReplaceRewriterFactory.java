@@ -11,6 +11,7 @@ import querqy.trie.SequenceLookup;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.List;
 import java.util.Set;
 
 public class ReplaceRewriterFactory extends RewriterFactory {
@@ -33,6 +34,17 @@ public class ReplaceRewriterFactory extends RewriterFactory {
         return new ReplaceRewriter(sequenceLookup);
     }
 
+    @Override
+    public boolean mayApply(final List<Term> queryTerms) {
+        for (final Term term : queryTerms) {
+            // the rewriter only looks at terms that were not generated
+            if (!term.isGenerated() && sequenceLookup.mayMatch(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public Set<Term> getCacheableGenerableTerms() {
         return QueryRewriter.EMPTY_GENERABLE_TERMS;
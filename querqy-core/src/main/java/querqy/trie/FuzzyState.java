@@ -0,0 +1,26 @@
+package querqy.trie;
+
+/**
+ * A {@link State} that was reached by a fuzzy lookup.
+ */
+public class FuzzyState<T> extends State<T> {
+
+    /**
+     * The edit distance between the looked up sequence and the sequence that leads to this state
+     */
+    public final int editDistance;
+
+    public FuzzyState(final T value, final Node<T> node, final int editDistance) {
+        super(true, value, node);
+        this.editDistance = editDistance;
+    }
+
+    public int getEditDistance() {
+        return editDistance;
+    }
+
+    @Override
+    public String toString() {
+        return "FuzzyState [value=" + value + ", editDistance=" + editDistance + "]";
+    }
+}
@@ -0,0 +1,170 @@
+package querqy.trie;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>A trie for sequences of int tokens (&gt;= 0).</p>
+ *
+ * <p>Nodes are identified by ints. The root node is {@link #ROOT}. The transitions from a node to its children are
+ * kept in a single open-addressing hash table that is keyed by the parent node and the token so that no objects need
+ * to be created per node or per lookup.</p>
+ *
+ * <p>This class is not thread-safe for writing. It can be read concurrently once all sequences have been added.</p>
+ *
+ * @param <T> The type of the values
+ */
+public class IntSequenceTrie<T> implements Iterable<T> {
+
+    public static final int ROOT = 0;
+    public static final int NO_NODE = -1;
+
+    private static final long EMPTY = -1L;
+
+    private long[] keys = newKeys(16);
+    private int[] children = new int[16];
+    private int numTransitions = 0;
+
+    private Object[] values = new Object[16];
+    private int numNodes = 1;
+
+    /**
+     * @param node The parent node
+     * @param token The token
+     * @return The child node or {@link #NO_NODE} if there is no transition for the token
+     */
+    public int getChild(final int node, final int token) {
+        final long key = key(node, token);
+        final int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        long k;
+        while ((k = keys[slot]) != EMPTY) {
+            if (k == key) {
+                return children[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * @param node The parent node
+     * @param token The token
+     * @return The child node, which is created if it doesn't exist yet
+     */
+    public int getOrCreateChild(final int node, final int token) {
+        if (node < 0 || node >= numNodes) {
+            throw new IllegalArgumentException("Unknown node: " + node);
+        }
+        if (token < 0) {
+            throw new IllegalArgumentException("Token must not be negative: " + token);
+        }
+        final long key = key(node, token);
+        final int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        long k;
+        while ((k = keys[slot]) != EMPTY) {
+            if (k == key) {
+                return children[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        final int child = numNodes++;
+        if (child == values.length) {
+            final Object[] newValues = new Object[values.length * 2];
+            System.arraycopy(values, 0, newValues, 0, values.length);
+            values = newValues;
+        }
+
+        keys[slot] = key;
+        children[slot] = child;
+        if (++numTransitions * 4 > keys.length * 3) {
+            resize();
+        }
+        return child;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getValue(final int node) {
+        return (T) values[node];
+    }
+
+    public void setValue(final int node, final T value) {
+        if (node < 0 || node >= numNodes) {
+            throw new IllegalArgumentException("Unknown node: " + node);
+        }
+        values[node] = value;
+    }
+
+    public int getNumberOfNodes() {
+        return numNodes;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+
+        return new Iterator<T>() {
+
+            int next = findNext(0);
+
+            int findNext(final int start) {
+                int node = start;
+                while (node < numNodes && values[node] == null) {
+                    node++;
+                }
+                return node;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < numNodes;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final T value = (T) values[next];
+                next = findNext(next + 1);
+                return value;
+            }
+        };
+    }
+
+    private void resize() {
+        final long[] oldKeys = keys;
+        final int[] oldChildren = children;
+        keys = newKeys(oldKeys.length * 2);
+        children = new int[oldKeys.length * 2];
+        final int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                children[slot] = oldChildren[i];
+            }
+        }
+    }
+
+    private static long[] newKeys(final int capacity) {
+        final long[] keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+
+    private static long key(final int node, final int token) {
+        return ((long) node << 32) | (token & 0xFFFFFFFFL);
+    }
+
+    private static int hash(final long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
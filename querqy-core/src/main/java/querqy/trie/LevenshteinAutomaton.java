@@ -0,0 +1,84 @@
+package querqy.trie;
+
+/**
+ * <p>A Levenshtein automaton that accepts all sequences within a maximum edit distance (insertions, deletions and
+ * substitutions) of a given sequence.</p>
+ *
+ * <p>A state of the automaton is a row of the edit distance matrix, in which values above the maximum distance are
+ * capped. States are created by {@link #start()} and {@link #step(int[], char)}, so that the automaton can be
+ * intersected with a trie by stepping through the characters along the trie paths (see
+ * {@link TrieMap#getFuzzy(LevenshteinAutomaton, State)}).</p>
+ */
+public class LevenshteinAutomaton {
+
+    private final CharSequence seq;
+    private final int maxDistance;
+
+    /**
+     * @param seq The sequence to match
+     * @param maxDistance The max. edit distance
+     */
+    public LevenshteinAutomaton(final CharSequence seq, final int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance must be >= 0");
+        }
+        this.seq = seq;
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * @return The start state
+     */
+    public int[] start() {
+        final int[] state = new int[seq.length() + 1];
+        for (int i = 0; i < state.length; i++) {
+            state[i] = Math.min(i, maxDistance + 1);
+        }
+        return state;
+    }
+
+    /**
+     * @param state The current state
+     * @param ch The next character
+     * @return The next state or null if no continuation of the characters that lead to this state can be accepted
+     */
+    public int[] step(final int[] state, final char ch) {
+
+        final int[] next = new int[state.length];
+        next[0] = Math.min(state[0] + 1, maxDistance + 1);
+        int min = next[0];
+
+        for (int i = 1; i < state.length; i++) {
+            final int substitution = state[i - 1] + (seq.charAt(i - 1) == ch ? 0 : 1);
+            final int distance = Math.min(substitution, Math.min(state[i] + 1, next[i - 1] + 1));
+            next[i] = Math.min(distance, maxDistance + 1);
+            if (next[i] < min) {
+                min = next[i];
+            }
+        }
+
+        return min > maxDistance ? null : next;
+    }
+
+    /**
+     * @param state A state
+     * @return true iff the characters that lead to the state are accepted
+     */
+    public boolean isAccepted(final int[] state) {
+        return getDistance(state) <= maxDistance;
+    }
+
+    /**
+     * @param state A state
+     * @return The edit distance between the characters that lead to the state and the sequence of this automaton,
+     * or a value above the max. distance
+     */
+    public int getDistance(final int[] state) {
+        return state[state.length - 1];
+    }
+
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+}
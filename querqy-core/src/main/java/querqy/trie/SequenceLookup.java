@@ -1,5 +1,6 @@
 package querqy.trie;
 
+import querqy.CharSequenceBloomFilter;
 import querqy.CompoundCharSequence;
 import querqy.LowerCaseCharSequence;
 import querqy.trie.model.ExactMatch;
@@ -8,8 +9,10 @@ import querqy.trie.model.PrefixMatch;
 import querqy.trie.model.SuffixMatch;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -23,6 +26,12 @@ public class SequenceLookup<T> {
 
     private final boolean ignoreCase;
 
+    // the first terms of the sequences for the pre-check in mayMatch()
+    private final Set<String> firstTerms = new HashSet<>();
+    private volatile CharSequenceBloomFilter firstTermsFilter = null;
+    private boolean hasPrefixes = false;
+    private boolean hasSuffixes = false;
+
     public SequenceLookup() {
         this(true);
     }
@@ -35,15 +44,44 @@ public class SequenceLookup<T> {
     }
 
     public void put(final List<? extends CharSequence> terms, final T ruleObject) {
-        trieMap.put(new CompoundCharSequence(DELIMITER, lc(terms)), ruleObject);
+        final List<CharSequence> lcTerms = lc(terms);
+        trieMap.put(new CompoundCharSequence(DELIMITER, lcTerms), ruleObject);
+        if (!lcTerms.isEmpty()) {
+            firstTerms.add(lcTerms.get(0).toString());
+            firstTermsFilter = null;
+        }
     }
 
     public void putPrefix(final CharSequence term, final T ruleObject) {
         prefixTrieMap.putPrefix(lc(term), ruleObject, true);
+        hasPrefixes = true;
     }
 
     public void putSuffix(final CharSequence term, final T ruleObject) {
         suffixTrieMap.putSuffix(lc(term), ruleObject, true);
+        hasSuffixes = true;
+    }
+
+    /**
+     * A fast check whether a term can start an exact match or whether it has a prefix or suffix match. It must only be
+     * called after all sequences have been added.
+     *
+     * @param term A term of the input
+     * @return false if no lookup can find a match that starts at this term
+     */
+    public boolean mayMatch(final CharSequence term) {
+
+        final CharSequence lcTerm = lc(term);
+
+        CharSequenceBloomFilter filter = firstTermsFilter;
+        if (filter == null) {
+            filter = new CharSequenceBloomFilter(firstTerms);
+            firstTermsFilter = filter;
+        }
+
+        return filter.mightContain(lcTerm)
+                || (hasPrefixes && prefixTrieMap.getPrefix(lcTerm).isPresent())
+                || (hasSuffixes && suffixTrieMap.getBySuffix(lcTerm).isPresent());
     }
 
     public List<PrefixMatch<T>> findSingleTermPrefixMatches(final List<? extends CharSequence> terms) {
@@ -3,7 +3,9 @@
  */
 package querqy.trie;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 
@@ -89,4 +91,48 @@ public class TrieMap<T> implements Iterable<T> {
         return stateInfo.node.getNext(seq, 0);
     }
 
+    /**
+     * <p>Finds the states for the sequences that are accepted by the automaton. The lookup follows the paths
+     * that start after the given state and stops at space characters, which separate the terms of a rule input, and at
+     * colons, which separate a field name from the term value. Field names are never matched fuzzily - the caller
+     * has to look up the field prefix exactly and pass its state.</p>
+     *
+     * <p>The result contains all known states (= sequences that are in the map on their own or as the beginning of a
+     * longer sequence) that are accepted, including the state for the exact match if it exists.</p>
+     *
+     * @param automaton The automaton
+     * @param stateInfo The state to continue from or null to start at the beginning of the sequences in the map
+     * @return The accepted states
+     */
+    public List<FuzzyState<T>> getFuzzy(final LevenshteinAutomaton automaton, final State<T> stateInfo) {
+        final Node<T> first;
+        if (stateInfo == null) {
+            first = root;
+        } else {
+            if (!stateInfo.isKnown()) {
+                throw new IllegalArgumentException("Known state expected");
+            }
+            first = stateInfo.node.firstChild;
+        }
+
+        final List<FuzzyState<T>> result = new ArrayList<>();
+        collectFuzzy(first, automaton, automaton.start(), result);
+        return result;
+    }
+
+    private void collectFuzzy(final Node<T> first, final LevenshteinAutomaton automaton, final int[] automatonState,
+                              final List<FuzzyState<T>> result) {
+        for (Node<T> node = first; node != null; node = node.next) {
+            if (node.character != ' ' && node.character != ':') {
+                final int[] nextState = automaton.step(automatonState, node.character);
+                if (nextState != null) {
+                    if (automaton.isAccepted(nextState)) {
+                        result.add(new FuzzyState<>(node.value, node, automaton.getDistance(nextState)));
+                    }
+                    collectFuzzy(node.firstChild, automaton, nextState, result);
+                }
+            }
+        }
+    }
+
 }
@@ -0,0 +1,69 @@
+package querqy;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class CharSequenceBloomFilterTest {
+
+    @Test
+    public void testThatAddedSequencesAreContained() {
+
+        final List<String> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add("value" + i);
+        }
+
+        final CharSequenceBloomFilter filter = new CharSequenceBloomFilter(values);
+        for (final String value : values) {
+            assertTrue(filter.mightContain(value));
+        }
+
+    }
+
+    @Test
+    public void testThatLookupDoesNotDependOnCharSequenceImplementation() {
+
+        final CharSequenceBloomFilter filter = new CharSequenceBloomFilter(Collections.singletonList("abc def"));
+
+        assertTrue(filter.mightContain(new SimpleComparableCharSequence("abc def".toCharArray(), 0, 7)));
+        assertTrue(filter.mightContain(new CompoundCharSequence(" ", "abc", "def")));
+        assertTrue(filter.mightContain(new LowerCaseCharSequence("ABC DEF")));
+
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+
+        final List<String> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add("value" + i);
+        }
+
+        final CharSequenceBloomFilter filter = new CharSequenceBloomFilter(values);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+
+        // expected: about 1%
+        assertTrue("Too many false positives: " + falsePositives, falsePositives < 300);
+
+    }
+
+    @Test
+    public void testThatEmptyFilterContainsNothing() {
+        final CharSequenceBloomFilter filter = new CharSequenceBloomFilter(Collections.emptyList());
+        assertFalse(filter.mightContain("a"));
+        assertFalse(filter.mightContain(""));
+    }
+
+}
@@ -0,0 +1,46 @@
+package querqy;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class CharSequenceIdMapTest {
+
+    @Test
+    public void testPutAndGet() {
+
+        final CharSequenceIdMap map = new CharSequenceIdMap();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(CharSequenceIdMap.NOT_FOUND, map.put("key" + i, i));
+        }
+        assertEquals(1000, map.size());
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, map.get("key" + i));
+        }
+        assertEquals(CharSequenceIdMap.NOT_FOUND, map.get("key1000"));
+
+        assertEquals(5, map.put("key5", 2000));
+        assertEquals(2000, map.get("key5"));
+        assertEquals(1000, map.size());
+
+    }
+
+    @Test
+    public void testThatLookupDoesNotDependOnCharSequenceImplementation() {
+
+        final CharSequenceIdMap map = new CharSequenceIdMap();
+        map.put(new CompoundCharSequence(":", "f1", "abc"), 7);
+
+        assertEquals(7, map.get("f1:abc"));
+        assertEquals(7, map.get(new LowerCaseCharSequence(new CompoundCharSequence(":", "F1", "ABC"))));
+        assertEquals(CharSequenceIdMap.NOT_FOUND, map.get("f1:ab"));
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatNegativeIdIsRejected() {
+        new CharSequenceIdMap().put("a", -1);
+    }
+
+}
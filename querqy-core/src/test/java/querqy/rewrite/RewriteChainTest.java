@@ -0,0 +1,192 @@
+package querqy.rewrite;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import querqy.model.BoostQuery;
+import querqy.model.ExpandedQuery;
+import querqy.model.MatchAllQuery;
+import querqy.model.Query;
+import querqy.model.Term;
+import querqy.parser.WhiteSpaceQuerqyParser;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RewriteChainTest {
+
+    @Mock
+    RewriterFactory factory1;
+
+    @Mock
+    RewriterFactory factory2;
+
+    @Mock
+    QueryRewriter rewriter2;
+
+    @Mock
+    SearchEngineRequestAdapter requestAdapter;
+
+    @Test
+    public void testThatRewriterIsNotCreatedIfPreCheckFails() {
+
+        when(factory1.getRewriterId()).thenReturn("r1");
+        when(factory2.getRewriterId()).thenReturn("r2");
+        when(factory1.mayApply(anyList())).thenReturn(false);
+        when(factory2.mayApply(anyList())).thenReturn(true);
+        when(factory2.createRewriter(any(), any())).thenReturn(rewriter2);
+        when(rewriter2.rewrite(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(requestAdapter.getInfoLoggingContext()).thenReturn(Optional.empty());
+
+        final ExpandedQuery query = new ExpandedQuery(new WhiteSpaceQuerqyParser().parse("a b"));
+        new RewriteChain(Arrays.asList(factory1, factory2)).rewrite(query, requestAdapter);
+
+        verify(factory1, never()).createRewriter(any(), any());
+        verify(factory2).createRewriter(any(), any());
+
+    }
+
+    @Test
+    public void testThatPreCheckIsSkippedForDebugQueries() {
+
+        when(factory1.getRewriterId()).thenReturn("r1");
+        when(factory1.createRewriter(any(), any())).thenReturn(rewriter2);
+        when(rewriter2.rewrite(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(requestAdapter.getInfoLoggingContext()).thenReturn(Optional.empty());
+        when(requestAdapter.isDebugQuery()).thenReturn(true);
+
+        final ExpandedQuery query = new ExpandedQuery(new WhiteSpaceQuerqyParser().parse("a b"));
+        new RewriteChain(Arrays.asList(factory1)).rewrite(query, requestAdapter);
+
+        verify(factory1, never()).mayApply(anyList());
+        verify(factory1).createRewriter(any(), any());
+
+    }
+
+    @Test
+    public void testCollectTerms() {
+
+        final List<Term> terms = RewriteChain.collectTerms(new WhiteSpaceQuerqyParser().parse("a f1:b"));
+        assertEquals(Arrays.asList("a", "f1:b"), terms.stream()
+                .map(term -> term.toCharSequenceWithField(false).toString())
+                .collect(Collectors.toList()));
+
+        assertEquals(0, RewriteChain.collectTerms(new MatchAllQuery()).size());
+
+    }
+
+    @Test
+    public void testThatQueryBeforeRewriterIsUsedIfRewriterExceedsTimeBudget() {
+
+        when(factory1.getRewriterId()).thenReturn("r1");
+        when(factory1.mayApply(anyList())).thenReturn(true);
+        when(factory1.createRewriter(any(), any())).thenReturn(rewriter2);
+        when(rewriter2.rewrite(any())).thenAnswer(invocation -> {
+            final ExpandedQuery query = invocation.getArgument(0);
+            // change the query in place before running out of time
+            final Query userQuery = (Query) query.getUserQuery();
+            userQuery.removeClause(userQuery.getClauses().get(0));
+            while (true) {
+                TimeBudget.check();
+            }
+        });
+        when(requestAdapter.getInfoLoggingContext()).thenReturn(Optional.empty());
+        when(requestAdapter.getIntegerRequestParam(anyString())).thenReturn(Optional.empty());
+        when(requestAdapter.getIntegerRequestParam("querqy.r1.timeBudget")).thenReturn(Optional.of(50));
+        final Map<String, Object> context = new HashMap<>();
+        when(requestAdapter.getContext()).thenReturn(context);
+
+        final ExpandedQuery query = new ExpandedQuery(new WhiteSpaceQuerqyParser().parse("a b"));
+        final RewriteChain chain = new RewriteChain(Arrays.asList(factory1));
+        final ExpandedQuery rewritten = chain.rewrite(query, requestAdapter);
+
+        assertEquals(2, RewriteChain.collectTerms(rewritten.getUserQuery()).size());
+        assertThat((Iterable<?>) context.get(RewriteChain.CONTEXT_KEY_TIME_BUDGET_EXCEEDED), contains("r1"));
+        assertEquals(1L, chain.getNumRewritersAbortedByTimeBudget());
+        assertEquals(0L, chain.getNumRewritersSkippedByTimeBudget());
+
+        // the budget must not leak to code outside the chain
+        TimeBudget.check();
+
+    }
+
+    @Test
+    public void testThatRemainingRewritersAreSkippedIfChainTimeBudgetIsExceeded() {
+
+        when(factory1.getRewriterId()).thenReturn("r1");
+        when(factory2.getRewriterId()).thenReturn("r2");
+        when(factory1.createRewriter(any(), any())).thenReturn(rewriter2);
+        when(rewriter2.rewrite(any())).thenAnswer(invocation -> {
+            while (true) {
+                TimeBudget.check();
+            }
+        });
+        when(requestAdapter.getInfoLoggingContext()).thenReturn(Optional.empty());
+        when(requestAdapter.getIntegerRequestParam(anyString())).thenReturn(Optional.empty());
+        when(requestAdapter.getIntegerRequestParam(RewriteChain.PARAM_TIME_BUDGET)).thenReturn(Optional.of(50));
+        final Map<String, Object> context = new HashMap<>();
+        context.put(AbstractLoggingRewriter.CONTEXT_KEY_DEBUG_ENABLED, true);
+        when(requestAdapter.getContext()).thenReturn(context);
+        when(requestAdapter.isDebugQuery()).thenReturn(true);
+
+        final ExpandedQuery query = new ExpandedQuery(new WhiteSpaceQuerqyParser().parse("a b"));
+        final RewriteChain chain = new RewriteChain(Arrays.asList(factory1, factory2));
+        chain.rewrite(query, requestAdapter);
+
+        verify(factory2, never()).createRewriter(any(), any());
+        assertEquals(1L, chain.getNumRewritersAbortedByTimeBudget());
+        assertEquals(1L, chain.getNumRewritersSkippedByTimeBudget());
+        assertThat((Iterable<?>) context.get(RewriteChain.CONTEXT_KEY_TIME_BUDGET_EXCEEDED), contains("r1", "r2"));
+        assertThat((Iterable<?>) context.get(AbstractLoggingRewriter.CONTEXT_KEY_DEBUG_DATA), contains(
+                "Time budget exceeded, rewriter aborted: r1",
+                "Time budget exceeded, rewriter skipped: r2"));
+
+    }
+
+    @Test
+    public void testThatQueryIsNotCopiedWithoutTimeBudget() {
+
+        when(factory1.getRewriterId()).thenReturn("r1");
+        when(factory1.mayApply(anyList())).thenReturn(true);
+        when(factory1.createRewriter(any(), any())).thenReturn(rewriter2);
+        when(rewriter2.rewrite(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(requestAdapter.getInfoLoggingContext()).thenReturn(Optional.empty());
+
+        final ExpandedQuery query = new ExpandedQuery(new WhiteSpaceQuerqyParser().parse("a b"));
+        assertSame(query, new RewriteChain(Arrays.asList(factory1)).rewrite(query, requestAdapter));
+
+    }
+
+    @Test
+    public void testCopy() {
+
+        final ExpandedQuery query = new ExpandedQuery(new WhiteSpaceQuerqyParser().parse("a b"));
+        query.addFilterQuery(new WhiteSpaceQuerqyParser().parse("c"));
+        query.addBoostUpQuery(new BoostQuery(new WhiteSpaceQuerqyParser().parse("d"), 2f));
+        query.addBoostDownQuery(new BoostQuery(new WhiteSpaceQuerqyParser().parse("e"), 3f));
+
+        final ExpandedQuery copy = RewriteChain.copy(query);
+        assertEquals(query, copy);
+        assertTrue(query.getUserQuery() != copy.getUserQuery());
+
+    }
+
+}
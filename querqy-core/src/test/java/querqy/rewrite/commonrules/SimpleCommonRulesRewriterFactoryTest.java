@@ -21,6 +21,8 @@ import querqy.rewrite.commonrules.select.SelectionStrategyFactory;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -167,4 +169,38 @@ public class SimpleCommonRulesRewriterFactoryTest {
         assertThat(terms, Matchers.empty());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testMayApply() throws IOException {
+
+        final SimpleCommonRulesRewriterFactory factory = new SimpleCommonRulesRewriterFactory("someId",
+                new StringReader("input1 input2 =>\n DECORATE: deco1\n" +
+                        "\"input3 =>\n DECORATE: deco2\n" +
+                        "pref* =>\n DECORATE: deco3\n" +
+                        "f1:input4 =>\n DECORATE: deco4"),
+                true, querqyParserFactory, true, namedStrategyFactories, defaultSelectionStrategyFactory, false);
+
+        assertTrue(factory.mayApply(Arrays.asList(new Term(null, "x"), new Term(null, "input1"))));
+        assertTrue(factory.mayApply(Collections.singletonList(new Term(null, "INPUT3"))));
+        assertTrue(factory.mayApply(Collections.singletonList(new Term(null, "prefix"))));
+        assertTrue(factory.mayApply(Collections.singletonList(new Term(null, "f1", "input4"))));
+        // the rewriter replaces an empty query with a MatchAllQuery
+        assertTrue(factory.mayApply(Collections.emptyList()));
+
+        assertFalse(factory.mayApply(Arrays.asList(new Term(null, "x"), new Term(null, "input2"))));
+        assertFalse(factory.mayApply(Collections.singletonList(new Term(null, "input4"))));
+        assertFalse(factory.mayApply(Collections.singletonList(new Term(null, "pre"))));
+
+    }
+
+    @Test
+    public void testThatRuleWithoutInputTermsMayAlwaysApply() throws IOException {
+
+        final SimpleCommonRulesRewriterFactory factory = new SimpleCommonRulesRewriterFactory("someId",
+                new StringReader("\"\" =>\n DECORATE: deco1"),
+                true, querqyParserFactory, true, namedStrategyFactories, defaultSelectionStrategyFactory, false);
+
+        assertTrue(factory.mayApply(Collections.singletonList(new Term(null, "x"))));
+
+    }
+
+}
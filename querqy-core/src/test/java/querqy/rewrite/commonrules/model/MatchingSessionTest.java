@@ -0,0 +1,159 @@
+package querqy.rewrite.commonrules.model;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static querqy.rewrite.commonrules.select.SelectionStrategyFactory.DEFAULT_SELECTION_STRATEGY;
+
+import org.junit.Test;
+import querqy.model.Input;
+import querqy.model.InputSequenceElement;
+import querqy.model.Term;
+import querqy.rewrite.commonrules.AbstractCommonRulesTest;
+import querqy.rewrite.commonrules.SimpleCommonRulesParser;
+import querqy.rewrite.commonrules.WhiteSpaceQuerqyParserFactory;
+import querqy.rewrite.commonrules.select.TopRewritingActionCollector;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MatchingSessionTest {
+
+    private static final String RULES = String.join("\n",
+            "a =>",
+            " DECORATE: d1",
+            "a b =>",
+            " DECORATE: d2",
+            "\"a b\" =>",
+            " DECORATE: d3",
+            "lap* =>",
+            " DECORATE: d4",
+            "x lap* =>",
+            " DECORATE: d5",
+            "x laptop bag\" =>",
+            " DECORATE: d6",
+            "\"laptop =>",
+            " DECORATE: d7",
+            "b c =>",
+            " DECORATE: d8");
+
+    @Test
+    public void testThatMatchesAreTheSameAsWithoutSession() throws Exception {
+
+        for (final boolean ignoreCase : new boolean[] {true, false}) {
+
+            final TrieMapRulesCollectionBuilder builder = new TrieMapRulesCollectionBuilder(ignoreCase);
+            new SimpleCommonRulesParser(new StringReader(RULES), false, new WhiteSpaceQuerqyParserFactory(), builder)
+                    .parse();
+            final TrieMapRulesCollection rules = (TrieMapRulesCollection) builder.build();
+
+            for (final boolean addBoundaries : new boolean[] {true, false}) {
+
+                final MatchingSession session = rules.createMatchingSession();
+
+                // typing, including corrections and a new query
+                for (final String query : Arrays.asList("l", "la", "lap", "lapt", "lapto", "laptop", "laptop b",
+                        "laptop ba", "laptop bag", "x", "x l", "x la", "x lap", "x lapt", "x lapto", "x laptop",
+                        "x laptop b", "x laptop bag", "x laptop bags", "x laptop bag", "x laptop", "a", "a b",
+                        "a b c", "A B C", "a", "", "b", "b c", "b c a", "b c a b")) {
+
+                    final PositionSequence<InputSequenceElement> sequence = sequence(addBoundaries, query.split(" "));
+                    assertEquals("Different matches for '" + query + "' (boundaries: " + addBoundaries + ")",
+                            AbstractCommonRulesTest.getActions(rules, sequence),
+                            AbstractCommonRulesTest.getActions(session, sequence));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNumberOfReusedPositions() {
+
+        final TrieMapRulesCollection rules = (TrieMapRulesCollection) new TrieMapRulesCollectionBuilder(false).build();
+        final MatchingSession session = rules.createMatchingSession();
+
+        session.collectRewriteActions(sequence(true, "a"), collector());
+        assertEquals(0, session.getNumberOfReusedPositions());
+
+        // left boundary and 'a'
+        session.collectRewriteActions(sequence(true, "a", "b"), collector());
+        assertEquals(2, session.getNumberOfReusedPositions());
+
+        session.collectRewriteActions(sequence(true, "a", "bc"), collector());
+        assertEquals(2, session.getNumberOfReusedPositions());
+
+        session.collectRewriteActions(sequence(true, "a", "bc"), collector());
+        assertEquals(4, session.getNumberOfReusedPositions());
+
+        session.collectRewriteActions(sequence(true, "x", "bc"), collector());
+        assertEquals(1, session.getNumberOfReusedPositions());
+
+        session.collectRewriteActions(sequence(false, "x", "bc"), collector());
+        assertEquals(0, session.getNumberOfReusedPositions());
+
+    }
+
+    @Test
+    public void testThatReusedMatchesReferToTheTermsOfTheCurrentSequence() {
+
+        final TrieMapRulesCollectionBuilder builder = new TrieMapRulesCollectionBuilder(false);
+        final Instructions instructions = new Instructions(1, "1",
+                Collections.singletonList(new DecorateInstruction("deco")));
+        builder.addRule(new Input.SimpleInput(Arrays.asList(term("a"), term("b")), false, false, "a b"), instructions);
+        final TrieMapRulesCollection rules = (TrieMapRulesCollection) builder.build();
+
+        final MatchingSession session = rules.createMatchingSession();
+        assertThat(AbstractCommonRulesTest.getActions(session, sequence(false, "a", "b")), hasSize(1));
+
+        final Term a = new Term(null, "a");
+        final Term b = new Term(null, "b");
+        final PositionSequence<InputSequenceElement> sequence = new PositionSequence<>();
+        for (final Term term : Arrays.asList(a, b, new Term(null, "c"))) {
+            sequence.nextPosition();
+            sequence.addElement(term);
+        }
+
+        final List<Action> actions = AbstractCommonRulesTest.getActions(session, sequence);
+        assertEquals(2, session.getNumberOfReusedPositions());
+
+        final TermMatches termMatches = new TermMatches(new TermMatch(a));
+        termMatches.add(new TermMatch(b));
+        assertThat(actions, contains(new Action(instructions, termMatches, 0, 2)));
+        assertSame(a, actions.get(0).getTermMatches().get(0).getQueryTerm());
+        assertSame(b, actions.get(0).getTermMatches().get(1).getQueryTerm());
+
+    }
+
+    private static PositionSequence<InputSequenceElement> sequence(final boolean addBoundaries,
+                                                                   final String... terms) {
+        final PositionSequence<InputSequenceElement> sequence = new PositionSequence<>();
+        if (addBoundaries) {
+            sequence.nextPosition();
+            sequence.addElement(new InputBoundary(InputBoundary.Type.LEFT));
+        }
+        for (final String term : terms) {
+            if (!term.isEmpty()) {
+                sequence.nextPosition();
+                sequence.addElement(new Term(null, term));
+            }
+        }
+        if (addBoundaries) {
+            sequence.nextPosition();
+            sequence.addElement(new InputBoundary(InputBoundary.Type.RIGHT));
+        }
+        return sequence;
+    }
+
+    private static querqy.rewrite.commonrules.model.Term term(final String value) {
+        return new querqy.rewrite.commonrules.model.Term(value.toCharArray(), 0, value.length(), null);
+    }
+
+    private static TopRewritingActionCollector collector() {
+        return DEFAULT_SELECTION_STRATEGY.createTopRewritingActionCollector();
+    }
+
+}
@@ -1,6 +1,8 @@
 package querqy.rewrite.commonrules.model;
 
 import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -320,6 +322,211 @@ public class RulesCollectionTest {
 
    }
 
+   @Test
+   public void testThatLongerInputsThanMaxInputTermsAreNotMatched() {
+      RulesCollectionBuilder builder = new TrieMapRulesCollectionBuilder(false, TrieMapRulesCollection.NO_LIMIT, 2);
+
+      Instructions instructions1 = instructions(1, "instruction1");
+      builder.addRule(new Input.SimpleInput(inputTerms("s1", "s2"), false, false, "s1 s2"), instructions1);
+
+      Instructions instructions2 = instructions(2, "instruction2");
+      builder.addRule(new Input.SimpleInput(inputTerms("s1", "s2", "s3"), false, false, "s1 s2 s3"),
+              instructions2);
+
+      // a boundary doesn't count as a term
+      Instructions instructions3 = instructions(3, "instruction3");
+      builder.addRule(new Input.SimpleInput(inputTerms("s1", "s2"), true, true, "\"s1 s2\""), instructions3);
+
+      RulesCollection rulesCollection = builder.build();
+      PositionSequence<InputSequenceElement> sequence = new PositionSequence<>();
+      sequence.nextPosition();
+      sequence.addElement(new InputBoundary(InputBoundary.Type.LEFT));
+      sequence.nextPosition();
+      sequence.addElement(new Term(null, "s1"));
+      sequence.nextPosition();
+      sequence.addElement(new Term(null, "s2"));
+
+      List<Action> actions = AbstractCommonRulesTest.getActions(rulesCollection, sequence);
+      assertThat(actions, contains(new Action(instructions1, termMatches("s1", "s2"), 0, 2)));
+
+      sequence.nextPosition();
+      sequence.addElement(new InputBoundary(InputBoundary.Type.RIGHT));
+
+      actions = AbstractCommonRulesTest.getActions(rulesCollection, sequence);
+      assertThat(actions, contains(
+              new Action(instructions1, termMatches("s1", "s2"), 0, 2),
+              new Action(instructions3, termMatches("s1", "s2"), 0, 2)));
+
+      sequence.clear();
+      sequence.nextPosition();
+      sequence.addElement(new Term(null, "s1"));
+      sequence.nextPosition();
+      sequence.addElement(new Term(null, "s2"));
+      sequence.nextPosition();
+      sequence.addElement(new Term(null, "s3"));
+
+      actions = AbstractCommonRulesTest.getActions(rulesCollection, sequence);
+      assertThat(actions, contains(new Action(instructions1, termMatches("s1", "s2"), 0, 2)));
+
+   }
+
+   @Test
+   public void testThatPrefixesAreCappedPerPosition() {
+
+      Input.SimpleInput input1 = new Input.SimpleInput(inputTerms("x", "a1", "b"), false, false, "x a1 b");
+      Input.SimpleInput input2 = new Input.SimpleInput(inputTerms("x", "a2", "b"), false, false, "x a2 b");
+      Instructions instructions1 = instructions(1, "instruction1");
+      Instructions instructions2 = instructions(2, "instruction2");
+
+      PositionSequence<InputSequenceElement> sequence = new PositionSequence<>();
+      sequence.nextPosition();
+      sequence.addElement(new Term(null, "x"));
+      sequence.nextPosition();
+      sequence.addElement(new Term(null, "a1"));
+      sequence.addElement(new Term(null, "a2"));
+      sequence.nextPosition();
+      sequence.addElement(new Term(null, "b"));
+
+      RulesCollectionBuilder builder = new TrieMapRulesCollectionBuilder(false);
+      builder.addRule(input1, instructions1);
+      builder.addRule(input2, instructions2);
+
+      List<Action> actions = AbstractCommonRulesTest.getActions(builder.build(), sequence);
+      assertThat(actions, contains(
+              new Action(instructions1, termMatches("x", "a1", "b"), 0, 3),
+              new Action(instructions2, termMatches("x", "a2", "b"), 0, 3)));
+
+      RulesCollectionBuilder cappedBuilder = new TrieMapRulesCollectionBuilder(false, 1,
+              TrieMapRulesCollection.NO_LIMIT);
+      cappedBuilder.addRule(input1, instructions1);
+      cappedBuilder.addRule(input2, instructions2);
+
+      actions = AbstractCommonRulesTest.getActions(cappedBuilder.build(), sequence);
+      assertThat(actions, contains(new Action(instructions1, termMatches("x", "a1", "b"), 0, 3)));
+
+   }
+
+   @Test
+   public void testThatInputStartingAtLaterElementMatchesIfPrefixesAreCapped() {
+
+      Instructions instructions1 = instructions(1, "instruction1");
+      Instructions instructions2 = instructions(2, "instruction2");
+
+      PositionSequence<InputSequenceElement> sequence = new PositionSequence<>();
+      sequence.nextPosition();
+      sequence.addElement(new Term(null, "x"));
+      sequence.nextPosition();
+      sequence.addElement(new Term(null, "a1"));
+      sequence.addElement(new Term(null, "a2"));
+      sequence.nextPosition();
+      sequence.addElement(new Term(null, "b"));
+
+      RulesCollectionBuilder builder = new TrieMapRulesCollectionBuilder(false, 1, TrieMapRulesCollection.NO_LIMIT);
+      // the continuation 'x a1' uses up the cap for the second position
+      builder.addRule(new Input.SimpleInput(inputTerms("x", "a1", "c"), false, false, "x a1 c"), instructions1);
+      builder.addRule(new Input.SimpleInput(inputTerms("a2", "b"), false, false, "a2 b"), instructions2);
+
+      List<Action> actions = AbstractCommonRulesTest.getActions(builder.build(), sequence);
+      assertThat(actions, contains(new Action(instructions2, termMatches("a2", "b"), 1, 3)));
+
+   }
+
+   @Test
+   public void testThatTermWithSpaceMayMatchMultiTermInput() {
+
+      RulesCollectionBuilder builder = new TrieMapRulesCollectionBuilder(false);
+
+      Instructions instructions = instructions(1, "instruction1");
+      builder.addRule(new Input.SimpleInput(inputTerms("laptop", "bag"), false, false, "laptop bag"), instructions);
+
+      RulesCollection rulesCollection = builder.build();
+
+      Term laptopBag = new Term(null, "laptop bag");
+      assertTrue(rulesCollection.mayMatch(Arrays.asList(new Term(null, "x"), laptopBag)));
+      assertFalse(rulesCollection.mayMatch(Arrays.asList(new Term(null, "x"), new Term(null, "bag laptop"))));
+
+      List<Action> actions = AbstractCommonRulesTest.getActions(rulesCollection, sequence(laptopBag));
+      assertThat(actions, contains(new Action(instructions, new TermMatches(new TermMatch(laptopBag)), 0, 1)));
+
+   }
+
+   @Test
+   public void testFuzzyInputMatching() {
+
+      RulesCollectionBuilder builder = new TrieMapRulesCollectionBuilder(false, TrieMapRulesCollection.NO_LIMIT,
+              TrieMapRulesCollection.NO_LIMIT, new FuzzyInputMatching(4, 8));
+
+      Instructions instructions1 = instructions(1, "instruction1");
+      builder.addRule(new Input.SimpleInput(inputTerms("laptop"), false, false, "laptop"), instructions1);
+      Instructions instructions2 = instructions(2, "instruction2");
+      builder.addRule(new Input.SimpleInput(inputTerms("laptop", "bag"), false, false, "laptop bag"),
+              instructions2);
+      Instructions instructions3 = instructions(3, "instruction3");
+      builder.addRule(new Input.SimpleInput(inputTerms("notebook"), true, true, "\"notebook\""), instructions3);
+
+      RulesCollection rulesCollection = builder.build();
+      assertTrue(rulesCollection.mayMatch(Arrays.asList(new Term(null, "labtop"))));
+
+      // exact matches are not duplicated
+      List<Action> actions = AbstractCommonRulesTest.getActions(rulesCollection, sequence("laptop"));
+      assertThat(actions, contains(new Action(instructions1, termMatches("laptop"), 0, 1)));
+
+      Term labtop = new Term(null, "labtop");
+      actions = AbstractCommonRulesTest.getActions(rulesCollection, sequence(labtop));
+      assertThat(actions, contains(new Action(instructions1, fuzzyTermMatches(labtop, 1), 0, 1)));
+      assertEquals(1, actions.get(0).getEditDistance());
+
+      // fuzzy matches can be continued
+      Term bag = new Term(null, "bag");
+      TermMatches termMatches2 = fuzzyTermMatches(labtop, 1);
+      termMatches2.add(new TermMatch(bag));
+      actions = AbstractCommonRulesTest.getActions(rulesCollection, sequence(labtop, bag));
+      assertThat(actions, contains(
+              new Action(instructions1, fuzzyTermMatches(labtop, 1), 0, 1),
+              new Action(instructions2, termMatches2, 0, 2)));
+
+      // 'bga' is too short for fuzzy matching, 'lapt' is 2 edits away
+      actions = AbstractCommonRulesTest.getActions(rulesCollection, sequence(labtop, new Term(null, "bga")));
+      assertThat(actions, contains(new Action(instructions1, fuzzyTermMatches(labtop, 1), 0, 1)));
+      assertTrue(AbstractCommonRulesTest.getActions(rulesCollection, sequence("lapt")).isEmpty());
+
+      // distance 2 and boundaries
+      Term nootebok = new Term(null, "nootebok");
+      PositionSequence<InputSequenceElement> sequence = new PositionSequence<>();
+      sequence.nextPosition();
+      sequence.addElement(new InputBoundary(InputBoundary.Type.LEFT));
+      sequence.nextPosition();
+      sequence.addElement(nootebok);
+      sequence.nextPosition();
+      sequence.addElement(new InputBoundary(InputBoundary.Type.RIGHT));
+      actions = AbstractCommonRulesTest.getActions(rulesCollection, sequence);
+      assertThat(actions, contains(new Action(instructions3, fuzzyTermMatches(nootebok, 2), 0, 1)));
+      assertEquals(2, actions.get(0).getEditDistance());
+
+   }
+
+   PositionSequence<InputSequenceElement> sequence(String... values) {
+      PositionSequence<InputSequenceElement> sequence = new PositionSequence<>();
+      for (String value : values) {
+         sequence.nextPosition();
+         sequence.addElement(new Term(null, value));
+      }
+      return sequence;
+   }
+
+   PositionSequence<InputSequenceElement> sequence(Term... terms) {
+      PositionSequence<InputSequenceElement> sequence = new PositionSequence<>();
+      for (Term term : terms) {
+         sequence.nextPosition();
+         sequence.addElement(term);
+      }
+      return sequence;
+   }
+
+   TermMatches fuzzyTermMatches(Term term, int editDistance) {
+      return new TermMatches(new TermMatch(term, false, null, editDistance));
+   }
+
    List<querqy.rewrite.commonrules.model.Term> inputTerms(String... values) {
       List<querqy.rewrite.commonrules.model.Term> result = new LinkedList<>();
       for (String value : values) {
@@ -0,0 +1,260 @@
+package querqy.rewrite.commonrules.model;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import querqy.model.Input;
+import querqy.model.InputSequenceElement;
+import querqy.model.Term;
+import querqy.rewrite.commonrules.AbstractCommonRulesTest;
+import querqy.rewrite.commonrules.RuleParseException;
+import querqy.rewrite.commonrules.SimpleCommonRulesParser;
+import querqy.rewrite.commonrules.WhiteSpaceQuerqyParserFactory;
+import querqy.rewrite.commonrules.select.booleaninput.model.BooleanInputLiteral;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TokenIdRulesCollectionTest {
+
+    private static final String RULES = String.join("\n",
+            "a =>",
+            " DECORATE: d1",
+            "a =>",
+            " DECORATE: d1b",
+            "a b =>",
+            " DECORATE: d2",
+            "\"a b\" =>",
+            " DECORATE: d3",
+            "\"c =>",
+            " DECORATE: d4",
+            "d\" =>",
+            " DECORATE: d5",
+            "lap* =>",
+            " DECORATE: d6",
+            "x lap* =>",
+            " DECORATE: d7",
+            "\"y* =>",
+            " DECORATE: d8",
+            "f1:e =>",
+            " DECORATE: d9",
+            "{f1,f2}:g h =>",
+            " DECORATE: d10",
+            "A B C =>",
+            " DECORATE: d11",
+            "b c =>",
+            " DECORATE: d12",
+            "\"\" =>",
+            " DECORATE: d13",
+            "ab c =>",
+            " DECORATE: d14");
+
+    @Test
+    public void testThatMatchesAreTheSameAsForTrieMapRulesCollection() throws Exception {
+        for (final boolean ignoreCase : new boolean[] {true, false}) {
+            assertSameMatches(ignoreCase, TrieMapRulesCollection.NO_LIMIT, TrieMapRulesCollection.NO_LIMIT);
+            assertSameMatches(ignoreCase, TrieMapRulesCollection.NO_LIMIT, 1);
+            assertSameMatches(ignoreCase, 1, TrieMapRulesCollection.NO_LIMIT);
+        }
+    }
+
+    private void assertSameMatches(final boolean ignoreCase, final int maxPrefixesPerPosition,
+                                   final int maxInputTerms) throws IOException, RuleParseException {
+
+        final TrieMapRulesCollectionBuilder trieMapBuilder = new TrieMapRulesCollectionBuilder(ignoreCase,
+                maxPrefixesPerPosition, maxInputTerms);
+        final TokenIdRulesCollectionBuilder tokenIdBuilder = new TokenIdRulesCollectionBuilder(ignoreCase,
+                maxPrefixesPerPosition, maxInputTerms);
+
+        // parse the rules only once so that both collections share the same instructions
+        new SimpleCommonRulesParser(new StringReader(RULES), false, new WhiteSpaceQuerqyParserFactory(),
+                new TeeBuilder(trieMapBuilder, tokenIdBuilder)).parse();
+
+        final RulesCollection trieMapRules = trieMapBuilder.build();
+        final RulesCollection tokenIdRules = tokenIdBuilder.build();
+
+        final List<List<List<Term>>> queries = Arrays.asList(
+                query("a"),
+                query("a", "b"),
+                query("x", "a", "b", "y"),
+                query("c", "d"),
+                query("c", "a", "b", "c", "d"),
+                query("laptop"),
+                query("lap"),
+                query("x", "laptop"),
+                query("x", "lap"),
+                query("yes", "x"),
+                query("y"),
+                query("a b"),
+                query("a b", "c"),
+                query("x lapdog"),
+                query("c", "a b", "c d"),
+                query("a  b"),
+                query("q b"),
+                query("ab", "c"),
+                query("a", "b", "c"),
+                query("b", "c"),
+                query("A", "b", "c"),
+                query("a", "B", "C", "d"),
+                Collections.singletonList(Arrays.asList(new Term(null, "f1", "e"), new Term(null, "f2", "e"))),
+                Arrays.asList(
+                        Collections.singletonList(new Term(null, "f2", "g")),
+                        Collections.singletonList(new Term(null, "h"))),
+                Arrays.asList(
+                        Arrays.asList(new Term(null, "a"), new Term(null, "x")),
+                        Arrays.asList(new Term(null, "b"), new Term(null, "laptop")),
+                        Arrays.asList(new Term(null, "c"), new Term(null, "lapdog"))),
+                Collections.emptyList());
+
+        for (final List<List<Term>> query : queries) {
+            for (final boolean addBoundaries : new boolean[] {true, false}) {
+                final PositionSequence<InputSequenceElement> sequence = sequence(query, addBoundaries);
+                assertEquals("Different matches for " + query + " (boundaries: " + addBoundaries + ")",
+                        AbstractCommonRulesTest.getActions(trieMapRules, sequence),
+                        AbstractCommonRulesTest.getActions(tokenIdRules, sequence));
+            }
+        }
+
+        assertEquals(trieMapRules.getInstructions(), tokenIdRules.getInstructions());
+
+    }
+
+    @Test
+    public void testPrefixMatch() {
+
+        final TokenIdRulesCollectionBuilder builder = new TokenIdRulesCollectionBuilder(false);
+        final Instructions instructions = instructions(1);
+        builder.addRule(new Input.SimpleInput(Arrays.asList(term("x"), new PrefixTerm("lap".toCharArray(), 0, 3,
+                null)), false, false, "x lap*"), instructions);
+
+        final RulesCollection rules = builder.build();
+
+        final Term x = new Term(null, "x");
+        final Term laptop = new Term(null, "laptop");
+
+        final PositionSequence<InputSequenceElement> sequence = sequence(Arrays.asList(
+                Collections.singletonList(x), Collections.singletonList(laptop)), false);
+
+        final TermMatches termMatches = new TermMatches(new TermMatch(x));
+        termMatches.add(new TermMatch(laptop, true, laptop.subSequence(3, 6)));
+
+        assertThat(AbstractCommonRulesTest.getActions(rules, sequence),
+                contains(new Action(instructions, termMatches, 0, 2)));
+
+        // at least one char must match the wildcard
+        assertThat(AbstractCommonRulesTest.getActions(rules, sequence(query("x", "lap"), false)), is(empty()));
+
+    }
+
+    @Test
+    public void testMayMatch() {
+
+        final TokenIdRulesCollectionBuilder builder = new TokenIdRulesCollectionBuilder(true);
+        builder.addRule(new Input.SimpleInput(Arrays.asList(term("a"), term("b")), false, false, "a b"),
+                instructions(1));
+        final RulesCollection rules = builder.build();
+
+        assertTrue(rules.mayMatch(Collections.singletonList(new Term(null, "A"))));
+        assertFalse(rules.mayMatch(Collections.singletonList(new Term(null, "b"))));
+
+    }
+
+    @Test
+    public void testThatTermWithSpaceMayMatchMultiTermInput() {
+
+        final TokenIdRulesCollectionBuilder builder = new TokenIdRulesCollectionBuilder(true);
+        final Instructions instructions = instructions(1);
+        builder.addRule(new Input.SimpleInput(Arrays.asList(term("a"), term("b")), false, false, "a b"),
+                instructions);
+        final RulesCollection rules = builder.build();
+
+        final Term ab = new Term(null, "a b");
+        assertTrue(rules.mayMatch(Collections.singletonList(ab)));
+        assertFalse(rules.mayMatch(Collections.singletonList(new Term(null, "b a"))));
+
+        assertThat(AbstractCommonRulesTest.getActions(rules, sequence(Collections.singletonList(
+                Collections.singletonList(ab)), false)),
+                contains(new Action(instructions, new TermMatches(new TermMatch(ab)), 0, 1)));
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatEmptyInputWithoutBoundariesIsRejected() {
+        new TokenIdRulesCollectionBuilder(true).addRule(
+                new Input.SimpleInput(Collections.emptyList(), true, false, "\""), instructions(1));
+    }
+
+    private static List<List<Term>> query(final String... terms) {
+        final List<List<Term>> query = new ArrayList<>();
+        for (final String term : terms) {
+            query.add(Collections.singletonList(new Term(null, term)));
+        }
+        return query;
+    }
+
+    private static PositionSequence<InputSequenceElement> sequence(final List<List<Term>> query,
+                                                                   final boolean addBoundaries) {
+        final PositionSequence<InputSequenceElement> sequence = new PositionSequence<>();
+        if (addBoundaries) {
+            sequence.nextPosition();
+            sequence.addElement(new InputBoundary(InputBoundary.Type.LEFT));
+        }
+        for (final List<Term> position : query) {
+            sequence.nextPosition();
+            position.forEach(sequence::addElement);
+        }
+        if (addBoundaries) {
+            sequence.nextPosition();
+            sequence.addElement(new InputBoundary(InputBoundary.Type.RIGHT));
+        }
+        return sequence;
+    }
+
+    private static querqy.rewrite.commonrules.model.Term term(final String value) {
+        return new querqy.rewrite.commonrules.model.Term(value.toCharArray(), 0, value.length(), null);
+    }
+
+    private static Instructions instructions(final int ord) {
+        return new Instructions(ord, Integer.toString(ord),
+                Collections.singletonList(new DecorateInstruction("deco" + ord)));
+    }
+
+    private static class TeeBuilder implements RulesCollectionBuilder {
+
+        final RulesCollectionBuilder builder1;
+        final RulesCollectionBuilder builder2;
+
+        TeeBuilder(final RulesCollectionBuilder builder1, final RulesCollectionBuilder builder2) {
+            this.builder1 = builder1;
+            this.builder2 = builder2;
+        }
+
+        @Override
+        public void addRule(final Input.SimpleInput input, final Instructions instructions) {
+            builder1.addRule(input, instructions);
+            builder2.addRule(input, instructions);
+        }
+
+        @Override
+        public void addRule(final Input.SimpleInput input, final BooleanInputLiteral literal) {
+            builder1.addRule(input, literal);
+            builder2.addRule(input, literal);
+        }
+
+        @Override
+        public RulesCollection build() {
+            // the collections are built separately
+            return null;
+        }
+    }
+}
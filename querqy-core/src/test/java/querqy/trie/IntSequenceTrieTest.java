@@ -0,0 +1,60 @@
+package querqy.trie;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class IntSequenceTrieTest {
+
+    @Test
+    public void testSequences() {
+
+        final IntSequenceTrie<String> trie = new IntSequenceTrie<>();
+
+        final int node1 = trie.getOrCreateChild(IntSequenceTrie.ROOT, 1);
+        final int node12 = trie.getOrCreateChild(node1, 2);
+        final int node2 = trie.getOrCreateChild(IntSequenceTrie.ROOT, 2);
+        trie.setValue(node12, "1 2");
+        trie.setValue(node2, "2");
+
+        assertEquals(node1, trie.getOrCreateChild(IntSequenceTrie.ROOT, 1));
+        assertEquals(node1, trie.getChild(IntSequenceTrie.ROOT, 1));
+        assertEquals(node12, trie.getChild(node1, 2));
+        assertEquals(IntSequenceTrie.NO_NODE, trie.getChild(node2, 1));
+        assertEquals(IntSequenceTrie.NO_NODE, trie.getChild(IntSequenceTrie.ROOT, 3));
+
+        assertNull(trie.getValue(node1));
+        assertEquals("1 2", trie.getValue(node12));
+        assertEquals("2", trie.getValue(node2));
+        assertEquals(4, trie.getNumberOfNodes());
+        assertThat(trie, containsInAnyOrder("1 2", "2"));
+
+    }
+
+    @Test
+    public void testManyNodes() {
+
+        final IntSequenceTrie<Integer> trie = new IntSequenceTrie<>();
+        int node = IntSequenceTrie.ROOT;
+        for (int i = 0; i < 1000; i++) {
+            node = trie.getOrCreateChild(node, i % 10);
+            trie.setValue(node, i);
+        }
+
+        node = IntSequenceTrie.ROOT;
+        for (int i = 0; i < 1000; i++) {
+            node = trie.getChild(node, i % 10);
+            assertEquals(Integer.valueOf(i), trie.getValue(node));
+        }
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatNegativeTokenIsRejected() {
+        new IntSequenceTrie<String>().getOrCreateChild(IntSequenceTrie.ROOT, -1);
+    }
+
+}
@@ -0,0 +1,70 @@
+package querqy.trie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class LevenshteinAutomatonTest {
+
+    @Test
+    public void testThatDistancesAreTheSameAsForEditDistanceMatrix() {
+        final Random random = new Random(42L);
+        for (int i = 0; i < 2000; i++) {
+            final String s1 = randomString(random);
+            final String s2 = randomString(random);
+            for (int maxDistance = 0; maxDistance <= 2; maxDistance++) {
+                final int expected = editDistance(s1, s2);
+                final LevenshteinAutomaton automaton = new LevenshteinAutomaton(s1, maxDistance);
+                int[] state = automaton.start();
+                for (int j = 0; j < s2.length() && state != null; j++) {
+                    state = automaton.step(state, s2.charAt(j));
+                }
+                if (expected <= maxDistance) {
+                    assertEquals(s1 + "/" + s2, expected, automaton.getDistance(state));
+                } else if (state != null) {
+                    assertFalse(s1 + "/" + s2, automaton.isAccepted(state));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testThatStepReturnsNullIfNoContinuationCanBeAccepted() {
+        final LevenshteinAutomaton automaton = new LevenshteinAutomaton("abc", 1);
+        final int[] state = automaton.step(automaton.start(), 'x');
+        assertEquals(1, automaton.getDistance(automaton.step(automaton.step(state, 'b'), 'c')));
+        assertNull(automaton.step(state, 'y'));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatNegativeDistanceIsRejected() {
+        new LevenshteinAutomaton("abc", -1);
+    }
+
+    private static String randomString(final Random random) {
+        final char[] chars = new char[random.nextInt(6)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(3));
+        }
+        return new String(chars);
+    }
+
+    private static int editDistance(final String s1, final String s2) {
+        final int[][] d = new int[s1.length() + 1][s2.length() + 1];
+        for (int i = 0; i <= s1.length(); i++) {
+            for (int j = 0; j <= s2.length(); j++) {
+                if (i == 0 || j == 0) {
+                    d[i][j] = i + j;
+                } else {
+                    d[i][j] = Math.min(d[i - 1][j - 1] + (s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1),
+                            Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+                }
+            }
+        }
+        return d[s1.length()][s2.length()];
+    }
+}
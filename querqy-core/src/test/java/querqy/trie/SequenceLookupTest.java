@@ -10,6 +10,8 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class SequenceLookupTest {
 
@@ -32,6 +34,24 @@ public class SequenceLookupTest {
         assertThat(exactMatches).hasSize(0);
     }
 
+    @Test
+    public void testMayMatch() {
+        SequenceLookup<String> sequenceLookup = new SequenceLookup<>(true);
+        sequenceLookup.put(createStringList("exact", "match"), "exact");
+
+        assertTrue(sequenceLookup.mayMatch("EXACT"));
+        assertFalse(sequenceLookup.mayMatch("match"));
+        assertFalse(sequenceLookup.mayMatch("prefixterm"));
+        assertFalse(sequenceLookup.mayMatch("termsuffix"));
+
+        sequenceLookup.putPrefix("prefix", "prefix");
+        sequenceLookup.putSuffix("suffix", "suffix");
+
+        assertTrue(sequenceLookup.mayMatch("prefixterm"));
+        assertTrue(sequenceLookup.mayMatch("termsuffix"));
+        assertFalse(sequenceLookup.mayMatch("term"));
+    }
+
     @Test
     public void testSuffixIgnoreCase() {
         SequenceLookup<String> sequenceLookup = new SequenceLookup<>(false);
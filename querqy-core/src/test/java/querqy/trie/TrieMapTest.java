@@ -16,6 +16,65 @@ import org.junit.Test;
 
 public class TrieMapTest {
 
+    @Test
+    public void testGetFuzzy() {
+        TrieMap<Integer> map = new TrieMap<>();
+        map.put("abc", 1);
+        map.put("abd", 2);
+        map.put("xyz", 3);
+        map.put("ab cd", 4);
+
+        List<FuzzyState<Integer>> states = map.getFuzzy(new LevenshteinAutomaton("abx", 1), null);
+        List<String> result = new LinkedList<>();
+        for (FuzzyState<Integer> state : states) {
+            assertTrue(state.isKnown());
+            result.add(state.getValue() + "/" + state.getEditDistance());
+        }
+        // 'ab' is known but not final
+        assertThat(result, containsInAnyOrder("null/1", "1/1", "2/1"));
+
+        // continue after the term separator
+        State<Integer> separatorState = map.get("ab ").getStateForCompleteSequence();
+        states = map.getFuzzy(new LevenshteinAutomaton("cx", 1), separatorState);
+        result.clear();
+        for (FuzzyState<Integer> state : states) {
+            result.add(state.getValue() + "/" + state.getEditDistance());
+        }
+        assertThat(result, containsInAnyOrder("null/1", "4/1"));
+
+        // the lookup doesn't cross term separators
+        assertTrue(map.getFuzzy(new LevenshteinAutomaton("abcd", 1), null).stream()
+                .noneMatch(state -> state.getValue() != null && state.getValue() == 4));
+    }
+
+    @Test
+    public void testThatGetFuzzyDoesNotCrossFieldSeparator() {
+        TrieMap<Integer> map = new TrieMap<>();
+        map.put("f:abc", 1);
+        map.put("abc", 2);
+
+        // 'xabc' would reach 'f:abc' with edit distance 2 if the field name could be matched fuzzily
+        List<FuzzyState<Integer>> states = map.getFuzzy(new LevenshteinAutomaton("xabc", 2), null);
+        List<Integer> result = new LinkedList<>();
+        for (FuzzyState<Integer> state : states) {
+            if (state.isFinal()) {
+                result.add(state.getValue());
+            }
+        }
+        assertThat(result, contains(2));
+
+        // the value after the exactly matched field name can be matched fuzzily
+        State<Integer> fieldState = map.get("f:").getStateForCompleteSequence();
+        states = map.getFuzzy(new LevenshteinAutomaton("xbc", 1), fieldState);
+        result.clear();
+        for (FuzzyState<Integer> state : states) {
+            if (state.isFinal()) {
+                result.add(state.getValue());
+            }
+        }
+        assertThat(result, contains(1));
+    }
+
     @Test
     public void testThatEmptyMapAlwaysReturnsUnknownState() {
         TrieMap<Integer> map = new TrieMap<>();
@@ -0,0 +1,94 @@
+package querqy.lucene;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.util.BytesRef;
+import querqy.model.Term;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Looks up the document frequencies of Querqy terms in their search fields.</p>
+ *
+ * <p>The term value is analyzed by the query analyzer of the field before the lookup, like when the Lucene query is
+ * created for the term (see {@link querqy.lucene.rewrite.TermSubQueryBuilder}). If the analyzer creates more than one
+ * token, the document frequencies of the tokens are summed up. Document frequencies are cached so that they are
+ * looked up in the index only once per term and field.</p>
+ */
+final class DocumentFrequencies {
+
+    private final IndexReader indexReader;
+    private final Analyzer analyzer;
+    private final Map<org.apache.lucene.index.Term, Integer> indexDocFreqs = new HashMap<>();
+    private final Map<org.apache.lucene.index.Term, Long> analyzedDocFreqs = new HashMap<>();
+
+    /**
+     * @param indexReader The index reader
+     * @param analyzer The query analyzer or null to look up the raw term values
+     */
+    DocumentFrequencies(final IndexReader indexReader, final Analyzer analyzer) {
+        this.indexReader = indexReader;
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Gets the document frequency of a Querqy term summed up over its search fields.
+     *
+     * @param term The term
+     * @param fields The search fields of the term
+     * @return The summed document frequency
+     */
+    long docFreq(final Term term, final Collection<String> fields) {
+        final String value = term.getValue().toString();
+        long docFreq = 0L;
+        for (final String field : fields) {
+            docFreq += analyzedDocFreqs.computeIfAbsent(new org.apache.lucene.index.Term(field, value),
+                    this::analyzeAndLookup);
+        }
+        return docFreq;
+    }
+
+    /**
+     * Gets the document frequency of an index term. The term is not analyzed.
+     *
+     * @param term The index term
+     * @return The document frequency
+     */
+    int docFreq(final org.apache.lucene.index.Term term) {
+        return indexDocFreqs.computeIfAbsent(term, t -> {
+            try {
+                return indexReader.docFreq(t);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private long analyzeAndLookup(final org.apache.lucene.index.Term term) {
+
+        if (analyzer == null) {
+            return docFreq(term);
+        }
+
+        final String field = term.field();
+        long docFreq = 0L;
+        try (final TokenStream ts = analyzer.tokenStream(field, term.text())) {
+            final CharTermAttribute termAttr = ts.addAttribute(CharTermAttribute.class);
+            ts.reset();
+            while (ts.incrementToken()) {
+                docFreq += docFreq(new org.apache.lucene.index.Term(field, new BytesRef(termAttr)));
+            }
+            ts.end();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return docFreq;
+    }
+
+}
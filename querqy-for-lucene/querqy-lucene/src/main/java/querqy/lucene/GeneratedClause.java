@@ -0,0 +1,97 @@
+package querqy.lucene;
+
+import querqy.model.BooleanClause;
+import querqy.model.BooleanQuery;
+import querqy.model.DisjunctionMaxClause;
+import querqy.model.DisjunctionMaxQuery;
+import querqy.model.Term;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A clause that a rewriter generated in a {@link DisjunctionMaxQuery} of the user query. Generated clauses are
+ * removed by {@link GeneratedClauseBudget} and {@link QueryCostEstimator} in the order of their own priorities.
+ */
+final class GeneratedClause {
+
+    final DisjunctionMaxQuery dmq;
+    final DisjunctionMaxClause clause;
+    /**
+     * The position of the clause among the generated clauses of the query
+     */
+    final int position;
+
+    private GeneratedClause(final DisjunctionMaxQuery dmq, final DisjunctionMaxClause clause, final int position) {
+        this.dmq = dmq;
+        this.clause = clause;
+        this.position = position;
+    }
+
+    /**
+     * Removes the clause from its {@link DisjunctionMaxQuery} unless it is the only clause of the query.
+     *
+     * @return true iff the clause was removed
+     */
+    boolean remove() {
+        if (dmq.getClauses().size() > 1) {
+            dmq.removeClause(clause);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The terms of the clause
+     */
+    List<Term> getTerms() {
+        final List<Term> terms = new ArrayList<>();
+        collectTerms(clause, terms);
+        return terms;
+    }
+
+    /**
+     * Collects the generated clauses of the user query in the order of their position in the query. The clauses of a
+     * generated {@link BooleanQuery} are not collected separately.
+     *
+     * @param query The user query
+     * @return The generated clauses
+     */
+    static List<GeneratedClause> collect(final BooleanQuery query) {
+        final List<GeneratedClause> clauses = new ArrayList<>();
+        collect(query, clauses);
+        return clauses;
+    }
+
+    private static void collect(final BooleanQuery query, final List<GeneratedClause> clauses) {
+        for (final BooleanClause clause : query.getClauses()) {
+            if (clause instanceof BooleanQuery) {
+                collect((BooleanQuery) clause, clauses);
+            } else if (clause instanceof DisjunctionMaxQuery) {
+                final DisjunctionMaxQuery dmq = (DisjunctionMaxQuery) clause;
+                for (final DisjunctionMaxClause dmqClause : dmq.getClauses()) {
+                    if (dmqClause.isGenerated()) {
+                        clauses.add(new GeneratedClause(dmq, dmqClause, clauses.size()));
+                    } else if (dmqClause instanceof BooleanQuery) {
+                        collect((BooleanQuery) dmqClause, clauses);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void collectTerms(final Object node, final List<Term> terms) {
+        if (node instanceof Term) {
+            terms.add((Term) node);
+        } else if (node instanceof BooleanQuery) {
+            for (final BooleanClause clause : ((BooleanQuery) node).getClauses()) {
+                collectTerms(clause, terms);
+            }
+        } else if (node instanceof DisjunctionMaxQuery) {
+            for (final DisjunctionMaxClause clause : ((DisjunctionMaxQuery) node).getClauses()) {
+                collectTerms(clause, terms);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+package querqy.lucene;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexReader;
+import querqy.lucene.rewrite.SearchFieldsAndBoosting;
+import querqy.model.BooleanQuery;
+import querqy.model.BoostedTerm;
+import querqy.model.DisjunctionMaxClause;
+import querqy.model.DisjunctionMaxQuery;
+import querqy.model.Term;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>Limits the number of terms that rewriters generated in the user query and the number of Lucene term queries
+ * that will be created for them.</p>
+ *
+ * <p>Synonyms, word breaks etc. are added as generated clauses to the {@link DisjunctionMaxQuery} of the query
+ * term that they were derived from. If the query exceeds the budget, generated clauses are removed in the order of
+ * their priority, starting with the lowest priority, until the query is within the budget. The priority of a clause
+ * is determined by</p>
+ * <ol>
+ *     <li>the boost of its terms (see {@link BoostedTerm}, a higher boost means a higher priority),</li>
+ *     <li>the document frequency of its terms in the search fields if an index reader is available (a higher document
+ *     frequency means a higher priority). The terms are analyzed by the query analyzer of the field before their
+ *     document frequency is looked up if an analyzer is available.</li>
+ *     <li>its position in the query (the clauses at the beginning of the query have a higher priority).</li>
+ * </ol>
+ *
+ * <p>A generated clause is never removed if it is the only clause of its {@link DisjunctionMaxQuery}.</p>
+ */
+public class GeneratedClauseBudget {
+
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private final int maxGeneratedTerms;
+    private final int maxGeneratedClauses;
+    private final SearchFieldsAndBoosting searchFieldsAndBoosting;
+    private final IndexReader indexReader;
+    private final Analyzer analyzer;
+
+    /**
+     * @param maxGeneratedTerms The max. number of generated terms in the user query
+     * @param maxGeneratedClauses The max. number of Lucene term queries for the generated terms, i.e. the number of
+     *                            generated terms multiplied by the number of their search fields
+     * @param searchFieldsAndBoosting The search fields
+     * @param indexReader The index reader for looking up document frequencies or null to ignore the document
+     *                    frequencies
+     */
+    public GeneratedClauseBudget(final int maxGeneratedTerms, final int maxGeneratedClauses,
+                                 final SearchFieldsAndBoosting searchFieldsAndBoosting,
+                                 final IndexReader indexReader) {
+        this(maxGeneratedTerms, maxGeneratedClauses, searchFieldsAndBoosting, indexReader, null);
+    }
+
+    /**
+     * @param maxGeneratedTerms The max. number of generated terms in the user query
+     * @param maxGeneratedClauses The max. number of Lucene term queries for the generated terms, i.e. the number of
+     *                            generated terms multiplied by the number of their search fields
+     * @param searchFieldsAndBoosting The search fields
+     * @param indexReader The index reader for looking up document frequencies or null to ignore the document
+     *                    frequencies
+     * @param analyzer The query analyzer for the search fields or null to look up the document frequencies of the
+     *                 raw term values
+     */
+    public GeneratedClauseBudget(final int maxGeneratedTerms, final int maxGeneratedClauses,
+                                 final SearchFieldsAndBoosting searchFieldsAndBoosting,
+                                 final IndexReader indexReader, final Analyzer analyzer) {
+        if (maxGeneratedTerms < 0) {
+            throw new IllegalArgumentException("maxGeneratedTerms must be >= 0");
+        }
+        if (maxGeneratedClauses < 0) {
+            throw new IllegalArgumentException("maxGeneratedClauses must be >= 0");
+        }
+        this.maxGeneratedTerms = maxGeneratedTerms;
+        this.maxGeneratedClauses = maxGeneratedClauses;
+        this.searchFieldsAndBoosting = searchFieldsAndBoosting;
+        this.indexReader = indexReader;
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Removes generated clauses from the query until it is within the budget.
+     *
+     * @param query The user query
+     * @return The removed clauses
+     */
+    public List<DisjunctionMaxClause> apply(final BooleanQuery query) {
+
+        final List<Candidate> candidates = new ArrayList<>();
+        for (final GeneratedClause generatedClause : GeneratedClause.collect(query)) {
+            candidates.add(new Candidate(generatedClause));
+        }
+
+        int numTerms = 0;
+        int numClauses = 0;
+        for (final Candidate candidate : candidates) {
+            numTerms += candidate.terms.size();
+            numClauses += candidate.numClauses;
+        }
+
+        if (numTerms <= maxGeneratedTerms && numClauses <= maxGeneratedClauses) {
+            return Collections.emptyList();
+        }
+
+        final List<Candidate> byPriority = new ArrayList<>(candidates);
+        if (indexReader != null) {
+            final DocumentFrequencies docFreqs = new DocumentFrequencies(indexReader, analyzer);
+            for (final Candidate candidate : byPriority) {
+                candidate.docFreq = docFreq(docFreqs, candidate.terms);
+            }
+        }
+        // lowest priority first
+        byPriority.sort(Comparator.<Candidate>comparingDouble(candidate -> candidate.boost)
+                .thenComparingLong(candidate -> candidate.docFreq)
+                .thenComparing(Comparator.<Candidate>comparingInt(candidate -> candidate.generatedClause.position)
+                        .reversed()));
+
+        final List<DisjunctionMaxClause> removed = new ArrayList<>();
+
+        for (final Candidate candidate : byPriority) {
+
+            if (numTerms <= maxGeneratedTerms && numClauses <= maxGeneratedClauses) {
+                break;
+            }
+
+            if (candidate.generatedClause.remove()) {
+                removed.add(candidate.generatedClause.clause);
+                numTerms -= candidate.terms.size();
+                numClauses -= candidate.numClauses;
+            }
+        }
+
+        return removed;
+
+    }
+
+    private long docFreq(final DocumentFrequencies docFreqs, final List<Term> terms) {
+        // a clause with more than one term cannot match more documents than its rarest term
+        long min = Long.MAX_VALUE;
+        for (final Term term : terms) {
+            min = Math.min(min, docFreqs.docFreq(term, searchFieldsAndBoosting.getSearchFields(term)));
+        }
+        return terms.isEmpty() ? 0L : min;
+    }
+
+    private class Candidate {
+
+        final GeneratedClause generatedClause;
+        final List<Term> terms;
+        final int numClauses;
+        final float boost;
+        long docFreq = 0L;
+
+        Candidate(final GeneratedClause generatedClause) {
+            this.generatedClause = generatedClause;
+            terms = generatedClause.getTerms();
+            int n = 0;
+            float maxBoost = terms.isEmpty() ? 1f : 0f;
+            for (final Term term : terms) {
+                n += searchFieldsAndBoosting.getSearchFields(term).size();
+                maxBoost = Math.max(maxBoost, term instanceof BoostedTerm ? ((BoostedTerm) term).getBoost() : 1f);
+            }
+            numClauses = n;
+            boost = maxBoost;
+        }
+
+    }
+
+}
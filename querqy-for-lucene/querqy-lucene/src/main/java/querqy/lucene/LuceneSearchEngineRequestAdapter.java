@@ -1,16 +1,19 @@
 package querqy.lucene;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
 import querqy.rewrite.SearchEngineRequestAdapter;
 import querqy.lucene.rewrite.SearchFieldsAndBoosting.FieldBoostModel;
+import querqy.lucene.rewrite.cache.InstructionQueryCache;
 import querqy.lucene.rewrite.cache.TermQueryCache;
 import querqy.model.ExpandedQuery;
 import querqy.model.QuerqyQuery;
 import querqy.model.RawQuery;
 import querqy.parser.QuerqyParser;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -65,6 +68,18 @@ public interface LuceneSearchEngineRequestAdapter extends SearchEngineRequestAda
      */
     Optional<TermQueryCache> getTermQueryCache();
 
+    /**
+     * <p>Get an optional {@link InstructionQueryCache}.</p>
+     *
+     * <p>The cache holds the Lucene queries that were created from the boost and filter queries of rewriter
+     * instructions. The cached queries don't depend on the index and the cache can be shared across requests.</p>
+     *
+     * @return The optional InstructionQueryCache. This default implementation returns an empty Optional.
+     */
+    default Optional<InstructionQueryCache> getInstructionQueryCache() {
+        return Optional.empty();
+    }
+
     /**
      * <p>Should Querqy boost queries be added to the main query?</p>
      *
@@ -224,6 +239,22 @@ public interface LuceneSearchEngineRequestAdapter extends SearchEngineRequestAda
      */
     List<Query> getAdditiveBoosts(final QuerqyQuery<?> userQuery) throws SyntaxException;
 
+    /**
+     * <p>Get the list of additive boost queries like {@link #getAdditiveBoosts(QuerqyQuery)} but without the queries
+     * that boost documents containing (parts of) the user query as a phrase.</p>
+     *
+     * <p>This method is used if the phrase boosts must be dropped to reduce the cost of the query (see
+     * {@link QueryCostDegradation#DROP_PHRASE_BOOSTS}). The user query might have been rewritten already.</p>
+     *
+     * @param userQuery The user query parsed into a {@link QuerqyQuery}
+     * @return The list of additive boost queries or an empty list if no such query exists. This default
+     * implementation returns the result of {@link #getAdditiveBoosts(QuerqyQuery)}.
+     * @throws SyntaxException if an additive boost query could not be parsed
+     */
+    default List<Query> getAdditiveBoostsWithoutPhraseBoosts(final QuerqyQuery<?> userQuery) throws SyntaxException {
+        return getAdditiveBoosts(userQuery);
+    }
+
     /**
      * <p>Get the list of boost queries whose scores should be multiplied to the score of the main query.</p>
      * <p>The queries are
@@ -244,6 +275,20 @@ public interface LuceneSearchEngineRequestAdapter extends SearchEngineRequestAda
      */
     Optional<Query> parseRankQuery() throws SyntaxException;
 
+    /**
+     * <p>Check whether the request comes with a rank query, either one that {@link #parseRankQuery()} would return or
+     * one that the search engine applies on its own (like the 'rq' parameter in Solr).</p>
+     *
+     * <p>Querqy boost queries are not moved into a re-rank query to reduce the query cost if this method returns true
+     * (see {@link QueryCostDegradation#RERANK_BOOST_QUERIES}), as either the boost queries or the rank query of the
+     * request would be dropped.</p>
+     *
+     * @return true iff the request has a rank query. This default implementation returns false.
+     */
+    default boolean hasRankQuery() {
+        return false;
+    }
+
     /**
      * <p>Parse a {@link RawQuery}.</p>
      *
@@ -266,6 +311,66 @@ public interface LuceneSearchEngineRequestAdapter extends SearchEngineRequestAda
      */
     Optional<FieldBoostModel> getFieldBoostModel();
 
+    /**
+     * <p>Get the max. number of terms that rewriters may generate in the user query.</p>
+     *
+     * <p>If the rewritten query contains more generated terms, {@link QueryParsingController#process()} removes
+     * generated clauses using a {@link GeneratedClauseBudget}.</p>
+     *
+     * @return The max. number of generated terms. This default implementation returns an empty Optional (= no limit).
+     */
+    default Optional<Integer> getMaxGeneratedTerms() {
+        return Optional.empty();
+    }
+
+    /**
+     * <p>Get the max. number of Lucene term queries that may be created for the generated terms of the user query
+     * (= generated terms x search fields).</p>
+     *
+     * @return The max. number of clauses for generated terms. This default implementation returns an empty Optional
+     * (= no limit).
+     * @see #getMaxGeneratedTerms()
+     */
+    default Optional<Integer> getMaxGeneratedClauses() {
+        return Optional.empty();
+    }
+
+    /**
+     * <p>Get an optional IndexReader for looking up document frequencies when generated clauses have to be removed
+     * (see {@link #getMaxGeneratedTerms()}) or when the query cost has to be estimated (see
+     * {@link #getMaxQueryCost()}).</p>
+     *
+     * @return The optional IndexReader. This default implementation returns an empty Optional.
+     */
+    default Optional<IndexReader> getIndexReader() {
+        return Optional.empty();
+    }
+
+    /**
+     * <p>Get the max. estimated cost of the query.</p>
+     *
+     * <p>If the estimated cost of the rewritten query exceeds this limit, {@link QueryParsingController#process()}
+     * applies the steps of {@link #getQueryCostDegradations()} in their order until the cost is within the limit.
+     * The cost is estimated by a {@link QueryCostEstimator}, which needs an IndexReader (see
+     * {@link #getIndexReader()}).</p>
+     *
+     * @return The max. estimated cost of the query. This default implementation returns an empty Optional
+     * (= no limit).
+     */
+    default Optional<Long> getMaxQueryCost() {
+        return Optional.empty();
+    }
+
+    /**
+     * <p>Get the steps for reducing the cost of the query if it exceeds {@link #getMaxQueryCost()}.</p>
+     *
+     * @return The degradation steps in the order in which they should be applied. This default implementation
+     * returns all {@link QueryCostDegradation}s in their declaration order.
+     */
+    default List<QueryCostDegradation> getQueryCostDegradations() {
+        return Arrays.asList(QueryCostDegradation.values());
+    }
+
 
 
     class SyntaxException extends Exception {
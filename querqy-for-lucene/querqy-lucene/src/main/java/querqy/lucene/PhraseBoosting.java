@@ -1,8 +1,18 @@
 package querqy.lucene;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TermToBytesRefAttribute;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MultiPhraseQuery;
+import org.apache.lucene.search.PhraseQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SynonymQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.QueryBuilder;
 import querqy.ComparableCharSequence;
 import querqy.model.BooleanClause;
@@ -11,9 +21,13 @@ import querqy.model.DisjunctionMaxQuery;
 import querqy.model.QuerqyQuery;
 import querqy.model.Term;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -92,7 +106,7 @@ public class PhraseBoosting {
 
                 if (!phraseBoostFieldParams.isEmpty()) {
 
-                    final List<String> sequence = new LinkedList<>();
+                    final List<String> sequence = new ArrayList<>();
 
                     for (final querqy.model.BooleanClause clause : clauses) {
 
@@ -127,9 +141,9 @@ public class PhraseBoosting {
 
                         final QueryBuilder queryBuilder = new QueryBuilder(queryAnalyzer);
 
-                        final List<String>[] shingles = new List[4];
-                        String pf = null;
-
+                        // the sequence is analyzed only once per field, the (sub)phrase queries for all n-gram
+                        // sizes are created from the analyzed tokens
+                        final Map<String, AnalyzedSequence> analyzedByField = new HashMap<>();
 
                         for (final PhraseBoosting.PhraseBoostFieldParams fieldParams : phraseBoostFieldParams) {
 
@@ -139,43 +153,26 @@ public class PhraseBoosting {
 
                             if (nGramType == PhraseBoosting.NGramType.PHRASE) {
 
-                                if (pf == null) {
-                                    final StringBuilder sb = new StringBuilder(sequence.size() * 7);
-                                    for (final String term : sequence) {
-                                        if (sb.length() > 0) {
-                                            sb.append(' ');
-                                        }
-                                        sb.append(term);
-                                    }
-                                    pf = sb.toString();
-                                }
-                                final Query pq = queryBuilder.createPhraseQuery(fieldname, pf, slop);
+                                final AnalyzedSequence analyzedSequence = analyzedByField.computeIfAbsent(fieldname,
+                                        field -> new AnalyzedSequence(queryAnalyzer, field, sequence));
+
+                                final Query pq = analyzedSequence.createPhraseQuery(queryBuilder, 0, sequence.size(),
+                                        slop);
                                 if (pq != null) {
                                     disjuncts.add(LuceneQueryUtil.boost(pq, fieldParams.getBoost()));
                                 }
 
                             } else if (nGramType.nGramSize <= sequence.size()) {
 
-                                if (shingles[nGramType.nGramSize] == null) {
-                                    shingles[nGramType.nGramSize] = new LinkedList<>();
-                                    for (int i = 0, lenI = sequence.size() - nGramType.nGramSize + 1; i < lenI; i++) {
-                                        final StringBuilder sb = new StringBuilder();
-
-                                        for (int j = i, lenJ = j + nGramType.nGramSize; j < lenJ; j++) {
-                                            if (sb.length() > 0) {
-                                                sb.append(' ');
-                                            }
-                                            sb.append(sequence.get(j));
-                                        }
-                                        shingles[nGramType.nGramSize].add(sb.toString());
-                                    }
-                                }
-
+                                final AnalyzedSequence analyzedSequence = analyzedByField.computeIfAbsent(fieldname,
+                                        field -> new AnalyzedSequence(queryAnalyzer, field, sequence));
 
-                                final List<Query> nGramQueries = new ArrayList<>(shingles[nGramType.nGramSize].size());
+                                final List<Query> nGramQueries = new ArrayList<>(sequence.size()
+                                        - nGramType.nGramSize + 1);
 
-                                for (final String nGram : shingles[nGramType.nGramSize]) {
-                                    final Query pq = queryBuilder.createPhraseQuery(fieldname, nGram, slop);
+                                for (int i = 0, lenI = sequence.size() - nGramType.nGramSize + 1; i < lenI; i++) {
+                                    final Query pq = analyzedSequence.createPhraseQuery(queryBuilder, i,
+                                            i + nGramType.nGramSize, slop);
                                     if (pq != null) {
                                         nGramQueries.add(pq);
                                     }
@@ -222,4 +219,188 @@ public class PhraseBoosting {
         return Optional.empty();
 
     }
+
+    /**
+     * <p>The tokens that the query analyzer created for a field from the sequence of query terms.</p>
+     *
+     * <p>The sequence is analyzed as a whole and each token is mapped to the query term that it was created from
+     * using its start offset. The phrase query for a (sub)sequence of query terms is created from the tokens of these
+     * terms, which gives the same query as analyzing the (sub)sequence with {@link QueryBuilder#createPhraseQuery(String,
+     * String, int)}. Only the position gap in front of the first token of a subsequence is approximated, which does not
+     * change the matching. If the analyzer creates a token graph or a token that spans more than one query term (like
+     * a keyword tokenizer), the (sub)sequence is analyzed again by the QueryBuilder.</p>
+     */
+    static class AnalyzedSequence {
+
+        final String field;
+        final String text;
+        // the start offset of each query term in the text
+        final int[] termStarts;
+        final List<Token> tokens = new ArrayList<>();
+        boolean isGraph = false;
+        // true iff a token was created from more than one query term
+        boolean spansTerms = false;
+
+        AnalyzedSequence(final Analyzer analyzer, final String field, final List<String> sequence) {
+
+            this.field = field;
+
+            termStarts = new int[sequence.size()];
+            final StringBuilder sb = new StringBuilder(sequence.size() * 7);
+            for (int i = 0, len = sequence.size(); i < len; i++) {
+                if (i > 0) {
+                    sb.append(' ');
+                }
+                termStarts[i] = sb.length();
+                sb.append(sequence.get(i));
+            }
+            text = sb.toString();
+
+            try (final TokenStream stream = analyzer.tokenStream(field, text)) {
+
+                final TermToBytesRefAttribute termAtt = stream.getAttribute(TermToBytesRefAttribute.class);
+                final PositionIncrementAttribute posIncAtt = stream.addAttribute(PositionIncrementAttribute.class);
+                final PositionLengthAttribute posLenAtt = stream.addAttribute(PositionLengthAttribute.class);
+                final OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+
+                if (termAtt == null) {
+                    return;
+                }
+
+                stream.reset();
+                int position = -1;
+                while (stream.incrementToken()) {
+                    position += posIncAtt.getPositionIncrement();
+                    if (posLenAtt.getPositionLength() > 1) {
+                        isGraph = true;
+                    }
+                    final int termIndex = termIndex(offsetAtt.startOffset());
+                    if (termIndex + 1 < termStarts.length && offsetAtt.endOffset() > termStarts[termIndex + 1]) {
+                        spansTerms = true;
+                    }
+                    tokens.add(new Token(BytesRef.deepCopyOf(termAtt.getBytesRef()), position, termIndex));
+                }
+                stream.end();
+
+            } catch (final IOException e) {
+                throw new RuntimeException("Error analyzing query text", e);
+            }
+
+        }
+
+        /**
+         * Create the phrase query for the query terms from index 'from' (inclusive) to 'to' (exclusive).
+         *
+         * @param queryBuilder The query builder to use if the tokens cannot be mapped to single query terms
+         * @param from The index of the first query term
+         * @param to The index after the last query term
+         * @param slop The phrase slop
+         * @return The query or null if the analyzer didn't create any tokens for the query terms
+         */
+        Query createPhraseQuery(final QueryBuilder queryBuilder, final int from, final int to, final int slop) {
+
+            if (isGraph || spansTerms) {
+                final int end = to < termStarts.length ? termStarts[to] - 1 : text.length();
+                return queryBuilder.createPhraseQuery(field, text.substring(termStarts[from], end), slop);
+            }
+
+            final List<Token> phraseTokens = new ArrayList<>();
+            boolean hasSynonyms = false;
+            Token previous = null;
+            for (final Token token : tokens) {
+                if (token.termIndex < from) {
+                    previous = token;
+                } else if (token.termIndex < to) {
+                    if ((!phraseTokens.isEmpty())
+                            && phraseTokens.get(phraseTokens.size() - 1).position == token.position) {
+                        hasSynonyms = true;
+                    }
+                    phraseTokens.add(token);
+                }
+            }
+
+            switch (phraseTokens.size()) {
+                case 0: return null;
+                case 1: return new TermQuery(phraseTokens.get(0).toTerm(field));
+                default:
+            }
+
+            final int firstPosition = phraseTokens.get(0).position;
+            final int lastPosition = phraseTokens.get(phraseTokens.size() - 1).position;
+
+            // Analyzed separately, the subsequence would start at position 0. Tokens removed by the analyzer (like
+            // stop words) leave a gap in front of the first token. We assume one removed token per query term
+            // without any token between the previous token and the subsequence and attribute the rest of the gap to
+            // the subsequence.
+            final int previousPosition = previous == null ? -1 : previous.position;
+            final int previousTermIndex = previous == null ? -1 : previous.termIndex;
+            final int leadingGap = Math.max(0,
+                    firstPosition - previousPosition - 1 - (from - previousTermIndex - 1));
+            final int base = firstPosition - leadingGap;
+
+            // Like the QueryBuilder, we only create a SynonymQuery if all tokens are at the first position. The
+            // QueryBuilder counts a leading gap as a position and creates a MultiPhraseQuery with an offset then.
+            if (firstPosition == lastPosition && leadingGap == 0) {
+                final SynonymQuery.Builder builder = new SynonymQuery.Builder(field);
+                for (final Token token : phraseTokens) {
+                    builder.addTerm(token.toTerm(field));
+                }
+                return builder.build();
+            }
+
+            if (!hasSynonyms) {
+
+                final PhraseQuery.Builder builder = new PhraseQuery.Builder();
+                builder.setSlop(slop);
+                for (final Token token : phraseTokens) {
+                    builder.add(token.toTerm(field), token.position - base);
+                }
+                return builder.build();
+
+            }
+
+            final MultiPhraseQuery.Builder builder = new MultiPhraseQuery.Builder();
+            builder.setSlop(slop);
+            final List<org.apache.lucene.index.Term> terms = new ArrayList<>();
+            int position = firstPosition;
+            for (final Token token : phraseTokens) {
+                if (token.position != position) {
+                    builder.add(terms.toArray(new org.apache.lucene.index.Term[0]), position - base);
+                    terms.clear();
+                    position = token.position;
+                }
+                terms.add(token.toTerm(field));
+            }
+            builder.add(terms.toArray(new org.apache.lucene.index.Term[0]), position - base);
+            return builder.build();
+
+        }
+
+        private int termIndex(final int offset) {
+            int index = Arrays.binarySearch(termStarts, offset);
+            if (index < 0) {
+                // offset is inside a term
+                index = Math.max(0, -index - 2);
+            }
+            return index;
+        }
+
+    }
+
+    private static class Token {
+
+        final BytesRef term;
+        final int position;
+        final int termIndex;
+
+        Token(final BytesRef term, final int position, final int termIndex) {
+            this.term = term;
+            this.position = position;
+            this.termIndex = termIndex;
+        }
+
+        org.apache.lucene.index.Term toTerm(final String field) {
+            return new org.apache.lucene.index.Term(field, term);
+        }
+    }
 }
@@ -0,0 +1,32 @@
+package querqy.lucene;
+
+/**
+ * <p>The steps that {@link QueryParsingController} can take to reduce the estimated cost of a query if it exceeds
+ * {@link LuceneSearchEngineRequestAdapter#getMaxQueryCost()}.</p>
+ *
+ * @see QueryCostEstimator
+ */
+public enum QueryCostDegradation {
+
+    /**
+     * Remove the clauses that rewriters generated in the user query, starting with the clauses that have the highest
+     * document frequencies. A generated clause is never removed if it is the only clause of its
+     * {@link querqy.model.DisjunctionMaxQuery}.
+     */
+    DROP_HIGH_DF_GENERATED_TERMS,
+
+    /**
+     * Don't add the Querqy boost queries to the main query but return them separately so that they can be applied
+     * to the top documents only (see {@link LuceneSearchEngineRequestAdapter#addQuerqyBoostQueriesToMainQuery()}).
+     * This step is skipped if the request has a rank query of its own
+     * (see {@link LuceneSearchEngineRequestAdapter#hasRankQuery()}).
+     */
+    RERANK_BOOST_QUERIES,
+
+    /**
+     * Don't add the phrase boost queries to the main query
+     * (see {@link LuceneSearchEngineRequestAdapter#getAdditiveBoostsWithoutPhraseBoosts(querqy.model.QuerqyQuery)}).
+     */
+    DROP_PHRASE_BOOSTS
+
+}
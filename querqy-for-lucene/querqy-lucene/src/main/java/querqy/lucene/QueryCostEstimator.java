@@ -0,0 +1,199 @@
+package querqy.lucene;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.QueryVisitor;
+import querqy.lucene.rewrite.SearchFieldsAndBoosting;
+import querqy.model.BooleanClause;
+import querqy.model.BooleanQuery;
+import querqy.model.BoostQuery;
+import querqy.model.DisjunctionMaxClause;
+import querqy.model.DisjunctionMaxQuery;
+import querqy.model.MatchAllQuery;
+import querqy.model.QuerqyQuery;
+import querqy.model.Term;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>Estimates the cost of executing a query before it is run.</p>
+ *
+ * <p>The cost of a query is the sum of the postings lengths (= document frequencies) of all terms that it will be
+ * looked up in the index, i.e. the number of postings that the term queries will have to iterate over in the worst
+ * case. A {@link MatchAllQuery} costs the number of documents in the index. For Querqy queries, the document frequency
+ * of a term is summed up over its search fields. If a query analyzer is available, the term value is analyzed for each
+ * field before the lookup, like when the Lucene query is created for it. Otherwise the raw term value is looked up,
+ * which is a cheap approximation for the terms that will be created from it.</p>
+ *
+ * <p>Document frequencies are cached in the estimator so that re-estimating a query after it has been changed doesn't
+ * look them up in the index again.</p>
+ *
+ * @see QueryCostDegradation
+ */
+public class QueryCostEstimator {
+
+    public static final long NO_LIMIT = Long.MAX_VALUE;
+
+    private final SearchFieldsAndBoosting searchFieldsAndBoosting;
+    private final IndexReader indexReader;
+    private final DocumentFrequencies docFreqs;
+
+    /**
+     * @param searchFieldsAndBoosting The search fields of the Querqy queries
+     * @param indexReader The index reader for looking up document frequencies
+     */
+    public QueryCostEstimator(final SearchFieldsAndBoosting searchFieldsAndBoosting, final IndexReader indexReader) {
+        this(searchFieldsAndBoosting, indexReader, null);
+    }
+
+    /**
+     * @param searchFieldsAndBoosting The search fields of the Querqy queries
+     * @param indexReader The index reader for looking up document frequencies
+     * @param analyzer The query analyzer for the search fields or null to look up the document frequencies of the
+     *                 raw term values of the Querqy queries
+     */
+    public QueryCostEstimator(final SearchFieldsAndBoosting searchFieldsAndBoosting, final IndexReader indexReader,
+                              final Analyzer analyzer) {
+        this.searchFieldsAndBoosting = searchFieldsAndBoosting;
+        this.indexReader = indexReader;
+        this.docFreqs = new DocumentFrequencies(indexReader, analyzer);
+    }
+
+    /**
+     * Estimates the cost of a Querqy query. {@link querqy.model.RawQuery}s cannot be estimated and cost 0.
+     *
+     * @param query The query
+     * @return The estimated cost
+     */
+    public long estimate(final QuerqyQuery<?> query) {
+        return estimateNode(query);
+    }
+
+    /**
+     * Estimates the cost of Querqy boost queries.
+     *
+     * @param boostQueries The boost queries, can be null
+     * @return The estimated cost
+     */
+    public long estimate(final Collection<BoostQuery> boostQueries) {
+        long cost = 0L;
+        if (boostQueries != null) {
+            for (final BoostQuery boostQuery : boostQueries) {
+                cost += estimate(boostQuery.getQuery());
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Estimates the cost of a Lucene query from the terms that the query exposes via
+     * {@link org.apache.lucene.search.Query#visit(QueryVisitor)}. Queries that don't expose their terms, like function
+     * queries, cost 0.
+     *
+     * @param query The query
+     * @return The estimated cost
+     */
+    public long estimate(final org.apache.lucene.search.Query query) {
+        final long[] cost = new long[] {0L};
+        query.visit(new QueryVisitor() {
+
+            @Override
+            public void consumeTerms(final org.apache.lucene.search.Query query,
+                                     final org.apache.lucene.index.Term... terms) {
+                for (final org.apache.lucene.index.Term term : terms) {
+                    cost[0] += docFreqs.docFreq(term);
+                }
+            }
+
+            @Override
+            public QueryVisitor getSubVisitor(final Occur occur, final org.apache.lucene.search.Query parent) {
+                // also count prohibited clauses, their postings have to be read as well
+                return this;
+            }
+        });
+        return cost[0];
+    }
+
+    /**
+     * <p>Removes generated clauses from the user query until its estimated cost has been reduced by at least the
+     * given amount or until no more clauses can be removed.</p>
+     *
+     * <p>The clauses with the highest cost are removed first. Clauses with the same cost are removed starting from
+     * the end of the query. A generated clause is never removed if it is the only clause of its
+     * {@link DisjunctionMaxQuery}.</p>
+     *
+     * @param query The user query
+     * @param costReduction The cost by which the query should be reduced
+     * @return The removed clauses
+     */
+    public List<DisjunctionMaxClause> removeGeneratedClauses(final BooleanQuery query, final long costReduction) {
+
+        if (costReduction <= 0L) {
+            return Collections.emptyList();
+        }
+
+        final List<GeneratedClause> candidates = GeneratedClause.collect(query);
+        final long[] costs = new long[candidates.size()];
+        for (final GeneratedClause candidate : candidates) {
+            costs[candidate.position] = estimateNode(candidate.clause);
+        }
+
+        // highest cost first
+        candidates.sort(Comparator.<GeneratedClause>comparingLong(candidate -> costs[candidate.position]).reversed()
+                .thenComparing(Comparator.<GeneratedClause>comparingInt(candidate -> candidate.position).reversed()));
+
+        final List<DisjunctionMaxClause> removed = new ArrayList<>();
+        long reduced = 0L;
+
+        for (final GeneratedClause candidate : candidates) {
+
+            if (reduced >= costReduction) {
+                break;
+            }
+
+            if (candidate.remove()) {
+                removed.add(candidate.clause);
+                reduced += costs[candidate.position];
+            }
+        }
+
+        return removed;
+
+    }
+
+    private long estimateNode(final Object node) {
+
+        if (node instanceof Term) {
+            final Term term = (Term) node;
+            return docFreqs.docFreq(term, searchFieldsAndBoosting.getSearchFields(term));
+        }
+
+        if (node instanceof BooleanQuery) {
+            long cost = 0L;
+            for (final BooleanClause clause : ((BooleanQuery) node).getClauses()) {
+                cost += estimateNode(clause);
+            }
+            return cost;
+        }
+
+        if (node instanceof DisjunctionMaxQuery) {
+            long cost = 0L;
+            for (final DisjunctionMaxClause clause : ((DisjunctionMaxQuery) node).getClauses()) {
+                cost += estimateNode(clause);
+            }
+            return cost;
+        }
+
+        if (node instanceof MatchAllQuery) {
+            return indexReader.maxDoc();
+        }
+
+        return 0L;
+    }
+
+}
@@ -19,7 +19,10 @@ import querqy.lucene.rewrite.LuceneTermQueryBuilder;
 import querqy.lucene.rewrite.SearchFieldsAndBoosting;
 import querqy.lucene.rewrite.SearchFieldsAndBoosting.FieldBoostModel;
 import querqy.lucene.rewrite.TermQueryBuilder;
+import querqy.lucene.rewrite.cache.InstructionQueryCache;
+import querqy.lucene.rewrite.cache.InstructionQueryCacheKey;
 import querqy.model.BoostQuery;
+import querqy.model.DisjunctionMaxClause;
 import querqy.model.ExpandedQuery;
 import querqy.model.MatchAllQuery;
 import querqy.model.QuerqyQuery;
@@ -27,6 +30,7 @@ import querqy.model.RawQuery;
 import querqy.parser.QuerqyParser;
 import querqy.parser.WhiteSpaceQuerqyParser;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -81,10 +85,15 @@ public class QueryParsingController {
     protected final DocumentFrequencyCorrection dfc;
     protected final boolean debugQuery;
     protected final LuceneQueryBuilder builder;
+    protected final LuceneQueryBuilder filterBuilder;
+    protected final LuceneQueryBuilder boostBuilder;
+    protected final InstructionQueryCache instructionQueryCache;
     protected final TermQueryBuilder boostTermQueryBuilder;
     protected final SearchFieldsAndBoosting boostSearchFieldsAndBoostings;
     protected final boolean addQuerqyBoostQueriesToMainQuery;
     protected String parserDebugInfo = null;
+    protected List<String> prunedClausesDebugInfo = null;
+    protected Map<String, Object> queryCostDebugInfo = null;
 
     public QueryParsingController(final LuceneSearchEngineRequestAdapter requestAdapter) {
         this.requestAdapter = requestAdapter;
@@ -127,6 +136,8 @@ public class QueryParsingController {
             boostSearchFieldsAndBoostings = null;
             builder = new LuceneQueryBuilder(new LuceneTermQueryBuilder(), queryAnalyzer, searchFieldsAndBoosting, 1f,
                     requestAdapter.getTermQueryCache().orElse(null));
+            filterBuilder = builder;
+            boostBuilder = null;
         } else {
             addQuerqyBoostQueriesToMainQuery = requestAdapter.addQuerqyBoostQueriesToMainQuery();
 
@@ -151,8 +162,18 @@ public class QueryParsingController {
                     queryAnalyzer, searchFieldsAndBoosting, requestAdapter.getTiebreaker().orElse(DEFAULT_TIEBREAKER),
                     requestAdapter.getTermQueryCache().orElse(null));
 
+            // filter queries don't score, they needn't take part in the document frequency correction
+            filterBuilder = new LuceneQueryBuilder(new LuceneTermQueryBuilder(), queryAnalyzer,
+                    searchFieldsAndBoosting, 1f, requestAdapter.getTermQueryCache().orElse(null));
+
+            boostBuilder = new LuceneQueryBuilder(boostTermQueryBuilder, queryAnalyzer,
+                    boostSearchFieldsAndBoostings, requestAdapter.getTiebreaker().orElse(DEFAULT_TIEBREAKER),
+                    requestAdapter.getTermQueryCache().orElse(null));
+
         }
 
+        instructionQueryCache = requestAdapter.getInstructionQueryCache().orElse(null);
+
 
         debugQuery = requestAdapter.isDebugQuery();
 
@@ -182,7 +203,7 @@ public class QueryParsingController {
 
 
         if (needsScores) {
-            additiveBoosts = requestAdapter.getAdditiveBoosts(parsedInput.getUserQuery());
+            additiveBoosts = new ArrayList<>(requestAdapter.getAdditiveBoosts(parsedInput.getUserQuery()));
             multiplicativeBoosts = requestAdapter.getMultiplicativeBoosts(parsedInput.getUserQuery());
         } else {
             additiveBoosts = multiplicativeBoosts = null;
@@ -196,6 +217,11 @@ public class QueryParsingController {
 
         final ExpandedQuery rewrittenQuery = requestAdapter.getRewriteChain().rewrite(parsedInput, requestAdapter);
 
+        applyGeneratedClauseBudget(rewrittenQuery);
+
+        final boolean addBoostQueriesToMainQuery = applyQueryCostLimit(rewrittenQuery, additiveBoosts,
+                addQuerqyBoostQueriesToMainQuery);
+
         Query mainQuery = transformUserQuery(rewrittenQuery.getUserQuery(), builder);
 
         if (dfc != null) dfc.finishedUserQuery();
@@ -210,7 +236,7 @@ public class QueryParsingController {
 
         final boolean hasMultiplicativeBoosts = multiplicativeBoosts != null && !multiplicativeBoosts.isEmpty();
         final boolean hasQuerqyBoostQueries = !querqyBoostQueries.isEmpty();
-        final boolean hasQuerqyBoostQueriesOnMainQuery = hasQuerqyBoostQueries && addQuerqyBoostQueriesToMainQuery;
+        final boolean hasQuerqyBoostQueriesOnMainQuery = hasQuerqyBoostQueries && addBoostQueriesToMainQuery;
 
         // do we have to add a boost query as an optional clause to the main query?
         final boolean hasOptBoost = needsScores &&
@@ -262,7 +288,7 @@ public class QueryParsingController {
         }
 
         LuceneQueries luceneQueries;
-        if ((!addQuerqyBoostQueriesToMainQuery) && hasQuerqyBoostQueries) {
+        if ((!addBoostQueriesToMainQuery) && hasQuerqyBoostQueries) {
             // boost queries have not been applied to the main query, they are returned separately here, external rank queries are ignored
             luceneQueries = new LuceneQueries(mainQuery, filterQueries, querqyBoostQueries, userQuery, null, dfc != null,
                     false);
@@ -274,6 +300,168 @@ public class QueryParsingController {
         return luceneQueries;
     }
 
+    /**
+     * Removes generated clauses from the user query if the request sets a budget for generated terms or clauses
+     * (see {@link LuceneSearchEngineRequestAdapter#getMaxGeneratedTerms()}).
+     *
+     * @param rewrittenQuery The rewritten query
+     */
+    protected void applyGeneratedClauseBudget(final ExpandedQuery rewrittenQuery) {
+
+        final int maxGeneratedTerms = requestAdapter.getMaxGeneratedTerms().orElse(GeneratedClauseBudget.NO_LIMIT);
+        final int maxGeneratedClauses = requestAdapter.getMaxGeneratedClauses()
+                .orElse(GeneratedClauseBudget.NO_LIMIT);
+
+        if (maxGeneratedTerms == GeneratedClauseBudget.NO_LIMIT
+                && maxGeneratedClauses == GeneratedClauseBudget.NO_LIMIT) {
+            return;
+        }
+
+        final QuerqyQuery<?> userQuery = rewrittenQuery.getUserQuery();
+        if (!(userQuery instanceof querqy.model.BooleanQuery)) {
+            return;
+        }
+
+        final List<DisjunctionMaxClause> removed = new GeneratedClauseBudget(maxGeneratedTerms, maxGeneratedClauses,
+                searchFieldsAndBoosting, requestAdapter.getIndexReader().orElse(null), queryAnalyzer)
+                .apply((querqy.model.BooleanQuery) userQuery);
+
+        if (debugQuery && !removed.isEmpty()) {
+            prunedClausesDebugInfo = removed.stream().map(Object::toString).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * <p>Estimates the cost of the query if the request sets a limit for it (see
+     * {@link LuceneSearchEngineRequestAdapter#getMaxQueryCost()}) and applies the
+     * {@link LuceneSearchEngineRequestAdapter#getQueryCostDegradations()} in their order as long as the cost exceeds
+     * the limit.</p>
+     *
+     * <p>The cost comprises the user query, the Querqy boost queries if they are added to the main query and the
+     * additive boost queries (see {@link QueryCostEstimator}).</p>
+     *
+     * @param rewrittenQuery The rewritten query. Generated clauses might be removed from the user query.
+     * @param additiveBoosts The additive boost queries or null if scores are not needed. The phrase boost queries
+     *                       might be removed from this list.
+     * @param addQuerqyBoostQueriesToMainQuery Iff true, the Querqy boost queries would be added to the main query
+     * @return true iff the Querqy boost queries should still be added to the main query
+     * @throws SyntaxException if the additive boost queries could not be parsed
+     */
+    protected boolean applyQueryCostLimit(final ExpandedQuery rewrittenQuery, final List<Query> additiveBoosts,
+                                          final boolean addQuerqyBoostQueriesToMainQuery) throws SyntaxException {
+
+        final long maxQueryCost = requestAdapter.getMaxQueryCost().orElse(QueryCostEstimator.NO_LIMIT);
+        if (maxQueryCost == QueryCostEstimator.NO_LIMIT) {
+            return addQuerqyBoostQueriesToMainQuery;
+        }
+
+        final QueryCostEstimator estimator = new QueryCostEstimator(searchFieldsAndBoosting,
+                requestAdapter.getIndexReader().orElseThrow(() ->
+                        new IllegalStateException("An IndexReader is needed for estimating the query cost")),
+                queryAnalyzer);
+
+        final QuerqyQuery<?> userQuery = rewrittenQuery.getUserQuery();
+
+        long userQueryCost = estimator.estimate(userQuery);
+        final long boostQueriesCost = needsScores
+                ? estimator.estimate(rewrittenQuery.getBoostUpQueries())
+                    + estimator.estimate(rewrittenQuery.getBoostDownQueries())
+                : 0L;
+        long additiveBoostsCost = estimate(estimator, additiveBoosts);
+
+        boolean addBoostQueriesToMainQuery = addQuerqyBoostQueriesToMainQuery;
+
+        final long estimatedCost = userQueryCost + (addBoostQueriesToMainQuery ? boostQueriesCost : 0L)
+                + additiveBoostsCost;
+        long cost = estimatedCost;
+
+        final List<String> degradations = new ArrayList<>();
+        final List<String> skippedDegradations = new ArrayList<>();
+        List<DisjunctionMaxClause> removed = Collections.emptyList();
+
+        for (final QueryCostDegradation degradation : requestAdapter.getQueryCostDegradations()) {
+
+            if (cost <= maxQueryCost) {
+                break;
+            }
+
+            switch (degradation) {
+
+                case DROP_HIGH_DF_GENERATED_TERMS:
+                    if (userQuery instanceof querqy.model.BooleanQuery) {
+                        removed = estimator.removeGeneratedClauses((querqy.model.BooleanQuery) userQuery,
+                                cost - maxQueryCost);
+                        if (!removed.isEmpty()) {
+                            final long reducedUserQueryCost = estimator.estimate(userQuery);
+                            cost -= userQueryCost - reducedUserQueryCost;
+                            userQueryCost = reducedUserQueryCost;
+                            degradations.add(degradation.name());
+                        }
+                    }
+                    break;
+
+                case RERANK_BOOST_QUERIES:
+                    if (addBoostQueriesToMainQuery && boostQueriesCost > 0L) {
+                        if (requestAdapter.hasRankQuery()) {
+                            // the re-ranked boost queries and the rank query of the request exclude each other -
+                            // continue with the next degradation instead of dropping one of them
+                            skippedDegradations.add(degradation.name());
+                        } else {
+                            addBoostQueriesToMainQuery = false;
+                            cost -= boostQueriesCost;
+                            degradations.add(degradation.name());
+                        }
+                    }
+                    break;
+
+                case DROP_PHRASE_BOOSTS:
+                    if (additiveBoosts != null && !additiveBoosts.isEmpty()) {
+                        final List<Query> withoutPhraseBoosts = requestAdapter
+                                .getAdditiveBoostsWithoutPhraseBoosts(userQuery);
+                        final long reducedAdditiveBoostsCost = estimate(estimator, withoutPhraseBoosts);
+                        if (reducedAdditiveBoostsCost < additiveBoostsCost) {
+                            additiveBoosts.clear();
+                            additiveBoosts.addAll(withoutPhraseBoosts);
+                            cost -= additiveBoostsCost - reducedAdditiveBoostsCost;
+                            additiveBoostsCost = reducedAdditiveBoostsCost;
+                            degradations.add(degradation.name());
+                        }
+                    }
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("Unknown query cost degradation: " + degradation);
+            }
+        }
+
+        if (debugQuery) {
+            queryCostDebugInfo = new TreeMap<>();
+            queryCostDebugInfo.put("maxCost", maxQueryCost);
+            queryCostDebugInfo.put("estimatedCost", estimatedCost);
+            queryCostDebugInfo.put("cost", cost);
+            queryCostDebugInfo.put("degradations", degradations);
+            if (!skippedDegradations.isEmpty()) {
+                queryCostDebugInfo.put("skippedDegradations", skippedDegradations);
+            }
+            if (!removed.isEmpty()) {
+                queryCostDebugInfo.put("removedGeneratedClauses",
+                        removed.stream().map(Object::toString).collect(Collectors.toList()));
+            }
+        }
+
+        return addBoostQueriesToMainQuery;
+    }
+
+    private static long estimate(final QueryCostEstimator estimator, final List<Query> queries) {
+        long cost = 0L;
+        if (queries != null) {
+            for (final Query query : queries) {
+                cost += estimator.estimate(query);
+            }
+        }
+        return cost;
+    }
+
     public List<Query> transformFilterQueries(final Collection<QuerqyQuery<?>> filterQueries) throws SyntaxException {
 
         if (filterQueries != null && !filterQueries.isEmpty()) {
@@ -288,9 +476,7 @@ public class QueryParsingController {
 
                 } else {
 
-                    builder.reset();
-
-                    fqs.add(builder.createQuery(qfq));
+                    fqs.add(createInstructionQuery(filterBuilder, qfq, false));
 
                 }
             }
@@ -303,6 +489,45 @@ public class QueryParsingController {
     }
 
 
+    /**
+     * <p>Create the Lucene query for a boost or filter query that was produced by a rewriter instruction.</p>
+     *
+     * <p>If the request adapter provides an {@link InstructionQueryCache} and if the Lucene query doesn't depend on
+     * the current request, the query will be looked up in and put into the cache. Cached queries are shared between
+     * requests. They must not be modified, boost factors have to be applied by wrapping them.</p>
+     *
+     * @param queryBuilder The builder to use
+     * @param query The Querqy query
+     * @param useBooleanQueryForDMQ Iff true, create dismax queries as boolean queries
+     * @return The Lucene query
+     */
+    protected Query createInstructionQuery(final LuceneQueryBuilder queryBuilder, final QuerqyQuery<?> query,
+                                           final boolean useBooleanQueryForDMQ) {
+
+        final InstructionQueryCacheKey cacheKey = instructionQueryCache == null
+                ? null : queryBuilder.createCacheKey(query, useBooleanQueryForDMQ).orElse(null);
+
+        if (cacheKey != null) {
+            final Query cachedQuery = instructionQueryCache.get(cacheKey);
+            if (cachedQuery != null) {
+                return cachedQuery;
+            }
+        }
+
+        queryBuilder.reset();
+
+        final Query luceneQuery = (query instanceof querqy.model.Query)
+                ? queryBuilder.createQuery((querqy.model.Query) query, useBooleanQueryForDMQ)
+                : queryBuilder.createQuery(query);
+
+        if (cacheKey != null) {
+            instructionQueryCache.put(cacheKey, luceneQuery);
+        }
+
+        return luceneQuery;
+    }
+
+
     protected String getValidatedQueryString() {
         final String queryString = requestAdapter.getQueryString();
         if (queryString == null) {
@@ -370,13 +595,7 @@ public class QueryParsingController {
 
                 } else if (boostQuery instanceof querqy.model.Query) {
 
-                    final LuceneQueryBuilder luceneQueryBuilder =
-                            new LuceneQueryBuilder(boostTermQueryBuilder, queryAnalyzer,
-                                    boostSearchFieldsAndBoostings,
-                                    requestAdapter.getTiebreaker().orElse(DEFAULT_TIEBREAKER),
-                                    requestAdapter.getTermQueryCache().orElse(null));
-
-                    luceneQuery = luceneQueryBuilder.createQuery((querqy.model.Query) boostQuery, factor < 0f);
+                    luceneQuery = createInstructionQuery(boostBuilder, boostQuery, factor < 0f);
 
                 } else {
                     luceneQuery = null;
@@ -455,6 +674,12 @@ public class QueryParsingController {
             if (parserDebugInfo != null) {
                 info.put("querqy.parser", parserDebugInfo);
             }
+            if (prunedClausesDebugInfo != null) {
+                info.put("querqy.prunedGeneratedClauses", prunedClausesDebugInfo);
+            }
+            if (queryCostDebugInfo != null) {
+                info.put("querqy.queryCost", queryCostDebugInfo);
+            }
             final Object contextDebugInfo = requestAdapter.getContext()
                     .get(CONTEXT_KEY_DEBUG_DATA);
             if (contextDebugInfo != null) {
@@ -0,0 +1,110 @@
+package querqy.lucene.contrib.rewrite.numberunit;
+
+import querqy.model.BoostQuery;
+import querqy.model.Clause;
+import querqy.rewrite.contrib.numberunit.NumberUnitQueryCreator;
+import querqy.rewrite.contrib.numberunit.model.FieldDefinition;
+import querqy.rewrite.contrib.numberunit.model.LinearFunction;
+import querqy.rewrite.contrib.numberunit.model.NumberUnitDefinition;
+import querqy.rewrite.contrib.numberunit.model.PerUnitNumberUnitDefinition;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>A {@link NumberUnitQueryCreator} that creates {@link NumericQuery} nodes, which are turned into native Lucene
+ * queries without any query parsing: range queries for the filters and a function score query for the boosting.</p>
+ */
+public class NumberUnitQueryCreatorLucene extends NumberUnitQueryCreator {
+
+    public NumberUnitQueryCreatorLucene(final int scale) {
+        super(scale);
+    }
+
+    @Override
+    public NumericRangeFilterQuery createFilterQuery(final BigDecimal value,
+                                                     final List<PerUnitNumberUnitDefinition> perUnitNumberUnitDefinitions) {
+
+        final List<NumericRange> ranges = new ArrayList<>();
+
+        perUnitNumberUnitDefinitions.forEach(def -> {
+            final NumberUnitDefinition numberUnitDef = def.numberUnitDefinition;
+            final BigDecimal multipliedValue = value.multiply(def.multiplier);
+
+            final BigDecimal lowerBound = numberUnitDef.filterPercentageLowerBoundary.compareTo(BigDecimal.ZERO) >= 0
+                    ? subtractPercentage(multipliedValue, numberUnitDef.filterPercentageLowerBoundary)
+                    : numberUnitDef.filterPercentageLowerBoundary;
+
+            final BigDecimal upperBound = numberUnitDef.filterPercentageUpperBoundary.compareTo(BigDecimal.ZERO) >= 0
+                    ? addPercentage(multipliedValue, numberUnitDef.filterPercentageUpperBoundary)
+                    : numberUnitDef.filterPercentageUpperBoundary;
+
+            // negative bounds mean that the range is open at this side
+            numberUnitDef.fields.forEach(field -> ranges.add(new NumericRange(field.fieldName,
+                    lowerBound.compareTo(BigDecimal.ZERO) >= 0 ? scale(lowerBound, field) : null, true,
+                    upperBound.compareTo(BigDecimal.ZERO) >= 0 ? scale(upperBound, field) : null, true)));
+        });
+
+        return new NumericRangeFilterQuery(null, ranges, Clause.Occur.MUST, true);
+    }
+
+    @Override
+    public BoostQuery createBoostQuery(final BigDecimal value,
+                                       final List<PerUnitNumberUnitDefinition> perUnitNumberUnitDefinitions) {
+
+        final List<NumericBoostQuery.ScoreFunction> scoreFunctions = new ArrayList<>();
+
+        perUnitNumberUnitDefinitions.forEach(perUnitDef -> {
+            final NumberUnitDefinition numberUnitDef = perUnitDef.numberUnitDefinition;
+
+            final BigDecimal multipliedValue = value.multiply(perUnitDef.multiplier);
+
+            final BigDecimal lowerBound = subtractPercentage(multipliedValue,
+                    numberUnitDef.boostPercentageLowerBoundary);
+
+            final BigDecimal lowerBoundExactMatch = subtractPercentage(multipliedValue,
+                    numberUnitDef.boostPercentageLowerBoundaryExactMatch);
+
+            final BigDecimal upperBound = addPercentage(multipliedValue,
+                    numberUnitDef.boostPercentageUpperBoundary);
+
+            final BigDecimal upperBoundExactMatch = addPercentage(multipliedValue,
+                    numberUnitDef.boostPercentageUpperBoundaryExactMatch);
+
+            final LinearFunction linearFunctionLower = createLinearFunctionParameters(
+                    lowerBound, numberUnitDef.minScoreAtLowerBoundary,
+                    lowerBoundExactMatch, numberUnitDef.maxScoreForExactMatch);
+
+            final LinearFunction linearFunctionUpper = createLinearFunctionParameters(
+                    upperBound, numberUnitDef.minScoreAtUpperBoundary,
+                    upperBoundExactMatch, numberUnitDef.maxScoreForExactMatch);
+
+            final BigDecimal exactMatchScore = BigDecimal.valueOf(
+                    numberUnitDef.maxScoreForExactMatch.add(numberUnitDef.additionalScoreForExactMatch).intValue());
+
+            numberUnitDef.fields.forEach(field -> scoreFunctions.add(new NumericBoostQuery.ScoreFunction(
+                    field.fieldName,
+                    Arrays.asList(
+                            new NumericBoostQuery.Segment(
+                                    new NumericRange(field.fieldName, scale(lowerBound, field), true,
+                                            scale(lowerBoundExactMatch, field), false),
+                                    linearFunctionLower.m, linearFunctionLower.b),
+                            NumericBoostQuery.Segment.constant(
+                                    new NumericRange(field.fieldName, scale(lowerBoundExactMatch, field), true,
+                                            scale(upperBoundExactMatch, field), true),
+                                    exactMatchScore),
+                            new NumericBoostQuery.Segment(
+                                    new NumericRange(field.fieldName, scale(upperBoundExactMatch, field), false,
+                                            scale(upperBound, field), true),
+                                    linearFunctionUpper.m, linearFunctionUpper.b)))));
+        });
+
+        return new BoostQuery(new NumericBoostQuery(null, scoreFunctions, Clause.Occur.MUST, true), 1.0f);
+    }
+
+    private BigDecimal scale(final BigDecimal value, final FieldDefinition field) {
+        return value.setScale(field.scale, getRoundingMode());
+    }
+}
@@ -0,0 +1,186 @@
+package querqy.lucene.contrib.rewrite.numberunit;
+
+import org.apache.lucene.queries.function.FunctionScoreQuery;
+import org.apache.lucene.search.DoubleValuesSource;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import querqy.model.BooleanParent;
+import querqy.model.RawQuery;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>A query that matches all documents and scores them by piecewise linear functions over numeric fields.</p>
+ *
+ * <p>Each {@link ScoreFunction} applies to one field. Its score is calculated by the first {@link Segment} whose range
+ * contains the field value. It is 0 if the document has no value in the field or if no segment contains the value.
+ * The score of a document is the maximum score of all functions.</p>
+ */
+public class NumericBoostQuery extends NumericQuery {
+
+    private final List<ScoreFunction> scoreFunctions;
+
+    public NumericBoostQuery(final BooleanParent parent, final List<ScoreFunction> scoreFunctions, final Occur occur,
+                             final boolean isGenerated) {
+        super(parent, occur, isGenerated);
+        if (scoreFunctions.isEmpty()) {
+            throw new IllegalArgumentException("At least one score function expected");
+        }
+        this.scoreFunctions = Collections.unmodifiableList(scoreFunctions);
+    }
+
+    public List<ScoreFunction> getScoreFunctions() {
+        return scoreFunctions;
+    }
+
+    @Override
+    public Query toLuceneQuery(final NumericFieldQueryFactory fieldQueryFactory) {
+
+        final DoubleValuesSource[] fieldValuesSources = new DoubleValuesSource[scoreFunctions.size()];
+        for (int i = 0; i < fieldValuesSources.length; i++) {
+            fieldValuesSources[i] = fieldQueryFactory.createValuesSource(scoreFunctions.get(i).fieldName);
+        }
+
+        return new FunctionScoreQuery(new MatchAllDocsQuery(),
+                new NumericBoostValuesSource(scoreFunctions.toArray(new ScoreFunction[0]), fieldValuesSources));
+    }
+
+    @Override
+    public RawQuery clone(final BooleanParent newParent) {
+        return clone(newParent, this.generated);
+    }
+
+    @Override
+    public RawQuery clone(final BooleanParent newParent, final boolean generated) {
+        return new NumericBoostQuery(newParent, scoreFunctions, occur, generated);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * scoreFunctions.hashCode() + ((occur == null) ? 0 : occur.hashCode());
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        final NumericBoostQuery other = (NumericBoostQuery) obj;
+        return occur == other.occur && scoreFunctions.equals(other.scoreFunctions);
+    }
+
+    @Override
+    public String toString() {
+        return "NumericBoostQuery [scoreFunctions=" + scoreFunctions + "]";
+    }
+
+    /**
+     * A piecewise linear function over the values of a field.
+     */
+    public static class ScoreFunction {
+
+        public final String fieldName;
+        public final List<Segment> segments;
+
+        public ScoreFunction(final String fieldName, final List<Segment> segments) {
+            this.fieldName = Objects.requireNonNull(fieldName);
+            for (final Segment segment : segments) {
+                if (!fieldName.equals(segment.range.fieldName)) {
+                    throw new IllegalArgumentException("Segment range must refer to field " + fieldName + ": "
+                            + segment.range);
+                }
+            }
+            this.segments = Collections.unmodifiableList(segments);
+        }
+
+        /**
+         * @param value The field value
+         * @return The score for the value or 0 if no segment contains the value
+         */
+        public float score(final double value) {
+            for (final Segment segment : segments) {
+                if (segment.range.contains(value)) {
+                    return segment.score(value);
+                }
+            }
+            return 0f;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final ScoreFunction that = (ScoreFunction) o;
+            return fieldName.equals(that.fieldName) && segments.equals(that.segments);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fieldName, segments);
+        }
+
+        @Override
+        public String toString() {
+            return fieldName + segments;
+        }
+    }
+
+    /**
+     * A linear function for the values within a range. The function value is rounded to the closest integer.
+     */
+    public static class Segment {
+
+        public final NumericRange range;
+        public final BigDecimal slope;
+        public final BigDecimal intercept;
+
+        private final float slopeValue;
+        private final float interceptValue;
+
+        public Segment(final NumericRange range, final BigDecimal slope, final BigDecimal intercept) {
+            this.range = Objects.requireNonNull(range);
+            this.slope = Objects.requireNonNull(slope);
+            this.intercept = Objects.requireNonNull(intercept);
+            this.slopeValue = slope.floatValue();
+            this.interceptValue = intercept.floatValue();
+        }
+
+        /**
+         * Create a segment that returns a constant score for all values in the range.
+         *
+         * @param range The range
+         * @param score The score
+         * @return The segment
+         */
+        public static Segment constant(final NumericRange range, final BigDecimal score) {
+            return new Segment(range, BigDecimal.ZERO, score);
+        }
+
+        public float score(final double value) {
+            // float arithmetic, so that we get the same scores like Solr's rint(linear(field,m,b))
+            return (float) Math.rint(slopeValue * (float) value + interceptValue);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Segment segment = (Segment) o;
+            return range.equals(segment.range) &&
+                    slope.compareTo(segment.slope) == 0 &&
+                    intercept.compareTo(segment.intercept) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(range, slopeValue, interceptValue);
+        }
+
+        @Override
+        public String toString() {
+            return range + "->rint(" + slope.toPlainString() + "*x+" + intercept.toPlainString() + ")";
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package querqy.lucene.contrib.rewrite.numberunit;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DoubleValues;
+import org.apache.lucene.search.DoubleValuesSource;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Calculates the score of a {@link NumericBoostQuery} from the field values of a document.
+ */
+class NumericBoostValuesSource extends DoubleValuesSource {
+
+    private final NumericBoostQuery.ScoreFunction[] scoreFunctions;
+    private final DoubleValuesSource[] fieldValuesSources;
+
+    NumericBoostValuesSource(final NumericBoostQuery.ScoreFunction[] scoreFunctions,
+                             final DoubleValuesSource[] fieldValuesSources) {
+        if (scoreFunctions.length != fieldValuesSources.length) {
+            throw new IllegalArgumentException("Expected one values source per score function");
+        }
+        this.scoreFunctions = scoreFunctions;
+        this.fieldValuesSources = fieldValuesSources;
+    }
+
+    @Override
+    public DoubleValues getValues(final LeafReaderContext ctx, final DoubleValues scores) throws IOException {
+
+        final DoubleValues[] fieldValues = new DoubleValues[fieldValuesSources.length];
+        for (int i = 0; i < fieldValues.length; i++) {
+            fieldValues[i] = fieldValuesSources[i].getValues(ctx, scores);
+        }
+
+        return new DoubleValues() {
+
+            private double value = 0.0;
+
+            @Override
+            public double doubleValue() {
+                return value;
+            }
+
+            @Override
+            public boolean advanceExact(final int doc) throws IOException {
+                // negative scores are not allowed
+                float max = 0f;
+                for (int i = 0; i < fieldValues.length; i++) {
+                    if (fieldValues[i].advanceExact(doc)) {
+                        max = Math.max(max, scoreFunctions[i].score(fieldValues[i].doubleValue()));
+                    }
+                }
+                value = max;
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public boolean needsScores() {
+        for (final DoubleValuesSource source : fieldValuesSources) {
+            if (source.needsScores()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public DoubleValuesSource rewrite(final IndexSearcher reader) throws IOException {
+        final DoubleValuesSource[] rewritten = new DoubleValuesSource[fieldValuesSources.length];
+        boolean changed = false;
+        for (int i = 0; i < rewritten.length; i++) {
+            rewritten[i] = fieldValuesSources[i].rewrite(reader);
+            changed |= rewritten[i] != fieldValuesSources[i];
+        }
+        return changed ? new NumericBoostValuesSource(scoreFunctions, rewritten) : this;
+    }
+
+    @Override
+    public boolean isCacheable(final LeafReaderContext ctx) {
+        for (final DoubleValuesSource source : fieldValuesSources) {
+            if (!source.isCacheable(ctx)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final NumericBoostValuesSource that = (NumericBoostValuesSource) o;
+        return Arrays.equals(scoreFunctions, that.scoreFunctions) &&
+                Arrays.equals(fieldValuesSources, that.fieldValuesSources);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(scoreFunctions) + Arrays.hashCode(fieldValuesSources);
+    }
+
+    @Override
+    public String toString() {
+        return "numericBoost(" + Arrays.toString(scoreFunctions) + ")";
+    }
+}
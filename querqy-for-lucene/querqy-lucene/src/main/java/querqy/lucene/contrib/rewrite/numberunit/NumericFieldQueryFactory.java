@@ -0,0 +1,34 @@
+package querqy.lucene.contrib.rewrite.numberunit;
+
+import org.apache.lucene.search.DoubleValuesSource;
+import org.apache.lucene.search.Query;
+
+import java.math.BigDecimal;
+
+/**
+ * Creates the Lucene range queries and value sources for numeric fields, depending on how the fields are indexed.
+ */
+public interface NumericFieldQueryFactory {
+
+    /**
+     * Create a query that matches the documents having a value within the given range.
+     *
+     * @param fieldName The field name
+     * @param lower The lower bound or null for an open lower bound
+     * @param includeLower Iff true, the lower bound is included in the range
+     * @param upper The upper bound or null for an open upper bound
+     * @param includeUpper Iff true, the upper bound is included in the range
+     * @return The range query
+     */
+    Query createRangeQuery(String fieldName, BigDecimal lower, boolean includeLower, BigDecimal upper,
+                           boolean includeUpper);
+
+    /**
+     * Create a source of the per-document field values.
+     *
+     * @param fieldName The field name
+     * @return The value source
+     */
+    DoubleValuesSource createValuesSource(String fieldName);
+
+}
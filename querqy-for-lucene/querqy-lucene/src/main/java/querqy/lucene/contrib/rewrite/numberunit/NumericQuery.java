@@ -0,0 +1,28 @@
+package querqy.lucene.contrib.rewrite.numberunit;
+
+import org.apache.lucene.search.Query;
+import querqy.model.BooleanParent;
+import querqy.model.RawQuery;
+
+/**
+ * <p>A typed query node over numeric fields.</p>
+ *
+ * <p>Unlike a {@link querqy.model.StringRawQuery}, a NumericQuery doesn't have to be parsed per request. It is turned
+ * into a Lucene query directly, using a {@link NumericFieldQueryFactory} that knows how the numeric fields are
+ * indexed.</p>
+ */
+public abstract class NumericQuery extends RawQuery {
+
+    public NumericQuery(final BooleanParent parent, final Occur occur, final boolean isGenerated) {
+        super(parent, occur, isGenerated);
+    }
+
+    /**
+     * Create the Lucene query for this node.
+     *
+     * @param fieldQueryFactory Creates the queries and value sources for the numeric fields
+     * @return The Lucene query
+     */
+    public abstract Query toLuceneQuery(NumericFieldQueryFactory fieldQueryFactory);
+
+}
@@ -0,0 +1,66 @@
+package querqy.lucene.contrib.rewrite.numberunit;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * A range of values in a numeric field. A null bound means that the range is open at this side.
+ */
+public class NumericRange {
+
+    public final String fieldName;
+    public final BigDecimal lower;
+    public final boolean includeLower;
+    public final BigDecimal upper;
+    public final boolean includeUpper;
+
+    public NumericRange(final String fieldName, final BigDecimal lower, final boolean includeLower,
+                        final BigDecimal upper, final boolean includeUpper) {
+        this.fieldName = Objects.requireNonNull(fieldName);
+        this.lower = lower;
+        this.includeLower = includeLower;
+        this.upper = upper;
+        this.includeUpper = includeUpper;
+    }
+
+    /**
+     * @param value A field value
+     * @return true iff the value is within this range
+     */
+    public boolean contains(final double value) {
+        if (lower != null) {
+            final int cmp = Double.compare(value, lower.doubleValue());
+            if (cmp < 0 || (cmp == 0 && !includeLower)) {
+                return false;
+            }
+        }
+        if (upper != null) {
+            final int cmp = Double.compare(value, upper.doubleValue());
+            return cmp < 0 || (cmp == 0 && includeUpper);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final NumericRange that = (NumericRange) o;
+        return includeLower == that.includeLower &&
+                includeUpper == that.includeUpper &&
+                fieldName.equals(that.fieldName) &&
+                Objects.equals(lower, that.lower) &&
+                Objects.equals(upper, that.upper);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fieldName, lower, includeLower, upper, includeUpper);
+    }
+
+    @Override
+    public String toString() {
+        return fieldName + ':' + (includeLower ? '[' : '{') + (lower == null ? "*" : lower.toPlainString()) + " TO "
+                + (upper == null ? "*" : upper.toPlainString()) + (includeUpper ? ']' : '}');
+    }
+}
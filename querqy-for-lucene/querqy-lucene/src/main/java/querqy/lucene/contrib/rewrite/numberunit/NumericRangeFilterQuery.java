@@ -0,0 +1,80 @@
+package querqy.lucene.contrib.rewrite.numberunit;
+
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import querqy.model.BooleanParent;
+import querqy.model.RawQuery;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A query that matches the documents having a value within any of the given ranges.
+ */
+public class NumericRangeFilterQuery extends NumericQuery {
+
+    private final List<NumericRange> ranges;
+
+    public NumericRangeFilterQuery(final BooleanParent parent, final List<NumericRange> ranges, final Occur occur,
+                                   final boolean isGenerated) {
+        super(parent, occur, isGenerated);
+        if (ranges.isEmpty()) {
+            throw new IllegalArgumentException("At least one range expected");
+        }
+        this.ranges = Collections.unmodifiableList(ranges);
+    }
+
+    public List<NumericRange> getRanges() {
+        return ranges;
+    }
+
+    @Override
+    public Query toLuceneQuery(final NumericFieldQueryFactory fieldQueryFactory) {
+
+        if (ranges.size() == 1) {
+            return createRangeQuery(ranges.get(0), fieldQueryFactory);
+        }
+
+        final BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (final NumericRange range : ranges) {
+            builder.add(createRangeQuery(range, fieldQueryFactory), BooleanClause.Occur.SHOULD);
+        }
+        return builder.build();
+    }
+
+    private static Query createRangeQuery(final NumericRange range, final NumericFieldQueryFactory fieldQueryFactory) {
+        return fieldQueryFactory.createRangeQuery(range.fieldName, range.lower, range.includeLower, range.upper,
+                range.includeUpper);
+    }
+
+    @Override
+    public RawQuery clone(final BooleanParent newParent) {
+        return clone(newParent, this.generated);
+    }
+
+    @Override
+    public RawQuery clone(final BooleanParent newParent, final boolean generated) {
+        return new NumericRangeFilterQuery(newParent, ranges, occur, generated);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * ranges.hashCode() + ((occur == null) ? 0 : occur.hashCode());
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        final NumericRangeFilterQuery other = (NumericRangeFilterQuery) obj;
+        return occur == other.occur && ranges.equals(other.ranges);
+    }
+
+    @Override
+    public String toString() {
+        return "NumericRangeFilterQuery [ranges=" + ranges.stream().map(NumericRange::toString)
+                .collect(Collectors.joining(" OR ")) + "]";
+    }
+}
@@ -0,0 +1,114 @@
+package querqy.lucene.contrib.rewrite.numberunit;
+
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.search.DoubleValuesSource;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>A {@link NumericFieldQueryFactory} for fields that are indexed as points ({@link IntPoint}, {@link LongPoint},
+ * {@link FloatPoint}, {@link DoublePoint}) and that have numeric doc values of the same type.</p>
+ */
+public class PointFieldQueryFactory implements NumericFieldQueryFactory {
+
+    public enum NumberType { INT, LONG, FLOAT, DOUBLE }
+
+    private final Map<String, NumberType> fieldTypes;
+
+    /**
+     * @param fieldTypes The number types of the fields by field name
+     */
+    public PointFieldQueryFactory(final Map<String, NumberType> fieldTypes) {
+        this.fieldTypes = new HashMap<>(fieldTypes);
+    }
+
+    @Override
+    public Query createRangeQuery(final String fieldName, final BigDecimal lower, final boolean includeLower,
+                                  final BigDecimal upper, final boolean includeUpper) {
+
+        switch (getNumberType(fieldName)) {
+
+            case INT: {
+                final long l = lower == null ? Integer.MIN_VALUE : lowerLong(lower, includeLower);
+                final long u = upper == null ? Integer.MAX_VALUE : upperLong(upper, includeUpper);
+                if (l > u || l > Integer.MAX_VALUE || u < Integer.MIN_VALUE) {
+                    return new MatchNoDocsQuery();
+                }
+                return IntPoint.newRangeQuery(fieldName, (int) Math.max(l, Integer.MIN_VALUE),
+                        (int) Math.min(u, Integer.MAX_VALUE));
+            }
+
+            case LONG:
+                return LongPoint.newRangeQuery(fieldName,
+                        lower == null ? Long.MIN_VALUE : lowerLong(lower, includeLower),
+                        upper == null ? Long.MAX_VALUE : upperLong(upper, includeUpper));
+
+            case FLOAT: {
+                float l = lower == null ? Float.NEGATIVE_INFINITY : lower.floatValue();
+                if (lower != null && !includeLower) {
+                    l = Math.nextUp(l);
+                }
+                float u = upper == null ? Float.POSITIVE_INFINITY : upper.floatValue();
+                if (upper != null && !includeUpper) {
+                    u = Math.nextDown(u);
+                }
+                return FloatPoint.newRangeQuery(fieldName, l, u);
+            }
+
+            case DOUBLE: {
+                double l = lower == null ? Double.NEGATIVE_INFINITY : lower.doubleValue();
+                if (lower != null && !includeLower) {
+                    l = Math.nextUp(l);
+                }
+                double u = upper == null ? Double.POSITIVE_INFINITY : upper.doubleValue();
+                if (upper != null && !includeUpper) {
+                    u = Math.nextDown(u);
+                }
+                return DoublePoint.newRangeQuery(fieldName, l, u);
+            }
+
+            default:
+                throw new IllegalStateException("Unknown number type");
+        }
+
+    }
+
+    @Override
+    public DoubleValuesSource createValuesSource(final String fieldName) {
+        switch (getNumberType(fieldName)) {
+            case INT: return DoubleValuesSource.fromIntField(fieldName);
+            case LONG: return DoubleValuesSource.fromLongField(fieldName);
+            case FLOAT: return DoubleValuesSource.fromFloatField(fieldName);
+            case DOUBLE: return DoubleValuesSource.fromDoubleField(fieldName);
+            default: throw new IllegalStateException("Unknown number type");
+        }
+    }
+
+    private NumberType getNumberType(final String fieldName) {
+        final NumberType numberType = fieldTypes.get(fieldName);
+        if (numberType == null) {
+            throw new IllegalArgumentException("Unknown numeric field: " + fieldName);
+        }
+        return numberType;
+    }
+
+    private static long lowerLong(final BigDecimal lower, final boolean includeLower) {
+        return includeLower
+                ? lower.setScale(0, RoundingMode.CEILING).longValue()
+                : lower.setScale(0, RoundingMode.FLOOR).longValue() + 1L;
+    }
+
+    private static long upperLong(final BigDecimal upper, final boolean includeUpper) {
+        return includeUpper
+                ? upper.setScale(0, RoundingMode.FLOOR).longValue()
+                : upper.setScale(0, RoundingMode.CEILING).longValue() - 1L;
+    }
+}
@@ -0,0 +1,128 @@
+package querqy.lucene.contrib.rewrite.wordbreak;
+
+import org.apache.lucene.index.IndexReader;
+import querqy.LowerCaseCharSequence;
+import querqy.model.Term;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>A {@link LuceneCompounder} that caches the results of a delegate compounder per {@link IndexReader}.</p>
+ *
+ * <p>The {@link CompoundTerm}s returned by the delegate reference the query terms of the current request. They are
+ * cached as the compound value and the positions of the original terms in the input and mapped back to the terms of
+ * the current request on each lookup.</p>
+ */
+public class CachingCompounder implements LuceneCompounder {
+
+    private final LuceneCompounder delegate;
+    private final boolean lowerCaseInput;
+    private final IndexReaderScopedCache<Key, List<CachedCompound>> cache;
+
+    /**
+     * @param delegate The compounder that produces the results
+     * @param lowerCaseInput Iff true, the delegate lowercases the input so that we can lowercase the cache key
+     * @param maxSize The maximum number of cached term sequences
+     */
+    public CachingCompounder(final LuceneCompounder delegate, final boolean lowerCaseInput, final int maxSize) {
+        this.delegate = delegate;
+        this.lowerCaseInput = lowerCaseInput;
+        this.cache = new IndexReaderScopedCache<>(maxSize);
+    }
+
+    @Override
+    public List<CompoundTerm> combine(final Term[] terms, final IndexReader indexReader, final boolean reverse)
+            throws IOException {
+
+        final String[] values = new String[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            values[i] = lowerCaseInput ? new StringBuilder(new LowerCaseCharSequence(terms[i])).toString()
+                    : terms[i].toString();
+        }
+
+        final List<CachedCompound> cachedCompounds = cache.get(indexReader, new Key(values, reverse),
+                key -> toCachedCompounds(terms, delegate.combine(terms, indexReader, reverse)));
+
+        if (cachedCompounds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<CompoundTerm> result = new ArrayList<>(cachedCompounds.size());
+        for (final CachedCompound cachedCompound : cachedCompounds) {
+            final Term[] originalTerms = new Term[cachedCompound.originalTermIndexes.length];
+            for (int i = 0; i < originalTerms.length; i++) {
+                originalTerms[i] = terms[cachedCompound.originalTermIndexes[i]];
+            }
+            result.add(new CompoundTerm(cachedCompound.value, originalTerms));
+        }
+        return result;
+
+    }
+
+    private static List<CachedCompound> toCachedCompounds(final Term[] terms, final List<CompoundTerm> compoundTerms) {
+
+        if (compoundTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<CachedCompound> cachedCompounds = new ArrayList<>(compoundTerms.size());
+        for (final CompoundTerm compoundTerm : compoundTerms) {
+            final int[] indexes = new int[compoundTerm.originalTerms.length];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = indexOf(terms, compoundTerm.originalTerms[i]);
+            }
+            cachedCompounds.add(new CachedCompound(compoundTerm.value, indexes));
+        }
+        return cachedCompounds;
+    }
+
+    private static int indexOf(final Term[] terms, final Term term) {
+        for (int i = 0; i < terms.length; i++) {
+            if (terms[i] == term) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Compound references a term that is not part of the input: " + term);
+    }
+
+    private static class CachedCompound {
+
+        final CharSequence value;
+        final int[] originalTermIndexes;
+
+        CachedCompound(final CharSequence value, final int[] originalTermIndexes) {
+            this.value = value;
+            this.originalTermIndexes = originalTermIndexes;
+        }
+    }
+
+    private static class Key {
+
+        final String[] values;
+        final boolean reverse;
+        final int hash;
+
+        Key(final String[] values, final boolean reverse) {
+            this.values = values;
+            this.reverse = reverse;
+            this.hash = 31 * Arrays.hashCode(values) + (reverse ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return reverse == key.reverse && Arrays.equals(values, key.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package querqy.lucene.contrib.rewrite.wordbreak;
+
+import org.apache.lucene.index.IndexReader;
+import querqy.LowerCaseCharSequence;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A {@link LuceneWordBreaker} that caches the results of a delegate word breaker per {@link IndexReader} and per
+ * {@link LuceneWordBreaker#getCacheScope(IndexReader)} of the delegate. The latter makes sure that results which were
+ * computed from the dictionary of a previous reader are dropped once the dictionary of the current reader is
+ * available.
+ */
+public class CachingWordBreaker implements LuceneWordBreaker {
+
+    private final LuceneWordBreaker delegate;
+    private final boolean lowerCaseInput;
+    private final IndexReaderScopedCache<Key, List<CharSequence[]>> cache;
+
+    /**
+     * @param delegate The word breaker that produces the results
+     * @param lowerCaseInput Iff true, the delegate lowercases the input so that we can lowercase the cache key
+     * @param maxSize The maximum number of cached words
+     */
+    public CachingWordBreaker(final LuceneWordBreaker delegate, final boolean lowerCaseInput, final int maxSize) {
+        this.delegate = delegate;
+        this.lowerCaseInput = lowerCaseInput;
+        this.cache = new IndexReaderScopedCache<>(maxSize);
+    }
+
+    @Override
+    public Object getCacheScope(final IndexReader indexReader) {
+        return delegate.getCacheScope(indexReader);
+    }
+
+    @Override
+    public List<CharSequence[]> breakWord(final CharSequence word, final IndexReader indexReader,
+                                          final int maxDecompoundExpansions, final boolean verifyCollation)
+            throws IOException {
+
+        final String input = lowerCaseInput ? new StringBuilder(new LowerCaseCharSequence(word)).toString()
+                : word.toString();
+
+        return cache.get(indexReader, delegate.getCacheScope(indexReader), new Key(input, maxDecompoundExpansions, verifyCollation),
+                key -> Collections.unmodifiableList(delegate.breakWord(word, indexReader, maxDecompoundExpansions,
+                        verifyCollation)));
+
+    }
+
+    private static class Key {
+
+        final String word;
+        final int maxDecompoundExpansions;
+        final boolean verifyCollation;
+
+        Key(final String word, final int maxDecompoundExpansions, final boolean verifyCollation) {
+            this.word = word;
+            this.maxDecompoundExpansions = maxDecompoundExpansions;
+            this.verifyCollation = verifyCollation;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return maxDecompoundExpansions == key.maxDecompoundExpansions &&
+                    verifyCollation == key.verifyCollation &&
+                    word.equals(key.word);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(word, maxDecompoundExpansions, verifyCollation);
+        }
+    }
+}
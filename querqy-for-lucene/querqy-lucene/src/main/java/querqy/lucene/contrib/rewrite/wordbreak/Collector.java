@@ -1,14 +1,14 @@
 package querqy.lucene.contrib.rewrite.wordbreak;
 
 import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.IndexReaderContext;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.DocIdSetIterator;
-import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 
 import java.io.IOException;
@@ -110,11 +110,12 @@ public class Collector {
     private final int minSuggestionFrequency;
     private final boolean verifyCollation;
     private final IndexReader indexReader;
+    private final DocFreqDictionary docFreqDictionary;
     private final String dictionaryField;
     private final float weightDfObservation;
     private final float totalDocsNorm;
     private final int maxDecompoundExpansions;
-    private final IndexSearcher searcher;
+    private final IndexReaderScopedCache<TermPair, Boolean> collationCache;
     private final int maxEvaluations;
     private int evaluations = 0;
 
@@ -131,6 +132,34 @@ public class Collector {
     public Collector(final int minSuggestionFrequency,final int maxDecompoundExpansions, final int maxEvaluations,
                      final boolean verifyCollation, final IndexReader indexReader, final String dictionaryField,
                      final float weightDfObservation) {
+        this(minSuggestionFrequency, maxDecompoundExpansions, maxEvaluations, verifyCollation, indexReader, null,
+                null, dictionaryField, weightDfObservation);
+    }
+
+    /**
+     *
+     * @param minSuggestionFrequency Minimum frequency of each split term in the index
+     * @param maxDecompoundExpansions Maximum number of decompound structures to return
+     * @param maxEvaluations Maximum number of lookups in the index
+     * @param verifyCollation Iff true, the compound parts must co-occur in a document in the index
+     * @param indexReader The index reader
+     * @param docFreqDictionary The dictionary to look up document frequencies or null if they should be looked up in
+     *                          the index reader. It must have been built from dictionaryField, either for indexReader
+     *                          or for an earlier reader of the same index (see {@link DocFreqDictionaryProvider}). In
+     *                          the latter case, the document frequencies used for ranking and for the
+     *                          minSuggestionFrequency check are those of the earlier reader: terms added since are
+     *                          not found and the frequencies of other terms may be outdated, while the normalisation
+     *                          and the collation verification use indexReader.
+     * @param collationCache A cache for the results of the collation verification or null if results should not
+     *                       be cached
+     * @param dictionaryField The document field to use for the lookup
+     * @param weightDfObservation The weight of the observed document frequencies when combining with the score of the morphological compound pattern.
+     */
+    public Collector(final int minSuggestionFrequency,final int maxDecompoundExpansions, final int maxEvaluations,
+                     final boolean verifyCollation, final IndexReader indexReader,
+                     final DocFreqDictionary docFreqDictionary,
+                     final IndexReaderScopedCache<TermPair, Boolean> collationCache, final String dictionaryField,
+                     final float weightDfObservation) {
 
         final int queueInitialCapacity = Math.min(maxDecompoundExpansions, 10);
         collection = new PriorityQueue<>(queueInitialCapacity);
@@ -139,7 +168,8 @@ public class Collector {
         this.maxDecompoundExpansions = maxDecompoundExpansions;
         this.verifyCollation = verifyCollation;
         this.indexReader = indexReader;
-        searcher = new IndexSearcher(indexReader);
+        this.docFreqDictionary = docFreqDictionary;
+        this.collationCache = collationCache;
         this.dictionaryField = dictionaryField;
         this.weightDfObservation = weightDfObservation;
         this.maxEvaluations = maxEvaluations;
@@ -167,7 +197,7 @@ public class Collector {
         final Term leftTerm = new Term(dictionaryField, new BytesRef(left));
         final int leftDf;
         try {
-            leftDf = indexReader.docFreq(leftTerm);
+            leftDf = docFreq(leftTerm);
             if (leftDf >= minSuggestionFrequency) {
 
                 final float score = weightDfObservation == 0f ? weightMorphologicalPattern
@@ -178,7 +208,7 @@ public class Collector {
                 if (verifyCollation) {
 
                     if (((collection.size() < maxDecompoundExpansions) || (score > collection.element().score))
-                            && hasMinMatches(1, leftTerm, rightTerm)) {
+                            && cooccur(leftTerm, rightTerm)) {
                         collection.offer(new MorphologicalWordBreaker.BreakSuggestion(new CharSequence[]{left, right},
                                 score));
 
@@ -213,6 +243,17 @@ public class Collector {
 
     }
 
+    /**
+     * Get the document frequency of a term in the dictionary field, using the {@link DocFreqDictionary} if available.
+     *
+     * @param term The term
+     * @return The document frequency
+     * @throws IOException if the term cannot be looked up in the index
+     */
+    int docFreq(final Term term) throws IOException {
+        return docFreqDictionary != null ? docFreqDictionary.docFreq(term.bytes()) : indexReader.docFreq(term);
+    }
+
     public boolean maxEvaluationsReached() {
         return evaluations >= maxEvaluations;
     }
@@ -235,76 +276,79 @@ public class Collector {
         return result;
     }
 
-    private boolean hasMinMatches(final int minCount, final Term term1, final Term term2)
-            throws IOException {
+    /**
+     * Check whether the two terms co-occur in at least one live document.
+     *
+     * @param term1 The first term
+     * @param term2 The second term
+     * @return true iff there is a document that contains both terms
+     * @throws IOException if the postings cannot be read
+     */
+    private boolean cooccur(final Term term1, final Term term2) throws IOException {
+        if (collationCache == null) {
+            return intersect(term1, term2);
+        }
+        return collationCache.get(indexReader, new TermPair(term1, term2), pair -> intersect(term1, term2));
+    }
 
+    private boolean intersect(final Term term1, final Term term2) throws IOException {
 
-        final IndexReaderContext topReaderContext = searcher.getTopReaderContext();
-        final IndexReader indexReader = topReaderContext.reader();
-        // TODO: deleted documents?
-        final int numDocs = indexReader.numDocs();
-        if (minCount > numDocs) {
-            return false;
-        }
+        for (final LeafReaderContext context : indexReader.leaves()) {
 
-        final int df1 = indexReader.docFreq(term1);
-        if (minCount > df1) {
-            return false;
-        }
+            final LeafReader reader = context.reader();
 
-        final int df2 = indexReader.docFreq(term2);
-        if (minCount > df2) {
-            return false;
-        }
+            final Terms terms1 = reader.terms(term1.field());
+            if (terms1 == null) {
+                continue;
+            }
+            final Terms terms2 = term2.field().equals(term1.field()) ? terms1 : reader.terms(term2.field());
+            if (terms2 == null) {
+                continue;
+            }
 
-        int count = 0;
+            final TermsEnum termsEnum1 = terms1.iterator();
+            if (!termsEnum1.seekExact(term1.bytes())) {
+                continue;
+            }
 
-        for (final LeafReaderContext context : topReaderContext.leaves()) {
+            final TermsEnum termsEnum2 = terms2.iterator();
+            if (!termsEnum2.seekExact(term2.bytes())) {
+                continue;
+            }
 
-            final Terms terms1 = context.reader().terms(term1.field());
+            // drive the intersection by the rarer term
+            final boolean firstIsLead = termsEnum1.docFreq() <= termsEnum2.docFreq();
+            final PostingsEnum lead = (firstIsLead ? termsEnum1 : termsEnum2).postings(null, PostingsEnum.NONE);
+            final PostingsEnum other = (firstIsLead ? termsEnum2 : termsEnum1).postings(null, PostingsEnum.NONE);
 
-            if (terms1 != null) {
+            if (intersect(lead, other, reader.getLiveDocs())) {
+                return true;
+            }
 
-                final Terms terms2 = context.reader().terms(term2.field());
-                if (terms2 != null) {
+        }
 
-                    final TermsEnum termsEnum1 = terms1.iterator();
-                    if (!termsEnum1.seekExact(term1.bytes())) {
-                        continue;
-                    }
+        return false;
 
-                    final TermsEnum termsEnum2 = terms2.iterator();
-                    if (!termsEnum2.seekExact(term2.bytes())) {
-                        continue;
-                    }
+    }
 
-                    final PostingsEnum postings1 = termsEnum1.postings(null, PostingsEnum.NONE);
-                    final PostingsEnum postings2 = termsEnum2.postings(null, PostingsEnum.NONE);
+    /**
+     * Leapfrog intersection of two postings lists, stopping at the first common live document.
+     */
+    static boolean intersect(final PostingsEnum lead, final PostingsEnum other, final Bits liveDocs)
+            throws IOException {
 
-                    int doc1 = postings1.nextDoc();
-                    while (doc1 != DocIdSetIterator.NO_MORE_DOCS) {
-                        int doc2 = postings2.advance(doc1);
-                        if (doc2 == DocIdSetIterator.NO_MORE_DOCS) {
-                            break;
-                        }
-                        if (doc2 == doc1) {
-                            count++;
-                            if (count >= minCount) {
-                                return true;
-                            }
-                        } else if (doc2 > doc1) {
-                            doc1 = postings1.advance(doc2);
-                            if (doc2 == doc1) {
-                                count++;
-                                if (count >= minCount) {
-                                    return true;
-                                }
-                            }
-                        }
-                    }
+        int doc = lead.nextDoc();
+        while (doc != DocIdSetIterator.NO_MORE_DOCS) {
 
-                }
+            final int otherDoc = other.docID() < doc ? other.advance(doc) : other.docID();
 
+            if (otherDoc == doc) {
+                if (liveDocs == null || liveDocs.get(doc)) {
+                    return true;
+                }
+                doc = lead.nextDoc();
+            } else {
+                doc = lead.advance(otherDoc);
             }
 
         }
@@ -313,4 +357,31 @@ public class Collector {
 
     }
 
+    /**
+     * The key of the collation cache
+     */
+    public static class TermPair {
+
+        private final Term term1;
+        private final Term term2;
+
+        public TermPair(final Term term1, final Term term2) {
+            this.term1 = term1;
+            this.term2 = term2;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final TermPair termPair = (TermPair) o;
+            return term1.equals(termPair.term1) && term2.equals(termPair.term2);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * term1.hashCode() + term2.hashCode();
+        }
+    }
+
 }
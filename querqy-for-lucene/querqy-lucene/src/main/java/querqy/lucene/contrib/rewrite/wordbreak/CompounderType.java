@@ -0,0 +1,20 @@
+package querqy.lucene.contrib.rewrite.wordbreak;
+
+/**
+ * The {@link LuceneCompounder} implementations that can be selected in {@link WordBreakCompoundRewriterFactory}.
+ */
+public enum CompounderType {
+
+    /**
+     * Combine terms using Lucene's {@link org.apache.lucene.search.spell.WordBreakSpellChecker}
+     * (see {@link SpellCheckerCompounder})
+     */
+    SPELL_CHECKER,
+
+    /**
+     * Look up the concatenation of the terms, with and without the linking morphemes of the {@link Morphology}, in the
+     * terms dictionary (see {@link MorphologicalCompounder})
+     */
+    MORPHOLOGICAL
+
+}
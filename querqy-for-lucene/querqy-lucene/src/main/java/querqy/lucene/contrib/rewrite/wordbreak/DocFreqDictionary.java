@@ -0,0 +1,99 @@
+package querqy.lucene.contrib.rewrite.wordbreak;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * <p>An in-memory snapshot of the terms of a dictionary field together with their document frequencies. It is stored
+ * in an {@link FST} and it answers the same question as {@link IndexReader#docFreq(org.apache.lucene.index.Term)}
+ * without seeking the terms dictionaries of all segments.</p>
+ *
+ * <p>Terms with a document frequency below minDocFreq are not stored. {@link #docFreq(BytesRef)} returns 0 for
+ * them, which is fine as long as the caller discards terms below that frequency anyway.</p>
+ *
+ * @see DocFreqDictionaryProvider
+ */
+public class DocFreqDictionary {
+
+    private final FST<Long> fst; // null if there are no terms
+    private final int size;
+
+    private DocFreqDictionary(final FST<Long> fst, final int size) {
+        this.fst = fst;
+        this.size = size;
+    }
+
+    /**
+     * Build a dictionary from the terms of a field.
+     *
+     * @param indexReader The index reader
+     * @param field The dictionary field
+     * @param minDocFreq The minimum document frequency of a term to be included in the dictionary
+     * @return The dictionary
+     * @throws IOException if the terms cannot be read from the index
+     */
+    public static DocFreqDictionary build(final IndexReader indexReader, final String field, final int minDocFreq)
+            throws IOException {
+
+        final Terms terms = MultiTerms.getTerms(indexReader, field);
+        if (terms == null) {
+            return new DocFreqDictionary(null, 0);
+        }
+
+        final PositiveIntOutputs outputs = PositiveIntOutputs.getSingleton();
+        final Builder<Long> builder = new Builder<>(FST.INPUT_TYPE.BYTE1, outputs);
+        final IntsRefBuilder scratch = new IntsRefBuilder();
+
+        int size = 0;
+        final TermsEnum termsEnum = terms.iterator();
+        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+            final int df = termsEnum.docFreq();
+            if (df >= minDocFreq) {
+                builder.add(Util.toIntsRef(term, scratch), (long) df);
+                size++;
+            }
+        }
+
+        return new DocFreqDictionary(builder.finish(), size);
+
+    }
+
+    /**
+     * @param term The term bytes
+     * @return The document frequency of the term or 0 if the term is not in the dictionary
+     */
+    public int docFreq(final BytesRef term) {
+        if (fst == null) {
+            return 0;
+        }
+        try {
+            final Long df = Util.get(fst, term);
+            return df == null ? 0 : df.intValue();
+        } catch (final IOException e) {
+            // the FST is held in memory
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The number of terms in this dictionary
+     */
+    public int size() {
+        return size;
+    }
+
+    public long ramBytesUsed() {
+        return fst == null ? 0L : fst.ramBytesUsed();
+    }
+}
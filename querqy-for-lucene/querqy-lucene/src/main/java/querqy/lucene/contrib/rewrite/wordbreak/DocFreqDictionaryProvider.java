@@ -0,0 +1,182 @@
+package querqy.lucene.contrib.rewrite.wordbreak;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.AlreadyClosedException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Provides the {@link DocFreqDictionary} for the current {@link IndexReader}.</p>
+ *
+ * <p>When the provider sees a reader for which no dictionary exists yet, it starts building the dictionary in the
+ * background. Until the new dictionary is ready, the dictionary of a previous reader will be returned, or an empty
+ * Optional if no dictionary has been built yet. Callers are expected to look up document frequencies in the index
+ * reader in the latter case. Dictionaries are rebuilt at most once per {@code minRebuildIntervalMillis} so that
+ * frequently re-opened readers don't keep the builder busy. Until then, the dictionary of the previous reader is
+ * used, accepting that its document frequencies might be slightly outdated.</p>
+ *
+ * <p>Unless an executor is passed to the constructor, the provider builds the dictionaries in its own thread, which
+ * terminates while the provider is idle. {@link #close()} stops the thread.</p>
+ */
+public class DocFreqDictionaryProvider implements Closeable {
+
+    public static final long DEFAULT_MIN_REBUILD_INTERVAL_MILLIS = 60000L;
+
+    private static final long BUILDER_KEEP_ALIVE_SECONDS = 30L;
+
+    private static class Entry {
+
+        final Object readerKey;
+        final DocFreqDictionary dictionary;
+
+        Entry(final Object readerKey, final DocFreqDictionary dictionary) {
+            this.readerKey = readerKey;
+            this.dictionary = dictionary;
+        }
+    }
+
+    private final String dictionaryField;
+    private final int minDocFreq;
+    private final long minRebuildIntervalMillis;
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+
+    private volatile Entry current = null;
+    private final AtomicReference<Object> building = new AtomicReference<>();
+    private volatile Object failedReaderKey = null;
+    private volatile long nextBuildAt = Long.MIN_VALUE;
+
+    /**
+     * Create a provider that builds dictionaries in its own background thread, at most once per
+     * {@link #DEFAULT_MIN_REBUILD_INTERVAL_MILLIS}.
+     *
+     * @param dictionaryField The dictionary field
+     * @param minDocFreq The minimum document frequency of a term to be included in the dictionary
+     */
+    public DocFreqDictionaryProvider(final String dictionaryField, final int minDocFreq) {
+        this(dictionaryField, minDocFreq, DEFAULT_MIN_REBUILD_INTERVAL_MILLIS, null);
+    }
+
+    /**
+     * @param dictionaryField The dictionary field
+     * @param minDocFreq The minimum document frequency of a term to be included in the dictionary
+     * @param executor The executor that builds the dictionaries
+     */
+    public DocFreqDictionaryProvider(final String dictionaryField, final int minDocFreq, final Executor executor) {
+        this(dictionaryField, minDocFreq, DEFAULT_MIN_REBUILD_INTERVAL_MILLIS, executor);
+    }
+
+    /**
+     * @param dictionaryField The dictionary field
+     * @param minDocFreq The minimum document frequency of a term to be included in the dictionary
+     * @param minRebuildIntervalMillis The min. time between the starts of two dictionary builds
+     * @param executor The executor that builds the dictionaries or null to use an own background thread
+     */
+    public DocFreqDictionaryProvider(final String dictionaryField, final int minDocFreq,
+                                     final long minRebuildIntervalMillis, final Executor executor) {
+        if (minRebuildIntervalMillis < 0L) {
+            throw new IllegalArgumentException("minRebuildIntervalMillis >= 0 required. Actual value: "
+                    + minRebuildIntervalMillis);
+        }
+        this.dictionaryField = dictionaryField;
+        this.minDocFreq = minDocFreq;
+        this.minRebuildIntervalMillis = minRebuildIntervalMillis;
+        if (executor == null) {
+            final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(1, 1, BUILDER_KEEP_ALIVE_SECONDS,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                        final Thread thread = new Thread(runnable, "querqyDocFreqDictionaryBuilder");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+            this.ownExecutor = threadPoolExecutor;
+            this.executor = threadPoolExecutor;
+        } else {
+            this.ownExecutor = null;
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * Get the dictionary for the index reader. This will trigger building the dictionary if it doesn't exist yet and
+     * if the last build was started at least {@code minRebuildIntervalMillis} ago.
+     *
+     * @param indexReader The index reader
+     * @return The dictionary of this reader or, while it isn't available, the dictionary of a previous reader. An
+     * empty Optional if no dictionary has been built yet.
+     */
+    public Optional<DocFreqDictionary> getDictionary(final IndexReader indexReader) {
+
+        final Object readerKey = readerKey(indexReader);
+
+        final Entry entry = current;
+        if (entry != null && entry.readerKey == readerKey) {
+            return Optional.of(entry.dictionary);
+        }
+
+        if (readerKey != failedReaderKey && currentTimeMillis() >= nextBuildAt
+                && building.compareAndSet(null, readerKey)) {
+            nextBuildAt = currentTimeMillis() + minRebuildIntervalMillis;
+            try {
+                executor.execute(() -> build(indexReader, readerKey));
+            } catch (final RejectedExecutionException e) {
+                building.set(null);
+            }
+        }
+
+        // the executor might have run the task in the calling thread
+        final Entry latest = current;
+        return latest == null ? Optional.empty() : Optional.of(latest.dictionary);
+
+    }
+
+    private void build(final IndexReader indexReader, final Object readerKey) {
+        try {
+            // make sure the reader isn't closed while we are reading its terms
+            if (indexReader.tryIncRef()) {
+                try {
+                    current = new Entry(readerKey, DocFreqDictionary.build(indexReader, dictionaryField,
+                            minDocFreq));
+                } finally {
+                    indexReader.decRef();
+                }
+            } else {
+                failedReaderKey = readerKey;
+            }
+        } catch (final IOException | AlreadyClosedException e) {
+            // don't try again for this reader, lookups will fall back to the index
+            failedReaderKey = readerKey;
+        } finally {
+            building.set(null);
+        }
+    }
+
+    /**
+     * Stops the background thread of the provider if it doesn't use an executor that was passed to the constructor.
+     * Dictionaries that have already been built will still be returned.
+     */
+    @Override
+    public void close() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdownNow();
+        }
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private static Object readerKey(final IndexReader indexReader) {
+        final IndexReader.CacheHelper cacheHelper = indexReader.getReaderCacheHelper();
+        return cacheHelper == null ? indexReader : cacheHelper.getKey();
+    }
+}
@@ -4,6 +4,7 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 
 import java.util.Collections;
+import java.util.List;
 
 /**
  * <p>Morphological compounding patterns for German.</p>
@@ -56,6 +57,13 @@ public abstract class GermanDecompoundingMorphology {
     // -us +a
     final static float PRIOR_MINUS_UM_PLUS_A = 255f / NORM_PRIOR;
 
+    /**
+     * The linking morphemes of the additive patterns, ordered by their prior. They are used for compounding
+     * (see {@link MorphologicalCompounder}).
+     */
+    static final List<String> LINKING_MORPHEMES = Collections.unmodifiableList(
+            asList("", "s", "n", "en", "nen", "e", "es", "er", "ien"));
+
     static final WordGenerator GENERATOR_NULL = NullWordGenerator.INSTANCE;
     static final WordGenerator GENERATOR_A = new SuffixWordGenerator("a");
     static final WordGenerator GENERATOR_E = new SuffixWordGenerator("e");
@@ -0,0 +1,135 @@
+package querqy.lucene.contrib.rewrite.wordbreak;
+
+import org.apache.lucene.index.IndexReader;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>A bounded, concurrent cache whose entries are only valid for a given {@link IndexReader}.</p>
+ *
+ * <p>The cache holds the entries of a single reader. When it is accessed with a different reader (i.e. after the
+ * searcher has changed), all entries are dropped. An additional scope object can be passed for entries that also
+ * depend on other data than the reader. The entries are dropped as well when this object changes. Once the cache is
+ * full, an arbitrary entry is evicted for each new entry.</p>
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+public class IndexReaderScopedCache<K, V> {
+
+    @FunctionalInterface
+    public interface Loader<K, V> {
+        V load(K key) throws IOException;
+    }
+
+    private static class Scope<K, V> {
+
+        final Object readerKey;
+        final Object scopeKey;
+        final ConcurrentHashMap<K, V> entries = new ConcurrentHashMap<>();
+
+        Scope(final Object readerKey, final Object scopeKey) {
+            this.readerKey = readerKey;
+            this.scopeKey = scopeKey;
+        }
+
+        boolean matches(final Object readerKey, final Object scopeKey) {
+            return this.readerKey == readerKey && this.scopeKey == scopeKey;
+        }
+    }
+
+    private final int maxSize;
+    private final AtomicReference<Scope<K, V>> scope = new AtomicReference<>();
+
+    /**
+     * @param maxSize The maximum number of entries (&gt; 0)
+     */
+    public IndexReaderScopedCache(final int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize > 0 expected. Actual value: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the value for the key from the cache or load it and put it into the cache.
+     *
+     * @param indexReader The index reader for which the value is valid
+     * @param key The key
+     * @param loader Loads the value if it is not in the cache
+     * @return The value
+     * @throws IOException if the loader throws an IOException
+     */
+    public V get(final IndexReader indexReader, final K key, final Loader<K, V> loader) throws IOException {
+        return get(indexReader, null, key, loader);
+    }
+
+    /**
+     * Get the value for the key from the cache or load it and put it into the cache.
+     *
+     * @param indexReader The index reader for which the value is valid
+     * @param scopeKey The identity of the other data that the value depends on or null
+     * @param key The key
+     * @param loader Loads the value if it is not in the cache
+     * @return The value
+     * @throws IOException if the loader throws an IOException
+     */
+    public V get(final IndexReader indexReader, final Object scopeKey, final K key, final Loader<K, V> loader)
+            throws IOException {
+
+        final Scope<K, V> currentScope = getScope(indexReader, scopeKey);
+
+        final V cached = currentScope.entries.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final V value = loader.load(key);
+        if (value != null) {
+            if (currentScope.entries.size() >= maxSize) {
+                final Iterator<K> iterator = currentScope.entries.keySet().iterator();
+                if (iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+            currentScope.entries.put(key, value);
+        }
+
+        return value;
+
+    }
+
+    /**
+     * @return The number of entries for the current reader
+     */
+    public int size() {
+        final Scope<K, V> currentScope = scope.get();
+        return currentScope == null ? 0 : currentScope.entries.size();
+    }
+
+    private Scope<K, V> getScope(final IndexReader indexReader, final Object scopeKey) {
+
+        final IndexReader.CacheHelper cacheHelper = indexReader.getReaderCacheHelper();
+        final Object readerKey = cacheHelper == null ? indexReader : cacheHelper.getKey();
+
+        final Scope<K, V> currentScope = scope.get();
+        if (currentScope != null && currentScope.matches(readerKey, scopeKey)) {
+            return currentScope;
+        }
+
+        final Scope<K, V> newScope = new Scope<>(readerKey, scopeKey);
+        if (scope.compareAndSet(currentScope, newScope)) {
+            return newScope;
+        }
+
+        // somebody else has just created a scope
+        final Scope<K, V> otherScope = scope.get();
+        // use a throw-away scope for outdated readers
+        return otherScope.matches(readerKey, scopeKey) ? otherScope : newScope;
+
+    }
+}
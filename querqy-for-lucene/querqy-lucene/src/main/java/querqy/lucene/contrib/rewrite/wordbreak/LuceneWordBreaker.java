@@ -15,4 +15,19 @@ public interface LuceneWordBreaker {
                                    IndexReader indexReader,
                                    int maxDecompoundExpansions,
                                    boolean verifyCollation) throws IOException;
+
+    /**
+     * <p>Get an object that identifies the data that the results of {@link #breakWord(CharSequence, IndexReader, int,
+     * boolean)} depend on in addition to the index reader.</p>
+     *
+     * <p>Results can be cached for the index reader as long as this object stays the same (see
+     * {@link CachingWordBreaker}).</p>
+     *
+     * @param indexReader The index reader
+     * @return The identity of the additional data or null if the results only depend on the index reader. This
+     * default implementation returns null.
+     */
+    default Object getCacheScope(final IndexReader indexReader) {
+        return null;
+    }
 }
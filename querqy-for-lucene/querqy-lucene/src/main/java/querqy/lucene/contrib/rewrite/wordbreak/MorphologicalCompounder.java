@@ -0,0 +1,168 @@
+package querqy.lucene.contrib.rewrite.wordbreak;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRefBuilder;
+import querqy.model.Term;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>A {@link LuceneCompounder} that looks up the concatenation of two terms in the terms dictionary of the dictionary
+ * field. The terms are joined directly and using each of the linking morphemes of the {@link Morphology}
+ * (for example, 'kind' + 'er' + 'buch' in German).</p>
+ *
+ * <p>Each candidate is probed with {@link TermsEnum#seekExact(org.apache.lucene.util.BytesRef)} using one TermsEnum
+ * per segment. The TermsEnums and the buffers for building the candidates are kept per thread and reused as long as
+ * the thread combines terms for the same {@link IndexReader}, so that candidates that don't exist in the index don't
+ * cause any object allocation. The resulting compounds are ordered by decreasing document frequency.</p>
+ *
+ * <p>Only pairs of terms can be combined.</p>
+ */
+public class MorphologicalCompounder implements LuceneCompounder {
+
+    private final String dictionaryField;
+    private final boolean lowerCaseInput;
+    private final int minSuggestionFrequency;
+    private final int maxCombineLength;
+    private final String[] linkingMorphemes;
+    private final ThreadLocal<Lookup> lookups = new ThreadLocal<>();
+
+    /**
+     * @param morphology The morphology that provides the linking morphemes
+     * @param dictionaryField The dictionary field name
+     * @param lowerCaseInput Iff true, lowercase input before looking it up in the dictionary field.
+     * @param minSuggestionFrequency The minimum document frequency of a compound in the dictionary field
+     * @param maxCombineLength The maximum length of a compound in chars
+     */
+    public MorphologicalCompounder(final Morphology morphology, final String dictionaryField,
+                                   final boolean lowerCaseInput, final int minSuggestionFrequency,
+                                   final int maxCombineLength) {
+        this.dictionaryField = dictionaryField;
+        this.lowerCaseInput = lowerCaseInput;
+        this.minSuggestionFrequency = Math.max(1, minSuggestionFrequency);
+        this.maxCombineLength = maxCombineLength;
+        this.linkingMorphemes = morphology.getLinkingMorphemes().toArray(new String[0]);
+    }
+
+    @Override
+    public List<CompoundTerm> combine(final Term[] terms, final IndexReader indexReader, final boolean reverse)
+            throws IOException {
+
+        if (terms.length != 2) {
+            return Collections.emptyList();
+        }
+
+        final Term left = reverse ? terms[1] : terms[0];
+        final Term right = reverse ? terms[0] : terms[1];
+
+        final int minLength = left.length() + right.length();
+        if (minLength > maxCombineLength) {
+            return Collections.emptyList();
+        }
+
+        final Lookup lookup = getLookup(indexReader);
+        final TermsEnum[] termsEnums = lookup.termsEnums;
+        final StringBuilder chars = lookup.chars;
+        final BytesRefBuilder bytes = lookup.bytes;
+
+        List<CompoundTerm> compounds = null;
+        int[] dfs = null;
+
+        for (final String linkingMorpheme : linkingMorphemes) {
+
+            if (minLength + linkingMorpheme.length() > maxCombineLength) {
+                continue;
+            }
+
+            chars.setLength(0);
+            appendTerm(chars, left);
+            chars.append(linkingMorpheme);
+            appendTerm(chars, right);
+            bytes.copyChars(chars);
+
+            int df = 0;
+            for (final TermsEnum termsEnum : termsEnums) {
+                if (termsEnum != null && termsEnum.seekExact(bytes.get())) {
+                    df += termsEnum.docFreq();
+                }
+            }
+
+            if (df >= minSuggestionFrequency) {
+                if (compounds == null) {
+                    compounds = new ArrayList<>(linkingMorphemes.length);
+                    dfs = new int[linkingMorphemes.length];
+                }
+                // insertion sort by df desc, keeping the order of the linking morphemes for equal dfs
+                int pos = compounds.size();
+                while (pos > 0 && dfs[pos - 1] < df) {
+                    dfs[pos] = dfs[pos - 1];
+                    pos--;
+                }
+                dfs[pos] = df;
+                compounds.add(pos, new CompoundTerm(chars.toString(), reverse ? new Term[] {left, right} : terms));
+            }
+
+        }
+
+        return compounds == null ? Collections.emptyList() : compounds;
+
+    }
+
+    private void appendTerm(final StringBuilder chars, final Term term) {
+        if (lowerCaseInput) {
+            for (int i = 0, len = term.length(); i < len; i++) {
+                chars.append(Character.toLowerCase(term.charAt(i)));
+            }
+        } else {
+            chars.append(term);
+        }
+    }
+
+    private Lookup getLookup(final IndexReader indexReader) throws IOException {
+
+        final IndexReader.CacheHelper cacheHelper = indexReader.getReaderCacheHelper();
+        final Object readerKey = cacheHelper == null ? indexReader : cacheHelper.getKey();
+
+        final Lookup lookup = lookups.get();
+        if (lookup != null && lookup.readerKey == readerKey) {
+            return lookup;
+        }
+
+        final List<LeafReaderContext> leaves = indexReader.leaves();
+        final TermsEnum[] termsEnums = new TermsEnum[leaves.size()];
+        for (int i = 0; i < termsEnums.length; i++) {
+            final Terms leafTerms = leaves.get(i).reader().terms(dictionaryField);
+            if (leafTerms != null) {
+                termsEnums[i] = leafTerms.iterator();
+            }
+        }
+
+        final Lookup newLookup = new Lookup(readerKey, termsEnums, maxCombineLength);
+        lookups.set(newLookup);
+        return newLookup;
+
+    }
+
+    /**
+     * The per-segment TermsEnums of an IndexReader and the buffers for building the candidates, used by one thread
+     */
+    private static class Lookup {
+
+        final Object readerKey;
+        final TermsEnum[] termsEnums;
+        final StringBuilder chars;
+        final BytesRefBuilder bytes = new BytesRefBuilder();
+
+        Lookup(final Object readerKey, final TermsEnum[] termsEnums, final int maxCombineLength) {
+            this.readerKey = readerKey;
+            this.termsEnums = termsEnums;
+            this.chars = new StringBuilder(maxCombineLength);
+        }
+    }
+}
@@ -15,6 +15,11 @@ public class MorphologicalWordBreaker implements LuceneWordBreaker {
 
     public static final float DEFAULT_WEIGHT_MORPHOLOGICAL_PATTERN = 0.8f;
 
+    /**
+     * The max. number of term pairs per index reader for which we remember whether they co-occur in a document
+     */
+    public static final int COLLATION_CACHE_SIZE = 10000;
+
     final SuffixGroup suffixGroup; // package visible for testing
 
     private final int minBreakLength;
@@ -22,6 +27,9 @@ public class MorphologicalWordBreaker implements LuceneWordBreaker {
     private final boolean lowerCaseInput;
     private final String dictionaryField;
     private final int minSuggestionFrequency;
+    private final DocFreqDictionaryProvider docFreqDictionaryProvider;
+    private final IndexReaderScopedCache<Collector.TermPair, Boolean> collationCache =
+            new IndexReaderScopedCache<>(COLLATION_CACHE_SIZE);
     final float weightDfObservation;
 
     public MorphologicalWordBreaker(final Morphology morphology, final String dictionaryField,
@@ -35,12 +43,33 @@ public class MorphologicalWordBreaker implements LuceneWordBreaker {
                                     final boolean lowerCaseInput, final int minSuggestionFrequency,
                                     final int minBreakLength, final int maxEvaluations,
                                     final float weightMorphologicalPattern) {
+        this(morphology, dictionaryField, lowerCaseInput, minSuggestionFrequency, minBreakLength, maxEvaluations,
+                weightMorphologicalPattern, null);
+    }
+
+    /**
+     * @param morphology The morphology
+     * @param dictionaryField The field to look up the split terms
+     * @param lowerCaseInput Iff true, lowercase input before looking it up in the dictionary field
+     * @param minSuggestionFrequency The minimum document frequency of each split term
+     * @param minBreakLength The minimum length of a split term
+     * @param maxEvaluations The maximum number of candidates to look up per word
+     * @param weightMorphologicalPattern The weight of the morphological pattern vs. the observed document frequencies
+     * @param docFreqDictionaryProvider If not null, document frequencies will be looked up in the dictionary of this
+     *                                  provider once it is available for the current index reader
+     */
+    public MorphologicalWordBreaker(final Morphology morphology, final String dictionaryField,
+                                    final boolean lowerCaseInput, final int minSuggestionFrequency,
+                                    final int minBreakLength, final int maxEvaluations,
+                                    final float weightMorphologicalPattern,
+                                    final DocFreqDictionaryProvider docFreqDictionaryProvider) {
 
         this.minBreakLength = minBreakLength;
         this.maxEvaluations = maxEvaluations;
         this.lowerCaseInput = lowerCaseInput;
         this.dictionaryField = dictionaryField;
         this.minSuggestionFrequency = minSuggestionFrequency;
+        this.docFreqDictionaryProvider = docFreqDictionaryProvider;
 
         weightDfObservation = 1f - weightMorphologicalPattern;
 
@@ -58,8 +87,11 @@ public class MorphologicalWordBreaker implements LuceneWordBreaker {
             return Collections.emptyList();
         }
 
+        final DocFreqDictionary docFreqDictionary = docFreqDictionaryProvider == null
+                ? null : docFreqDictionaryProvider.getDictionary(indexReader).orElse(null);
+
         final Collector collector = new Collector(minSuggestionFrequency, maxDecompoundExpansions, maxEvaluations,
-                verifyCollation, indexReader, dictionaryField, weightDfObservation);
+                verifyCollation, indexReader, docFreqDictionary, collationCache, dictionaryField, weightDfObservation);
 
         collectSuggestions(word, indexReader, collector);
 
@@ -68,6 +100,16 @@ public class MorphologicalWordBreaker implements LuceneWordBreaker {
     }
 
 
+    /**
+     * The results depend on the {@link DocFreqDictionary} in use, which can be the dictionary of a previous reader
+     * until the dictionary for the current reader has been built.
+     */
+    @Override
+    public Object getCacheScope(final IndexReader indexReader) {
+        return docFreqDictionaryProvider == null
+                ? null : docFreqDictionaryProvider.getDictionary(indexReader).orElse(null);
+    }
+
     protected void collectSuggestions(final CharSequence word, final IndexReader indexReader,
                                       final Collector collector) throws UncheckedIOException {
         final int termLength = Character.codePointCount(word, 0, word.length());
@@ -90,7 +132,7 @@ public class MorphologicalWordBreaker implements LuceneWordBreaker {
 
             final int rightDf;
             try {
-                rightDf = indexReader.docFreq(rightTerm);
+                rightDf = collector.docFreq(rightTerm);
             } catch (final IOException e) {
                 throw new UncheckedIOException(e);
             }
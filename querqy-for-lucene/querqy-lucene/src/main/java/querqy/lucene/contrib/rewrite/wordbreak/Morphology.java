@@ -2,21 +2,33 @@ package querqy.lucene.contrib.rewrite.wordbreak;
 
 import static java.util.Collections.singletonList;
 
+import java.util.List;
 import java.util.function.Function;
 
 public enum Morphology {
 
-    DEFAULT(weight -> new SuffixGroup(null, singletonList(new WordGeneratorAndWeight(NullWordGenerator.INSTANCE, 1f)))),
-    GERMAN(GermanDecompoundingMorphology::createMorphemes);
+    DEFAULT(weight -> new SuffixGroup(null, singletonList(new WordGeneratorAndWeight(NullWordGenerator.INSTANCE, 1f))),
+            singletonList("")),
+    GERMAN(GermanDecompoundingMorphology::createMorphemes, GermanDecompoundingMorphology.LINKING_MORPHEMES);
 
     private final Function<Float, SuffixGroup> morphemeFactory;
+    private final List<String> linkingMorphemes;
 
-    Morphology(final Function<Float, SuffixGroup> morphemeFactory) {
+    Morphology(final Function<Float, SuffixGroup> morphemeFactory, final List<String> linkingMorphemes) {
         this.morphemeFactory = morphemeFactory;
+        this.linkingMorphemes = linkingMorphemes;
     }
 
     public SuffixGroup createMorphemes(final float weightMorphologicalPattern) {
         return morphemeFactory.apply(weightMorphologicalPattern);
     }
 
+    /**
+     * @return The strings that can be inserted between two words when forming a compound, ordered by decreasing
+     * frequency of the compounding pattern. The empty string stands for joining the words directly.
+     */
+    public List<String> getLinkingMorphemes() {
+        return linkingMorphemes;
+    }
+
 }
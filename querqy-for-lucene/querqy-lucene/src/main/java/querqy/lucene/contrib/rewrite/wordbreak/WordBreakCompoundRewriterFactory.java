@@ -2,6 +2,7 @@ package querqy.lucene.contrib.rewrite.wordbreak;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.spell.WordBreakSpellChecker;
+import querqy.lucene.rewrite.cache.RewrittenQueryCacheControl;
 import querqy.model.ExpandedQuery;
 import querqy.model.Term;
 import querqy.rewrite.QueryRewriter;
@@ -9,12 +10,14 @@ import querqy.rewrite.RewriterFactory;
 import querqy.rewrite.SearchEngineRequestAdapter;
 import querqy.trie.TrieMap;
 
+import java.io.Closeable;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Supplier;
 
-public class WordBreakCompoundRewriterFactory extends RewriterFactory {
+public class WordBreakCompoundRewriterFactory extends RewriterFactory implements RewrittenQueryCacheControl,
+        Closeable {
 
     // this controls behaviour of the Lucene WordBreakSpellChecker:
     // for compounds: maximum distance of leftmost and rightmost term index
@@ -35,8 +38,9 @@ public class WordBreakCompoundRewriterFactory extends RewriterFactory {
     private final int maxDecompoundExpansions;
     private final boolean verifyDecompundCollation;
     final LuceneWordBreaker wordBreaker; // package visible for testing
-    private final LuceneCompounder compounder;
+    final LuceneCompounder compounder; // package visible for testing
     private final TrieMap<Boolean> protectedWords;
+    private final DocFreqDictionaryProvider docFreqDictionaryProvider;
 
     /**
      * @param rewriterId The id of the rewriter
@@ -65,6 +69,48 @@ public class WordBreakCompoundRewriterFactory extends RewriterFactory {
                                             final int maxDecompoundExpansions,
                                             final boolean verifyDecompoundCollation,
                                             final List<String> protectedWords) {
+        this(rewriterId, indexReaderSupplier, morphology, dictionaryField, lowerCaseInput, minSuggestionFreq,
+                maxCombineLength, minBreakLength, reverseCompoundTriggerWords, alwaysAddReverseCompounds,
+                maxDecompoundExpansions, verifyDecompoundCollation, protectedWords, false, 0,
+                CompounderType.SPELL_CHECKER);
+    }
+
+    /**
+     * @param rewriterId The id of the rewriter
+     * @param indexReaderSupplier Access to an IndexReader
+     * @param morphology The (de)compounding morphology to use
+     * @param dictionaryField The dictionary field name
+     * @param lowerCaseInput Iff true, lowercase input before matching it against the dictionary field.
+     * @param minSuggestionFreq The minimum frequency of a suggestion in the dictionary field (see {@link WordBreakSpellChecker}.setMinSuggestionFrequency())
+     * @param maxCombineLength The maximum length of a suggestion when combining tokens (see {@link WordBreakSpellChecker}.setMaxCombineWordLength())
+     * @param minBreakLength The minimum word part length for decompounding (see {@link WordBreakSpellChecker}.setMinBreakWordLength())
+     * @param reverseCompoundTriggerWords Query tokens in this list will trigger the creation of a reverse compound of the surrounding tokens.
+     * @param alwaysAddReverseCompounds Iff true, reverse shingles will be added to the query
+     * @param maxDecompoundExpansions The maximum number of decompounds to add to the query
+     * @param verifyDecompoundCollation   Iff true, verify that all parts of the compound cooccur in dictionaryField after decompounding
+     * @param protectedWords The "false-positive" set of terms that should never be split or be result of a combination
+     * @param precomputedDecompoundDictionary Iff true, decompounding looks up document frequencies in a
+     *                                        {@link DocFreqDictionary} that is built in the background per index reader
+     * @param cacheSize The max. number of decompounding and of compounding results to cache per index reader. 0
+     *                  disables caching.
+     * @param compounderType The compounder implementation to use
+     */
+    public WordBreakCompoundRewriterFactory(final String rewriterId,
+                                            final Supplier<IndexReader> indexReaderSupplier,
+                                            final Morphology morphology,
+                                            final String dictionaryField,
+                                            final boolean lowerCaseInput,
+                                            final int minSuggestionFreq,
+                                            final int maxCombineLength,
+                                            final int minBreakLength,
+                                            final List<String> reverseCompoundTriggerWords,
+                                            final boolean alwaysAddReverseCompounds,
+                                            final int maxDecompoundExpansions,
+                                            final boolean verifyDecompoundCollation,
+                                            final List<String> protectedWords,
+                                            final boolean precomputedDecompoundDictionary,
+                                            final int cacheSize,
+                                            final CompounderType compounderType) {
         super(rewriterId);
         this.indexReaderSupplier = indexReaderSupplier;
         this.lowerCaseInput = lowerCaseInput;
@@ -75,22 +121,48 @@ public class WordBreakCompoundRewriterFactory extends RewriterFactory {
                     + maxDecompoundExpansions);
         }
         this.maxDecompoundExpansions = maxDecompoundExpansions;
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize >= 0 required. Actual value: " + cacheSize);
+        }
 
         this.reverseCompoundTriggerWords = buildWordLookup(reverseCompoundTriggerWords, lowerCaseInput);
 
         this.protectedWords = buildWordLookup(protectedWords, lowerCaseInput);
 
-        final WordBreakSpellChecker spellChecker = new WordBreakSpellChecker();
-        spellChecker.setMaxChanges(MAX_CHANGES);
-        spellChecker.setMinSuggestionFrequency(minSuggestionFreq);
-        spellChecker.setMaxCombineWordLength(maxCombineLength);
-        spellChecker.setMinBreakWordLength(minBreakLength);
-        spellChecker.setMaxEvaluations(100);
-        compounder = new SpellCheckerCompounder(spellChecker, dictionaryField, lowerCaseInput);
+        final LuceneCompounder luceneCompounder;
+        switch (compounderType) {
+            case SPELL_CHECKER:
+                final WordBreakSpellChecker spellChecker = new WordBreakSpellChecker();
+                spellChecker.setMaxChanges(MAX_CHANGES);
+                spellChecker.setMinSuggestionFrequency(minSuggestionFreq);
+                spellChecker.setMaxCombineWordLength(maxCombineLength);
+                spellChecker.setMinBreakWordLength(minBreakLength);
+                spellChecker.setMaxEvaluations(100);
+                luceneCompounder = new SpellCheckerCompounder(spellChecker, dictionaryField, lowerCaseInput);
+                break;
+            case MORPHOLOGICAL:
+                luceneCompounder = new MorphologicalCompounder(morphology, dictionaryField, lowerCaseInput,
+                        minSuggestionFreq, maxCombineLength);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown compounder type: " + compounderType);
+        }
+
+        docFreqDictionaryProvider = precomputedDecompoundDictionary
+                ? new DocFreqDictionaryProvider(dictionaryField, minSuggestionFreq) : null;
 
         // TODO: configure weight of strategy
-        wordBreaker = new MorphologicalWordBreaker(morphology, dictionaryField, lowerCaseInput, minSuggestionFreq,
-                minBreakLength, MAX_EVALUATIONS);
+        final LuceneWordBreaker morphologicalWordBreaker = new MorphologicalWordBreaker(morphology, dictionaryField,
+                lowerCaseInput, minSuggestionFreq, minBreakLength, MAX_EVALUATIONS,
+                MorphologicalWordBreaker.DEFAULT_WEIGHT_MORPHOLOGICAL_PATTERN, docFreqDictionaryProvider);
+
+        if (cacheSize > 0) {
+            compounder = new CachingCompounder(luceneCompounder, lowerCaseInput, cacheSize);
+            wordBreaker = new CachingWordBreaker(morphologicalWordBreaker, lowerCaseInput, cacheSize);
+        } else {
+            compounder = luceneCompounder;
+            wordBreaker = morphologicalWordBreaker;
+        }
 
 
     }
@@ -108,6 +180,27 @@ public class WordBreakCompoundRewriterFactory extends RewriterFactory {
         return QueryRewriter.EMPTY_GENERABLE_TERMS;
     }
 
+    /**
+     * The (de)compounds depend on the terms in the index.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isRewrittenQueryCacheable() {
+        return false;
+    }
+
+    /**
+     * Stops building {@link DocFreqDictionary}s in the background. Rewriters that are created afterwards will look up
+     * document frequencies in the index unless a dictionary has already been built.
+     */
+    @Override
+    public void close() {
+        if (docFreqDictionaryProvider != null) {
+            docFreqDictionaryProvider.close();
+        }
+    }
+
     TrieMap<Boolean> getReverseCompoundTriggerWords() {
         return reverseCompoundTriggerWords;
     }
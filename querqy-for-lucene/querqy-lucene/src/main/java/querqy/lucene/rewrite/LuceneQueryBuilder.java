@@ -5,6 +5,7 @@ package querqy.lucene.rewrite;
 
 import java.io.IOException;
 import java.util.LinkedList;
+import java.util.Optional;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.search.BooleanClause.Occur;
@@ -13,6 +14,8 @@ import org.apache.lucene.search.Query;
 
 import querqy.CompoundCharSequence;
 import querqy.lucene.rewrite.BooleanQueryFactory.Clause;
+import querqy.lucene.rewrite.cache.InstructionQueryCache;
+import querqy.lucene.rewrite.cache.InstructionQueryCacheKey;
 import querqy.lucene.rewrite.cache.TermQueryCache;
 import querqy.model.AbstractNodeVisitor;
 import querqy.model.BooleanQuery;
@@ -36,6 +39,7 @@ public class LuceneQueryBuilder extends AbstractNodeVisitor<LuceneQueryFactory<?
    final float dmqTieBreakerMultiplier;
    final TermQueryBuilder termQueryBuilder;
    final SearchFieldsAndBoosting searchFieldsAndBoosting;
+   final Analyzer analyzer;
    final TermSubQueryBuilder termSubQueryBuilder;
 
    LinkedList<BooleanQueryFactory> clauseStack = new LinkedList<>();
@@ -85,9 +89,31 @@ public class LuceneQueryBuilder extends AbstractNodeVisitor<LuceneQueryFactory<?
         this.dmqTieBreakerMultiplier = dmqTieBreakerMultiplier;
         this.normalizeBooleanQueryBoost = normalizeBooleanQueryBoost;
         this.termQueryBuilder = termQueryBuilder;
+        this.analyzer = analyzer;
         termSubQueryBuilder = new TermSubQueryBuilder(analyzer, termQueryCache);
     }
 
+    /**
+     * <p>Create the key under which the Lucene query for the given query can be stored in an
+     * {@link InstructionQueryCache}.</p>
+     *
+     * <p>The Lucene query can only be cached if it doesn't depend on the state of the current request. This is not the
+     * case if this builder uses a {@link DocumentFrequencyCorrection} or the PRMS field boost model.</p>
+     *
+     * @param query The Querqy query
+     * @param useBooleanQueryForDMQ The value that will be passed to {@link #createQuery(querqy.model.Query, boolean)}
+     * @return The key or an empty Optional if the Lucene query cannot be cached
+     */
+    public Optional<InstructionQueryCacheKey> createCacheKey(final QuerqyQuery<?> query,
+                                                             final boolean useBooleanQueryForDMQ) {
+        if (termQueryBuilder.getDocumentFrequencyCorrection().isPresent()
+                || searchFieldsAndBoosting.fieldBoostModel == SearchFieldsAndBoosting.FieldBoostModel.PRMS) {
+            return Optional.empty();
+        }
+        return InstructionQueryCacheKey.create(query, useBooleanQueryForDMQ, termQueryBuilder, analyzer,
+                searchFieldsAndBoosting, dmqTieBreakerMultiplier, normalizeBooleanQueryBoost);
+    }
+
     public void reset() {
         clauseStack.clear();
         dmqStack.clear();
@@ -6,6 +6,7 @@ package querqy.lucene.rewrite;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import querqy.lucene.rewrite.prms.PRMSFieldBoost;
@@ -93,6 +94,21 @@ public class SearchFieldsAndBoosting {
         return null;
     }
 
-    
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final SearchFieldsAndBoosting that = (SearchFieldsAndBoosting) o;
+        return Float.compare(that.defaultGeneratedFieldBoostFactor, defaultGeneratedFieldBoostFactor) == 0 &&
+                fieldBoostModel == that.fieldBoostModel &&
+                Objects.equals(queryFieldsAndBoostings, that.queryFieldsAndBoostings) &&
+                Objects.equals(generatedQueryFieldsAndBoostings, that.generatedQueryFieldsAndBoostings);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(defaultGeneratedFieldBoostFactor, queryFieldsAndBoostings,
+                generatedQueryFieldsAndBoostings, fieldBoostModel);
+    }
 
 }
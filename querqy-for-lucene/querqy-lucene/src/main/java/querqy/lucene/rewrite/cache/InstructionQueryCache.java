@@ -0,0 +1,17 @@
+package querqy.lucene.rewrite.cache;
+
+import org.apache.lucene.search.Query;
+
+/**
+ * <p>A cache for the Lucene queries that are created from the boost and filter queries of rewriter instructions.</p>
+ *
+ * <p>Instructions without placeholders produce the same query for every request that they match. Caching the
+ * Lucene queries avoids analysing their terms and building the query again for each request.</p>
+ */
+public interface InstructionQueryCache {
+
+    void put(InstructionQueryCacheKey key, Query value);
+
+    Query get(InstructionQueryCacheKey key);
+
+}
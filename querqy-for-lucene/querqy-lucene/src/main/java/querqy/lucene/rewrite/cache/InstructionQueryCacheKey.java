@@ -0,0 +1,99 @@
+package querqy.lucene.rewrite.cache;
+
+import org.apache.lucene.analysis.Analyzer;
+import querqy.lucene.rewrite.SearchFieldsAndBoosting;
+import querqy.lucene.rewrite.TermQueryBuilder;
+import querqy.model.QuerqyQuery;
+import querqy.model.RawQuery;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * <p>The key for an {@link InstructionQueryCache}.</p>
+ *
+ * <p>The key uses the string representation of the query that is created by {@link QueryStructure}. It further
+ * contains the settings of the {@link querqy.lucene.rewrite.LuceneQueryBuilder} that influence the resulting Lucene
+ * query.</p>
+ */
+public class InstructionQueryCacheKey {
+
+    private final String query;
+    private final boolean useBooleanQueryForDMQ;
+    private final Class<? extends TermQueryBuilder> termQueryBuilderClass;
+    private final Analyzer analyzer;
+    private final SearchFieldsAndBoosting searchFieldsAndBoosting;
+    private final float dmqTieBreakerMultiplier;
+    private final boolean normalizeBooleanQueryBoost;
+    private final int hash;
+
+    protected InstructionQueryCacheKey(final String query, final boolean useBooleanQueryForDMQ,
+                                       final Class<? extends TermQueryBuilder> termQueryBuilderClass,
+                                       final Analyzer analyzer,
+                                       final SearchFieldsAndBoosting searchFieldsAndBoosting,
+                                       final float dmqTieBreakerMultiplier,
+                                       final boolean normalizeBooleanQueryBoost) {
+        this.query = query;
+        this.useBooleanQueryForDMQ = useBooleanQueryForDMQ;
+        this.termQueryBuilderClass = termQueryBuilderClass;
+        this.analyzer = analyzer;
+        this.searchFieldsAndBoosting = searchFieldsAndBoosting;
+        this.dmqTieBreakerMultiplier = dmqTieBreakerMultiplier;
+        this.normalizeBooleanQueryBoost = normalizeBooleanQueryBoost;
+        this.hash = Objects.hash(query, useBooleanQueryForDMQ, termQueryBuilderClass,
+                System.identityHashCode(analyzer), searchFieldsAndBoosting, dmqTieBreakerMultiplier,
+                normalizeBooleanQueryBoost);
+    }
+
+    /**
+     * Create a cache key.
+     *
+     * @param query The Querqy query
+     * @param useBooleanQueryForDMQ Iff true, dismax queries will be created as boolean queries
+     * @param termQueryBuilder The TermQueryBuilder of the LuceneQueryBuilder
+     * @param analyzer The query analyzer. It is compared by identity.
+     * @param searchFieldsAndBoosting The search fields and their boost factors
+     * @param dmqTieBreakerMultiplier The tie breaker for dismax queries
+     * @param normalizeBooleanQueryBoost The boost normalization setting of the LuceneQueryBuilder
+     * @return The key or an empty Optional if the query contains a {@link RawQuery}
+     */
+    public static Optional<InstructionQueryCacheKey> create(final QuerqyQuery<?> query,
+                                                            final boolean useBooleanQueryForDMQ,
+                                                            final TermQueryBuilder termQueryBuilder,
+                                                            final Analyzer analyzer,
+                                                            final SearchFieldsAndBoosting searchFieldsAndBoosting,
+                                                            final float dmqTieBreakerMultiplier,
+                                                            final boolean normalizeBooleanQueryBoost) {
+
+        return QueryStructure.toKeyString(query)
+                .map(queryString -> new InstructionQueryCacheKey(queryString, useBooleanQueryForDMQ,
+                        termQueryBuilder.getClass(), analyzer, searchFieldsAndBoosting, dmqTieBreakerMultiplier,
+                        normalizeBooleanQueryBoost));
+
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final InstructionQueryCacheKey that = (InstructionQueryCacheKey) o;
+        return hash == that.hash &&
+                useBooleanQueryForDMQ == that.useBooleanQueryForDMQ &&
+                Float.compare(that.dmqTieBreakerMultiplier, dmqTieBreakerMultiplier) == 0 &&
+                normalizeBooleanQueryBoost == that.normalizeBooleanQueryBoost &&
+                analyzer == that.analyzer &&
+                termQueryBuilderClass == that.termQueryBuilderClass &&
+                query.equals(that.query) &&
+                searchFieldsAndBoosting.equals(that.searchFieldsAndBoosting);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "InstructionQueryCacheKey{query=" + query + ", useBooleanQueryForDMQ=" + useBooleanQueryForDMQ + '}';
+    }
+}
@@ -0,0 +1,99 @@
+package querqy.lucene.rewrite.cache;
+
+import querqy.model.AbstractNodeVisitor;
+import querqy.model.BooleanClause;
+import querqy.model.BooleanQuery;
+import querqy.model.BoostedTerm;
+import querqy.model.DisjunctionMaxClause;
+import querqy.model.DisjunctionMaxQuery;
+import querqy.model.MatchAllQuery;
+import querqy.model.QuerqyQuery;
+import querqy.model.Query;
+import querqy.model.RawQuery;
+import querqy.model.Term;
+
+import java.util.Optional;
+
+/**
+ * <p>Creates string representations of Querqy queries that can be used in cache keys.</p>
+ *
+ * <p>The equals() methods of the Querqy query model ignore the occur of the clauses. The string representation thus
+ * contains the query structure, the occur and generated flags, the fields and boosts of the terms.</p>
+ */
+public final class QueryStructure {
+
+    private QueryStructure() {
+    }
+
+    /**
+     * Create the string representation of a query.
+     *
+     * @param query The Querqy query
+     * @return The string representation or an empty Optional if the query contains a {@link RawQuery}
+     */
+    public static Optional<String> toKeyString(final QuerqyQuery<?> query) {
+        final KeyStringBuilder keyStringBuilder = new KeyStringBuilder();
+        query.accept(keyStringBuilder);
+        return keyStringBuilder.cacheable ? Optional.of(keyStringBuilder.sb.toString()) : Optional.empty();
+    }
+
+    static class KeyStringBuilder extends AbstractNodeVisitor<Void> {
+
+        final StringBuilder sb = new StringBuilder();
+        boolean cacheable = true;
+
+        @Override
+        public Void visit(final Query query) {
+            return visit((BooleanQuery) query);
+        }
+
+        @Override
+        public Void visit(final BooleanQuery booleanQuery) {
+            sb.append(booleanQuery.getOccur()).append(booleanQuery.isGenerated() ? "+" : "").append("BQ(");
+            for (final BooleanClause clause : booleanQuery.getClauses()) {
+                clause.accept(this);
+            }
+            sb.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visit(final DisjunctionMaxQuery disjunctionMaxQuery) {
+            sb.append(disjunctionMaxQuery.getOccur()).append(disjunctionMaxQuery.isGenerated() ? "+" : "")
+                    .append("DMQ(");
+            for (final DisjunctionMaxClause clause : disjunctionMaxQuery.getClauses()) {
+                clause.accept(this);
+            }
+            sb.append(')');
+            return null;
+        }
+
+        @Override
+        public Void visit(final Term term) {
+            // prefix the value with its length so that it cannot be confused with the query structure
+            final String field = term.getField();
+            final String value = term.getValue().toString();
+            sb.append('T').append(term.isGenerated() ? "+" : "");
+            if (term instanceof BoostedTerm) {
+                sb.append('^').append(((BoostedTerm) term).getBoost());
+            }
+            if (field != null) {
+                sb.append(field.length()).append('#').append(field);
+            }
+            sb.append(':').append(value.length()).append('#').append(value);
+            return null;
+        }
+
+        @Override
+        public Void visit(final MatchAllQuery query) {
+            sb.append("*:*");
+            return null;
+        }
+
+        @Override
+        public Void visit(final RawQuery rawQuery) {
+            cacheable = false;
+            return null;
+        }
+    }
+}
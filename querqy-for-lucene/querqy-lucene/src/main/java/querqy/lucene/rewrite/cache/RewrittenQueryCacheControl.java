@@ -0,0 +1,34 @@
+package querqy.lucene.rewrite.cache;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * <p>Can be implemented by a {@link querqy.rewrite.RewriterFactory} to control whether the results of a rewrite chain
+ * that contains its rewriters may be cached.</p>
+ *
+ * <p>A rewrite chain result is cached for the input query, the rewriter factory instances and the request parameters
+ * that start with 'querqy.'. Factories that read other request parameters must declare them in
+ * {@link #getRequestParamsForRewrittenQueryCacheKey()}. Factories whose rewriters depend on something else, for
+ * example on the index, must return false from {@link #isRewrittenQueryCacheable()}.</p>
+ *
+ * <p>Factories that don't implement this interface are treated as cacheable.</p>
+ */
+public interface RewrittenQueryCacheControl {
+
+    /**
+     * @return false if the output of the rewriters of this factory must not be cached
+     */
+    boolean isRewrittenQueryCacheable();
+
+    /**
+     * Get the names of the request parameters that the rewriters of this factory read in addition to the parameters
+     * that start with 'querqy.'. Names that end with '*' are treated as prefixes.
+     *
+     * @return The parameter names or name prefixes
+     */
+    default Set<String> getRequestParamsForRewrittenQueryCacheKey() {
+        return Collections.emptySet();
+    }
+
+}
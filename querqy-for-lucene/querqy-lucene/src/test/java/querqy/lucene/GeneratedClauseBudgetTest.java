@@ -0,0 +1,183 @@
+package querqy.lucene;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+import querqy.lucene.rewrite.SearchFieldsAndBoosting;
+import querqy.lucene.rewrite.SearchFieldsAndBoosting.FieldBoostModel;
+import querqy.lucene.rewrite.TestUtil;
+import querqy.model.BoostedTerm;
+import querqy.model.Clause.Occur;
+import querqy.model.DisjunctionMaxQuery;
+import querqy.model.Query;
+import querqy.model.Term;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class GeneratedClauseBudgetTest extends LuceneTestCase {
+
+    @Test
+    public void testThatQueryWithinBudgetIsNotChanged() {
+        final Query query = new Query();
+        final DisjunctionMaxQuery dmq = dmq(query, "a");
+        add(new Term(dmq, "a1", true));
+
+        assertThat(budget(1, GeneratedClauseBudget.NO_LIMIT, "f1").apply(query), empty());
+        assertThat(dmq.getClauses(), contains(new Term(dmq, "a"), new Term(dmq, "a1", true)));
+    }
+
+    @Test
+    public void testThatClausesWithLowestBoostAndLastPositionAreRemovedFirst() {
+
+        final Query query = new Query();
+        final DisjunctionMaxQuery dmq1 = dmq(query, "a");
+        final Term a1 = add(new Term(dmq1, "a1", true));
+        final Term a2 = add(new BoostedTerm(dmq1, "a2", 2f));
+        final DisjunctionMaxQuery dmq2 = dmq(query, "b");
+        final Term b1 = add(new Term(dmq2, "b1", true));
+
+        assertThat(budget(1, GeneratedClauseBudget.NO_LIMIT, "f1").apply(query), contains(b1, a1));
+        assertThat(dmq1.getClauses(), contains(new Term(dmq1, "a"), a2));
+        assertThat(dmq2.getClauses(), contains(new Term(dmq2, "b")));
+
+    }
+
+    @Test
+    public void testThatClausesPerSearchFieldAreCounted() {
+
+        final Query query = new Query();
+        final DisjunctionMaxQuery dmq = dmq(query, "a");
+        final Term a1 = add(new Term(dmq, "a1", true));
+        final Term a2 = add(new Term(dmq, "a2", true));
+
+        // 2 generated terms x 2 fields
+        assertThat(budget(GeneratedClauseBudget.NO_LIMIT, 4, "f1", "f2").apply(query), empty());
+        assertThat(budget(GeneratedClauseBudget.NO_LIMIT, 3, "f1", "f2").apply(query), contains(a2));
+        assertThat(dmq.getClauses(), contains(new Term(dmq, "a"), a1));
+
+    }
+
+    @Test
+    public void testThatOnlyClauseOfDmqIsNotRemoved() {
+
+        final Query query = new Query();
+        final DisjunctionMaxQuery dmq = new DisjunctionMaxQuery(query, Occur.SHOULD, true);
+        query.addClause(dmq);
+        final Term c1 = add(new Term(dmq, "c1", true));
+
+        assertThat(budget(0, 0, "f1").apply(query), empty());
+        assertThat(dmq.getClauses(), contains(c1));
+
+    }
+
+    @Test
+    public void testThatClausesWithLowerDocumentFrequencyAreRemovedFirst() throws Exception {
+
+        final Directory directory = new ByteBuffersDirectory();
+        final IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()));
+        TestUtil.addNumDocsWithTextField("f1", "a1", indexWriter, 1);
+        TestUtil.addNumDocsWithTextField("f1", "b1", indexWriter, 3);
+        indexWriter.close();
+
+        try (final IndexReader indexReader = DirectoryReader.open(directory)) {
+
+            final Query query = new Query();
+            final DisjunctionMaxQuery dmq1 = dmq(query, "a");
+            final Term a1 = add(new Term(dmq1, "a1", true));
+            final DisjunctionMaxQuery dmq2 = dmq(query, "b");
+            final Term b1 = add(new Term(dmq2, "b1", true));
+
+            assertThat(new GeneratedClauseBudget(1, GeneratedClauseBudget.NO_LIMIT, searchFields("f1"), indexReader)
+                    .apply(query), contains(a1));
+            assertThat(dmq2.getClauses(), contains(new Term(dmq2, "b"), b1));
+
+        }
+
+        directory.close();
+
+    }
+
+    @Test
+    public void testThatTermsAreAnalyzedBeforeLookingUpDocumentFrequency() throws Exception {
+
+        final Directory directory = new ByteBuffersDirectory();
+        final IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()));
+        TestUtil.addNumDocsWithTextField("f1", "a1", indexWriter, 1);
+        TestUtil.addNumDocsWithTextField("f1", "b1", indexWriter, 3);
+        indexWriter.close();
+
+        final Analyzer lowerCaseAnalyzer = new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(final String fieldName) {
+                final Tokenizer tokenizer = new WhitespaceTokenizer();
+                return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+            }
+        };
+
+        try (final IndexReader indexReader = DirectoryReader.open(directory)) {
+
+            final Query query = new Query();
+            final DisjunctionMaxQuery dmq1 = dmq(query, "a");
+            final Term a1 = add(new Term(dmq1, "a1", true));
+            final DisjunctionMaxQuery dmq2 = dmq(query, "b");
+            final Term b1 = add(new Term(dmq2, "B1", true));
+
+            // 'B1' would have document frequency 0 without analysis
+            assertThat(new GeneratedClauseBudget(1, GeneratedClauseBudget.NO_LIMIT, searchFields("f1"), indexReader,
+                    lowerCaseAnalyzer).apply(query), contains(a1));
+            assertThat(dmq2.getClauses(), contains(new Term(dmq2, "b"), b1));
+
+        }
+
+        directory.close();
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatNegativeBudgetIsRejected() {
+        budget(-1, 1, "f1");
+    }
+
+    private static GeneratedClauseBudget budget(final int maxGeneratedTerms, final int maxGeneratedClauses,
+                                                final String... generatedFields) {
+        return new GeneratedClauseBudget(maxGeneratedTerms, maxGeneratedClauses, searchFields(generatedFields), null);
+    }
+
+    private static SearchFieldsAndBoosting searchFields(final String... generatedFields) {
+        final Map<String, Float> queryFields = new HashMap<>();
+        queryFields.put("f1", 1f);
+        queryFields.put("f2", 1f);
+        final Map<String, Float> generatedQueryFields = new HashMap<>();
+        for (final String field : generatedFields) {
+            generatedQueryFields.put(field, 1f);
+        }
+        return new SearchFieldsAndBoosting(FieldBoostModel.FIXED, queryFields, generatedQueryFields, 1f);
+    }
+
+    private static DisjunctionMaxQuery dmq(final Query query, final String term) {
+        final DisjunctionMaxQuery dmq = new DisjunctionMaxQuery(query, Occur.SHOULD, false);
+        query.addClause(dmq);
+        dmq.addClause(new Term(dmq, term));
+        return dmq;
+    }
+
+    private static <T extends Term> T add(final T term) {
+        term.getParent().addClause(term);
+        return term;
+    }
+}
@@ -0,0 +1,226 @@
+package querqy.lucene;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.synonym.SynonymGraphFilter;
+import org.apache.lucene.analysis.synonym.SynonymMap;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.MultiPhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SynonymQuery;
+import org.apache.lucene.util.CharsRef;
+import org.apache.lucene.util.CharsRefBuilder;
+import org.apache.lucene.util.QueryBuilder;
+import org.junit.Test;
+import querqy.lucene.PhraseBoosting.AnalyzedSequence;
+import querqy.lucene.PhraseBoosting.NGramType;
+import querqy.lucene.PhraseBoosting.PhraseBoostFieldParams;
+import querqy.model.Clause.Occur;
+import querqy.parser.WhiteSpaceQuerqyParser;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class PhraseBoostingTest {
+
+    @Test
+    public void testThatSubsequenceQueriesAreTheSameAsWithSeparateAnalysis() throws Exception {
+
+        final SynonymMap.Builder synonyms = new SynonymMap.Builder(true);
+        synonyms.add(new CharsRef("b"), new CharsRef("bb"), true);
+        final SynonymMap synonymMap = synonyms.build();
+
+        final List<Analyzer> analyzers = Arrays.asList(
+                new WhitespaceAnalyzer(),
+                // splits 'wi-fi' into two tokens
+                analyzer(StandardTokenizer::new, stream -> new LowerCaseFilter(stream)),
+                analyzer(WhitespaceTokenizer::new, stream -> new StopFilter(stream,
+                        new CharArraySet(Collections.singleton("the"), false))),
+                analyzer(WhitespaceTokenizer::new, stream -> new SynonymGraphFilter(stream, synonymMap, true)),
+                analyzer(WhitespaceTokenizer::new, stream -> new SynonymGraphFilter(new StopFilter(stream,
+                        new CharArraySet(Collections.singleton("the"), false)), synonymMap, true)));
+
+        final List<String> sequence = Arrays.asList("a", "wi-fi", "the", "b", "C", "d");
+
+        for (final Analyzer analyzer : analyzers) {
+            final AnalyzedSequence analyzedSequence = new AnalyzedSequence(analyzer, "f1", sequence);
+            final QueryBuilder queryBuilder = new QueryBuilder(analyzer);
+            for (final int slop : new int[] {0, 2}) {
+                for (int from = 0; from < sequence.size(); from++) {
+                    for (int to = from + 1; to <= sequence.size(); to++) {
+                        assertEquals(analyzer + " [" + from + "," + to + ")",
+                                queryBuilder.createPhraseQuery("f1", String.join(" ", sequence.subList(from, to)),
+                                        slop),
+                                analyzedSequence.createPhraseQuery(queryBuilder, from, to, slop));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testThatTokenGraphIsAnalyzedByQueryBuilder() throws Exception {
+
+        final SynonymMap.Builder synonyms = new SynonymMap.Builder(true);
+        synonyms.add(new CharsRef("c"), SynonymMap.Builder.join(new String[] {"x", "y"}, new CharsRefBuilder()),
+                true);
+        final SynonymMap synonymMap = synonyms.build();
+        final Analyzer analyzer = analyzer(WhitespaceTokenizer::new,
+                stream -> new SynonymGraphFilter(stream, synonymMap, true));
+
+        final List<String> sequence = Arrays.asList("a", "b", "c", "d");
+        final AnalyzedSequence analyzedSequence = new AnalyzedSequence(analyzer, "f1", sequence);
+        assertTrue(analyzedSequence.isGraph);
+
+        final QueryBuilder queryBuilder = new QueryBuilder(analyzer);
+        assertEquals(queryBuilder.createPhraseQuery("f1", "b c", 1),
+                analyzedSequence.createPhraseQuery(queryBuilder, 1, 3, 1));
+        assertEquals(queryBuilder.createPhraseQuery("f1", "a b c d", 0),
+                analyzedSequence.createPhraseQuery(queryBuilder, 0, 4, 0));
+
+    }
+
+    @Test
+    public void testThatSynonymsAtSinglePositionAfterGapCreateMultiPhraseQuery() throws Exception {
+
+        final SynonymMap.Builder synonyms = new SynonymMap.Builder(true);
+        synonyms.add(new CharsRef("b"), new CharsRef("bb"), true);
+        final SynonymMap synonymMap = synonyms.build();
+        final Analyzer analyzer = analyzer(WhitespaceTokenizer::new, stream -> new StopFilter(
+                new SynonymGraphFilter(stream, synonymMap, true),
+                new CharArraySet(Collections.singleton("the"), false)));
+
+        final AnalyzedSequence analyzedSequence = new AnalyzedSequence(analyzer, "f1", Arrays.asList("a", "the", "b"));
+        final QueryBuilder queryBuilder = new QueryBuilder(analyzer);
+
+        // the QueryBuilder counts the gap of the removed stop word as a position
+        final Query phraseQuery = analyzedSequence.createPhraseQuery(queryBuilder, 1, 3, 0);
+        assertTrue(phraseQuery instanceof MultiPhraseQuery);
+        assertEquals(queryBuilder.createPhraseQuery("f1", "the b", 0), phraseQuery);
+
+        // without the gap, the synonyms are combined into a SynonymQuery
+        final Query synonymQuery = analyzedSequence.createPhraseQuery(queryBuilder, 2, 3, 0);
+        assertTrue(synonymQuery instanceof SynonymQuery);
+        assertEquals(queryBuilder.createPhraseQuery("f1", "b", 0), synonymQuery);
+
+    }
+
+    @Test
+    public void testThatTokensSpanningQueryTermsAreAnalyzedByQueryBuilder() throws Exception {
+
+        final Analyzer analyzer = new KeywordAnalyzer();
+        final AnalyzedSequence analyzedSequence = new AnalyzedSequence(analyzer, "f1", Arrays.asList("a", "b", "c"));
+        assertTrue(analyzedSequence.spansTerms);
+
+        final QueryBuilder queryBuilder = new QueryBuilder(analyzer);
+        for (int from = 0; from < 3; from++) {
+            for (int to = from + 1; to <= 3; to++) {
+                assertEquals(queryBuilder.createPhraseQuery("f1",
+                        String.join(" ", Arrays.asList("a", "b", "c").subList(from, to)), 0),
+                        analyzedSequence.createPhraseQuery(queryBuilder, from, to, 0));
+            }
+        }
+
+        final querqy.model.Query userQuery = new WhiteSpaceQuerqyParser().parse("a b c");
+        final Optional<Query> query = PhraseBoosting.makePhraseFieldsBoostQuery(userQuery,
+                Collections.singletonList(new PhraseBoostFieldParams("f1", NGramType.BI_GRAM, 0, 1f)), 0f, analyzer);
+
+        assertTrue(query.isPresent());
+        assertEquals("f1:a b f1:b c", query.get().toString());
+
+    }
+
+    @Test
+    public void testThatNoQueryIsCreatedWithoutTokens() {
+
+        final Analyzer analyzer = analyzer(WhitespaceTokenizer::new, stream -> new StopFilter(stream,
+                new CharArraySet(Collections.singleton("the"), false)));
+        final AnalyzedSequence analyzedSequence = new AnalyzedSequence(analyzer, "f1",
+                Arrays.asList("a", "the", "the", "b"));
+        assertNull(analyzedSequence.createPhraseQuery(new QueryBuilder(analyzer), 1, 3, 0));
+
+    }
+
+    @Test
+    public void testThatSequenceIsAnalyzedOncePerField() {
+
+        final AtomicInteger numAnalyzed = new AtomicInteger();
+        final Analyzer analyzer = analyzer(WhitespaceTokenizer::new, stream -> new TokenFilter(stream) {
+
+            @Override
+            public boolean incrementToken() throws IOException {
+                return input.incrementToken();
+            }
+
+            @Override
+            public void reset() throws IOException {
+                super.reset();
+                numAnalyzed.incrementAndGet();
+            }
+        });
+
+        final querqy.model.Query userQuery = new WhiteSpaceQuerqyParser().parse("a b c d e f g h");
+
+        final List<PhraseBoostFieldParams> params = Arrays.asList(
+                new PhraseBoostFieldParams("f1", NGramType.PHRASE, 0, 1f),
+                new PhraseBoostFieldParams("f2", NGramType.PHRASE, 0, 1f),
+                new PhraseBoostFieldParams("f1", NGramType.BI_GRAM, 0, 1f),
+                new PhraseBoostFieldParams("f2", NGramType.BI_GRAM, 0, 1f),
+                new PhraseBoostFieldParams("f1", NGramType.TRI_GRAM, 0, 1f),
+                new PhraseBoostFieldParams("f2", NGramType.TRI_GRAM, 0, 1f));
+
+        final Optional<Query> query = PhraseBoosting.makePhraseFieldsBoostQuery(userQuery, params, 0f, analyzer);
+
+        assertTrue(query.isPresent());
+        assertEquals(6, ((DisjunctionMaxQuery) query.get()).getDisjuncts().size());
+        assertEquals(2, numAnalyzed.get());
+
+    }
+
+    @Test
+    public void testThatNegativeClausesAreIgnored() {
+
+        final querqy.model.Query userQuery = new WhiteSpaceQuerqyParser().parse("a -b c");
+        assertEquals(Occur.MUST_NOT, ((querqy.model.DisjunctionMaxQuery) userQuery.getClauses().get(1)).occur);
+
+        final Optional<Query> query = PhraseBoosting.makePhraseFieldsBoostQuery(userQuery,
+                Collections.singletonList(new PhraseBoostFieldParams("f1", NGramType.PHRASE, 0, 1f)), 0f,
+                new WhitespaceAnalyzer());
+
+        assertEquals(Optional.of(new QueryBuilder(new WhitespaceAnalyzer()).createPhraseQuery("f1", "a c")), query);
+
+    }
+
+    private static Analyzer analyzer(final Supplier<Tokenizer> tokenizerSupplier,
+                                     final TokenFilterFactory filterFactory) {
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(final String fieldName) {
+                final Tokenizer tokenizer = tokenizerSupplier.get();
+                return new TokenStreamComponents(tokenizer, filterFactory.create(tokenizer));
+            }
+        };
+    }
+
+    private interface TokenFilterFactory {
+        TokenStream create(TokenStream stream);
+    }
+}
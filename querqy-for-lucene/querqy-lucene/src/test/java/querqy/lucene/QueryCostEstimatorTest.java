@@ -0,0 +1,186 @@
+package querqy.lucene;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import querqy.lucene.rewrite.SearchFieldsAndBoosting;
+import querqy.lucene.rewrite.SearchFieldsAndBoosting.FieldBoostModel;
+import querqy.lucene.rewrite.TestUtil;
+import querqy.model.BoostQuery;
+import querqy.model.Clause.Occur;
+import querqy.model.DisjunctionMaxQuery;
+import querqy.model.MatchAllQuery;
+import querqy.model.Query;
+import querqy.model.Term;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+public class QueryCostEstimatorTest extends LuceneTestCase {
+
+    private Directory directory;
+    private IndexReader indexReader;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        directory = new ByteBuffersDirectory();
+        final IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()));
+        TestUtil.addNumDocsWithTextField("f1", "a", indexWriter, 2);
+        TestUtil.addNumDocsWithTextField("f2", "a", indexWriter, 1);
+        TestUtil.addNumDocsWithTextField("f1", "b1", indexWriter, 3);
+        TestUtil.addNumDocsWithTextField("f1", "b2", indexWriter, 5);
+        TestUtil.addNumDocsWithTextField("f1", "b3", indexWriter, 4);
+        indexWriter.close();
+        indexReader = DirectoryReader.open(directory);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        indexReader.close();
+        directory.close();
+        super.tearDown();
+    }
+
+    @Test
+    public void testThatDocumentFrequenciesAreSummedUpOverTermsAndSearchFields() {
+
+        final Query query = new Query();
+        final DisjunctionMaxQuery dmq = dmq(query, "a");
+        add(new Term(dmq, "b1", true));
+        add(new Term(dmq, "missing", true));
+
+        // a: 2 (f1) + 1 (f2), b1: 3 (f1 only)
+        assertEquals(6L, estimator().estimate(query));
+        assertEquals(15L, estimator().estimate(new MatchAllQuery()));
+
+    }
+
+    @Test
+    public void testEstimateBoostQueries() {
+
+        final Query boost1 = new Query();
+        dmq(boost1, "a");
+        final Query boost2 = new Query();
+        dmq(boost2, "b2");
+
+        assertEquals(8L, estimator().estimate(Arrays.asList(new BoostQuery(boost1, 2f), new BoostQuery(boost2, 1f))));
+        assertEquals(0L, estimator().estimate((Collection<BoostQuery>) null));
+
+    }
+
+    @Test
+    public void testEstimateLuceneQuery() {
+
+        final BooleanQuery query = new BooleanQuery.Builder()
+                .add(new TermQuery(new org.apache.lucene.index.Term("f1", "b1")), BooleanClause.Occur.SHOULD)
+                .add(new PhraseQuery("f1", "a", "b2"), BooleanClause.Occur.SHOULD)
+                .add(new TermQuery(new org.apache.lucene.index.Term("f2", "a")), BooleanClause.Occur.MUST_NOT)
+                .build();
+
+        assertEquals(11L, estimator().estimate(query));
+
+    }
+
+    @Test
+    public void testThatGeneratedClausesWithHighestCostAreRemovedFirst() {
+
+        final Query query = new Query();
+        final DisjunctionMaxQuery dmq1 = dmq(query, "a");
+        final Term b1 = add(new Term(dmq1, "b1", true));
+        final Term b2 = add(new Term(dmq1, "b2", true));
+        final DisjunctionMaxQuery dmq2 = dmq(query, "a");
+        final Term b3 = add(new Term(dmq2, "b3", true));
+
+        final QueryCostEstimator estimator = estimator();
+        assertEquals(18L, estimator.estimate(query));
+
+        assertThat(estimator.removeGeneratedClauses(query, 0L), empty());
+        assertThat(estimator.removeGeneratedClauses(query, 6L), contains(b2, b3));
+        assertThat(dmq1.getClauses(), contains(new Term(dmq1, "a"), b1));
+        assertThat(dmq2.getClauses(), contains(new Term(dmq2, "a")));
+        assertEquals(9L, estimator.estimate(query));
+
+    }
+
+    @Test
+    public void testThatOnlyClauseOfDmqIsNotRemoved() {
+
+        final Query query = new Query();
+        final DisjunctionMaxQuery dmq = new DisjunctionMaxQuery(query, Occur.SHOULD, true);
+        query.addClause(dmq);
+        final Term b1 = add(new Term(dmq, "b1", true));
+
+        assertThat(estimator().removeGeneratedClauses(query, 10L), empty());
+        assertThat(dmq.getClauses(), contains(b1));
+
+    }
+
+    @Test
+    public void testThatTermsAreAnalyzedBeforeLookingUpDocumentFrequency() {
+
+        final Query query = new Query();
+        dmq(query, "B1");
+
+        final Analyzer lowerCaseAnalyzer = new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(final String fieldName) {
+                final Tokenizer tokenizer = new WhitespaceTokenizer();
+                return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+            }
+        };
+
+        assertEquals(0L, estimator().estimate(query));
+        assertEquals(3L, new QueryCostEstimator(searchFields(), indexReader, lowerCaseAnalyzer)
+                .estimate(query));
+
+    }
+
+    private QueryCostEstimator estimator() {
+        return new QueryCostEstimator(searchFields(), indexReader);
+    }
+
+    private static SearchFieldsAndBoosting searchFields() {
+        final Map<String, Float> queryFields = new HashMap<>();
+        queryFields.put("f1", 1f);
+        queryFields.put("f2", 1f);
+        final Map<String, Float> generatedQueryFields = new HashMap<>();
+        generatedQueryFields.put("f1", 1f);
+        return new SearchFieldsAndBoosting(FieldBoostModel.FIXED, queryFields, generatedQueryFields, 1f);
+    }
+
+    private static DisjunctionMaxQuery dmq(final Query query, final String term) {
+        final DisjunctionMaxQuery dmq = new DisjunctionMaxQuery(query, Occur.SHOULD, false);
+        query.addClause(dmq);
+        dmq.addClause(new Term(dmq, term));
+        return dmq;
+    }
+
+    private static <T extends Term> T add(final T term) {
+        term.getParent().addClause(term);
+        return term;
+    }
+}
@@ -0,0 +1,206 @@
+package querqy.lucene.contrib.rewrite.numberunit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import querqy.model.BoostQuery;
+import querqy.rewrite.contrib.numberunit.model.FieldDefinition;
+import querqy.rewrite.contrib.numberunit.model.NumberUnitDefinition;
+import querqy.rewrite.contrib.numberunit.model.PerUnitNumberUnitDefinition;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class NumberUnitQueryCreatorLuceneTest extends LuceneTestCase {
+
+    private final NumberUnitQueryCreatorLucene numberUnitQueryCreator = new NumberUnitQueryCreatorLucene(3);
+
+    private final NumericFieldQueryFactory fieldQueryFactory = new PointFieldQueryFactory(
+            new HashMap<String, PointFieldQueryFactory.NumberType>() {{
+                put("screen_size", PointFieldQueryFactory.NumberType.DOUBLE);
+                put("width", PointFieldQueryFactory.NumberType.INT);
+            }});
+
+    private Directory directory;
+    private IndexReader indexReader;
+    private IndexSearcher searcher;
+
+    @Before
+    public void setUpIndex() throws IOException {
+        directory = newDirectory();
+        final RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory, new WhitespaceAnalyzer());
+        addDoc(indexWriter, "1", 38.0, 39);
+        addDoc(indexWriter, "2", 45.0, 40);
+        addDoc(indexWriter, "3", 50.0, 50);
+        addDoc(indexWriter, "4", 55.0, 60);
+        addDoc(indexWriter, "5", 61.0, 61);
+        addDoc(indexWriter, "6", null, null);
+        indexWriter.close();
+        indexReader = DirectoryReader.open(directory);
+        searcher = newSearcher(indexReader);
+    }
+
+    @After
+    public void tearDownIndex() throws IOException {
+        indexReader.close();
+        directory.close();
+    }
+
+    @Test
+    public void testCreateFilterQuery() {
+
+        final NumericRangeFilterQuery filterQuery = numberUnitQueryCreator.createFilterQuery(BigDecimal.valueOf(50),
+                Collections.singletonList(createPerUnitNumberUnitDefinitionForFilters("width", 20, 20)));
+
+        assertThat(filterQuery.getRanges(), contains(
+                new NumericRange("width", new BigDecimal("40.00"), true, new BigDecimal("60.00"), true)));
+
+        assertThat(numberUnitQueryCreator.createFilterQuery(BigDecimal.valueOf(100),
+                Collections.singletonList(createPerUnitNumberUnitDefinitionForFilters("width", -1, 30))).getRanges(),
+                contains(new NumericRange("width", new BigDecimal("70.00"), true, null, true)));
+
+    }
+
+    @Test
+    public void testFilterQueryMatchesRange() throws IOException {
+
+        final Query query = numberUnitQueryCreator.createFilterQuery(BigDecimal.valueOf(50),
+                Collections.singletonList(createPerUnitNumberUnitDefinitionForFilters("width", 20, 20)))
+                .toLuceneQuery(fieldQueryFactory);
+
+        assertThat(search(query).keySet(), containsInAnyOrder("2", "3", "4"));
+
+    }
+
+    @Test
+    public void testBoostQueryScores() throws IOException {
+
+        final BoostQuery boostQuery = numberUnitQueryCreator.createBoostQuery(BigDecimal.valueOf(50),
+                Collections.singletonList(createPerUnitNumberUnitDefinitionForBoosts()));
+
+        assertThat(boostQuery.getQuery(), instanceOf(NumericBoostQuery.class));
+
+        final Map<String, Float> scores = search(((NumericBoostQuery) boostQuery.getQuery())
+                .toLuceneQuery(fieldQueryFactory));
+
+        assertEquals(6, scores.size());
+        assertEquals(0f, scores.get("1"), 0f);
+        assertEquals(17f, scores.get("2"), 0f);
+        assertEquals(30f, scores.get("3"), 0f);
+        assertEquals(17f, scores.get("4"), 0f);
+        assertEquals(0f, scores.get("5"), 0f);
+        assertEquals(0f, scores.get("6"), 0f);
+
+    }
+
+    @Test
+    public void testBoostQuerySegments() {
+
+        final BoostQuery boostQuery = numberUnitQueryCreator.createBoostQuery(BigDecimal.valueOf(50),
+                Collections.singletonList(createPerUnitNumberUnitDefinitionForBoosts()));
+
+        final List<NumericBoostQuery.ScoreFunction> scoreFunctions =
+                ((NumericBoostQuery) boostQuery.getQuery()).getScoreFunctions();
+        assertThat(scoreFunctions, hasSize(1));
+
+        final List<NumericBoostQuery.Segment> segments = scoreFunctions.get(0).segments;
+        assertThat(segments, contains(
+                new NumericBoostQuery.Segment(new NumericRange("screen_size", new BigDecimal("40.00"), true,
+                        new BigDecimal("47.50"), false), new BigDecimal("1.333"), new BigDecimal("-43.320")),
+                NumericBoostQuery.Segment.constant(new NumericRange("screen_size", new BigDecimal("47.50"), true,
+                        new BigDecimal("52.50"), true), BigDecimal.valueOf(30)),
+                new NumericBoostQuery.Segment(new NumericRange("screen_size", new BigDecimal("52.50"), false,
+                        new BigDecimal("60.00"), true), new BigDecimal("-1.333"), new BigDecimal("89.980"))));
+
+    }
+
+    private Map<String, Float> search(final Query query) throws IOException {
+        final TopDocs topDocs = searcher.search(query, 10);
+        final Map<String, Float> scores = new HashMap<>();
+        for (final ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            scores.put(searcher.doc(scoreDoc.doc).get("id"), scoreDoc.score);
+        }
+        return scores;
+    }
+
+    private static void addDoc(final RandomIndexWriter indexWriter, final String id, final Double screenSize,
+                               final Integer width) throws IOException {
+        final Document doc = new Document();
+        doc.add(new StringField("id", id, Field.Store.YES));
+        if (screenSize != null) {
+            doc.add(new DoublePoint("screen_size", screenSize));
+            doc.add(new DoubleDocValuesField("screen_size", screenSize));
+        }
+        if (width != null) {
+            doc.add(new IntPoint("width", width));
+            doc.add(new NumericDocValuesField("width", width));
+        }
+        indexWriter.addDocument(doc);
+    }
+
+    private PerUnitNumberUnitDefinition createPerUnitNumberUnitDefinitionForFilters(final String field,
+                                                                                    final double percentageUp,
+                                                                                    final double percentageDown) {
+        return new PerUnitNumberUnitDefinition(
+                NumberUnitDefinition.builder()
+                        .addUnits(Collections.emptyList())
+                        .addFields(Collections.singletonList(new FieldDefinition(field, 2)))
+                        .setFilterPercentageUpperBoundary(BigDecimal.valueOf(percentageUp))
+                        .setFilterPercentageLowerBoundary(BigDecimal.valueOf(percentageDown))
+                        .setMaxScoreForExactMatch(BigDecimal.ONE)
+                        .setAdditionalScoreForExactMatch(BigDecimal.ONE)
+                        .setMinScoreAtUpperBoundary(BigDecimal.ONE)
+                        .setMinScoreAtLowerBoundary(BigDecimal.ONE)
+                        .setBoostPercentageUpperBoundary(BigDecimal.ONE)
+                        .setBoostPercentageLowerBoundary(BigDecimal.ONE)
+                        .setBoostPercentageUpperBoundaryExactMatch(BigDecimal.ONE)
+                        .setBoostPercentageLowerBoundaryExactMatch(BigDecimal.ONE)
+                        .build(),
+                BigDecimal.ONE);
+    }
+
+    private PerUnitNumberUnitDefinition createPerUnitNumberUnitDefinitionForBoosts() {
+        return new PerUnitNumberUnitDefinition(
+                NumberUnitDefinition.builder()
+                        .addUnits(Collections.emptyList())
+                        .addFields(Collections.singletonList(new FieldDefinition("screen_size", 2)))
+                        .setMaxScoreForExactMatch(BigDecimal.valueOf(20))
+                        .setAdditionalScoreForExactMatch(BigDecimal.valueOf(10))
+                        .setMinScoreAtUpperBoundary(BigDecimal.valueOf(10))
+                        .setMinScoreAtLowerBoundary(BigDecimal.valueOf(10))
+                        .setBoostPercentageUpperBoundary(BigDecimal.valueOf(20))
+                        .setBoostPercentageLowerBoundary(BigDecimal.valueOf(20))
+                        .setBoostPercentageUpperBoundaryExactMatch(BigDecimal.valueOf(5))
+                        .setBoostPercentageLowerBoundaryExactMatch(BigDecimal.valueOf(5))
+                        .setFilterPercentageUpperBoundary(BigDecimal.ONE)
+                        .setFilterPercentageLowerBoundary(BigDecimal.ONE)
+                        .build(),
+                BigDecimal.ONE);
+    }
+}
@@ -0,0 +1,65 @@
+package querqy.lucene.contrib.rewrite.wordbreak;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.lucene.index.IndexReader;
+import org.junit.Test;
+import querqy.model.DisjunctionMaxQuery;
+import querqy.model.Term;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CachingCompounderTest {
+
+    @Test
+    public void testThatCompoundsReferenceTheTermsOfTheCurrentRequest() throws IOException {
+
+        final IndexReader indexReader = mock(IndexReader.class);
+        final LuceneCompounder delegate = mock(LuceneCompounder.class);
+
+        final Term[] terms1 = terms("Laufschuhe", "Herren");
+        when(delegate.combine(terms1, indexReader, true)).thenReturn(Collections.singletonList(
+                new LuceneCompounder.CompoundTerm("herrenlaufschuhe", new Term[] {terms1[1], terms1[0]})));
+
+        final CachingCompounder compounder = new CachingCompounder(delegate, true, 10);
+
+        final List<LuceneCompounder.CompoundTerm> result1 = compounder.combine(terms1, indexReader, true);
+        assertThat(result1, hasSize(1));
+        assertEquals("herrenlaufschuhe", result1.get(0).value);
+        assertThat(result1.get(0).originalTerms, arrayContaining(terms1[1], terms1[0]));
+
+        // different case, served from cache
+        final Term[] terms2 = terms("laufschuhe", "HERREN");
+        final List<LuceneCompounder.CompoundTerm> result2 = compounder.combine(terms2, indexReader, true);
+        assertThat(result2, hasSize(1));
+        assertEquals("herrenlaufschuhe", result2.get(0).value);
+        assertSame(terms2[1], result2.get(0).originalTerms[0]);
+        assertSame(terms2[0], result2.get(0).originalTerms[1]);
+
+        verify(delegate, times(1)).combine(any(), any(), anyBoolean());
+
+        // the direction is part of the key
+        when(delegate.combine(any(), any(), eq(false))).thenReturn(Collections.emptyList());
+        assertThat(compounder.combine(terms2, indexReader, false), hasSize(0));
+        verify(delegate, times(2)).combine(any(), any(), anyBoolean());
+
+    }
+
+    private static Term[] terms(final String... values) {
+        return Arrays.stream(values).map(value -> new Term((DisjunctionMaxQuery) null, value)).toArray(Term[]::new);
+    }
+}
@@ -0,0 +1,68 @@
+package querqy.lucene.contrib.rewrite.wordbreak;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.lucene.index.IndexReader;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+public class CachingWordBreakerTest {
+
+    @Test
+    public void testThatResultsAreCachedPerReader() throws IOException {
+
+        final IndexReader indexReader1 = mock(IndexReader.class);
+        final IndexReader indexReader2 = mock(IndexReader.class);
+        final LuceneWordBreaker delegate = mock(LuceneWordBreaker.class);
+        when(delegate.breakWord(any(), any(), anyInt(), anyBoolean()))
+                .thenReturn(Collections.singletonList(new CharSequence[] {"damen", "schuhe"}));
+
+        final CachingWordBreaker wordBreaker = new CachingWordBreaker(delegate, true, 10);
+
+        assertThat(wordBreaker.breakWord("Damenschuhe", indexReader1, 3, true), contains(
+                arrayContaining((CharSequence) "damen", "schuhe")));
+        assertThat(wordBreaker.breakWord("damenschuhe", indexReader1, 3, true), hasSize(1));
+        verify(delegate, times(1)).breakWord(any(), any(), anyInt(), anyBoolean());
+
+        // the searcher has changed
+        assertThat(wordBreaker.breakWord("damenschuhe", indexReader2, 3, true), hasSize(1));
+        verify(delegate, times(2)).breakWord(any(), any(), anyInt(), anyBoolean());
+
+    }
+
+    @Test
+    public void testThatResultsAreCachedPerDictionary() throws IOException {
+
+        final IndexReader indexReader = mock(IndexReader.class);
+        final LuceneWordBreaker delegate = mock(LuceneWordBreaker.class);
+        when(delegate.breakWord(any(), any(), anyInt(), anyBoolean()))
+                .thenReturn(Collections.singletonList(new CharSequence[] {"damen", "schuhe"}));
+        final Object previousDictionary = new Object();
+        final Object currentDictionary = new Object();
+        when(delegate.getCacheScope(indexReader)).thenReturn(previousDictionary, previousDictionary,
+                currentDictionary);
+
+        final CachingWordBreaker wordBreaker = new CachingWordBreaker(delegate, true, 10);
+
+        assertThat(wordBreaker.breakWord("damenschuhe", indexReader, 3, true), hasSize(1));
+        assertThat(wordBreaker.breakWord("damenschuhe", indexReader, 3, true), hasSize(1));
+        verify(delegate, times(1)).breakWord(any(), any(), anyInt(), anyBoolean());
+
+        // the dictionary for the reader has been built
+        assertThat(wordBreaker.breakWord("damenschuhe", indexReader, 3, true), hasSize(1));
+        verify(delegate, times(2)).breakWord(any(), any(), anyInt(), anyBoolean());
+
+    }
+}
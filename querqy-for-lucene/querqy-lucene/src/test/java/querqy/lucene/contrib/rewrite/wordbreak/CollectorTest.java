@@ -0,0 +1,114 @@
+package querqy.lucene.contrib.rewrite.wordbreak;
+
+import static querqy.lucene.rewrite.TestUtil.addNumDocsWithTextField;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+public class CollectorTest extends LuceneTestCase {
+
+    @Test
+    public void testThatCooccurrenceInDeletedDocIsIgnored() throws IOException {
+
+        try (final Directory directory = newDirectory();
+             final IndexWriter indexWriter = new IndexWriter(directory,
+                     new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+
+            final Document doc1 = new Document();
+            doc1.add(newStringField("id", "1", Field.Store.NO));
+            doc1.add(newTextField("f1", "abc def", Field.Store.NO));
+            indexWriter.addDocument(doc1);
+            addNumDocsWithTextField("f1", "abc", indexWriter, 3);
+            addNumDocsWithTextField("f1", "def", indexWriter, 3);
+            indexWriter.commit();
+
+            try (final IndexReader indexReader = DirectoryReader.open(directory)) {
+                final Collector collector = new Collector(1, 5, 10, true, indexReader, null,
+                        new IndexReaderScopedCache<>(10), "f1", 0.2f);
+                assertTrue(collector.collect("abc", "def", new Term("f1", "def"), 4, 1f).getMatched().get());
+            }
+
+            indexWriter.deleteDocuments(new Term("id", "1"));
+            indexWriter.commit();
+
+            try (final IndexReader indexReader = DirectoryReader.open(directory)) {
+                assertEquals(1, indexReader.leaves().size());
+                assertTrue(indexReader.hasDeletions());
+                final Collector collector = new Collector(1, 5, 10, true, indexReader, null,
+                        new IndexReaderScopedCache<>(10), "f1", 0.2f);
+                assertFalse(collector.collect("abc", "def", new Term("f1", "def"), 4, 1f).getMatched().get());
+                assertTrue(collector.flushResults().isEmpty());
+            }
+        }
+
+    }
+
+    @Test
+    public void testThatVerificationMatchesBruteForceIntersection() throws IOException {
+
+        final Directory directory = newDirectory();
+        final RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory, new WhitespaceAnalyzer());
+
+        final int numDocs = atLeast(200);
+        final boolean[][] contains = new boolean[4][numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            final StringBuilder sb = new StringBuilder("x");
+            for (int t = 0; t < 4; t++) {
+                // make co-occurrences rare
+                if (random().nextInt(10 * (t + 1)) == 0) {
+                    contains[t][i] = true;
+                    sb.append(' ').append(word(t));
+                }
+            }
+            final Document doc = new Document();
+            doc.add(newTextField("f1", sb.toString(), Field.Store.NO));
+            indexWriter.addDocument(doc);
+        }
+        indexWriter.close();
+
+        try (final IndexReader indexReader = DirectoryReader.open(directory)) {
+
+            final IndexReaderScopedCache<Collector.TermPair, Boolean> cache = new IndexReaderScopedCache<>(100);
+
+            for (int t1 = 0; t1 < 4; t1++) {
+                for (int t2 = 0; t2 < 4; t2++) {
+                    if (t1 == t2) {
+                        continue;
+                    }
+                    boolean expected = false;
+                    for (int i = 0; i < numDocs && !expected; i++) {
+                        expected = contains[t1][i] && contains[t2][i];
+                    }
+
+                    final Collector collector = new Collector(0, 5, 10, true, indexReader, null, cache, "f1", 0f);
+                    final int df = indexReader.docFreq(new Term("f1", new BytesRef(word(t2))));
+                    collector.collect(word(t1), word(t2), new Term("f1", word(t2)), df, 1f);
+                    final List<CharSequence[]> results = collector.flushResults();
+                    assertEquals(word(t1) + " " + word(t2), expected, !results.isEmpty());
+                }
+            }
+
+        } finally {
+            directory.close();
+        }
+
+    }
+
+    private static String word(final int i) {
+        return "w" + i;
+    }
+}
@@ -0,0 +1,159 @@
+package querqy.lucene.contrib.rewrite.wordbreak;
+
+import static querqy.lucene.rewrite.TestUtil.addNumDocsWithTextField;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DocFreqDictionaryProviderTest extends LuceneTestCase {
+
+    @Test
+    public void testThatDictionaryIsBuiltInBackgroundOncePerReader() throws IOException {
+
+        final List<Runnable> tasks = new ArrayList<>();
+        final DocFreqDictionaryProvider provider = new DocFreqDictionaryProvider("f1", 1, 0L, tasks::add);
+
+        try (final Directory directory = newDirectory();
+             final IndexWriter indexWriter = new IndexWriter(directory,
+                     new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+
+            addNumDocsWithTextField("f1", "abc def", indexWriter, 2);
+            indexWriter.commit();
+
+            try (final DirectoryReader reader1 = DirectoryReader.open(directory)) {
+
+                // not built yet
+                assertFalse(provider.getDictionary(reader1).isPresent());
+                assertFalse(provider.getDictionary(reader1).isPresent());
+                assertEquals(1, tasks.size());
+
+                tasks.remove(0).run();
+
+                final Optional<DocFreqDictionary> dictionary1 = provider.getDictionary(reader1);
+                assertTrue(dictionary1.isPresent());
+                assertEquals(2, dictionary1.get().docFreq(new BytesRef("abc")));
+                assertSame(dictionary1.get(), provider.getDictionary(reader1).get());
+                assertTrue(tasks.isEmpty());
+
+                addNumDocsWithTextField("f1", "abc", indexWriter, 1);
+                indexWriter.commit();
+
+                try (final DirectoryReader reader2 = DirectoryReader.openIfChanged(reader1)) {
+
+                    // the dictionary of reader1 is used until the dictionary of reader2 has been built
+                    assertSame(dictionary1.get(), provider.getDictionary(reader2).get());
+                    assertEquals(1, tasks.size());
+                    tasks.remove(0).run();
+
+                    final Optional<DocFreqDictionary> dictionary2 = provider.getDictionary(reader2);
+                    assertTrue(dictionary2.isPresent());
+                    assertEquals(3, dictionary2.get().docFreq(new BytesRef("abc")));
+
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testThatDictionaryIsRebuiltAtMostOncePerInterval() throws IOException {
+
+        final List<Runnable> tasks = new ArrayList<>();
+        final AtomicLong now = new AtomicLong(100000L);
+        final DocFreqDictionaryProvider provider = new DocFreqDictionaryProvider("f1", 1, 1000L, tasks::add) {
+            @Override
+            protected long currentTimeMillis() {
+                return now.get();
+            }
+        };
+
+        try (final Directory directory = newDirectory();
+             final IndexWriter indexWriter = new IndexWriter(directory,
+                     new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+
+            addNumDocsWithTextField("f1", "abc def", indexWriter, 2);
+            indexWriter.commit();
+
+            try (final DirectoryReader reader1 = DirectoryReader.open(directory)) {
+
+                assertFalse(provider.getDictionary(reader1).isPresent());
+                tasks.remove(0).run();
+                final DocFreqDictionary dictionary1 = provider.getDictionary(reader1).get();
+
+                addNumDocsWithTextField("f1", "abc", indexWriter, 1);
+                indexWriter.commit();
+
+                try (final DirectoryReader reader2 = DirectoryReader.openIfChanged(reader1)) {
+
+                    now.addAndGet(999L);
+                    assertSame(dictionary1, provider.getDictionary(reader2).get());
+                    assertTrue(tasks.isEmpty());
+
+                    now.addAndGet(1L);
+                    assertSame(dictionary1, provider.getDictionary(reader2).get());
+                    assertEquals(1, tasks.size());
+                    tasks.remove(0).run();
+
+                    assertEquals(3, provider.getDictionary(reader2).get().docFreq(new BytesRef("abc")));
+
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testThatClosedProviderDoesNotBuildDictionaries() throws IOException {
+
+        final DocFreqDictionaryProvider provider = new DocFreqDictionaryProvider("f1", 1);
+
+        try (final Directory directory = newDirectory();
+             final IndexWriter indexWriter = new IndexWriter(directory,
+                     new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+
+            addNumDocsWithTextField("f1", "abc def", indexWriter, 2);
+            indexWriter.commit();
+
+            provider.close();
+
+            try (final DirectoryReader reader = DirectoryReader.open(directory)) {
+                assertFalse(provider.getDictionary(reader).isPresent());
+            }
+        }
+    }
+
+    @Test
+    public void testThatClosedReaderIsNotRetried() throws IOException {
+
+        final List<Runnable> tasks = new ArrayList<>();
+        final DocFreqDictionaryProvider provider = new DocFreqDictionaryProvider("f1", 1, tasks::add);
+
+        try (final Directory directory = newDirectory();
+             final IndexWriter indexWriter = new IndexWriter(directory,
+                     new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+
+            addNumDocsWithTextField("f1", "abc def", indexWriter, 2);
+            indexWriter.commit();
+
+            final DirectoryReader reader = DirectoryReader.open(directory);
+            assertFalse(provider.getDictionary(reader).isPresent());
+            reader.close();
+
+            tasks.remove(0).run();
+            assertFalse(provider.getDictionary(reader).isPresent());
+            assertTrue(tasks.isEmpty());
+        }
+
+    }
+
+}
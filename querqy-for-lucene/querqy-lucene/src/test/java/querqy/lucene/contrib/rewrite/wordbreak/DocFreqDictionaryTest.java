@@ -0,0 +1,100 @@
+package querqy.lucene.contrib.rewrite.wordbreak;
+
+import static querqy.lucene.rewrite.TestUtil.addNumDocsWithTextField;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class DocFreqDictionaryTest extends LuceneTestCase {
+
+    @Test
+    public void testThatDocFreqsEqualIndexDocFreqs() throws IOException {
+
+        final Analyzer analyzer = new WhitespaceAnalyzer();
+        final Directory directory = newDirectory();
+        final RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory, analyzer);
+
+        addNumDocsWithTextField("f1", "abc def", indexWriter, 4);
+        indexWriter.commit();
+        addNumDocsWithTextField("f1", "abc cdef", indexWriter, 10);
+        addNumDocsWithTextField("f2", "xyz", indexWriter, 3);
+
+        indexWriter.close();
+
+        try (final IndexReader indexReader = DirectoryReader.open(directory)) {
+
+            final DocFreqDictionary dictionary = DocFreqDictionary.build(indexReader, "f1", 1);
+            assertEquals(3, dictionary.size());
+            assertTrue(dictionary.ramBytesUsed() > 0L);
+
+            for (final String term : Arrays.asList("abc", "def", "cdef", "ab", "abcd", "xyz", "")) {
+                assertEquals(term, indexReader.docFreq(new Term("f1", term)),
+                        dictionary.docFreq(new BytesRef(term)));
+            }
+
+        } finally {
+            directory.close();
+        }
+
+    }
+
+    @Test
+    public void testThatTermsBelowMinDocFreqAreNotStored() throws IOException {
+
+        final Analyzer analyzer = new WhitespaceAnalyzer();
+        final Directory directory = newDirectory();
+        final RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory, analyzer);
+
+        addNumDocsWithTextField("f1", "abc def", indexWriter, 4);
+        addNumDocsWithTextField("f1", "abc", indexWriter, 1);
+
+        indexWriter.close();
+
+        try (final IndexReader indexReader = DirectoryReader.open(directory)) {
+
+            final DocFreqDictionary dictionary = DocFreqDictionary.build(indexReader, "f1", 5);
+            assertEquals(1, dictionary.size());
+            assertEquals(5, dictionary.docFreq(new BytesRef("abc")));
+            assertEquals(0, dictionary.docFreq(new BytesRef("def")));
+
+        } finally {
+            directory.close();
+        }
+
+    }
+
+    @Test
+    public void testMissingField() throws IOException {
+
+        final Analyzer analyzer = new WhitespaceAnalyzer();
+        final Directory directory = newDirectory();
+        final RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory, analyzer);
+
+        addNumDocsWithTextField("f1", "abc def", indexWriter, 4);
+
+        indexWriter.close();
+
+        try (final IndexReader indexReader = DirectoryReader.open(directory)) {
+
+            final DocFreqDictionary dictionary = DocFreqDictionary.build(indexReader, "f2", 1);
+            assertEquals(0, dictionary.size());
+            assertEquals(0L, dictionary.ramBytesUsed());
+            assertEquals(0, dictionary.docFreq(new BytesRef("abc")));
+
+        } finally {
+            directory.close();
+        }
+
+    }
+}
@@ -109,6 +109,43 @@ public class GermanWordBreakerTest extends LuceneTestCase {
 
     }
 
+    @Test
+    public void testNoLinkingMorphemeWithPrecomputedDictionary() throws IOException {
+
+        final Analyzer analyzer = new WhitespaceAnalyzer();
+
+        final Directory directory = newDirectory();
+        final RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory, analyzer);
+
+        addNumDocsWithTextField("f1", "abc def", indexWriter, 4);
+        addNumDocsWithTextField("f1", "ab cdef", indexWriter, 10);
+        addNumDocsWithTextField("f1", "abcd ef", indexWriter, 5);
+
+        indexWriter.close();
+
+        try (final IndexReader indexReader = DirectoryReader.open(directory)) {
+
+            final DocFreqDictionaryProvider provider = new DocFreqDictionaryProvider("f1", 1, Runnable::run);
+            assertTrue(provider.getDictionary(indexReader).isPresent());
+
+            final MorphologicalWordBreaker wordBreaker = new MorphologicalWordBreaker(GERMAN, "f1", true, 1, 2, 100,
+                    MorphologicalWordBreaker.DEFAULT_WEIGHT_MORPHOLOGICAL_PATTERN, provider);
+            final List<CharSequence[]> sequences = wordBreaker.breakWord("abcdef", indexReader, 2, true);
+            org.hamcrest.MatcherAssert.assertThat(sequences, contains(
+                    equalTo(new CharSequence[] {"ab", "cdef"}),
+                    equalTo(new CharSequence[] {"abcd","ef"}))
+            );
+
+        } finally {
+            try {
+                directory.close();
+            } catch (final IOException e) {
+                //
+            }
+        }
+
+    }
+
     @Test
     public void testSplitAtLinkingMorphemeE() throws IOException {
 
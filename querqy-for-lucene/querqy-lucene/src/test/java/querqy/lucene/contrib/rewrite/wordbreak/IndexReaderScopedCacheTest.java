@@ -0,0 +1,64 @@
+package querqy.lucene.contrib.rewrite.wordbreak;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import org.apache.lucene.index.IndexReader;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IndexReaderScopedCacheTest {
+
+    @Test
+    public void testThatValuesAreLoadedOncePerReader() throws IOException {
+
+        final IndexReader reader1 = mock(IndexReader.class);
+        final IndexReader reader2 = mock(IndexReader.class);
+
+        final AtomicInteger loads = new AtomicInteger();
+        final IndexReaderScopedCache<String, String> cache = new IndexReaderScopedCache<>(10);
+
+        assertEquals("a1", cache.get(reader1, "a", key -> key + loads.incrementAndGet()));
+        assertEquals("a1", cache.get(reader1, "a", key -> key + loads.incrementAndGet()));
+        assertEquals("b2", cache.get(reader1, "b", key -> key + loads.incrementAndGet()));
+        assertEquals(2, cache.size());
+
+        // new searcher
+        assertEquals("a3", cache.get(reader2, "a", key -> key + loads.incrementAndGet()));
+        assertEquals(1, cache.size());
+        assertEquals("a3", cache.get(reader2, "a", key -> key + loads.incrementAndGet()));
+        assertEquals(3, loads.get());
+
+    }
+
+    @Test
+    public void testThatSizeIsBounded() throws IOException {
+
+        final IndexReader reader = mock(IndexReader.class);
+        final IndexReaderScopedCache<Integer, Integer> cache = new IndexReaderScopedCache<>(5);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Integer.valueOf(i), cache.get(reader, i, key -> key));
+        }
+        assertEquals(5, cache.size());
+
+    }
+
+    @Test
+    public void testThatNullValuesAreNotCached() throws IOException {
+
+        final IndexReader reader = mock(IndexReader.class);
+        final IndexReaderScopedCache<String, String> cache = new IndexReaderScopedCache<>(5);
+
+        cache.get(reader, "a", key -> null);
+        assertEquals(0, cache.size());
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatMaxSizeMustBePositive() {
+        new IndexReaderScopedCache<>(0);
+    }
+}
@@ -0,0 +1,168 @@
+package querqy.lucene.contrib.rewrite.wordbreak;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static querqy.lucene.rewrite.TestUtil.addNumDocsWithTextField;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import querqy.model.DisjunctionMaxQuery;
+import querqy.model.Term;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class MorphologicalCompounderTest extends LuceneTestCase {
+
+    private Directory directory;
+    private IndexReader indexReader;
+
+    @Before
+    public void setUpIndex() throws IOException {
+
+        final Analyzer analyzer = new WhitespaceAnalyzer();
+        directory = newDirectory();
+        final RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory, analyzer);
+
+        addNumDocsWithTextField("f1", "kinderbuch", indexWriter, 5);
+        indexWriter.commit();
+        addNumDocsWithTextField("f1", "kinderbuch kindbuch", indexWriter, 2);
+        addNumDocsWithTextField("f1", "herrenjacke", indexWriter, 1);
+        addNumDocsWithTextField("f2", "jackeherren", indexWriter, 3);
+
+        indexWriter.close();
+        indexReader = DirectoryReader.open(directory);
+    }
+
+    @After
+    public void tearDownIndex() throws IOException {
+        indexReader.close();
+        directory.close();
+    }
+
+    @Test
+    public void testThatCompoundsWithLinkingMorphemesAreRankedByDocFreq() throws IOException {
+
+        final MorphologicalCompounder compounder = new MorphologicalCompounder(Morphology.GERMAN, "f1", false, 1, 20);
+        final Term[] terms = terms("kind", "buch");
+
+        final List<LuceneCompounder.CompoundTerm> compounds = compounder.combine(terms, indexReader, false);
+        assertThat(values(compounds), contains("kinderbuch", "kindbuch"));
+        assertThat(compounds.get(0).originalTerms, arrayContaining(terms[0], terms[1]));
+
+    }
+
+    @Test
+    public void testThatDefaultMorphologyOnlyConcatenates() throws IOException {
+
+        final MorphologicalCompounder compounder = new MorphologicalCompounder(Morphology.DEFAULT, "f1", false, 1, 20);
+        assertThat(values(compounder.combine(terms("kind", "buch"), indexReader, false)), contains("kindbuch"));
+
+    }
+
+    @Test
+    public void testReverseCompound() throws IOException {
+
+        final MorphologicalCompounder compounder = new MorphologicalCompounder(Morphology.DEFAULT, "f1", false, 1, 20);
+        final Term[] terms = terms("jacke", "herren");
+
+        final List<LuceneCompounder.CompoundTerm> compounds = compounder.combine(terms, indexReader, true);
+        assertThat(values(compounds), contains("herrenjacke"));
+        assertThat(compounds.get(0).originalTerms, arrayContaining(terms[1], terms[0]));
+
+        // terms of other fields must not be found
+        assertThat(compounder.combine(terms, indexReader, false), empty());
+
+    }
+
+    @Test
+    public void testThatInputIsLowerCased() throws IOException {
+
+        assertThat(values(new MorphologicalCompounder(Morphology.DEFAULT, "f1", true, 1, 20)
+                .combine(terms("Herren", "JACKE"), indexReader, false)), contains("herrenjacke"));
+
+        assertThat(new MorphologicalCompounder(Morphology.DEFAULT, "f1", false, 1, 20)
+                .combine(terms("Herren", "JACKE"), indexReader, false), empty());
+
+    }
+
+    @Test
+    public void testMinSuggestionFrequency() throws IOException {
+
+        final MorphologicalCompounder compounder = new MorphologicalCompounder(Morphology.GERMAN, "f1", false, 3, 20);
+        assertThat(values(compounder.combine(terms("kind", "buch"), indexReader, false)), contains("kinderbuch"));
+
+    }
+
+    @Test
+    public void testMaxCombineLength() throws IOException {
+
+        final MorphologicalCompounder compounder = new MorphologicalCompounder(Morphology.GERMAN, "f1", false, 1, 9);
+        assertThat(values(compounder.combine(terms("kind", "buch"), indexReader, false)), contains("kindbuch"));
+
+        assertThat(new MorphologicalCompounder(Morphology.GERMAN, "f1", false, 1, 7)
+                .combine(terms("kind", "buch"), indexReader, false), empty());
+
+    }
+
+    @Test
+    public void testThatOnlyPairsAreCombined() throws IOException {
+
+        final MorphologicalCompounder compounder = new MorphologicalCompounder(Morphology.GERMAN, "f1", false, 1, 20);
+        assertThat(compounder.combine(terms("kind", "er", "buch"), indexReader, false), empty());
+
+    }
+
+    @Test
+    public void testThatTermsEnumsAreRenewedForNewIndexReader() throws IOException {
+
+        final MorphologicalCompounder compounder = new MorphologicalCompounder(Morphology.GERMAN, "f1", false, 1, 20);
+
+        // the TermsEnums are reused for repeated lookups in the same reader
+        assertThat(values(compounder.combine(terms("kind", "buch"), indexReader, false)),
+                contains("kinderbuch", "kindbuch"));
+        assertThat(values(compounder.combine(terms("herren", "jacke"), indexReader, false)), contains("herrenjacke"));
+        assertThat(values(compounder.combine(terms("kind", "buch"), indexReader, false)),
+                contains("kinderbuch", "kindbuch"));
+
+        try (final Directory otherDirectory = newDirectory()) {
+
+            final RandomIndexWriter indexWriter = new RandomIndexWriter(random(), otherDirectory,
+                    new WhitespaceAnalyzer());
+            addNumDocsWithTextField("f1", "kindbuch", indexWriter, 1);
+            indexWriter.close();
+
+            try (final IndexReader otherReader = DirectoryReader.open(otherDirectory)) {
+                assertThat(values(compounder.combine(terms("kind", "buch"), otherReader, false)),
+                        contains("kindbuch"));
+                assertThat(compounder.combine(terms("herren", "jacke"), otherReader, false), empty());
+            }
+        }
+
+        assertThat(values(compounder.combine(terms("herren", "jacke"), indexReader, false)), contains("herrenjacke"));
+
+    }
+
+    private static List<String> values(final List<LuceneCompounder.CompoundTerm> compounds) {
+        return compounds.stream().map(compound -> compound.value.toString()).collect(Collectors.toList());
+    }
+
+    private static Term[] terms(final String... values) {
+        final Term[] terms = new Term[values.length];
+        for (int i = 0; i < values.length; i++) {
+            terms[i] = new Term((DisjunctionMaxQuery) null, values[i]);
+        }
+        return terms;
+    }
+}
@@ -93,4 +93,19 @@ public class WordBreakCompoundRewriterFactoryTest {
 
 
     }
+
+    @Test
+    public void testThatCompounderTypeIsApplied() {
+
+        final WordBreakCompoundRewriterFactory spellCheckerFactory = new WordBreakCompoundRewriterFactory("w3",
+                () -> null, Morphology.GERMAN, "field1", false, 1, 2, 1, Collections.emptyList(), false, 2, false,
+                Collections.emptyList(), false, 0, CompounderType.SPELL_CHECKER);
+        assertTrue(spellCheckerFactory.compounder instanceof SpellCheckerCompounder);
+
+        final WordBreakCompoundRewriterFactory morphologicalFactory = new WordBreakCompoundRewriterFactory("w4",
+                () -> null, Morphology.GERMAN, "field1", false, 1, 2, 1, Collections.emptyList(), false, 2, false,
+                Collections.emptyList(), false, 0, CompounderType.MORPHOLOGICAL);
+        assertTrue(morphologicalFactory.compounder instanceof MorphologicalCompounder);
+
+    }
 }
@@ -0,0 +1,110 @@
+package querqy.lucene.rewrite.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.junit.Test;
+import querqy.lucene.rewrite.DependentTermQueryBuilder;
+import querqy.lucene.rewrite.DocumentFrequencyCorrection;
+import querqy.lucene.rewrite.FieldBoostTermQueryBuilder;
+import querqy.lucene.rewrite.LuceneQueryBuilder;
+import querqy.lucene.rewrite.SearchFieldsAndBoosting;
+import querqy.lucene.rewrite.SearchFieldsAndBoosting.FieldBoostModel;
+import querqy.lucene.rewrite.TermQueryBuilder;
+import querqy.model.Clause;
+import querqy.model.Query;
+import querqy.model.StringRawQuery;
+import querqy.parser.WhiteSpaceQuerqyParser;
+
+import java.util.Collections;
+import java.util.Optional;
+
+public class InstructionQueryCacheKeyTest {
+
+    private final Analyzer analyzer = new KeywordAnalyzer();
+
+    @Test
+    public void testThatKeysForSameQueryAreEqual() {
+
+        final LuceneQueryBuilder builder = builder(new FieldBoostTermQueryBuilder(), FieldBoostModel.FIXED, 2f);
+
+        final Optional<InstructionQueryCacheKey> key1 = builder.createCacheKey(parse("a b"), false);
+        final Optional<InstructionQueryCacheKey> key2 = builder(new FieldBoostTermQueryBuilder(),
+                FieldBoostModel.FIXED, 2f).createCacheKey(parse("a b"), false);
+
+        assertTrue(key1.isPresent());
+        assertEquals(key1, key2);
+        assertEquals(key1.get().hashCode(), key2.get().hashCode());
+
+    }
+
+    @Test
+    public void testThatQueryStructureIsPartOfKey() {
+
+        final LuceneQueryBuilder builder = builder(new FieldBoostTermQueryBuilder(), FieldBoostModel.FIXED, 2f);
+
+        final Optional<InstructionQueryCacheKey> key = builder.createCacheKey(parse("a b"), false);
+
+        assertNotEquals(key, builder.createCacheKey(parse("a -b"), false));
+        assertNotEquals(key, builder.createCacheKey(parse("a f1:b"), false));
+        assertNotEquals(key, builder.createCacheKey(parse("ab"), false));
+        assertNotEquals(key, builder.createCacheKey(parse("a b"), true));
+
+        final Query generatedQuery = new Query(true);
+        parse("a b").getClauses().forEach(clause -> generatedQuery.addClause(clause.clone(generatedQuery)));
+        assertNotEquals(key, builder.createCacheKey(generatedQuery, false));
+
+    }
+
+    @Test
+    public void testThatBuilderSettingsArePartOfKey() {
+
+        final Query query = parse("a b");
+
+        final Optional<InstructionQueryCacheKey> key = builder(new FieldBoostTermQueryBuilder(),
+                FieldBoostModel.FIXED, 2f).createCacheKey(query, false);
+
+        assertNotEquals(key, builder(new FieldBoostTermQueryBuilder(), FieldBoostModel.FIXED, 3f)
+                .createCacheKey(query, false));
+        assertNotEquals(key, builder(new FieldBoostTermQueryBuilder(), FieldBoostModel.NONE, 2f)
+                .createCacheKey(query, false));
+        assertNotEquals(key, new LuceneQueryBuilder(new FieldBoostTermQueryBuilder(), new KeywordAnalyzer(),
+                searchFieldsAndBoosting(FieldBoostModel.FIXED, 2f), 0f, null).createCacheKey(query, false));
+
+    }
+
+    @Test
+    public void testThatRequestDependentQueriesAreNotCacheable() {
+
+        assertFalse(builder(new DependentTermQueryBuilder(new DocumentFrequencyCorrection()), FieldBoostModel.FIXED,
+                2f).createCacheKey(parse("a"), false).isPresent());
+
+        assertFalse(builder(new FieldBoostTermQueryBuilder(), FieldBoostModel.PRMS, 2f)
+                .createCacheKey(parse("a"), false).isPresent());
+
+        assertFalse(builder(new FieldBoostTermQueryBuilder(), FieldBoostModel.FIXED, 2f)
+                .createCacheKey(new StringRawQuery(null, "f1:x", Clause.Occur.SHOULD, true), false).isPresent());
+
+    }
+
+    private LuceneQueryBuilder builder(final TermQueryBuilder termQueryBuilder, final FieldBoostModel fieldBoostModel,
+                                       final float f2Boost) {
+        return new LuceneQueryBuilder(termQueryBuilder, analyzer,
+                searchFieldsAndBoosting(fieldBoostModel, f2Boost), 0f, null);
+    }
+
+    private SearchFieldsAndBoosting searchFieldsAndBoosting(final FieldBoostModel fieldBoostModel,
+                                                            final float f2Boost) {
+        return new SearchFieldsAndBoosting(fieldBoostModel, Collections.singletonMap("f2", f2Boost),
+                Collections.singletonMap("f2", f2Boost), 1f);
+    }
+
+    private Query parse(final String queryString) {
+        return new WhiteSpaceQuerqyParser().parse(queryString);
+    }
+
+}
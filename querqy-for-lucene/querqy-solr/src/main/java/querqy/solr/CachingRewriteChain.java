@@ -0,0 +1,355 @@
+package querqy.solr;
+
+import static querqy.rewrite.commonrules.model.DecorateInstruction.DECORATION_CONTEXT_KEY;
+import static querqy.rewrite.commonrules.model.DecorateInstruction.DECORATION_CONTEXT_MAP_KEY;
+
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.search.SolrCache;
+import querqy.lucene.rewrite.cache.QueryStructure;
+import querqy.lucene.rewrite.cache.RewrittenQueryCacheControl;
+import querqy.model.BoostQuery;
+import querqy.model.ExpandedQuery;
+import querqy.model.QuerqyQuery;
+import querqy.rewrite.RewriteChain;
+import querqy.rewrite.RewriterFactory;
+import querqy.rewrite.SearchEngineRequestAdapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A {@link RewriteChain} that caches the rewritten query in a Solr cache.</p>
+ *
+ * <p>The cache key consists of the input query, the IDs and versions of the rewriter factories of the chain and the
+ * request parameters that the rewriters might read: all parameters that start with 'querqy.' and the parameters that
+ * the factories declare via {@link RewrittenQueryCacheControl}. Each factory instance gets a new version number when
+ * it is used in a chain for the first time. Loading a new configuration for a rewriter creates a new factory instance
+ * so that the entries that were created with the old configuration will not be found any longer. The key doesn't
+ * reference the factories so that replaced factories can be garbage collected while entries for them are still in
+ * the cache.</p>
+ *
+ * <p>The cached value is a copy of the rewritten query and of the decorations that were added to the request context
+ * by the rewriters. Each request gets its own copy of the cached value.</p>
+ *
+ * <p>The cache is bypassed</p>
+ * <ul>
+ *     <li>if one of the factories isn't cacheable (see {@link RewrittenQueryCacheControl#isRewrittenQueryCacheable()}),
+ *     for example, because its rewriters depend on the index</li>
+ *     <li>if the input query contains a raw query</li>
+ *     <li>for debug requests and if info logging is enabled for the request. The rewriters would have to create
+ *     debug and info logging output.</li>
+ *     <li>if the rewriters add other objects than decorations to the request context</li>
+ * </ul>
+ */
+public class CachingRewriteChain extends RewriteChain {
+
+    public static final String QUERQY_PARAM_PREFIX = "querqy.";
+
+    // factory -> version, weak keys and identity semantics as RewriterFactory doesn't override equals/hashCode
+    private static final Map<RewriterFactory, Long> FACTORY_VERSIONS = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final AtomicLong NEXT_FACTORY_VERSION = new AtomicLong();
+
+    private final String[] rewriterIds;
+    private final long[] rewriterVersions;
+    private final SolrParams params;
+    private final SolrCache<Key, Value> cache;
+    private final boolean cacheable;
+    private final Set<String> keyParams;
+    private final Set<String> keyParamPrefixes;
+
+    public CachingRewriteChain(final List<RewriterFactory> factories, final SolrParams params,
+                               final SolrCache<Key, Value> cache) {
+        super(factories);
+        if (cache == null) {
+            throw new IllegalArgumentException("Solr cache must not be null");
+        }
+        rewriterIds = new String[factories.size()];
+        rewriterVersions = new long[factories.size()];
+        for (int i = 0, len = factories.size(); i < len; i++) {
+            final RewriterFactory factory = factories.get(i);
+            rewriterIds[i] = factory.getRewriterId();
+            rewriterVersions[i] = getVersion(factory);
+        }
+        this.params = params;
+        this.cache = cache;
+
+        keyParams = new HashSet<>();
+        keyParamPrefixes = new HashSet<>();
+        keyParamPrefixes.add(QUERQY_PARAM_PREFIX);
+
+        boolean allCacheable = true;
+        for (final RewriterFactory factory : factories) {
+            if (factory instanceof RewrittenQueryCacheControl) {
+                final RewrittenQueryCacheControl control = (RewrittenQueryCacheControl) factory;
+                if (!control.isRewrittenQueryCacheable()) {
+                    allCacheable = false;
+                    break;
+                }
+                for (final String name : control.getRequestParamsForRewrittenQueryCacheKey()) {
+                    if (name.endsWith("*")) {
+                        keyParamPrefixes.add(name.substring(0, name.length() - 1));
+                    } else {
+                        keyParams.add(name);
+                    }
+                }
+            }
+        }
+        cacheable = allCacheable;
+    }
+
+    @Override
+    public ExpandedQuery rewrite(final ExpandedQuery query,
+                                 final SearchEngineRequestAdapter searchEngineRequestAdapter) {
+
+        if ((!cacheable) || searchEngineRequestAdapter.isDebugQuery()
+                || searchEngineRequestAdapter.getInfoLoggingContext().isPresent()) {
+            return super.rewrite(query, searchEngineRequestAdapter);
+        }
+
+        final Map<String, Object> context = searchEngineRequestAdapter.getContext();
+        // we couldn't tell the decorations of this chain from previously added decorations
+        if (context.containsKey(DECORATION_CONTEXT_KEY) || context.containsKey(DECORATION_CONTEXT_MAP_KEY)) {
+            return super.rewrite(query, searchEngineRequestAdapter);
+        }
+
+        final Optional<Key> keyOpt = createKey(query);
+        if (!keyOpt.isPresent()) {
+            return super.rewrite(query, searchEngineRequestAdapter);
+        }
+
+        final Key key = keyOpt.get();
+        final Value cachedValue = cache.get(key);
+        if (cachedValue != null) {
+            return cachedValue.apply(context);
+        }
+
+        final Set<String> contextKeysBefore = new HashSet<>(context.keySet());
+
+        final ExpandedQuery rewritten = super.rewrite(query, searchEngineRequestAdapter);
+
+        Value.create(rewritten, context, contextKeysBefore).ifPresent(value -> cache.put(key, value));
+
+        return rewritten;
+
+    }
+
+    protected Optional<Key> createKey(final ExpandedQuery query) {
+
+        final StringBuilder sb = new StringBuilder();
+
+        final Optional<String> userQuery = QueryStructure.toKeyString(query.getUserQuery());
+        if (!userQuery.isPresent()) {
+            return Optional.empty();
+        }
+        sb.append(userQuery.get());
+
+        final Collection<QuerqyQuery<?>> filterQueries = query.getFilterQueries();
+        if (filterQueries != null) {
+            for (final QuerqyQuery<?> filterQuery : filterQueries) {
+                final Optional<String> filter = QueryStructure.toKeyString(filterQuery);
+                if (!filter.isPresent()) {
+                    return Optional.empty();
+                }
+                sb.append("|F").append(filter.get());
+            }
+        }
+
+        if (!appendBoostQueries(sb, "|U", query.getBoostUpQueries())
+                || !appendBoostQueries(sb, "|D", query.getBoostDownQueries())) {
+            return Optional.empty();
+        }
+
+        final TreeMap<String, List<String>> keyParamValues = new TreeMap<>();
+        final Iterator<String> names = params.getParameterNamesIterator();
+        while (names.hasNext()) {
+            final String name = names.next();
+            if (isKeyParam(name) && !keyParamValues.containsKey(name)) {
+                final String[] values = params.getParams(name);
+                if (values != null) {
+                    keyParamValues.put(name, Arrays.asList(values));
+                }
+            }
+        }
+
+        return Optional.of(new Key(sb.toString(), rewriterIds, rewriterVersions, keyParamValues));
+
+    }
+
+    static long getVersion(final RewriterFactory factory) {
+        return FACTORY_VERSIONS.computeIfAbsent(factory, f -> NEXT_FACTORY_VERSION.incrementAndGet());
+    }
+
+    private boolean isKeyParam(final String name) {
+        if (keyParams.contains(name)) {
+            return true;
+        }
+        for (final String prefix : keyParamPrefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean appendBoostQueries(final StringBuilder sb, final String prefix,
+                                              final Collection<BoostQuery> boostQueries) {
+        if (boostQueries != null) {
+            for (final BoostQuery boostQuery : boostQueries) {
+                final Optional<String> queryString = QueryStructure.toKeyString(boostQuery.getQuery());
+                if (!queryString.isPresent()) {
+                    return false;
+                }
+                sb.append(prefix).append(boostQuery.getBoost()).append('#').append(queryString.get());
+            }
+        }
+        return true;
+    }
+
+    static ExpandedQuery copy(final ExpandedQuery query) {
+
+        final ExpandedQuery copy = new ExpandedQuery(query.getUserQuery().clone(null));
+
+        final Collection<QuerqyQuery<?>> filterQueries = query.getFilterQueries();
+        if (filterQueries != null) {
+            filterQueries.forEach(filterQuery -> copy.addFilterQuery(filterQuery.clone(null)));
+        }
+
+        final Collection<BoostQuery> boostUpQueries = query.getBoostUpQueries();
+        if (boostUpQueries != null) {
+            boostUpQueries.forEach(boostQuery -> copy.addBoostUpQuery(copy(boostQuery)));
+        }
+
+        final Collection<BoostQuery> boostDownQueries = query.getBoostDownQueries();
+        if (boostDownQueries != null) {
+            boostDownQueries.forEach(boostQuery -> copy.addBoostDownQuery(copy(boostQuery)));
+        }
+
+        return copy;
+    }
+
+    private static BoostQuery copy(final BoostQuery boostQuery) {
+        return new BoostQuery(boostQuery.getQuery().clone(null), boostQuery.getBoost());
+    }
+
+    public static class Key {
+
+        private final String query;
+        private final String[] rewriterIds;
+        private final long[] rewriterVersions;
+        private final Map<String, List<String>> params;
+        private final int hash;
+
+        Key(final String query, final String[] rewriterIds, final long[] rewriterVersions,
+            final Map<String, List<String>> params) {
+            this.query = query;
+            this.rewriterIds = rewriterIds;
+            this.rewriterVersions = rewriterVersions;
+            this.params = params;
+            int h = 31 * query.hashCode() + params.hashCode();
+            h = 31 * h + Arrays.hashCode(rewriterIds);
+            h = 31 * h + Arrays.hashCode(rewriterVersions);
+            hash = h;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return hash == key.hash
+                    && Arrays.equals(rewriterVersions, key.rewriterVersions)
+                    && Arrays.equals(rewriterIds, key.rewriterIds)
+                    && query.equals(key.query)
+                    && params.equals(key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return "CachingRewriteChain.Key{query=" + query + ", rewriterIds=" + Arrays.toString(rewriterIds)
+                    + ", rewriterVersions=" + Arrays.toString(rewriterVersions) + ", params=" + params + '}';
+        }
+    }
+
+    public static class Value {
+
+        private final ExpandedQuery query;
+        private final Set<Object> decorations;
+        private final Map<String, List<Object>> decorationsMap;
+
+        Value(final ExpandedQuery query, final Set<Object> decorations,
+              final Map<String, List<Object>> decorationsMap) {
+            this.query = query;
+            this.decorations = decorations;
+            this.decorationsMap = decorationsMap;
+        }
+
+        /**
+         * Create a cache value.
+         *
+         * @param rewritten The rewritten query
+         * @param context The request context after rewriting
+         * @param contextKeysBefore The keys of the request context before rewriting
+         * @return The value or an empty Optional if the rewriters put other objects than decorations into the context
+         */
+        @SuppressWarnings("unchecked")
+        static Optional<Value> create(final ExpandedQuery rewritten, final Map<String, Object> context,
+                                      final Set<String> contextKeysBefore) {
+
+            for (final String key : context.keySet()) {
+                if (!(contextKeysBefore.contains(key) || DECORATION_CONTEXT_KEY.equals(key)
+                        || DECORATION_CONTEXT_MAP_KEY.equals(key))) {
+                    return Optional.empty();
+                }
+            }
+
+            final Set<Object> decorations = (Set<Object>) context.get(DECORATION_CONTEXT_KEY);
+            final Map<String, List<Object>> decorationsMap =
+                    (Map<String, List<Object>>) context.get(DECORATION_CONTEXT_MAP_KEY);
+
+            return Optional.of(new Value(copy(rewritten),
+                    decorations == null ? null : new LinkedHashSet<>(decorations),
+                    decorationsMap == null ? null : copyDecorationsMap(decorationsMap)));
+        }
+
+        /**
+         * Puts the cached decorations into the request context and returns a copy of the rewritten query.
+         *
+         * @param context The request context
+         * @return A copy of the cached rewritten query
+         */
+        ExpandedQuery apply(final Map<String, Object> context) {
+            if (decorations != null) {
+                context.put(DECORATION_CONTEXT_KEY, new HashSet<>(decorations));
+            }
+            if (decorationsMap != null) {
+                context.put(DECORATION_CONTEXT_MAP_KEY, copyDecorationsMap(decorationsMap));
+            }
+            return CachingRewriteChain.copy(query);
+        }
+
+        private static Map<String, List<Object>> copyDecorationsMap(final Map<String, List<Object>> decorationsMap) {
+            final Map<String, List<Object>> copy = new LinkedHashMap<>(decorationsMap.size());
+            decorationsMap.forEach((name, values) -> copy.put(name, new ArrayList<>(values)));
+            return copy;
+        }
+
+    }
+}
@@ -4,6 +4,7 @@ import static querqy.lucene.PhraseBoosting.makePhraseFieldsBoostQuery;
 import static querqy.solr.QuerqyDismaxParams.*;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.BoostQuery;
@@ -25,12 +26,16 @@ import org.apache.solr.search.RankQuery;
 import org.apache.solr.search.SyntaxError;
 import org.apache.solr.util.SolrPluginUtils;
 import querqy.infologging.InfoLogging;
+import querqy.lucene.contrib.rewrite.numberunit.NumericQuery;
 import querqy.lucene.PhraseBoosting;
 import querqy.lucene.PhraseBoosting.PhraseBoostFieldParams;
+import querqy.lucene.QueryCostDegradation;
 import querqy.lucene.QuerySimilarityScoring;
 import querqy.lucene.LuceneSearchEngineRequestAdapter;
 import querqy.lucene.rewrite.SearchFieldsAndBoosting;
+import querqy.lucene.rewrite.cache.InstructionQueryCache;
 import querqy.lucene.rewrite.cache.TermQueryCache;
+import querqy.solr.rewriter.numberunit.SchemaNumericFieldQueryFactory;
 import querqy.model.ParametrizedRawQuery;
 import querqy.model.QuerqyQuery;
 import querqy.model.RawQuery;
@@ -87,6 +92,7 @@ public class DismaxSearchEngineRequestAdapter implements LuceneSearchEngineReque
     private final SolrParams solrParams;
     private final SolrQueryRequest request;
     private final TermQueryCache termQueryCache;
+    private final RawQueryCache rawQueryCache;
     private final QuerqyParser querqyParser;
     private final RewriteChain rewriteChain;
     private final List<FieldParams> allPhraseFields;
@@ -102,10 +108,21 @@ public class DismaxSearchEngineRequestAdapter implements LuceneSearchEngineReque
                                             final QuerqyParser querqyParser, final RewriteChain rewriteChain,
                                             final InfoLogging infoLogging,
                                             final TermQueryCache termQueryCache) {
+        this(qParser, request, queryString, solrParams, querqyParser, rewriteChain, infoLogging, termQueryCache,
+                null);
+    }
+
+    public DismaxSearchEngineRequestAdapter(final QParser qParser, final SolrQueryRequest request,
+                                            final String queryString, final SolrParams solrParams,
+                                            final QuerqyParser querqyParser, final RewriteChain rewriteChain,
+                                            final InfoLogging infoLogging,
+                                            final TermQueryCache termQueryCache,
+                                            final RawQueryCache rawQueryCache) {
         this.qParser = qParser;
         this.userQueryString = queryString;
         this.solrParams = solrParams;
         this.termQueryCache = termQueryCache;
+        this.rawQueryCache = rawQueryCache;
         this.infoLoggingContext = solrParams.getBool(INFO_LOGGING, false) && infoLogging != null
                 ? new InfoLoggingContext(infoLogging, this)
                 : null;
@@ -158,6 +175,11 @@ public class DismaxSearchEngineRequestAdapter implements LuceneSearchEngineReque
         return Optional.ofNullable(termQueryCache);
     }
 
+    @Override
+    public Optional<InstructionQueryCache> getInstructionQueryCache() {
+        return Optional.ofNullable(rawQueryCache);
+    }
+
     @Override
     public boolean addQuerqyBoostQueriesToMainQuery() {
         return QBOOST_METHOD_OPT.equals(solrParams.get(QBOOST_METHOD, QBOOST_METHOD_DEFAULT));
@@ -288,6 +310,31 @@ public class DismaxSearchEngineRequestAdapter implements LuceneSearchEngineReque
 
     @Override
     public Query parseRawQuery(final RawQuery rawQuery) throws SyntaxException {
+
+        if (rawQuery instanceof NumericQuery) {
+            return ((NumericQuery) rawQuery).toLuceneQuery(new SchemaNumericFieldQueryFactory(request.getSchema()));
+        }
+
+        final RawQueryCache.Key cacheKey = rawQueryCache == null
+                ? null : RawQueryCache.createKey(rawQuery, request).orElse(null);
+
+        if (cacheKey != null) {
+            final Query cachedQuery = rawQueryCache.get(cacheKey);
+            if (cachedQuery != null) {
+                return cachedQuery;
+            }
+        }
+
+        final Query query = parseUncachedRawQuery(rawQuery);
+
+        if (cacheKey != null && query != null) {
+            rawQueryCache.put(cacheKey, query);
+        }
+
+        return query;
+    }
+
+    private Query parseUncachedRawQuery(final RawQuery rawQuery) throws SyntaxException {
         try {
             if (rawQuery instanceof StringRawQuery) {
                 return QParser.getParser(((StringRawQuery) rawQuery).getQueryString(),
@@ -350,6 +397,68 @@ public class DismaxSearchEngineRequestAdapter implements LuceneSearchEngineReque
         return getFloatRequestParam(GFB);
     }
 
+    /**
+     * @return The value of request parameter {@value QuerqyDismaxParams#MAX_GENERATED_TERMS}
+     */
+    @Override
+    public Optional<Integer> getMaxGeneratedTerms() {
+        return getIntegerRequestParam(MAX_GENERATED_TERMS);
+    }
+
+    /**
+     * @return The value of request parameter {@value QuerqyDismaxParams#MAX_GENERATED_CLAUSES}
+     */
+    @Override
+    public Optional<Integer> getMaxGeneratedClauses() {
+        return getIntegerRequestParam(MAX_GENERATED_CLAUSES);
+    }
+
+    @Override
+    public Optional<IndexReader> getIndexReader() {
+        return Optional.of(request.getSearcher().getIndexReader());
+    }
+
+    /**
+     * @return The value of request parameter {@value QuerqyDismaxParams#MAX_QUERY_COST}
+     */
+    @Override
+    public Optional<Long> getMaxQueryCost() {
+        return Optional.ofNullable(solrParams.getLong(MAX_QUERY_COST));
+    }
+
+    /**
+     * @return The values of request parameter {@value QuerqyDismaxParams#QUERY_COST_DEGRADE}
+     */
+    @Override
+    public List<QueryCostDegradation> getQueryCostDegradations() {
+
+        final Optional<String> param = getRequestParam(QUERY_COST_DEGRADE);
+        if (!param.isPresent()) {
+            return LuceneSearchEngineRequestAdapter.super.getQueryCostDegradations();
+        }
+
+        final List<QueryCostDegradation> degradations = new ArrayList<>();
+        for (final String value : param.get().split(",")) {
+            final String degradation = value.trim();
+            switch (degradation) {
+                case QUERY_COST_DEGRADE_GENERATED_TERMS:
+                    degradations.add(QueryCostDegradation.DROP_HIGH_DF_GENERATED_TERMS);
+                    break;
+                case QUERY_COST_DEGRADE_QBOOST_RERANK:
+                    degradations.add(QueryCostDegradation.RERANK_BOOST_QUERIES);
+                    break;
+                case QUERY_COST_DEGRADE_PHRASE_BOOSTS:
+                    degradations.add(QueryCostDegradation.DROP_PHRASE_BOOSTS);
+                    break;
+                case "":
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid value for " + QUERY_COST_DEGRADE + ": " + degradation);
+            }
+        }
+        return degradations;
+    }
+
     @Override
     public Optional<SearchFieldsAndBoosting.FieldBoostModel> getFieldBoostModel() {
 
@@ -367,10 +476,22 @@ public class DismaxSearchEngineRequestAdapter implements LuceneSearchEngineReque
 
     @Override
     public List<Query> getAdditiveBoosts(final QuerqyQuery<?> userQuery) throws SyntaxException {
+        return getAdditiveBoosts(userQuery, true);
+    }
+
+    @Override
+    public List<Query> getAdditiveBoostsWithoutPhraseBoosts(final QuerqyQuery<?> userQuery) throws SyntaxException {
+        return getAdditiveBoosts(userQuery, false);
+    }
+
+    protected List<Query> getAdditiveBoosts(final QuerqyQuery<?> userQuery, final boolean withPhraseBoosts)
+            throws SyntaxException {
 
         final List<Query> boostQueries = parseQueriesFromParam(BQ, null);
 
-        final List<PhraseBoostFieldParams> phraseBoostFieldParams = getPhraseBoostFieldParams();
+        final List<PhraseBoostFieldParams> phraseBoostFieldParams = withPhraseBoosts
+                ? getPhraseBoostFieldParams()
+                : Collections.emptyList();
         final Optional<Query> phraseBoostQuery =
                 (!phraseBoostFieldParams.isEmpty())
                         ? makePhraseFieldsBoostQuery(userQuery, phraseBoostFieldParams, getPhraseBoostTiebreaker(),
@@ -418,6 +539,11 @@ public class DismaxSearchEngineRequestAdapter implements LuceneSearchEngineReque
         return parseQueriesFromParam(MULT_BOOST, FunctionQParserPlugin.NAME);
     }
 
+    @Override
+    public boolean hasRankQuery() {
+        return getRequestParam(QRQ).isPresent() || request.getParams().get(CommonParams.RQ) != null;
+    }
+
     @Override
     public Optional<Query> parseRankQuery() throws SyntaxException {
         Optional<String> rankQueryStringOpt = getRequestParam(QRQ);
@@ -0,0 +1,142 @@
+package querqy.solr;
+
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.AbstractSolrEventListener;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.handler.component.SearchComponent;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * <p>Pre-computes the DocSets of the filter queries that were produced by Querqy (for example, by FILTER rules or by
+ * the number-unit rewriter) into the filterCache of a new searcher.</p>
+ *
+ * <p>The filter queries are counted by the {@link QuerqyQueryComponent} and the most frequently used filters are
+ * preloaded first until the time budget is used up. Filters can only be counted after the listener has enabled
+ * counting in the query component. The listener should thus be configured for the firstSearcher event in addition
+ * to the newSearcher event:</p>
+ *
+ * <pre>
+ * &lt;listener event="firstSearcher" class="querqy.solr.FilterCachePreloader"&gt;
+ *     &lt;int name="timeBudgetMillis"&gt;2000&lt;/int&gt;
+ * &lt;/listener&gt;
+ * &lt;listener event="newSearcher" class="querqy.solr.FilterCachePreloader"&gt;
+ *     &lt;int name="timeBudgetMillis"&gt;2000&lt;/int&gt;
+ * &lt;/listener&gt;
+ * </pre>
+ *
+ * <p>Querqy's filter queries depend on request parameters like qf. Recording the filters that were actually used
+ * makes sure that the preloaded DocSets are found under the same cache keys again.</p>
+ */
+public class FilterCachePreloader extends AbstractSolrEventListener {
+
+    static final Logger LOG = LoggerFactory.getLogger(FilterCachePreloader.class);
+
+    public static final String CONF_SEARCH_COMPONENT = "searchComponent";
+    public static final String CONF_TIME_BUDGET_MILLIS = "timeBudgetMillis";
+    public static final String CONF_MAX_TRACKED_FILTERS = "maxTrackedFilters";
+
+    public static final String DEFAULT_SEARCH_COMPONENT = "query";
+    public static final long DEFAULT_TIME_BUDGET_MILLIS = 1000L;
+    public static final int DEFAULT_MAX_TRACKED_FILTERS = 1000;
+
+    private String searchComponentName = DEFAULT_SEARCH_COMPONENT;
+    private long timeBudgetMillis = DEFAULT_TIME_BUDGET_MILLIS;
+    private int maxTrackedFilters = DEFAULT_MAX_TRACKED_FILTERS;
+
+    public FilterCachePreloader(final SolrCore core) {
+        super(core);
+    }
+
+    @Override
+    public void init(final NamedList args) {
+        super.init(args);
+
+        final String name = (String) args.get(CONF_SEARCH_COMPONENT);
+        if (name != null) {
+            if (name.trim().isEmpty()) {
+                throw new IllegalArgumentException("'" + CONF_SEARCH_COMPONENT + "' must not be empty");
+            }
+            searchComponentName = name.trim();
+        }
+
+        final Object timeBudget = args.get(CONF_TIME_BUDGET_MILLIS);
+        if (timeBudget != null) {
+            timeBudgetMillis = Long.parseLong(timeBudget.toString());
+            if (timeBudgetMillis < 0L) {
+                throw new IllegalArgumentException("'" + CONF_TIME_BUDGET_MILLIS + "' must not be negative");
+            }
+        }
+
+        final Object maxTracked = args.get(CONF_MAX_TRACKED_FILTERS);
+        if (maxTracked != null) {
+            maxTrackedFilters = Integer.parseInt(maxTracked.toString());
+            if (maxTrackedFilters < 1) {
+                throw new IllegalArgumentException("'" + CONF_MAX_TRACKED_FILTERS + "' must be > 0");
+            }
+        }
+
+    }
+
+    @Override
+    public void newSearcher(final SolrIndexSearcher newSearcher, final SolrIndexSearcher currentSearcher) {
+
+        final SearchComponent component = getCore().getSearchComponent(searchComponentName);
+        if (!(component instanceof QuerqyQueryComponent)) {
+            throw new RuntimeException("No '" + QuerqyQueryComponent.class.getName() + "' configured for name '"
+                    + searchComponentName + "'");
+        }
+
+        final FilterQueryStats stats = ((QuerqyQueryComponent) component).enableFilterQueryStats(maxTrackedFilters);
+
+        preload(newSearcher, stats);
+
+    }
+
+    protected void preload(final SolrIndexSearcher searcher, final FilterQueryStats stats) {
+
+        if (searcher.getFilterCache() == null) {
+            LOG.warn("No filterCache configured. Skipping preload of Querqy filter queries");
+            return;
+        }
+
+        final List<Query> queries = stats.getQueriesByFrequency();
+        stats.decay();
+
+        if (queries.isEmpty()) {
+            return;
+        }
+
+        final long t1 = System.currentTimeMillis();
+        final long deadline = t1 + timeBudgetMillis;
+
+        int count = 0;
+        for (final Query query : queries) {
+
+            if (System.currentTimeMillis() >= deadline) {
+                LOG.info("Time budget for preloading Querqy filter queries used up after {} of {} queries", count,
+                        queries.size());
+                break;
+            }
+
+            try {
+                // puts the DocSet into the filterCache
+                searcher.getDocSet(query);
+                count++;
+            } catch (final IOException e) {
+                LOG.error("Error preloading filter query " + query, e);
+            }
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Preloaded {} Querqy filter queries after {}ms", count, System.currentTimeMillis() - t1);
+        }
+
+    }
+
+}
@@ -0,0 +1,60 @@
+package querqy.solr;
+
+import org.apache.lucene.search.Query;
+
+import java.util.AbstractMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Counts how often the filter queries that were produced by Querqy have been used.</p>
+ *
+ * <p>The number of tracked queries is limited. Once the limit is reached, new queries will only be tracked after
+ * {@link #decay()} has made room for them. Decaying halves all counts and drops the queries whose count drops to 0 so
+ * that the statistics follow changes in the query traffic and in the rules.</p>
+ */
+public class FilterQueryStats {
+
+    private final int maxSize;
+    private final Map<Query, AtomicLong> counts = new ConcurrentHashMap<>();
+
+    public FilterQueryStats(final int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be > 0");
+        }
+        this.maxSize = maxSize;
+    }
+
+    public void record(final Query query) {
+        final AtomicLong count = counts.get(query);
+        if (count != null) {
+            count.incrementAndGet();
+        } else if (counts.size() < maxSize) {
+            counts.computeIfAbsent(query, q -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    /**
+     * @return The tracked queries, the most frequently used query first
+     */
+    public List<Query> getQueriesByFrequency() {
+        // take a snapshot of the counts so that they don't change while sorting
+        return counts.entrySet().stream()
+                .map(entry -> new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue().get()))
+                .sorted(Map.Entry.<Query, Long>comparingByValue().reversed())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    public void decay() {
+        counts.entrySet().removeIf(entry -> entry.getValue().updateAndGet(count -> count / 2L) == 0L);
+    }
+
+    public int size() {
+        return counts.size();
+    }
+
+}
@@ -0,0 +1,175 @@
+package querqy.solr;
+
+import querqy.lucene.rewrite.cache.RewrittenQueryCacheControl;
+import querqy.model.ExpandedQuery;
+import querqy.model.Term;
+import querqy.rewrite.QueryRewriter;
+import querqy.rewrite.RewriterFactory;
+import querqy.rewrite.SearchEngineRequestAdapter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * <p>A {@link RewriterFactory} that only keeps the rewriter description and that builds the actual factory when it is
+ * needed for the first time. Concurrent requests that need the factory before it has been built will wait for a
+ * single build.</p>
+ *
+ * <p>The built factory can be released again if it hasn't been used for some time (see
+ * {@link #unloadIfIdle(long, long)}). It will then be rebuilt on the next request.</p>
+ *
+ * <p>If the factory cannot be built, the failure is remembered and re-thrown to the following requests. The build
+ * will only be retried after a delay that doubles with each failed attempt, starting at
+ * {@link #MIN_RETRY_DELAY_MILLIS} and ending at {@link #MAX_RETRY_DELAY_MILLIS}.</p>
+ */
+public class LazyRewriterFactory extends RewriterFactory implements RewrittenQueryCacheControl, Closeable {
+
+    public static final long MIN_RETRY_DELAY_MILLIS = 1000L;
+    public static final long MAX_RETRY_DELAY_MILLIS = 60000L;
+
+    private final Map<String, Object> instanceDescription;
+    private final RewrittenQueryCacheControl cacheControl;
+    private final BiFunction<String, Map<String, Object>, RewriterFactory> factoryBuilder;
+
+    private volatile RewriterFactory delegate = null;
+    private volatile long lastAccess = 0L;
+
+    // guarded by this
+    private RuntimeException failure = null;
+    private long retryDelay = 0L;
+    private long retryAt = 0L;
+
+    /**
+     * @param rewriterId The rewriter ID
+     * @param instanceDescription The rewriter description
+     * @param cacheControl Answers the {@link RewrittenQueryCacheControl} methods from the rewriter configuration so that
+     *                     we don't have to build the factory for them
+     * @param factoryBuilder Builds the factory from the rewriter ID and the description
+     */
+    public LazyRewriterFactory(final String rewriterId, final Map<String, Object> instanceDescription,
+                               final RewrittenQueryCacheControl cacheControl,
+                               final BiFunction<String, Map<String, Object>, RewriterFactory> factoryBuilder) {
+        super(rewriterId);
+        this.instanceDescription = instanceDescription;
+        this.cacheControl = cacheControl;
+        this.factoryBuilder = factoryBuilder;
+    }
+
+    @Override
+    public QueryRewriter createRewriter(final ExpandedQuery input,
+                                        final SearchEngineRequestAdapter searchEngineRequestAdapter) {
+        return getDelegate().createRewriter(input, searchEngineRequestAdapter);
+    }
+
+    /**
+     * Only returns the generable terms if the factory has already been built. We don't want to build all lazy
+     * factories just to preload the term query cache.
+     *
+     * @return The generable terms of the delegate or an empty set if the delegate hasn't been built yet
+     */
+    @Override
+    public Set<Term> getCacheableGenerableTerms() {
+        final RewriterFactory factory = delegate;
+        return factory == null ? Collections.emptySet() : factory.getCacheableGenerableTerms();
+    }
+
+    /**
+     * Answered from the rewriter configuration. This neither builds the factory nor counts as an access that would keep
+     * the factory from being unloaded.
+     */
+    @Override
+    public boolean isRewrittenQueryCacheable() {
+        return cacheControl.isRewrittenQueryCacheable();
+    }
+
+    /**
+     * Answered from the rewriter configuration. This neither builds the factory nor counts as an access that would keep
+     * the factory from being unloaded.
+     */
+    @Override
+    public Set<String> getRequestParamsForRewrittenQueryCacheKey() {
+        return cacheControl.getRequestParamsForRewrittenQueryCacheKey();
+    }
+
+    public RewriterFactory getDelegate() {
+
+        final long now = currentTimeMillis();
+        lastAccess = now;
+
+        RewriterFactory factory = delegate;
+        if (factory == null) {
+            synchronized (this) {
+                factory = delegate;
+                if (factory == null) {
+
+                    if (failure != null && now < retryAt) {
+                        throw failure;
+                    }
+
+                    try {
+                        factory = factoryBuilder.apply(getRewriterId(), instanceDescription);
+                    } catch (final RuntimeException e) {
+                        failure = e;
+                        retryDelay = Math.min(MAX_RETRY_DELAY_MILLIS, Math.max(MIN_RETRY_DELAY_MILLIS,
+                                retryDelay * 2L));
+                        retryAt = now + retryDelay;
+                        throw e;
+                    }
+
+                    failure = null;
+                    retryDelay = 0L;
+                    delegate = factory;
+                }
+            }
+        }
+        return factory;
+
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public boolean isLoaded() {
+        return delegate != null;
+    }
+
+    /**
+     * Releases the built factory if it hasn't been used for the given time.
+     *
+     * @param now The current time in millis
+     * @param idleTimeMillis The max. time in millis for which the factory can stay unused
+     * @return true iff the factory has been released
+     */
+    public synchronized boolean unloadIfIdle(final long now, final long idleTimeMillis) {
+        if (delegate != null && now - lastAccess > idleTimeMillis) {
+            try {
+                close();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Releases the built factory and its resources. The factory will be rebuilt if it is requested again.
+     *
+     * @throws IOException if the built factory could not be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        final RewriterFactory factory = delegate;
+        delegate = null;
+        if (factory instanceof Closeable) {
+            ((Closeable) factory).close();
+        }
+    }
+
+}
@@ -187,6 +187,46 @@ public interface QuerqyDismaxParams {
      */
     String MULT_BOOST = "boost";
 
+    /**
+     * The max. number of terms that rewriters may generate in the user query. Generated clauses with a low priority
+     * are removed from the rewritten query if it contains more generated terms. Default: no limit.
+     */
+    String MAX_GENERATED_TERMS = "querqy.maxGeneratedTerms";
+
+    /**
+     * The max. number of Lucene term queries for the terms that rewriters generated in the user query (= generated
+     * terms x search fields). Default: no limit.
+     */
+    String MAX_GENERATED_CLAUSES = "querqy.maxGeneratedClauses";
+
+    /**
+     * The max. estimated cost of the query (= the summed document frequencies of its terms). The steps in
+     * {@link #QUERY_COST_DEGRADE} are applied if the estimated cost exceeds this limit. Default: no limit.
+     */
+    String MAX_QUERY_COST = "querqy.maxQueryCost";
+
+    /**
+     * A comma-separated list of the steps that reduce the query cost if it exceeds {@link #MAX_QUERY_COST}, in the
+     * order in which they should be applied. Default: generatedTerms,qboostRerank,phraseBoosts
+     */
+    String QUERY_COST_DEGRADE = "querqy.queryCost.degrade";
+
+    /**
+     * A possible value of {@link #QUERY_COST_DEGRADE}: Remove generated terms with a high document frequency.
+     */
+    String QUERY_COST_DEGRADE_GENERATED_TERMS = "generatedTerms";
+
+    /**
+     * A possible value of {@link #QUERY_COST_DEGRADE}: Apply Querqy boost queries as a re-rank query (see
+     * {@link #QBOOST_METHOD_RERANK}).
+     */
+    String QUERY_COST_DEGRADE_QBOOST_RERANK = "qboostRerank";
+
+    /**
+     * A possible value of {@link #QUERY_COST_DEGRADE}: Don't apply the phrase boosts from pf, pf2 and pf3.
+     */
+    String QUERY_COST_DEGRADE_PHRASE_BOOSTS = "phraseBoosts";
+
     /**
      * Turn info logging on/off. Default = 'off'
      */
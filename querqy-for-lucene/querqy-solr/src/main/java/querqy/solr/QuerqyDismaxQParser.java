@@ -25,6 +25,7 @@ import querqy.rewrite.RewriteChain;
 import querqy.rewrite.SearchEngineRequestAdapter;
 import querqy.infologging.InfoLogging;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -32,6 +33,11 @@ import java.util.Optional;
 
 public class QuerqyDismaxQParser extends QParser {
 
+    /**
+     * Key under which the Lucene queries of this request are memoized in the {@link SolrQueryRequest} context
+     */
+    public static final String CONTEXT_KEY_MEMOIZED_QUERIES = QuerqyDismaxQParser.class.getName() + ".memoized";
+
     protected final QueryParsingController controller;
     protected final DismaxSearchEngineRequestAdapter requestAdapter;
 
@@ -58,6 +64,27 @@ public class QuerqyDismaxQParser extends QParser {
                                final SolrQueryRequest req, final QuerqyParser querqyParser,
                                final RewriteChain rewriteChain, final InfoLogging infoLogging,
                                final TermQueryCache termQueryCache) {
+        this(qstr, localParams, params, req, querqyParser, rewriteChain, infoLogging, termQueryCache, null);
+    }
+
+    /**
+     * Constructor for the QParser
+     *
+     * @param qstr        The part of the query string specific to this parser
+     * @param localParams The set of parameters that are specific to this QParser.  See http://wiki.apache.org/solr/LocalParams
+     * @param params      The rest of the {@link SolrParams}
+     * @param req         The original {@link SolrQueryRequest}
+     * @param querqyParser The Querqy query parser to be applied to the input query string
+     * @param rewriteChain The chain of rewriters to be applied to this request
+     * @param infoLogging The info logging object for this request
+     * @param termQueryCache The term query cache.
+     * @param rawQueryCache The cache for parsed raw queries or null
+     *
+     */
+    public QuerqyDismaxQParser(final String qstr, final SolrParams localParams, final SolrParams params,
+                               final SolrQueryRequest req, final QuerqyParser querqyParser,
+                               final RewriteChain rewriteChain, final InfoLogging infoLogging,
+                               final TermQueryCache termQueryCache, final RawQueryCache rawQueryCache) {
         super(qstr, localParams, params, req);
         final String q = Objects.requireNonNull(qstr).trim();
 
@@ -69,7 +96,8 @@ public class QuerqyDismaxQParser extends QParser {
         this.querqyParser = querqyParser;
 
         requestAdapter = new DismaxSearchEngineRequestAdapter(this, req, userQueryString,
-                SolrParams.wrapDefaults(localParams, params), querqyParser, rewriteChain, infoLogging, termQueryCache);
+                SolrParams.wrapDefaults(localParams, params), querqyParser, rewriteChain, infoLogging, termQueryCache,
+                rawQueryCache);
 
 
         controller = createQueryParsingController();
@@ -86,7 +114,7 @@ public class QuerqyDismaxQParser extends QParser {
 
         try {
 
-            luceneQueries = controller.process();
+            luceneQueries = processOrReuseMemoized();
 
             processedQuery = maybeWrapQuery(luceneQueries.mainQuery);
 
@@ -98,6 +126,44 @@ public class QuerqyDismaxQParser extends QParser {
 
     }
 
+    /**
+     * <p>Creates the Lucene queries or reuses the queries that another instance of this parser has created for the
+     * same query string and params in the same request. Solr can create the parser more than once per
+     * request, for example, for highlighting.</p>
+     *
+     * <p>The queries are not reused for debug requests and if info logging is enabled. These need their own debug and
+     * info logging output.</p>
+     *
+     * @return The Lucene queries
+     * @throws LuceneSearchEngineRequestAdapter.SyntaxException if the query cannot be parsed
+     */
+    protected LuceneQueries processOrReuseMemoized() throws LuceneSearchEngineRequestAdapter.SyntaxException {
+
+        final Map<Object, Object> requestContext = req.getContext();
+        if (requestContext == null || requestAdapter.isDebugQuery()
+                || requestAdapter.getInfoLoggingContext().isPresent()) {
+            return controller.process();
+        }
+
+        @SuppressWarnings("unchecked")
+        final Map<MemoKey, Memo> memos = (Map<MemoKey, Memo>) requestContext
+                .computeIfAbsent(CONTEXT_KEY_MEMOIZED_QUERIES, k -> new HashMap<>());
+
+        final MemoKey key = new MemoKey(getClass(), userQueryString, localParams, params);
+
+        final Memo memo = memos.get(key);
+        if (memo != null) {
+            // make the decorations etc. available to this parser's request adapter
+            requestAdapter.getContext().putAll(memo.adapterContext);
+            return memo.luceneQueries;
+        }
+
+        final LuceneQueries queries = controller.process();
+        memos.put(key, new Memo(queries, new HashMap<>(requestAdapter.getContext())));
+        return queries;
+
+    }
+
     @Override
     public Query getQuery() throws SyntaxError {
         if (query==null) {
@@ -205,4 +271,51 @@ public class QuerqyDismaxQParser extends QParser {
 
         return Optional.empty();
     }
+
+    static class MemoKey {
+
+        private final Class<?> parserClass;
+        private final String queryString;
+        private final String localParams;
+        private final SolrParams params;
+        private final int hash;
+
+        MemoKey(final Class<?> parserClass, final String queryString, final SolrParams localParams,
+                final SolrParams params) {
+            this.parserClass = parserClass;
+            this.queryString = queryString;
+            this.localParams = localParams == null ? null : localParams.toString();
+            // the request params are compared by identity: all parsers of the request use the same params object
+            // unless a component replaces it
+            this.params = params;
+            this.hash = Objects.hash(parserClass, queryString, this.localParams, System.identityHashCode(params));
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final MemoKey memoKey = (MemoKey) o;
+            return hash == memoKey.hash &&
+                    parserClass == memoKey.parserClass &&
+                    params == memoKey.params &&
+                    queryString.equals(memoKey.queryString) && Objects.equals(localParams, memoKey.localParams);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    static class Memo {
+
+        final LuceneQueries luceneQueries;
+        final Map<String, Object> adapterContext;
+
+        Memo(final LuceneQueries luceneQueries, final Map<String, Object> adapterContext) {
+            this.luceneQueries = luceneQueries;
+            this.adapterContext = adapterContext;
+        }
+    }
 }
@@ -24,7 +24,15 @@ public class QuerqyJsonQParser extends QuerqyDismaxQParser {
                              final SolrQueryRequest req, final QuerqyParser querqyParser,
                              final RewriteChain rewriteChain, final InfoLogging infoLogging,
                              final TermQueryCache termQueryCache) {
-        super(qstr, localParams, params, req, querqyParser, rewriteChain, infoLogging, termQueryCache);
+        this(qstr, localParams, params, req, querqyParser, rewriteChain, infoLogging, termQueryCache, null);
+    }
+
+    public QuerqyJsonQParser(final String qstr, final SolrParams localParams, final SolrParams params,
+                             final SolrQueryRequest req, final QuerqyParser querqyParser,
+                             final RewriteChain rewriteChain, final InfoLogging infoLogging,
+                             final TermQueryCache termQueryCache, final RawQueryCache rawQueryCache) {
+        super(qstr, localParams, params, req, querqyParser, rewriteChain, infoLogging, termQueryCache,
+                rawQueryCache);
     }
 
     public String getQueryParserName() {
@@ -13,7 +13,16 @@ public class QuerqyJsonQParserPlugin extends QuerqyQParserPlugin {
    public QParser createParser(final String qstr, final SolrParams localParams, final SolrParams params,
                                final SolrQueryRequest req, final RewriteChain rewriteChain,
                                final InfoLogging infoLogging, final TermQueryCache termQueryCache) {
+         return createParser(qstr, localParams, params, req, rewriteChain, infoLogging, termQueryCache, null);
+   }
+
+   @Override
+   public QParser createParser(final String qstr, final SolrParams localParams, final SolrParams params,
+                               final SolrQueryRequest req, final RewriteChain rewriteChain,
+                               final InfoLogging infoLogging, final TermQueryCache termQueryCache,
+                               final RawQueryCache rawQueryCache) {
          return new QuerqyJsonQParser(qstr, localParams, params, req,
-                 createQuerqyParser(qstr, localParams, params, req), rewriteChain, infoLogging, termQueryCache);
+                 createQuerqyParser(qstr, localParams, params, req), rewriteChain, infoLogging, termQueryCache,
+                 rawQueryCache);
    }
 }
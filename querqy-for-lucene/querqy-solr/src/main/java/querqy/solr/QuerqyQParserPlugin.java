@@ -2,6 +2,7 @@ package querqy.solr;
 
 import org.apache.lucene.analysis.util.ResourceLoader;
 import org.apache.lucene.analysis.util.ResourceLoaderAware;
+import org.apache.lucene.search.Query;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.NamedList;
@@ -42,6 +43,8 @@ public abstract class QuerqyQParserPlugin extends QParserPlugin implements Resou
 
     public static final String CONF_CACHE_NAME = "termQueryCache.name";
     public static final String CONF_CACHE_UPDATE = "termQueryCache.update";
+    public static final String CONF_RAW_QUERY_CACHE_NAME = "rawQueryCache.name";
+    public static final String CONF_REWRITTEN_QUERY_CACHE_NAME = "rewrittenQueryCache.name";
     public static final String CONF_REWRITER_REQUEST_HANDLER = "rewriterRequestHandler";
     public static final String CONF_SKIP_UNKNOWN_REWRITERS = "skipUnknownRewriters";
     public static final String CONF_SKIP_UNKNOWN_REWRITERS_WITH_TYPO = "skipUnkownRewriters";
@@ -54,6 +57,8 @@ public abstract class QuerqyQParserPlugin extends QParserPlugin implements Resou
     protected SolrQuerqyParserFactory querqyParserFactory = null;
     protected String termQueryCacheName = null;
     protected boolean ignoreTermQueryCacheUpdates = true;
+    protected String rawQueryCacheName = null;
+    protected String rewrittenQueryCacheName = null;
     protected InfoLogging infoLogging;
     protected String rewriterRequestHandlerName = QuerqyRewriterRequestHandler.DEFAULT_HANDLER_NAME;
     protected boolean skipUnknownRewriter = false;
@@ -109,6 +114,9 @@ public abstract class QuerqyQParserPlugin extends QParserPlugin implements Resou
 
         ignoreTermQueryCacheUpdates = (updateCache != null) && !updateCache;
 
+        rawQueryCacheName = (String) initArgs.get(CONF_RAW_QUERY_CACHE_NAME);
+        rewrittenQueryCacheName = (String) initArgs.get(CONF_REWRITTEN_QUERY_CACHE_NAME);
+
         this.querqyParserFactory = loadSolrQuerqyParserFactory(loader, initArgs);
     }
 
@@ -116,6 +124,27 @@ public abstract class QuerqyQParserPlugin extends QParserPlugin implements Resou
                                          final SolrQueryRequest req, final RewriteChain rewriteChain,
                                          final InfoLogging infoLogging, final TermQueryCache termQueryCache);
 
+    /**
+     * Create the QParser. Subclasses that support caching parsed raw queries should override this method. The default
+     * implementation ignores the raw query cache.
+     *
+     * @param qstr The query string
+     * @param localParams The local params
+     * @param params The request params
+     * @param req The request
+     * @param rewriteChain The rewrite chain
+     * @param infoLogging The info logging
+     * @param termQueryCache The term query cache or null
+     * @param rawQueryCache The raw query cache or null
+     * @return The QParser
+     */
+    public QParser createParser(final String qstr, final SolrParams localParams, final SolrParams params,
+                                final SolrQueryRequest req, final RewriteChain rewriteChain,
+                                final InfoLogging infoLogging, final TermQueryCache termQueryCache,
+                                final RawQueryCache rawQueryCache) {
+        return createParser(qstr, localParams, params, req, rewriteChain, infoLogging, termQueryCache);
+    }
+
 
     protected SolrQuerqyParserFactory loadSolrQuerqyParserFactory(final ResourceLoader loader,
                                                                   final NamedList<?> args) throws IOException {
@@ -254,27 +283,64 @@ public abstract class QuerqyQParserPlugin extends QParserPlugin implements Resou
                 }
 
             }
-            rewriteChain = new RewriteChain(factories);
+            rewriteChain = createRewriteChain(factories, localParams, params, req);
 
         } else {
             rewriteChain = new RewriteChain();
         }
 
+        return createParser(qstr, localParams, params, req, rewriteChain, infoLogging, getTermQueryCache(req),
+                getRawQueryCache(req));
+    }
+
+    private RewriteChain createRewriteChain(final List<RewriterFactory> factories, final SolrParams localParams,
+                                            final SolrParams params, final SolrQueryRequest req) {
+
+        if (rewrittenQueryCacheName == null || factories.isEmpty()) {
+            return new RewriteChain(factories);
+        }
+
+        @SuppressWarnings("unchecked")
+        final SolrCache<CachingRewriteChain.Key, CachingRewriteChain.Value> solrCache = req.getSearcher()
+                .getCache(rewrittenQueryCacheName);
+        if (solrCache == null) {
+            logger.warn("Missing Solr cache {}", rewrittenQueryCacheName);
+            return new RewriteChain(factories);
+        }
+
+        return new CachingRewriteChain(factories, SolrParams.wrapDefaults(localParams, params), solrCache);
+    }
+
+    private TermQueryCache getTermQueryCache(final SolrQueryRequest req) {
+
         if (termQueryCacheName == null) {
-            return createParser(qstr, localParams, params, req, rewriteChain, infoLogging, null);
-        } else {
+            return null;
+        }
 
-            @SuppressWarnings("unchecked")
-            final SolrCache<CacheKey, TermQueryCacheValue> solrCache = req.getSearcher().getCache(termQueryCacheName);
-            if (solrCache == null) {
-                logger.warn("Missing Solr cache {}", termQueryCacheName);
-                return createParser(qstr, localParams, params, req, rewriteChain, infoLogging, null);
-            } else {
-                return createParser(qstr, localParams, params, req, rewriteChain, infoLogging,
-                        new SolrTermQueryCacheAdapter(ignoreTermQueryCacheUpdates, solrCache));
-            }
+        @SuppressWarnings("unchecked")
+        final SolrCache<CacheKey, TermQueryCacheValue> solrCache = req.getSearcher().getCache(termQueryCacheName);
+        if (solrCache == null) {
+            logger.warn("Missing Solr cache {}", termQueryCacheName);
+            return null;
+        }
 
+        return new SolrTermQueryCacheAdapter(ignoreTermQueryCacheUpdates, solrCache);
+    }
+
+    private RawQueryCache getRawQueryCache(final SolrQueryRequest req) {
+
+        if (rawQueryCacheName == null) {
+            return null;
         }
+
+        @SuppressWarnings("unchecked")
+        final SolrCache<Object, Query> solrCache = req.getSearcher().getCache(rawQueryCacheName);
+        if (solrCache == null) {
+            logger.warn("Missing Solr cache {}", rawQueryCacheName);
+            return null;
+        }
+
+        return new RawQueryCache(solrCache);
     }
 
     private QuerqyRewriterRequestHandler getQuerqyRequestHandler(final SolrCore core){
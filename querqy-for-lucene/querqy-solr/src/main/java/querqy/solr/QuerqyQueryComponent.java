@@ -35,6 +35,8 @@ public class QuerqyQueryComponent extends QueryComponent {
     public static final String QUERQY_NAMED_DECORATIONS = "querqy_named_decorations";
     public static final String QUERQY_DECORATIONS = "querqy_decorations";
 
+    private volatile FilterQueryStats filterQueryStats = null;
+
     /* (non-Javadoc)
      * @see org.apache.solr.handler.component.SearchComponent#prepare(org.apache.solr.handler.component.ResponseBuilder)
      */
@@ -55,6 +57,11 @@ public class QuerqyQueryComponent extends QueryComponent {
                 } else {
                     filters.addAll(filterQueries);
                 }
+
+                final FilterQueryStats stats = filterQueryStats;
+                if (stats != null) {
+                    filterQueries.forEach(stats::record);
+                }
             }
 
             // add the RankQuery to the ResponseBuilder, only if it does not already contain one (set by Solr's rq parameter)
@@ -102,6 +109,20 @@ public class QuerqyQueryComponent extends QueryComponent {
 
     }
 
+    /**
+     * Start counting the filter queries that were produced by Querqy.
+     *
+     * @param maxSize The max. number of filter queries to track
+     * @return The statistics. If the statistics have already been enabled before, the existing statistics will be
+     * returned.
+     */
+    public synchronized FilterQueryStats enableFilterQueryStats(final int maxSize) {
+        if (filterQueryStats == null) {
+            filterQueryStats = new FilterQueryStats(maxSize);
+        }
+        return filterQueryStats;
+    }
+
     /* (non-Javadoc)
      * @see org.apache.solr.handler.component.SearchComponent#getDescription()
      */
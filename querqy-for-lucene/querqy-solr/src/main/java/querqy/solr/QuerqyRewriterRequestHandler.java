@@ -168,6 +168,10 @@ public class QuerqyRewriterRequestHandler implements SolrRequestHandler, NestedR
             }));
 
             result.put("rewriters", rewritersResult);
+            final Map<String, String> loadErrors = rewriterContainer.getLoadErrors();
+            if (!loadErrors.isEmpty()) {
+                result.put("loadErrors", loadErrors);
+            }
             rsp.add("response", result);
     }
 
@@ -199,7 +203,7 @@ public class QuerqyRewriterRequestHandler implements SolrRequestHandler, NestedR
         } else {
             rewriterContainer = new StandAloneRewriterContainer(core, resourceLoader);
         }
-        rewriterContainer.init(initArgs);
+        rewriterContainer.initialize(initArgs);
     }
 
     /**
@@ -223,6 +227,10 @@ public class QuerqyRewriterRequestHandler implements SolrRequestHandler, NestedR
         return rewriterContainer.getRewriterFactories(listener);
     }
 
+    RewriterContainer<?> getRewriterContainer() {
+        return rewriterContainer;
+    }
+
 
     @Override
     public SolrRequestHandler getSubHandler(final String subPath) {
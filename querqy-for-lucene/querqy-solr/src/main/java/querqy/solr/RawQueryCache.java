@@ -0,0 +1,201 @@
+package querqy.solr;
+
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.search.QueryParsing;
+import org.apache.solr.search.SolrCache;
+import querqy.lucene.rewrite.cache.InstructionQueryCache;
+import querqy.lucene.rewrite.cache.InstructionQueryCacheKey;
+import querqy.model.ParametrizedRawQuery;
+import querqy.model.RawQuery;
+import querqy.model.StringRawQuery;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * <p>Caches the Lucene queries that were parsed from {@link StringRawQuery}s and {@link ParametrizedRawQuery}s,
+ * which are mostly created by rules and which are the same for all requests that trigger the rule.</p>
+ *
+ * <p>The cache delegates to a Solr cache, which is scoped to the searcher. The cache key consists of the raw query,
+ * the request parameters that the standard Lucene query parser reads (df, q.op, sow) and the schema. The parsed queries
+ * don't depend on the index so that the cache can be autowarmed by copying the entries to the new searcher
+ * (regenerator="solr.NoOpRegenerator").</p>
+ *
+ * <p>Only raw queries for the standard Lucene query parser are cached. They may start with local params for this
+ * parser ({!lucene ...}) but must not switch to another parser, neither at the start nor in a nested query. Other
+ * parsers, like edismax, read further request parameters (qf, mm, pf, bq, ...), which are not part of the key. Raw
+ * queries that dereference request parameters or that use date math relative to NOW are not cached either.</p>
+ *
+ * <p>The cache also serves as the {@link InstructionQueryCache} for the Lucene queries that were built from the
+ * Querqy boost and filter queries of rules. These don't depend on the index either.</p>
+ */
+public class RawQueryCache implements InstructionQueryCache {
+
+    private static final String LOCAL_PARAMS_START = "{!";
+    private static final String LUCENE_LOCAL_PARAMS_START = LOCAL_PARAMS_START + "lucene";
+    private static final String NESTED_QUERY_FIELD = "_query_";
+
+    private final SolrCache<Object, Query> delegate;
+
+    public RawQueryCache(final SolrCache<Object, Query> delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Solr cache must not be null");
+        }
+        this.delegate = delegate;
+    }
+
+    public Query get(final Key key) {
+        return delegate.get(key);
+    }
+
+    public void put(final Key key, final Query query) {
+        delegate.put(key, query);
+    }
+
+    @Override
+    public Query get(final InstructionQueryCacheKey key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public void put(final InstructionQueryCacheKey key, final Query query) {
+        delegate.put(key, query);
+    }
+
+    /**
+     * Create the cache key for a raw query.
+     *
+     * @param rawQuery The raw query
+     * @param request The current request
+     * @return The key or an empty Optional if the raw query cannot be cached
+     */
+    public static Optional<Key> createKey(final RawQuery rawQuery, final SolrQueryRequest request) {
+
+        final Object query;
+
+        if (rawQuery instanceof StringRawQuery) {
+
+            final String queryString = ((StringRawQuery) rawQuery).getQueryString();
+            if (queryString == null || !isCacheable(queryString, true) || !isStandardParserQuery(queryString)) {
+                return Optional.empty();
+            }
+            query = queryString;
+
+        } else if (rawQuery instanceof ParametrizedRawQuery) {
+
+            final StringBuilder queryTemplate = new StringBuilder();
+            for (final ParametrizedRawQuery.Part part : ((ParametrizedRawQuery) rawQuery).getParts()) {
+                final boolean isQueryPart = part.type == ParametrizedRawQuery.Part.Type.QUERY_PART;
+                if (!isCacheable(part.part, isQueryPart)) {
+                    return Optional.empty();
+                }
+                if (isQueryPart) {
+                    queryTemplate.append(part.part);
+                } else if (hasNestedParser(part.part, 0)) {
+                    // the parameter value will be parsed, too
+                    return Optional.empty();
+                } else {
+                    queryTemplate.append("$p");
+                }
+            }
+            if (!isStandardParserQuery(queryTemplate.toString())) {
+                return Optional.empty();
+            }
+            query = ((ParametrizedRawQuery) rawQuery).getParts();
+
+        } else {
+            return Optional.empty();
+        }
+
+        final SolrParams params = request.getParams();
+        return Optional.of(new Key(query, params.get(CommonParams.DF), params.get(QueryParsing.OP),
+                params.get(QueryParsing.SPLIT_ON_WHITESPACE), request.getSchema()));
+
+    }
+
+    private static boolean isCacheable(final String queryPart, final boolean checkParamReferences) {
+        return !queryPart.contains("NOW") && !(checkParamReferences && queryPart.indexOf('$') > -1);
+    }
+
+    /**
+     * Check whether the query will be parsed by the standard Lucene query parser only.
+     *
+     * @param queryString The query string
+     * @return true iff the query has no local params or local params for the standard parser and no nested queries
+     */
+    static boolean isStandardParserQuery(final String queryString) {
+
+        final String query = queryString.trim();
+        int bodyStart = 0;
+
+        if (query.startsWith(LOCAL_PARAMS_START)) {
+            if (!query.startsWith(LUCENE_LOCAL_PARAMS_START)) {
+                return false;
+            }
+            final int pos = LUCENE_LOCAL_PARAMS_START.length();
+            if (query.length() == pos || !(query.charAt(pos) == '}' || Character.isWhitespace(query.charAt(pos)))) {
+                return false; // {!luceneXYZ
+            }
+            final int end = query.indexOf('}', pos);
+            if (end < 0) {
+                return false;
+            }
+            final String localParams = query.substring(pos, end);
+            if (localParams.contains("type=")) {
+                return false; // {!lucene type=edismax} or defType=
+            }
+            bodyStart = end + 1;
+        }
+
+        return !hasNestedParser(query, bodyStart);
+    }
+
+    private static boolean hasNestedParser(final String query, final int fromIndex) {
+        return query.indexOf(LOCAL_PARAMS_START, fromIndex) > -1 || query.indexOf(NESTED_QUERY_FIELD, fromIndex) > -1;
+    }
+
+    public static class Key {
+
+        private final Object query;
+        private final String df;
+        private final String op;
+        private final String sow;
+        private final IndexSchema schema;
+        private final int hash;
+
+        Key(final Object query, final String df, final String op, final String sow, final IndexSchema schema) {
+            this.query = query;
+            this.df = df;
+            this.op = op;
+            this.sow = sow;
+            this.schema = schema;
+            this.hash = Objects.hash(query, df, op, sow, System.identityHashCode(schema));
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return schema == key.schema &&
+                    query.equals(key.query) &&
+                    Objects.equals(df, key.df) &&
+                    Objects.equals(op, key.op) &&
+                    Objects.equals(sow, key.sow);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return "RawQueryCache.Key{query=" + query + ", df=" + df + ", op=" + op + ", sow=" + sow + '}';
+        }
+    }
+}
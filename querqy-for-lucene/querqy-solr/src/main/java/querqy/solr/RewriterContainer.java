@@ -1,34 +1,85 @@
 package querqy.solr;
 
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.core.CloseHook;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrResourceLoader;
 import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.DefaultSolrThreadFactory;
 import org.apache.solr.util.RefCounted;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import querqy.rewrite.RewriterFactory;
+import querqy.solr.utils.NamedListWrapper;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public abstract class RewriterContainer<R extends SolrResourceLoader> {
 
+    /**
+     * The max. number of threads that are used to load rewriters concurrently
+     */
+    public static final String CONF_LOAD_THREADS = "loadThreads";
+    public static final int DEFAULT_LOAD_THREADS = Math.max(1, Math.min(4,
+            Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * If true, rewriters will only be built when they are requested for the first time (except for the rewriters
+     * listed in {@link #CONF_EAGER_REWRITERS}).
+     */
+    public static final String CONF_LAZY = "lazy";
+
+    /**
+     * Comma-separated list of rewriter IDs that will always be loaded at startup and that will never be unloaded, even
+     * if {@link #CONF_LAZY} is set.
+     */
+    public static final String CONF_EAGER_REWRITERS = "eagerRewriters";
+
+    /**
+     * Lazily loaded rewriters that haven't been used for this time will be unloaded. 0 = never unload.
+     */
+    public static final String CONF_LAZY_IDLE_TIME_MILLIS = "lazyIdleTimeMillis";
+    public static final int DEFAULT_LAZY_IDLE_TIME_MILLIS = 0;
+
     protected final Logger LOG = LoggerFactory.getLogger(getClass());
 
     protected Map<String, RewriterFactory> rewriters = new HashMap<>();
     protected R resourceLoader;
     protected SolrCore core;
     private RewritersChangeListener rewritersChangeListener = null;
+    protected int loadThreads = DEFAULT_LOAD_THREADS;
+    protected boolean lazy = false;
+    protected Set<String> eagerRewriters = Collections.emptySet();
+    private ScheduledExecutorService idleUnloadExecutor = null;
+    // shared by all calls to loadRewriters(), null if rewriters are loaded in the calling thread
+    private ExecutorService loadExecutor = null;
+    // rewriter ID -> error message, for the rewriters that could not be loaded
+    private Map<String, String> loadErrors = Collections.emptyMap();
 
     public interface RewritersChangeListener {
         void rewritersChanged(SolrIndexSearcher indexSearcher, Set<RewriterFactory> allRewriters);
@@ -67,6 +118,60 @@ public abstract class RewriterContainer<R extends SolrResourceLoader> {
         });
     }
 
+    /**
+     * Initializes the container and loads the rewriters. Rewriters that could not be loaded are reported via
+     * {@link #getLoadErrors()}.
+     *
+     * @param args The configuration of the {@link QuerqyRewriterRequestHandler}
+     */
+    public final void initialize(@SuppressWarnings({"rawtypes"}) final NamedList args) {
+
+        loadThreads = NamedListWrapper
+                .create(args, "Error in RewriterContainer config")
+                .getOrDefaultInteger(CONF_LOAD_THREADS, DEFAULT_LOAD_THREADS);
+        if (loadThreads < 1) {
+            throw new IllegalArgumentException(CONF_LOAD_THREADS + " must be > 0");
+        }
+        if (loadThreads > 1) {
+            final ThreadPoolExecutor executor = new ExecutorUtil.MDCAwareThreadPoolExecutor(loadThreads, loadThreads,
+                    60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new DefaultSolrThreadFactory("querqyRewriterLoader"));
+            // we only need the threads while rewriters are being (re-)loaded
+            executor.allowCoreThreadTimeOut(true);
+            loadExecutor = executor;
+        }
+
+        final Boolean lazyArg = args.getBooleanArg(CONF_LAZY);
+        lazy = lazyArg != null && lazyArg;
+
+        if (lazy) {
+            eagerRewriters = Arrays.stream(NamedListWrapper
+                    .create(args, "Error in RewriterContainer config")
+                    .getStringOrDefault(CONF_EAGER_REWRITERS, "").split(","))
+                    .map(String::trim)
+                    .filter(rewriterId -> !rewriterId.isEmpty())
+                    .collect(Collectors.toSet());
+
+            final int idleTimeMillis = NamedListWrapper
+                    .create(args, "Error in RewriterContainer config")
+                    .getOrDefaultInteger(CONF_LAZY_IDLE_TIME_MILLIS, DEFAULT_LAZY_IDLE_TIME_MILLIS);
+            if (idleTimeMillis < 0) {
+                throw new IllegalArgumentException(CONF_LAZY_IDLE_TIME_MILLIS + " must not be negative");
+            }
+            if (idleTimeMillis > 0) {
+                final long checkInterval = Math.max(1L, idleTimeMillis / 2L);
+                idleUnloadExecutor = Executors.newSingleThreadScheduledExecutor(
+                        new DefaultSolrThreadFactory("querqyRewriterIdleUnload"));
+                idleUnloadExecutor.scheduleWithFixedDelay(() -> unloadIdleRewriters(idleTimeMillis),
+                        checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        init(args);
+        LOG.info("Rewriter container initialized. Loaded rewriters: {}", rewriters.keySet());
+
+    }
+
     protected abstract void init(@SuppressWarnings({"rawtypes"}) NamedList args);
 
     /**
@@ -91,6 +196,13 @@ public abstract class RewriterContainer<R extends SolrResourceLoader> {
 
     }
 
+    /**
+     * @return rewriter ID -> error message, for the rewriters that failed to load
+     */
+    public synchronized Map<String, String> getLoadErrors() {
+        return loadErrors;
+    }
+
     public Optional<RewriterFactory> getRewriterFactory(final String rewriterId) {
         return Optional.ofNullable(rewriters.get(rewriterId));
     }
@@ -101,6 +213,17 @@ public abstract class RewriterContainer<R extends SolrResourceLoader> {
     }
 
     public final synchronized void close() {
+        if (rewriters != null) {
+            rewriters.values().forEach(this::closeRewriterFactory);
+        }
+        if (idleUnloadExecutor != null) {
+            idleUnloadExecutor.shutdownNow();
+            idleUnloadExecutor = null;
+        }
+        if (loadExecutor != null) {
+            loadExecutor.shutdownNow();
+            loadExecutor = null;
+        }
         doClose();
         rewritersChangeListener = null;
         resourceLoader = null;
@@ -111,17 +234,162 @@ public abstract class RewriterContainer<R extends SolrResourceLoader> {
     protected synchronized void loadRewriter(final String rewriterId, final Map<String, Object> instanceDesc) throws
             Exception {
 
-        final SolrRewriterFactoryAdapter factoryLoader = SolrRewriterFactoryAdapter.loadInstance(rewriterId,
-                instanceDesc);
-        factoryLoader.configure((Map<String, Object>) instanceDesc.getOrDefault("config", Collections.emptyMap()));
+        final RewriterFactory factory = createRewriterFactory(rewriterId, instanceDesc);
 
         final Map<String, RewriterFactory> newRewriters = new HashMap<>(rewriters);
-        newRewriters.put(rewriterId, factoryLoader.getRewriterFactory());
+        final RewriterFactory oldFactory = newRewriters.put(rewriterId, factory);
         rewriters = newRewriters;
+        if (oldFactory != null) {
+            closeRewriterFactory(oldFactory);
+        }
+        removeLoadError(rewriterId);
         LOG.info("Loaded rewriter: {}", rewriterId);
 
     }
 
+    /**
+     * <p>Loads a set of rewriters concurrently, using up to {@link #CONF_LOAD_THREADS} threads of an executor that
+     * lives as long as the container.</p>
+     *
+     * <p>An error in one rewriter will not keep the other rewriters from being loaded. The errors are logged and
+     * made available via {@link #getLoadErrors()}.</p>
+     *
+     * @param instanceDescriptions rewriter ID -> rewriter description
+     */
+    protected synchronized void loadRewriters(final Map<String, Map<String, Object>> instanceDescriptions) {
+
+        if (instanceDescriptions.isEmpty()) {
+            return;
+        }
+
+        final ExecutorService executor = instanceDescriptions.size() > 1 ? loadExecutor : null;
+
+        final Map<String, Future<RewriterFactory>> futures = new LinkedHashMap<>();
+        try {
+            for (final Map.Entry<String, Map<String, Object>> entry : instanceDescriptions.entrySet()) {
+                final Callable<RewriterFactory> task = () -> createRewriterFactory(entry.getKey(), entry.getValue());
+                if (executor != null) {
+                    futures.put(entry.getKey(), executor.submit(task));
+                } else {
+                    final FutureTask<RewriterFactory> futureTask = new FutureTask<>(task);
+                    futureTask.run();
+                    futures.put(entry.getKey(), futureTask);
+                }
+            }
+
+            final Map<String, RewriterFactory> newRewriters = new HashMap<>(rewriters);
+            final Map<String, String> newLoadErrors = new HashMap<>(loadErrors);
+            final List<RewriterFactory> oldFactories = new ArrayList<>();
+
+            for (final Map.Entry<String, Future<RewriterFactory>> entry : futures.entrySet()) {
+                final String rewriterId = entry.getKey();
+                try {
+                    final RewriterFactory oldFactory = newRewriters.put(rewriterId, entry.getValue().get());
+                    if (oldFactory != null) {
+                        oldFactories.add(oldFactory);
+                    }
+                    newLoadErrors.remove(rewriterId);
+                    LOG.info("Loaded rewriter: {}", rewriterId);
+                } catch (final ExecutionException e) {
+                    LOG.error("Could not load rewriter: " + rewriterId, e.getCause());
+                    newLoadErrors.put(rewriterId, String.valueOf(e.getCause()));
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
+                            "Interrupted while loading rewriters", e);
+                }
+            }
+
+            rewriters = newRewriters;
+            loadErrors = newLoadErrors;
+            oldFactories.forEach(this::closeRewriterFactory);
+
+        } finally {
+            // don't leave tasks behind if we were interrupted
+            futures.values().forEach(future -> future.cancel(true));
+        }
+
+    }
+
+    /**
+     * Creates the factory for a rewriter or, in lazy mode, a {@link LazyRewriterFactory} that will create the factory
+     * when it is needed for the first time.
+     *
+     * @param rewriterId The rewriter ID
+     * @param instanceDesc The rewriter description
+     * @return The factory
+     */
+    protected RewriterFactory createRewriterFactory(final String rewriterId, final Map<String, Object> instanceDesc) {
+
+        if (lazy && !eagerRewriters.contains(rewriterId)) {
+            final SolrRewriterFactoryAdapter factoryLoader = SolrRewriterFactoryAdapter.loadInstance(rewriterId,
+                    instanceDesc);
+            return new LazyRewriterFactory(rewriterId, instanceDesc, factoryLoader.getRewrittenQueryCacheControl(
+                    (Map<String, Object>) instanceDesc.getOrDefault("config", Collections.emptyMap())),
+                    this::buildRewriterFactory);
+        }
+
+        return buildRewriterFactory(rewriterId, instanceDesc);
+    }
+
+    protected RewriterFactory buildRewriterFactory(final String rewriterId, final Map<String, Object> instanceDesc) {
+
+        final SolrRewriterFactoryAdapter factoryLoader = SolrRewriterFactoryAdapter.loadInstance(rewriterId,
+                instanceDesc);
+        factoryLoader.configure((Map<String, Object>) instanceDesc.getOrDefault("config", Collections.emptyMap()));
+        return factoryLoader.getRewriterFactory();
+
+    }
+
+    /**
+     * Releases the resources of a rewriter factory that has been removed from the container or replaced. Requests
+     * that are still using the factory can continue to do so.
+     *
+     * @param factory The factory
+     */
+    protected void closeRewriterFactory(final RewriterFactory factory) {
+        if (factory instanceof Closeable) {
+            try {
+                ((Closeable) factory).close();
+            } catch (final IOException | RuntimeException e) {
+                LOG.warn("Could not close rewriter factory " + factory.getRewriterId(), e);
+            }
+        }
+    }
+
+    protected void unloadIdleRewriters(final long idleTimeMillis) {
+        final Map<String, RewriterFactory> currentRewriters = rewriters;
+        if (currentRewriters == null) {
+            return; // closed
+        }
+        final long now = System.currentTimeMillis();
+        for (final RewriterFactory factory : currentRewriters.values()) {
+            try {
+                if (factory instanceof LazyRewriterFactory
+                        && ((LazyRewriterFactory) factory).unloadIfIdle(now, idleTimeMillis)) {
+                    LOG.info("Unloaded idle rewriter: {}", factory.getRewriterId());
+                }
+            } catch (final RuntimeException e) {
+                // don't let the scheduled unloading stop
+                LOG.warn("Could not close idle rewriter " + factory.getRewriterId(), e);
+            }
+        }
+    }
+
+    protected synchronized void addLoadError(final String rewriterId, final Exception e) {
+        final Map<String, String> newLoadErrors = new HashMap<>(loadErrors);
+        newLoadErrors.put(rewriterId, String.valueOf(e));
+        loadErrors = newLoadErrors;
+    }
+
+    protected synchronized void removeLoadError(final String rewriterId) {
+        if (loadErrors.containsKey(rewriterId)) {
+            final Map<String, String> newLoadErrors = new HashMap<>(loadErrors);
+            newLoadErrors.remove(rewriterId);
+            loadErrors = newLoadErrors;
+        }
+    }
+
     protected synchronized void notifyRewritersChangeListener() {
 
         if (rewritersChangeListener != null && !rewriters.isEmpty()) {
@@ -1,5 +1,6 @@
 package querqy.solr;
 
+import querqy.lucene.rewrite.cache.RewrittenQueryCacheControl;
 import querqy.rewrite.RewriterFactory;
 
 import java.util.List;
@@ -19,6 +20,20 @@ public abstract class SolrRewriterFactoryAdapter {
 
     public abstract RewriterFactory getRewriterFactory();
 
+    /**
+     * <p>Tells whether the output of the rewriters can be cached, without having to build the rewriter factory. This
+     * is used for rewriters that are loaded lazily (see {@link LazyRewriterFactory}).</p>
+     *
+     * <p>Adapters whose rewriter factory implements {@link RewrittenQueryCacheControl} must override this method and
+     * return the same answers as the factory.</p>
+     *
+     * @param config The rewriter configuration
+     * @return The cache control for the rewriter factory
+     */
+    public RewrittenQueryCacheControl getRewrittenQueryCacheControl(final Map<String, Object> config) {
+        return () -> true;
+    }
+
     public String getRewriterId() {
         return rewriterId;
     }
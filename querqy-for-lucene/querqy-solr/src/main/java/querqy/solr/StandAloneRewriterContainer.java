@@ -13,9 +13,11 @@ import querqy.rewrite.RewriterFactory;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 
@@ -38,17 +40,22 @@ public class StandAloneRewriterContainer extends RewriterContainer<SolrResourceL
                         "Not a writable directory: " + querqyDir.getAbsolutePath());
             }
 
+            final Map<String, Map<String, Object>> instanceDescriptions = new LinkedHashMap<>();
             Arrays.stream(Objects.requireNonNull(querqyDir.listFiles(File::isFile))).forEach(file -> {
                 final String rewriterId = file.getName();
-                try {
-                    loadRewriter(rewriterId, readJson(new FileInputStream(file), Map.class));
+                try (final InputStream is = new FileInputStream(file)) {
+                    instanceDescriptions.put(rewriterId, readJson(is, Map.class));
                 } catch (final Exception e) {
                     LOG.error("Could not load rewriter: " + rewriterId, e);
+                    addLoadError(rewriterId, e);
                 }
 
 
             });
 
+            // the rewriters are independent of each other, we can build them concurrently
+            loadRewriters(instanceDescriptions);
+
         } else {
             if (!querqyDir.mkdirs()) {
                 throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
@@ -102,11 +109,16 @@ public class StandAloneRewriterContainer extends RewriterContainer<SolrResourceL
                 .getCoreDescriptor().getCollectionName(), resourceLoader, new NamedList<>());
 
         final Map<String, RewriterFactory> newRewriters = new HashMap<>(rewriters);
-        if ((newRewriters.remove(rewriterId) == null) && !storageIO.exists(rewriterPath)) {
+        final RewriterFactory oldFactory = newRewriters.remove(rewriterId);
+        if ((oldFactory == null) && !storageIO.exists(rewriterPath)) {
             throw new SolrException(SolrException.ErrorCode.NOT_FOUND, "No such rewriter: " + rewriterId);
         }
 
         rewriters = newRewriters;
+        if (oldFactory != null) {
+            closeRewriterFactory(oldFactory);
+        }
+        removeLoadError(rewriterId);
         storageIO.delete(rewriterPath);
         notifyRewritersChangeListener();
 
@@ -8,27 +8,39 @@ import org.apache.solr.common.SolrException;
 import org.apache.solr.common.cloud.SolrZkClient;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.core.SolrCore;
+import org.apache.solr.util.DefaultSolrThreadFactory;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
 import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.data.Stat;
 import querqy.lucene.GZIPAwareResourceLoader;
 import querqy.rewrite.RewriterFactory;
+import querqy.solr.utils.ContentDefinedChunker;
 import querqy.solr.utils.JsonUtil;
 import querqy.solr.utils.NamedListWrapper;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 
@@ -38,6 +50,32 @@ public class ZkRewriterContainer extends RewriterContainer<ZkSolrResourceLoader>
     public static final String CONF_MAX_FILE_SIZE = "zkMaxFileSize";
     public static final String CONF_CONFIG_NAME = "zkConfigName";
 
+    /**
+     * Time in millis for which change events from ZooKeeper are collected before the changed rewriters are (re-)loaded
+     * in one batch. Listeners will be notified once per batch. Events that arrive while a batch is being loaded will
+     * be coalesced into the next batch, even if this is set to 0.
+     */
+    public static final String CONF_RELOAD_DEBOUNCE_MILLIS = "zkReloadDebounceMillis";
+    public static final int DEFAULT_RELOAD_DEBOUNCE_MILLIS = 0;
+
+    /**
+     * The targeted average size of the (uncompressed) chunks into which the rewriter data is split. Chunk boundaries
+     * are determined by the content so that a small change to the rewriter definition only changes a few chunks.
+     */
+    public static final String CONF_AVG_CHUNK_SIZE = "zkAvgChunkSize";
+    public static final int DEFAULT_AVG_CHUNK_SIZE = 65536;
+
+    /**
+     * The maximum number of bytes of compressed chunk data that is kept in memory to avoid re-fetching unchanged chunks
+     * from ZooKeeper when a rewriter is reloaded. The chunks of the least recently read rewriters are evicted first.
+     * Set to 0 to disable caching.
+     */
+    public static final String CONF_CHUNK_CACHE_MAX_SIZE = "zkChunkCacheMaxSize";
+    public static final int DEFAULT_CHUNK_CACHE_MAX_SIZE = 16 * 1024 * 1024;
+
+    // the number of attempts to delete obsolete chunks if the inventory of the rewriter changes concurrently
+    private static final int MAX_CHUNK_DELETE_ATTEMPTS = 3;
+
     protected static final String IO_PATH = "querqy/rewriters";
     protected static final String IO_DATA = ".data";
 
@@ -46,6 +84,20 @@ public class ZkRewriterContainer extends RewriterContainer<ZkSolrResourceLoader>
     private SolrZkClient zkClient = null;
     private HashMap<String, RewriterWatcher> rewriterWatchers;
     private int maxFileSize = DEFAULT_MAX_FILE_SIZE; // TODO: Is 1 MB decimal or binary in ZK?
+    private int reloadDebounceMillis = DEFAULT_RELOAD_DEBOUNCE_MILLIS;
+    private ContentDefinedChunker chunker;
+
+    // rewriter ID -> chunk ID -> compressed chunk data, for the chunks of the rewriter definition that we read last,
+    // in LRU order
+    private final Map<String, Map<String, byte[]>> chunkCache = new LinkedHashMap<>(16, 0.75f, true);
+    private long chunkCacheSize = 0L;
+    private long chunkCacheMaxSize = DEFAULT_CHUNK_CACHE_MAX_SIZE;
+
+    // Changes that we have been notified about but that haven't been loaded yet
+    private Set<String> pendingRewriterIds = new LinkedHashSet<>();
+    private boolean pendingDirectoryChange = false;
+    private boolean reloadScheduled = false;
+    private ScheduledExecutorService reloadExecutor = null;
 
     protected ZkRewriterContainer(final SolrCore core, final ZkSolrResourceLoader resourceLoader) {
         super(core, resourceLoader);
@@ -59,6 +111,35 @@ public class ZkRewriterContainer extends RewriterContainer<ZkSolrResourceLoader>
                 .create(args, "Error in ZkRewriterContainer config")
                 .getOrDefaultInteger(CONF_MAX_FILE_SIZE, DEFAULT_MAX_FILE_SIZE);
 
+        final int avgChunkSize = NamedListWrapper
+                .create(args, "Error in ZkRewriterContainer config")
+                .getOrDefaultInteger(CONF_AVG_CHUNK_SIZE, DEFAULT_AVG_CHUNK_SIZE);
+        if (avgChunkSize < 1) {
+            throw new IllegalArgumentException(CONF_AVG_CHUNK_SIZE + " must be > 0");
+        }
+        // Compressing incompressible data adds up to ~1/8 plus GZIP header and trailer. Make sure that compressed
+        // chunks never exceed maxFileSize.
+        final int maxChunkSize = ((maxFileSize - 64) / 9) * 8;
+        if (maxChunkSize < 4) {
+            throw new IllegalArgumentException(CONF_MAX_FILE_SIZE + " is too small");
+        }
+        final int avg = Math.max(4, Math.min(avgChunkSize, maxChunkSize / 2));
+        chunker = new ContentDefinedChunker(avg / 4, avg, maxChunkSize);
+
+        reloadDebounceMillis = NamedListWrapper
+                .create(args, "Error in ZkRewriterContainer config")
+                .getOrDefaultInteger(CONF_RELOAD_DEBOUNCE_MILLIS, DEFAULT_RELOAD_DEBOUNCE_MILLIS);
+        if (reloadDebounceMillis < 0) {
+            throw new IllegalArgumentException(CONF_RELOAD_DEBOUNCE_MILLIS + " must not be negative");
+        }
+
+        chunkCacheMaxSize = NamedListWrapper
+                .create(args, "Error in ZkRewriterContainer config")
+                .getOrDefaultInteger(CONF_CHUNK_CACHE_MAX_SIZE, DEFAULT_CHUNK_CACHE_MAX_SIZE);
+        if (chunkCacheMaxSize < 0) {
+            throw new IllegalArgumentException(CONF_CHUNK_CACHE_MAX_SIZE + " must not be negative");
+        }
+
         final ZkController zkController = resourceLoader.getZkController();
         zkClient = zkController.getZkClient();
         final String collection = core.getCoreDescriptor().getCollectionName();
@@ -85,6 +166,9 @@ public class ZkRewriterContainer extends RewriterContainer<ZkSolrResourceLoader>
                     "Could not assure rewriter config path in ZK");
         }
 
+        reloadExecutor = Executors.newSingleThreadScheduledExecutor(
+                new DefaultSolrThreadFactory("querqyRewriterReload"));
+
         onDirectoryChanged();
 
     }
@@ -94,87 +178,190 @@ public class ZkRewriterContainer extends RewriterContainer<ZkSolrResourceLoader>
         rewriterWatchers.values().forEach(RewriterWatcher::disable);
         rewriterWatchers = null;
         zkClient = null;
+        pendingRewriterIds.clear();
+        pendingDirectoryChange = false;
+        chunkCache.clear();
+        chunkCacheSize = 0L;
+        if (reloadExecutor != null) {
+            // We must not wait for termination here as a batch in progress would need the lock that we are holding.
+            // The batch will find the container closed once it gets hold of the lock.
+            reloadExecutor.shutdownNow();
+            reloadExecutor = null;
+        }
     }
 
     @Override
     protected void doSaveRewriter(final String rewriterId, final Map<String, Object> instanceDescription)
             throws IOException {
 
-        final List<String> uuids = new ArrayList<>();
-
-        try (final ByteArrayOutputStream bos = new ByteArrayOutputStream(maxFileSize)) {
-
-            try (final GZIPOutputStream gzOut = new GZIPOutputStream(bos)) {
-                JsonUtil.writeJson(instanceDescription, gzOut);
-            }
-
+        final byte[] bytes;
+        try (final ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            JsonUtil.writeJson(instanceDescription, bos);
+            bytes = bos.toByteArray();
+        }
 
-            final byte[] bytes = bos.toByteArray();
-            int offset = 0;
+        // Each chunk is gzipped separately and stored under the hash of its content. Concatenated, the chunks form a
+        // valid multi-member GZIP stream. We only have to upload the chunks that don't exist yet.
+        final List<String> chunkIds = new ArrayList<>();
+        final Map<String, byte[]> chunks = new LinkedHashMap<>();
 
-            while (offset < bytes.length) {
-                final String uuid = UUID.randomUUID().toString();
-                final String path = rewriterDataPath(rewriterId, uuid);
-                final int len = Math.min(maxFileSize, bytes.length - offset);
-                
-                try {
-                    zkClient.makePath(path, Arrays.copyOfRange(bytes, offset, (offset + len)), true);
-                    offset += len;
-                    uuids.add(uuid);
-                } catch (InterruptedException | KeeperException e) {
-                    throw new IOException("Error saving rewriter data for " + rewriterId, e);        
-                }
-            }
+        for (final byte[] chunk : chunker.split(bytes)) {
+            final String chunkId = sha256Hex(chunk);
+            chunkIds.add(chunkId);
+            chunks.putIfAbsent(chunkId, chunk);
         }
 
+        final Set<String> createdChunkIds = uploadMissingChunks(rewriterId, chunks);
+
+        final String path = rewriterPath(rewriterId);
         final Stat stat;
         try {
-            stat = zkClient.exists(inventoryPath + "/" + rewriterId, null, true);
+            stat = zkClient.exists(path, null, true);
         } catch (final InterruptedException | KeeperException e) {
             throw new IOException("Error saving rewriter " + rewriterId, e);
         }
 
+        final Set<String> oldChunkIds;
         try {
 
             if (stat == null) {
 
                 try {
-                    zkClient.makePath(inventoryPath + "/" + rewriterId, String.join(",", uuids).getBytes(),
-                            CreateMode.PERSISTENT, null, true, true);
+                    zkClient.makePath(path, String.join(",", chunkIds).getBytes(), CreateMode.PERSISTENT, null, true,
+                            true);
                 } catch (KeeperException.NodeExistsException e) {
-                    for (final String uuid : uuids) {
-                        final String rewriterDataPath = rewriterDataPath(rewriterId, uuid);
-                        try {
-                            zkClient.delete(rewriterDataPath, -1, true);
-                        } catch (final Exception exception) {
-                            throw new IOException("Rewriter " + rewriterId +
-                                    " already exists. In addition, could not undo saving to " + rewriterDataPath,
-                                    exception);
-
-                        }
-                    }
+                    // Other chunks might have been uploaded concurrently for the rewriter that was created - only
+                    // remove the chunks that it doesn't reference
+                    deleteUnreferencedChunks(rewriterId, createdChunkIds);
                     throw new IOException("Rewriter " + rewriterId + " already exists");
                 }
+                oldChunkIds = Collections.emptySet();
 
             } else {
-                final String oldUuids = new String(zkClient.getData(inventoryPath + "/" + rewriterId, null, stat,
-                        true));
-                zkClient.setData(inventoryPath + "/" + rewriterId, String.join(",", uuids).getBytes(),
-                        stat.getVersion(), true);
-                for (final String oldUuid : oldUuids.split(",")) {
-                    final String oldPath = rewriterDataPath(rewriterId, oldUuid);
-                    try {
-                        zkClient.delete(oldPath, -1, true);
-                    } catch (final Exception e) {
-                        LOG.error("Could not delete old rewriter data: " + oldPath, e);
-                    }
-                }
+                oldChunkIds = new LinkedHashSet<>(Arrays.asList(new String(zkClient.getData(path, null, stat, true))
+                        .split(",")));
+                zkClient.setData(path, String.join(",", chunkIds).getBytes(), stat.getVersion(), true);
             }
 
         } catch (final InterruptedException | KeeperException e) {
             throw new IOException("Error saving rewriter " + rewriterId, e);
         }
 
+        // We skipped uploading the chunks that existed already. A concurrent save of the same rewriter might have
+        // deleted some of them as obsolete before it could see our inventory. It can only have done so before we
+        // changed the inventory (see deleteUnreferencedChunks), so we re-upload the chunks that are missing now.
+        uploadMissingChunks(rewriterId, chunks);
+
+        oldChunkIds.removeAll(chunkIds);
+        deleteUnreferencedChunks(rewriterId, oldChunkIds);
+
+    }
+
+    /**
+     * Uploads the chunks that don't exist in ZooKeeper.
+     *
+     * @param rewriterId The rewriter ID
+     * @param chunks chunk ID -&gt; uncompressed chunk data
+     * @return The IDs of the uploaded chunks
+     * @throws IOException if the chunks could not be uploaded
+     */
+    protected Set<String> uploadMissingChunks(final String rewriterId, final Map<String, byte[]> chunks)
+            throws IOException {
+
+        final Set<String> createdChunkIds = new HashSet<>();
+
+        for (final Map.Entry<String, byte[]> entry : chunks.entrySet()) {
+
+            final String chunkId = entry.getKey();
+            final String path = rewriterDataPath(rewriterId, chunkId);
+            try {
+                if (!zkClient.exists(path, true)) {
+                    final byte[] data = gzip(entry.getValue());
+                    if (data.length > maxFileSize) {
+                        throw new IOException("Compressed chunk exceeds " + CONF_MAX_FILE_SIZE + " for rewriter " +
+                                rewriterId);
+                    }
+                    zkClient.makePath(path, data, true);
+                    createdChunkIds.add(chunkId);
+                }
+            } catch (final KeeperException.NodeExistsException e) {
+                // the same chunk was uploaded concurrently
+            } catch (final InterruptedException | KeeperException e) {
+                throw new IOException("Error saving rewriter data for " + rewriterId, e);
+            }
+        }
+
+        return createdChunkIds;
+
+    }
+
+    /**
+     * <p>Deletes those of the given chunks that are not referenced by the current inventory of the rewriter.</p>
+     *
+     * <p>The chunks are deleted in a single transaction that fails if the inventory has changed since we read it. This
+     * guarantees that we never delete a chunk that a concurrent save relies on after it has published its inventory.
+     * If the rewriter doesn't exist, the transaction fails if it is created concurrently.
+     * If the inventory keeps changing, the chunks are left in ZooKeeper.</p>
+     *
+     * @param rewriterId The rewriter ID
+     * @param chunkIds The IDs of the chunks to delete
+     */
+    protected void deleteUnreferencedChunks(final String rewriterId, final Collection<String> chunkIds) {
+
+        if (chunkIds.isEmpty()) {
+            return;
+        }
+
+        final String path = rewriterPath(rewriterId);
+
+        for (int attempt = 0; attempt < MAX_CHUNK_DELETE_ATTEMPTS; attempt++) {
+
+            try {
+
+                final List<Op> ops = new ArrayList<>();
+
+                Set<String> referencedChunkIds;
+                try {
+                    final Stat stat = new Stat();
+                    referencedChunkIds = new HashSet<>(Arrays.asList(new String(zkClient.getData(path, null, stat,
+                            true)).split(",")));
+                    ops.add(Op.check(path, stat.getVersion()));
+                } catch (final KeeperException.NoNodeException e) {
+                    referencedChunkIds = Collections.emptySet();
+                    // make sure that the rewriter isn't created concurrently
+                    ops.add(Op.create(path, new byte[0], zkClient.getZkACLProvider().getACLsToAdd(path),
+                            CreateMode.PERSISTENT));
+                    ops.add(Op.delete(path, -1));
+                }
+                final int numGuards = ops.size();
+
+                for (final String chunkId : new LinkedHashSet<>(chunkIds)) {
+                    final String chunkPath = rewriterDataPath(rewriterId, chunkId);
+                    if (!referencedChunkIds.contains(chunkId) && zkClient.exists(chunkPath, true)) {
+                        ops.add(Op.delete(chunkPath, -1));
+                    }
+                }
+
+                if (ops.size() > numGuards) {
+                    zkClient.multi(ops, true);
+                }
+                return;
+
+            } catch (final KeeperException.BadVersionException | KeeperException.NoNodeException
+                    | KeeperException.NodeExistsException e) {
+                // the inventory changed or a chunk was deleted concurrently - try again
+            } catch (final KeeperException e) {
+                LOG.error("Could not delete old rewriter data for rewriter " + rewriterId, e);
+                return;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOG.error("Interrupted while deleting old rewriter data for rewriter " + rewriterId, e);
+                return;
+            }
+        }
+
+        LOG.warn("Could not delete old rewriter data for rewriter {} as it kept changing concurrently", rewriterId);
+
     }
 
     @Override
@@ -195,13 +382,8 @@ public class ZkRewriterContainer extends RewriterContainer<ZkSolrResourceLoader>
             throw new IOException("Error deleting rewriter " + rewriterId, e);
         }
 
-        try {
-            for (final String oldUuid : dataLoc.split(",")) {
-                zkClient.delete(rewriterDataPath(rewriterId, oldUuid), -1, true);
-            }
-        } catch (final InterruptedException | KeeperException e) {
-            LOG.error("The rewriter " + rewriterId + " was deleted but not all data could be removed from ZK", e);
-        }
+        // a chunk can occur more than once in the same rewriter
+        deleteUnreferencedChunks(rewriterId, new LinkedHashSet<>(Arrays.asList(dataLoc.split(","))));
     }
 
     protected synchronized void onDirectoryChanged() {
@@ -212,8 +394,7 @@ public class ZkRewriterContainer extends RewriterContainer<ZkSolrResourceLoader>
                 // register a Watcher on the directory 
                 // if we're not closed yet
                 if (zkClient != null) {
-                    onDirectoryChanged();
-                    notifyRewritersChangeListener();
+                    scheduleReload(null);
                 }
             }, true).stream() // get all children except for the .data subdirectory
                     .filter(child -> !IO_DATA.equals(child))
@@ -225,18 +406,20 @@ public class ZkRewriterContainer extends RewriterContainer<ZkSolrResourceLoader>
         }
 
         final Set<String> known = new HashSet<>(rewriters.keySet());
+        final List<String> unknown = new ArrayList<>();
 
         for (final String rewriterId : children) {
             if (!known.remove(rewriterId)) {
-                // unknown => new rewriter. This loads it and creates an updated 'rewriters' map
-                try {
-                    onRewriterChanged(rewriterId);
-                } catch (final Exception e) {
-                    LOG.error("Error loading rewriter " + rewriterId, e);
-                }
+                unknown.add(rewriterId);
             }
         }
 
+        // unknown => new rewriters. This loads them and creates an updated 'rewriters' map
+        loadRewritersFromZk(unknown);
+
+        getLoadErrors().keySet().stream().filter(rewriterId -> !children.contains(rewriterId))
+                .collect(Collectors.toList()).forEach(this::removeLoadError);
+
         // rewriters in 'known' no longer exist in Zk - do not keep them in the 'rewriters' map any longer
 
         // We do not manipulate the 'rewriters' map but replace it with an updated map to avoid locking/synchronization
@@ -244,7 +427,11 @@ public class ZkRewriterContainer extends RewriterContainer<ZkSolrResourceLoader>
         final Map<String, RewriterFactory> newRewriters = new HashMap<>(rewriters);
         for (final String rewriterId : known) {
             LOG.info("Unloading rewriter: {}", rewriterId);
-            newRewriters.remove(rewriterId);
+            final RewriterFactory oldFactory = newRewriters.remove(rewriterId);
+            if (oldFactory != null) {
+                closeRewriterFactory(oldFactory);
+            }
+            uncacheChunks(rewriterId);
             final RewriterWatcher oldWatcher = rewriterWatchers.remove(rewriterId);
             if (oldWatcher != null) {
                 oldWatcher.disable();
@@ -254,6 +441,107 @@ public class ZkRewriterContainer extends RewriterContainer<ZkSolrResourceLoader>
 
     }
 
+    /**
+     * Registers a change event and schedules a batch reload unless there is already a batch waiting to be processed.
+     *
+     * @param rewriterId The ID of the changed rewriter or null if the set of rewriters has changed
+     */
+    protected synchronized void scheduleReload(final String rewriterId) {
+
+        if (reloadExecutor == null) {
+            return; // closed
+        }
+
+        if (rewriterId == null) {
+            pendingDirectoryChange = true;
+        } else {
+            pendingRewriterIds.add(rewriterId);
+        }
+
+        if (!reloadScheduled) {
+            reloadScheduled = true;
+            reloadExecutor.schedule(this::processPendingChanges, reloadDebounceMillis, TimeUnit.MILLISECONDS);
+        }
+
+    }
+
+    /**
+     * Loads all rewriters that have changed since the last batch and notifies the RewritersChangeListener once.
+     */
+    protected synchronized void processPendingChanges() {
+
+        reloadScheduled = false;
+
+        if (zkClient == null) {
+            return; // closed
+        }
+
+        final boolean directoryChanged = pendingDirectoryChange;
+        final Set<String> changedRewriterIds = pendingRewriterIds;
+        pendingDirectoryChange = false;
+        pendingRewriterIds = new LinkedHashSet<>();
+
+        final Set<String> loadedBefore = new HashSet<>(rewriters.keySet());
+        if (directoryChanged) {
+            onDirectoryChanged();
+        }
+
+        // Skip rewriters that have just been loaded or unloaded by onDirectoryChanged() and rewriters that have been
+        // deleted in the meantime (for example, created and deleted within the same batch)
+        loadRewritersFromZk(changedRewriterIds.stream()
+                .filter(rewriterId -> loadedBefore.contains(rewriterId) == rewriters.containsKey(rewriterId))
+                .filter(this::rewriterExists)
+                .collect(Collectors.toList()));
+
+        LOG.info("Processed batch of rewriter changes. Directory changed: {}, changed rewriters: {}",
+                directoryChanged, changedRewriterIds);
+        notifyRewritersChangeListener();
+
+    }
+
+    /**
+     * Checks whether the definition of a rewriter still exists in ZooKeeper.
+     *
+     * @param rewriterId The rewriter ID
+     * @return false iff the rewriter definition no longer exists. True if the check fails so that the error will be
+     * reported when the rewriter is loaded.
+     */
+    protected boolean rewriterExists(final String rewriterId) {
+        try {
+            if (zkClient.exists(rewriterPath(rewriterId), true)) {
+                return true;
+            }
+        } catch (final InterruptedException | KeeperException e) {
+            LOG.warn("Could not check whether rewriter " + rewriterId + " exists", e);
+            return true;
+        }
+        removeLoadError(rewriterId);
+        return false;
+    }
+
+    /**
+     * Reads the definitions of the given rewriters from ZooKeeper, registers a watcher for each of them and loads them
+     * concurrently. Errors are logged per rewriter.
+     *
+     * @param rewriterIds The IDs of the rewriters to load
+     */
+    protected synchronized void loadRewritersFromZk(final Collection<String> rewriterIds) {
+
+        final Map<String, Map<String, Object>> instanceDescriptions = new LinkedHashMap<>();
+        for (final String rewriterId : rewriterIds) {
+            try {
+                instanceDescriptions.put(rewriterId, readRewriterDefinition(rewriterId,
+                        newRewriterWatcher(rewriterId)));
+            } catch (final Exception e) {
+                LOG.error("Error loading rewriter " + rewriterId, e);
+                addLoadError(rewriterId, e);
+            }
+        }
+
+        loadRewriters(instanceDescriptions);
+
+    }
+
     public synchronized void onRewriterChanged(final String rewriterId) throws Exception {
 
         loadRewriter(rewriterId, readRewriterDefinition(rewriterId, newRewriterWatcher(rewriterId)));
@@ -270,12 +558,26 @@ public class ZkRewriterContainer extends RewriterContainer<ZkSolrResourceLoader>
             throws IOException {
         try (final ByteArrayOutputStream bos = new ByteArrayOutputStream(maxFileSize)) {
 
-            for (final String uuid : new String(zkClient.getData(rewriterPath(rewriterId), watcher, null, true))
+            // Chunk nodes are never modified once written (their names are either content hashes or, in data saved
+            // by older versions, random UUIDs). We can thus keep them locally and only fetch missing chunks.
+            final Map<String, byte[]> cachedChunks = chunkCache.getOrDefault(rewriterId, Collections.emptyMap());
+            final Map<String, byte[]> chunks = new HashMap<>();
+
+            for (final String chunkId : new String(zkClient.getData(rewriterPath(rewriterId), watcher, null, true))
                     .split(",")) {
-                final byte[] data = zkClient.getData(rewriterDataPath(rewriterId, uuid), null, null, true);
+                byte[] data = chunks.get(chunkId);
+                if (data == null) {
+                    data = cachedChunks.get(chunkId);
+                    if (data == null) {
+                        data = zkClient.getData(rewriterDataPath(rewriterId, chunkId), null, null, true);
+                    }
+                    chunks.put(chunkId, data);
+                }
                 bos.write(data);
             }
 
+            cacheChunks(rewriterId, chunks);
+
             return readJson(GZIPAwareResourceLoader.detectGZIPAndWrap(new ByteArrayInputStream(bos.toByteArray())),
                     Map.class);
 
@@ -290,12 +592,61 @@ public class ZkRewriterContainer extends RewriterContainer<ZkSolrResourceLoader>
         }
     }
 
+    private void cacheChunks(final String rewriterId, final Map<String, byte[]> chunks) {
+
+        uncacheChunks(rewriterId);
+
+        final long size = chunks.values().stream().mapToLong(data -> data.length).sum();
+        if (size > chunkCacheMaxSize) {
+            return;
+        }
+
+        final Iterator<Map<String, byte[]>> eldest = chunkCache.values().iterator();
+        while (chunkCacheSize + size > chunkCacheMaxSize && eldest.hasNext()) {
+            chunkCacheSize -= eldest.next().values().stream().mapToLong(data -> data.length).sum();
+            eldest.remove();
+        }
+
+        chunkCache.put(rewriterId, chunks);
+        chunkCacheSize += size;
+    }
+
+    private void uncacheChunks(final String rewriterId) {
+        final Map<String, byte[]> chunks = chunkCache.remove(rewriterId);
+        if (chunks != null) {
+            chunkCacheSize -= chunks.values().stream().mapToLong(data -> data.length).sum();
+        }
+    }
+
     protected String rewriterPath(final String rewriterId) {
         return inventoryPath + "/" + rewriterId;
     }
 
-    protected String rewriterDataPath(final String rewriterId, final String uuid) {
-        return dataPath + "/" + rewriterId + "-" + uuid;
+    protected String rewriterDataPath(final String rewriterId, final String chunkId) {
+        return dataPath + "/" + rewriterId + "-" + chunkId;
+    }
+
+    protected static byte[] gzip(final byte[] bytes) throws IOException {
+        try (final ByteArrayOutputStream bos = new ByteArrayOutputStream(bytes.length)) {
+            try (final GZIPOutputStream gzOut = new GZIPOutputStream(bos)) {
+                gzOut.write(bytes);
+            }
+            return bos.toByteArray();
+        }
+    }
+
+    protected static String sha256Hex(final byte[] bytes) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final StringBuilder sb = new StringBuilder(64);
+        for (final byte b : digest.digest(bytes)) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
     }
 
     protected synchronized RewriterWatcher newRewriterWatcher(final String rewriterId) {
@@ -319,14 +670,7 @@ public class ZkRewriterContainer extends RewriterContainer<ZkSolrResourceLoader>
         @Override
         public void process(final WatchedEvent event) {
             if (enabled) {
-                try {
-                    onRewriterChanged(rewriterId);
-                } catch (final Exception e) {
-                    LOG.error("Error processing WatchedEvent for rewriter " + rewriterId, e);
-                    return;
-                }
-                LOG.info("Rewriter changed: {}", rewriterId);
-                notifyRewritersChangeListener();
+                scheduleReload(rewriterId);
             }
         }
 
@@ -12,6 +12,13 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Creates the NumberUnit queries as Solr query strings, which have to be parsed for each request.
+ *
+ * @deprecated Use {@link querqy.lucene.contrib.rewrite.numberunit.NumberUnitQueryCreatorLucene}, which creates native
+ * Lucene queries.
+ */
+@Deprecated
 public class NumberUnitQueryCreatorSolr extends NumberUnitQueryCreator {
 
     public NumberUnitQueryCreatorSolr(int scale) {
@@ -4,6 +4,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.lucene.analysis.util.ResourceLoader;
 import org.apache.solr.common.util.NamedList;
+import querqy.lucene.contrib.rewrite.numberunit.NumberUnitQueryCreatorLucene;
 import querqy.rewrite.RewriterFactory;
 import querqy.rewrite.contrib.numberunit.model.FieldDefinition;
 import querqy.rewrite.contrib.numberunit.model.NumberUnitDefinition;
@@ -185,7 +186,7 @@ public class NumberUnitRewriterFactory extends SolrRewriterFactoryAdapter implem
                 DEFAULT_SCALE_FOR_LINEAR_FUNCTIONS);
 
         delegate = new querqy.rewrite.contrib.NumberUnitRewriterFactory(rewriterId, parseConfig(numberUnitConfigObject),
-                new NumberUnitQueryCreatorSolr(scale));
+                new NumberUnitQueryCreatorLucene(scale));
 
     }
 
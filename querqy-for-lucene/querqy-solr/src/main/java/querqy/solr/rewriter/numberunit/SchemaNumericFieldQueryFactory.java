@@ -0,0 +1,37 @@
+package querqy.solr.rewriter.numberunit;
+
+import org.apache.lucene.search.DoubleValuesSource;
+import org.apache.lucene.search.Query;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.SchemaField;
+import querqy.lucene.contrib.rewrite.numberunit.NumericFieldQueryFactory;
+
+import java.math.BigDecimal;
+
+/**
+ * A {@link NumericFieldQueryFactory} that delegates to the field types of the Solr schema. This works for point and
+ * trie fields alike.
+ */
+public class SchemaNumericFieldQueryFactory implements NumericFieldQueryFactory {
+
+    private final IndexSchema schema;
+
+    public SchemaNumericFieldQueryFactory(final IndexSchema schema) {
+        this.schema = schema;
+    }
+
+    @Override
+    public Query createRangeQuery(final String fieldName, final BigDecimal lower, final boolean includeLower,
+                                  final BigDecimal upper, final boolean includeUpper) {
+        final SchemaField field = schema.getField(fieldName);
+        // numeric field types don't need a QParser
+        return field.getType().getRangeQuery(null, field, lower == null ? null : lower.toPlainString(),
+                upper == null ? null : upper.toPlainString(), includeLower, includeUpper);
+    }
+
+    @Override
+    public DoubleValuesSource createValuesSource(final String fieldName) {
+        final SchemaField field = schema.getField(fieldName);
+        return field.getType().getValueSource(field, null).asDoubleValuesSource();
+    }
+}
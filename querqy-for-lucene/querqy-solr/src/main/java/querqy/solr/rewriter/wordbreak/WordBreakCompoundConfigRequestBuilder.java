@@ -1,8 +1,11 @@
 package querqy.solr.rewriter.wordbreak;
 
 import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_ALWAYS_ADD_REVERSE_COMPOUNDS;
+import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_CACHE_SIZE;
+import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_COMPOUNDER;
 import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_DECOMPOUND;
 import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_DECOMPOUND_MAX_EXPANSIONS;
+import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_DECOMPOUND_PRECOMPUTED_DICTIONARY;
 import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_DECOMPOUND_VERIFY_COLLATION;
 import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_DICTIONARY_FIELD;
 import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_LOWER_CASE_INPUT;
@@ -13,6 +16,7 @@ import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CO
 import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_PROTECTED_WORDS;
 import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_REVERSE_COMPOUND_TRIGGER_WORDS;
 
+import querqy.lucene.contrib.rewrite.wordbreak.CompounderType;
 import querqy.lucene.contrib.rewrite.wordbreak.Morphology;
 import querqy.solr.RewriterConfigRequestBuilder;
 
@@ -32,8 +36,11 @@ public class WordBreakCompoundConfigRequestBuilder extends RewriterConfigRequest
     private Boolean alwaysAddReverseCompounds;
     private Integer decompoundMaxExpansions;
     private Boolean decompoundVerifyCollation;
+    private Boolean decompoundPrecomputedDictionary;
     private Morphology morphology;
     private List<String> protectedWords;
+    private Integer cacheSize;
+    private CompounderType compounderType;
 
     public WordBreakCompoundConfigRequestBuilder() {
         super(WordBreakCompoundRewriterFactory.class);
@@ -81,6 +88,14 @@ public class WordBreakCompoundConfigRequestBuilder extends RewriterConfigRequest
             config.put(CONF_MORPHOLOGY, morphology.name());
         }
 
+        if (cacheSize != null) {
+            config.put(CONF_CACHE_SIZE, cacheSize);
+        }
+
+        if (compounderType != null) {
+            config.put(CONF_COMPOUNDER, compounderType.name());
+        }
+
         Map<String, Object> decompoundConf = null;
 
         if (decompoundMaxExpansions != null) {
@@ -94,6 +109,12 @@ public class WordBreakCompoundConfigRequestBuilder extends RewriterConfigRequest
             decompoundConf.put(CONF_DECOMPOUND_VERIFY_COLLATION,
                     decompoundVerifyCollation);
         }
+        if (decompoundPrecomputedDictionary != null) {
+            if (decompoundConf == null) {
+                decompoundConf = new HashMap<>();
+            }
+            decompoundConf.put(CONF_DECOMPOUND_PRECOMPUTED_DICTIONARY, decompoundPrecomputedDictionary);
+        }
 
         if (decompoundConf != null) {
             config.put(CONF_DECOMPOUND, decompoundConf);
@@ -180,6 +201,24 @@ public class WordBreakCompoundConfigRequestBuilder extends RewriterConfigRequest
         return this;
     }
 
+    public WordBreakCompoundConfigRequestBuilder precomputedDecompoundDictionary(final Boolean precomputed) {
+        this.decompoundPrecomputedDictionary = precomputed;
+        return this;
+    }
+
+    public WordBreakCompoundConfigRequestBuilder cacheSize(final Integer cacheSize) {
+        if (cacheSize != null && cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize must be >=0 or null");
+        }
+        this.cacheSize = cacheSize;
+        return this;
+    }
+
+    public WordBreakCompoundConfigRequestBuilder compounder(final CompounderType compounderType) {
+        this.compounderType = compounderType;
+        return this;
+    }
+
     public WordBreakCompoundConfigRequestBuilder morphology(final Morphology morphology) {
         this.morphology = morphology;
         return this;
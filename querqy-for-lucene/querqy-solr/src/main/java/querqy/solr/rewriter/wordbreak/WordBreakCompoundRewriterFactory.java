@@ -2,7 +2,9 @@ package querqy.solr.rewriter.wordbreak;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.solr.request.SolrRequestInfo;
+import querqy.lucene.contrib.rewrite.wordbreak.CompounderType;
 import querqy.lucene.contrib.rewrite.wordbreak.Morphology;
+import querqy.lucene.rewrite.cache.RewrittenQueryCacheControl;
 import querqy.rewrite.RewriterFactory;
 import querqy.solr.rewriter.ClassicConfigurationParser;
 import querqy.solr.utils.ConfigUtils;
@@ -28,7 +30,10 @@ public class WordBreakCompoundRewriterFactory extends SolrRewriterFactoryAdapter
     public static final String CONF_DECOMPOUND = "decompound";
     public static final String CONF_DECOMPOUND_MAX_EXPANSIONS = "maxExpansions";
     public static final String CONF_DECOMPOUND_VERIFY_COLLATION = "verifyCollation";
+    public static final String CONF_DECOMPOUND_PRECOMPUTED_DICTIONARY = "precomputedDictionary";
     public static final String CONF_PROTECTED_WORDS = "protectedWords";
+    public static final String CONF_CACHE_SIZE = "cacheSize";
+    public static final String CONF_COMPOUNDER = "compounder";
 
 
     private static final int DEFAULT_MIN_SUGGESTION_FREQ = 1;
@@ -36,6 +41,8 @@ public class WordBreakCompoundRewriterFactory extends SolrRewriterFactoryAdapter
     private static final int DEFAULT_MIN_BREAK_LENGTH = 3;
     private static final int DEFAULT_MAX_DECOMPOUND_EXPANSIONS = 3;
     private static final boolean DEFAULT_VERIFY_DECOMPOUND_COLLATION = false;
+    private static final boolean DEFAULT_DECOMPOUND_PRECOMPUTED_DICTIONARY = false;
+    private static final int DEFAULT_CACHE_SIZE = 0;
 
 
     private querqy.lucene.contrib.rewrite.wordbreak.WordBreakCompoundRewriterFactory delegate = null;
@@ -75,6 +82,10 @@ public class WordBreakCompoundRewriterFactory extends SolrRewriterFactoryAdapter
         final boolean verifyDecompoundCollation =  ConfigUtils.getArg(decompoundConf, CONF_DECOMPOUND_VERIFY_COLLATION,
                 DEFAULT_VERIFY_DECOMPOUND_COLLATION);
 
+        // look up the document frequencies of split terms in a dictionary that is built per searcher
+        final boolean precomputedDecompoundDictionary = ConfigUtils.getArg(decompoundConf,
+                CONF_DECOMPOUND_PRECOMPUTED_DICTIONARY, DEFAULT_DECOMPOUND_PRECOMPUTED_DICTIONARY);
+
         if (maxDecompoundExpansions < 0) {
             throw new IllegalArgumentException("decompound.maxExpansions >= 0 expected. Found: "
                     + maxDecompoundExpansions);
@@ -92,6 +103,13 @@ public class WordBreakCompoundRewriterFactory extends SolrRewriterFactoryAdapter
         // of a combination
         final List<String> protectedWords = ConfigUtils.getArg(config, CONF_PROTECTED_WORDS, Collections.emptyList());
 
+        // SPELL_CHECKER or MORPHOLOGICAL (exact lookup of the compound, using the linking morphemes of the morphology)
+        final CompounderType compounderType = ConfigUtils.getEnumArg(config, CONF_COMPOUNDER, CompounderType.class)
+                .orElse(CompounderType.SPELL_CHECKER);
+
+        // the max. number of (de)compounding results to cache per searcher, 0 = no caching (default)
+        final int cacheSize = ConfigUtils.getArg(config, CONF_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+
         // the indexReader has to be supplied on a per-request basis from a request thread-local
         final Supplier<IndexReader> indexReaderSupplier = () ->
                 SolrRequestInfo.getRequestInfo().getReq().getSearcher().getIndexReader();
@@ -99,7 +117,8 @@ public class WordBreakCompoundRewriterFactory extends SolrRewriterFactoryAdapter
         delegate  = new querqy.lucene.contrib.rewrite.wordbreak.WordBreakCompoundRewriterFactory(rewriterId,
                 indexReaderSupplier, morphology, indexField, lowerCaseInput, minSuggestionFreq, maxCombineLength,
                 minBreakLength,reverseCompoundTriggerWords, alwaysAddReverseCompounds, maxDecompoundExpansions,
-                verifyDecompoundCollation, protectedWords);
+                verifyDecompoundCollation, protectedWords, precomputedDecompoundDictionary, cacheSize,
+                compounderType);
     }
 
     @Override
@@ -110,6 +129,12 @@ public class WordBreakCompoundRewriterFactory extends SolrRewriterFactoryAdapter
             return Collections.singletonList("Cannot load morphology: " + config.get("morphology"));
         }
 
+        try {
+            ConfigUtils.getEnumArg(config, CONF_COMPOUNDER, CompounderType.class);
+        } catch (final Exception e) {
+            return Collections.singletonList("Unknown compounder: " + config.get(CONF_COMPOUNDER));
+        }
+
         final Map<String, Object> decompoundConf = ConfigUtils.getArg(config, "decompound", Collections.emptyMap());
         final int maxDecompoundExpansions = ConfigUtils.getArg(decompoundConf, "maxExpansions",
                 DEFAULT_MAX_DECOMPOUND_EXPANSIONS);
@@ -117,6 +142,11 @@ public class WordBreakCompoundRewriterFactory extends SolrRewriterFactoryAdapter
             return Collections.singletonList("maxDecompoundExpansions >= 0 expected");
         }
 
+        final int cacheSize = ConfigUtils.getArg(config, CONF_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+        if (cacheSize < 0) {
+            return Collections.singletonList("cacheSize >= 0 expected");
+        }
+
         final List<String> protectedWords = ConfigUtils.getArg(config, CONF_PROTECTED_WORDS, Collections.emptyList());
         if (protectedWords.stream().map(String::trim).anyMatch(String::isEmpty)) {
             return Collections.singletonList("protected word must not be an empty string");
@@ -138,4 +168,10 @@ public class WordBreakCompoundRewriterFactory extends SolrRewriterFactoryAdapter
     public RewriterFactory getRewriterFactory() {
         return delegate;
     }
+
+    @Override
+    public RewrittenQueryCacheControl getRewrittenQueryCacheControl(final Map<String, Object> config) {
+        // the rewriters depend on the index
+        return () -> false;
+    }
 }
@@ -0,0 +1,89 @@
+package querqy.solr.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>Splits data into chunks at content-defined boundaries, using a gear-based rolling hash.</p>
+ *
+ * <p>As chunk boundaries only depend on the bytes in a small window before the boundary, a local change to the data
+ * only changes the chunk(s) around the change, while all other chunks stay the same. This allows to store and
+ * transfer only the chunks that have changed.</p>
+ */
+public class ContentDefinedChunker {
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // The seed must never change - otherwise chunk boundaries of data that was stored before would change
+        final Random random = new Random(0x5175657271794cL);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final int minSize;
+    private final int maxSize;
+    private final long mask;
+
+    /**
+     * @param minSize The minimum chunk size. Only the last chunk can be smaller.
+     * @param avgSize The targeted average chunk size. It will be rounded down to a power of 2.
+     * @param maxSize The maximum chunk size.
+     */
+    public ContentDefinedChunker(final int minSize, final int avgSize, final int maxSize) {
+
+        if (minSize < 1) {
+            throw new IllegalArgumentException("minSize must be > 0");
+        }
+        if (avgSize < minSize) {
+            throw new IllegalArgumentException("avgSize must not be smaller than minSize");
+        }
+        if (maxSize < avgSize) {
+            throw new IllegalArgumentException("maxSize must not be smaller than avgSize");
+        }
+
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        // use the highest bits as they depend on the most recent bytes
+        final int bits = 31 - Integer.numberOfLeadingZeros(avgSize);
+        this.mask = bits == 0 ? 0L : -1L << (64 - bits);
+    }
+
+    public List<byte[]> split(final byte[] data) {
+
+        final List<byte[]> chunks = new ArrayList<>();
+
+        int start = 0;
+        while (start < data.length) {
+            final int end = nextBoundary(data, start);
+            chunks.add(Arrays.copyOfRange(data, start, end));
+            start = end;
+        }
+
+        return chunks;
+    }
+
+    protected int nextBoundary(final byte[] data, final int start) {
+
+        final int remaining = data.length - start;
+        if (remaining <= minSize) {
+            return data.length;
+        }
+
+        final int end = start + Math.min(remaining, maxSize);
+
+        long hash = 0L;
+        for (int i = start + minSize; i < end; i++) {
+            hash = (hash << 1) + GEAR[data[i] & 0xff];
+            if ((hash & mask) == 0L) {
+                return i + 1;
+            }
+        }
+
+        return end;
+    }
+
+}
@@ -36,10 +36,15 @@ public class AbstractQuerqySolrCloudTestCase extends SolrCloudTestCase {
     }
 
     protected QueryResponse waitForRewriterAndQuery(final QueryRequest req, final SolrClient client) throws Exception {
-        // It will take a bit to propagate a rewriter config to the nodes. We try to apply the rewriter max. 3 times and
-        // wait for a bit between the attempts
+        return waitForRewriterAndQuery(req, client, 20);
+    }
 
-        int attempts = 20;
+    protected QueryResponse waitForRewriterAndQuery(final QueryRequest req, final SolrClient client,
+                                                    final int maxAttempts) throws Exception {
+        // It will take a bit to propagate a rewriter config to the nodes. We try to apply the rewriter max. maxAttempts
+        // times and wait for a bit between the attempts
+
+        int attempts = maxAttempts;
         do {
             synchronized (this) {
                 wait(100L);
@@ -0,0 +1,61 @@
+package querqy.solr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.junit.Test;
+
+public class FilterQueryStatsTest {
+
+    private final Query a = new TermQuery(new Term("f", "a"));
+    private final Query b = new TermQuery(new Term("f", "b"));
+    private final Query c = new TermQuery(new Term("f", "c"));
+
+    @Test
+    public void testThatQueriesAreSortedByFrequency() {
+
+        final FilterQueryStats stats = new FilterQueryStats(10);
+        stats.record(a);
+        stats.record(b);
+        stats.record(b);
+        stats.record(new TermQuery(new Term("f", "b")));
+        stats.record(c);
+        stats.record(c);
+
+        assertThat(stats.getQueriesByFrequency()).containsExactly(b, c, a);
+
+    }
+
+    @Test
+    public void testThatMaxSizeIsRespected() {
+
+        final FilterQueryStats stats = new FilterQueryStats(2);
+        stats.record(a);
+        stats.record(b);
+        stats.record(c);
+        stats.record(a);
+
+        assertThat(stats.getQueriesByFrequency()).containsExactly(a, b);
+
+    }
+
+    @Test
+    public void testThatDecayMakesRoomForNewQueries() {
+
+        final FilterQueryStats stats = new FilterQueryStats(2);
+        stats.record(a);
+        stats.record(a);
+        stats.record(b);
+
+        stats.decay();
+        assertThat(stats.getQueriesByFrequency()).containsExactly(a);
+
+        stats.record(c);
+        stats.record(c);
+        assertThat(stats.getQueriesByFrequency()).containsExactly(c, a);
+
+    }
+
+}
@@ -0,0 +1,154 @@
+package querqy.solr;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+import querqy.rewrite.RewriterFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LazyRewriterFactoryTest {
+
+    @Test
+    public void testThatConcurrentFirstRequestsBuildFactoryOnlyOnce() throws Exception {
+
+        final AtomicInteger builds = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final RewriterFactory delegate = mock(RewriterFactory.class);
+
+        final LazyRewriterFactory factory = new LazyRewriterFactory("r1", Collections.emptyMap(), () -> true,
+                (id, desc) -> {
+                    builds.incrementAndGet();
+                    return delegate;
+                });
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<RewriterFactory>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return factory.getDelegate();
+                }));
+            }
+            start.countDown();
+            for (final Future<RewriterFactory> future : futures) {
+                assertThat(future.get(10, TimeUnit.SECONDS), sameInstance(delegate));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(builds.get(), is(1));
+
+    }
+
+    @Test
+    public void testThatIdleFactoryIsUnloadedAndRebuilt() {
+
+        final AtomicInteger builds = new AtomicInteger();
+        final LazyRewriterFactory factory = new LazyRewriterFactory("r1", Collections.emptyMap(), () -> true,
+                (id, desc) -> {
+                    builds.incrementAndGet();
+                    return mock(RewriterFactory.class);
+                });
+
+        assertThat(factory.isLoaded(), is(false));
+        assertThat(factory.unloadIfIdle(System.currentTimeMillis(), 0L), is(false));
+
+        factory.getDelegate();
+        assertThat(factory.isLoaded(), is(true));
+        assertThat(factory.unloadIfIdle(System.currentTimeMillis(), 60000L), is(false));
+        assertThat(factory.isLoaded(), is(true));
+
+        assertThat(factory.unloadIfIdle(System.currentTimeMillis() + 60001L, 60000L), is(true));
+        assertThat(factory.isLoaded(), is(false));
+
+        factory.getDelegate();
+        assertThat(builds.get(), is(2));
+
+    }
+
+    @Test
+    public void testThatFailedBuildIsOnlyRetriedAfterDelay() {
+
+        final AtomicInteger builds = new AtomicInteger();
+        final AtomicLong now = new AtomicLong(100000L);
+        final RewriterFactory delegate = mock(RewriterFactory.class);
+
+        final LazyRewriterFactory factory = new LazyRewriterFactory("r1", Collections.emptyMap(), () -> true,
+                (id, desc) -> {
+                    if (builds.incrementAndGet() < 3) {
+                        throw new IllegalArgumentException("broken");
+                    }
+                    return delegate;
+                }) {
+            @Override
+            protected long currentTimeMillis() {
+                return now.get();
+            }
+        };
+
+        final IllegalArgumentException failure = assertThrows(IllegalArgumentException.class, factory::getDelegate);
+        assertThat(builds.get(), is(1));
+
+        // the failure is remembered
+        now.addAndGet(LazyRewriterFactory.MIN_RETRY_DELAY_MILLIS - 1L);
+        assertThat(assertThrows(IllegalArgumentException.class, factory::getDelegate), sameInstance(failure));
+        assertThat(builds.get(), is(1));
+
+        now.addAndGet(1L);
+        assertThrows(IllegalArgumentException.class, factory::getDelegate);
+        assertThat(builds.get(), is(2));
+
+        // the delay has doubled
+        now.addAndGet(LazyRewriterFactory.MIN_RETRY_DELAY_MILLIS);
+        assertThrows(IllegalArgumentException.class, factory::getDelegate);
+        assertThat(builds.get(), is(2));
+
+        now.addAndGet(LazyRewriterFactory.MIN_RETRY_DELAY_MILLIS);
+        assertThat(factory.getDelegate(), sameInstance(delegate));
+        assertThat(builds.get(), is(3));
+
+    }
+
+    @Test
+    public void testThatCacheControlDoesNotBuildFactory() {
+
+        final AtomicInteger builds = new AtomicInteger();
+        final LazyRewriterFactory factory = new LazyRewriterFactory("r1", Collections.emptyMap(), () -> false,
+                (id, desc) -> {
+                    builds.incrementAndGet();
+                    return mock(RewriterFactory.class);
+                });
+
+        assertThat(factory.isRewrittenQueryCacheable(), is(false));
+        assertThat(factory.getRequestParamsForRewrittenQueryCacheKey(), empty());
+        assertThat(factory.isLoaded(), is(false));
+        assertThat(builds.get(), is(0));
+
+    }
+
+    @Test
+    public void testThatUnloadedFactoryHasNoCacheableGenerableTerms() {
+        final LazyRewriterFactory factory = new LazyRewriterFactory("r1", Collections.emptyMap(), () -> true,
+                (id, desc) -> mock(RewriterFactory.class));
+        assertThat(factory.getCacheableGenerableTerms(), empty());
+        assertThat(factory.isLoaded(), is(false));
+    }
+
+}
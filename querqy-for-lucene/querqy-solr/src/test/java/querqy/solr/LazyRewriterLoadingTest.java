@@ -0,0 +1,111 @@
+package querqy.solr;
+
+import static querqy.solr.QuerqyQParserPlugin.PARAM_REWRITERS;
+import static querqy.solr.StandaloneSolrTestSupport.deleteRewriter;
+import static querqy.solr.StandaloneSolrTestSupport.withCommonRulesRewriter;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.params.DisMaxParams;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.QueryParsing;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import querqy.rewrite.RewriterFactory;
+import querqy.solr.rewriter.commonrules.CommonRulesConfigRequestBuilder;
+
+@SolrTestCaseJ4.SuppressSSL
+public class LazyRewriterLoadingTest extends SolrTestCaseJ4 {
+
+    public void index() {
+
+        assertU(adoc("id", "1", "f1", "a"));
+        assertU(adoc("id", "2", "f2", "b"));
+        assertU(adoc("id", "3", "f2", "c"));
+        assertU(commit());
+    }
+
+    @BeforeClass
+    public static void beforeTests() throws Exception {
+        initCore("solrconfig-lazy-rewriters.xml", "schema.xml");
+    }
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        clearIndex();
+        index();
+    }
+
+    @Test
+    public void testThatLazyRewriterIsBuiltOnFirstRequestAndUnloadedWhenIdle() throws Exception {
+
+        withCommonRulesRewriter(h.getCore(), "lazy_rules", new CommonRulesConfigRequestBuilder()
+                .rules("a =>\n SYNONYM: b"));
+
+        try {
+
+            final RewriterFactory factory = getRewriterFactory("lazy_rules");
+            assertTrue(factory instanceof LazyRewriterFactory);
+            final LazyRewriterFactory lazyFactory = (LazyRewriterFactory) factory;
+            assertFalse(lazyFactory.isLoaded());
+
+            assertRewritten("lazy_rules");
+            assertTrue(lazyFactory.isLoaded());
+
+            // 300 ms idle time configured in solrconfig
+            int attempts = 50;
+            while (lazyFactory.isLoaded() && attempts-- > 0) {
+                synchronized (this) {
+                    wait(100L);
+                }
+            }
+            assertFalse(lazyFactory.isLoaded());
+
+            // rebuilt on next request
+            assertRewritten("lazy_rules");
+            assertTrue(lazyFactory.isLoaded());
+
+        } finally {
+            deleteRewriter(h.getCore(), "lazy_rules");
+        }
+
+    }
+
+    @Test
+    public void testThatEagerRewriterIsNotLazy() {
+
+        withCommonRulesRewriter(h.getCore(), "eager_rules", new CommonRulesConfigRequestBuilder()
+                .rules("a =>\n SYNONYM: b"));
+
+        try {
+            assertFalse(getRewriterFactory("eager_rules") instanceof LazyRewriterFactory);
+            assertRewritten("eager_rules");
+        } finally {
+            deleteRewriter(h.getCore(), "eager_rules");
+        }
+
+    }
+
+    private RewriterFactory getRewriterFactory(final String rewriterId) {
+        return ((QuerqyRewriterRequestHandler) h.getCore().getRequestHandler("/querqy/rewriter"))
+                .getRewriterFactory(rewriterId).orElseThrow(() -> new AssertionError("Missing " + rewriterId));
+    }
+
+    private void assertRewritten(final String rewriterId) {
+        try (final SolrQueryRequest req = req("q", "a",
+                DisMaxParams.QF, "f1 f2",
+                DisMaxParams.MM, "1",
+                QueryParsing.OP, "OR",
+                "defType", "querqy",
+                PARAM_REWRITERS, rewriterId)) {
+
+            assertQ("Rewriter not applied",
+                    req,
+                    "//result[@name='response' and @numFound='2']"
+            );
+        }
+    }
+
+}
@@ -117,6 +117,141 @@ public class QuerqyDismaxQParserPluginTest extends SolrTestCaseJ4 {
            req.close();
     }
 
+    @Test
+    public void testThatGeneratedClausesArePrunedToBudget() throws Exception {
+
+        SolrQueryRequest req = req("q", "a abc",
+                DisMaxParams.QF, "f1",
+                QueryParsing.OP, "OR",
+                "defType", "querqy",
+                "debugQuery", "true",
+                QuerqyDismaxParams.MAX_GENERATED_TERMS, "1",
+                PARAM_REWRITERS, "common_rules"
+        );
+
+        assertQ("Generated clause not pruned",
+                req,
+                "//str[@name='parsedquery'][contains(.,'f1:x')]",
+                "//str[@name='parsedquery'][not(contains(.,'f1:def'))]",
+                "//arr[@name='querqy.prunedGeneratedClauses']/str[text()='def']");
+
+        req.close();
+
+        req = req("q", "a abc",
+                DisMaxParams.QF, "f1",
+                QueryParsing.OP, "OR",
+                "defType", "querqy",
+                "debugQuery", "true",
+                PARAM_REWRITERS, "common_rules"
+        );
+
+        assertQ("Generated clause pruned without budget",
+                req,
+                "//str[@name='parsedquery'][contains(.,'f1:x')]",
+                "//str[@name='parsedquery'][contains(.,'f1:def')]",
+                "not(//arr[@name='querqy.prunedGeneratedClauses'])");
+
+        req.close();
+    }
+
+    @Test
+    public void testThatQueryCostIsDegradedToLimit() throws Exception {
+
+        // cost: o (1) + generated s (1) + boost query u (1)
+        SolrQueryRequest req = req("q", "o",
+                DisMaxParams.QF, "f1",
+                "defType", "querqy",
+                "debugQuery", "true",
+                QuerqyDismaxParams.MAX_QUERY_COST, "2",
+                PARAM_REWRITERS, "common_rules"
+        );
+
+        assertQ("Generated term not dropped",
+                req,
+                "//str[@name='parsedquery'][not(contains(.,'f1:s'))]",
+                "//str[@name='parsedquery'][contains(.,'f1:u')]",
+                "//lst[@name='querqy.queryCost']/long[@name='estimatedCost'][text()='3']",
+                "//lst[@name='querqy.queryCost']/long[@name='cost'][text()='2']",
+                "//lst[@name='querqy.queryCost']/arr[@name='degradations']/str[text()='DROP_HIGH_DF_GENERATED_TERMS']",
+                "count(//lst[@name='querqy.queryCost']/arr[@name='degradations']/str)=1");
+
+        req.close();
+
+        req = req("q", "o",
+                DisMaxParams.QF, "f1",
+                "defType", "querqy",
+                "debugQuery", "true",
+                QuerqyDismaxParams.MAX_QUERY_COST, "2",
+                QuerqyDismaxParams.QUERY_COST_DEGRADE, "qboostRerank",
+                PARAM_REWRITERS, "common_rules"
+        );
+
+        assertQ("Boost query not moved into rerank",
+                req,
+                "//str[@name='parsedquery'][contains(.,'QuerqyReRankQuery')]",
+                "//lst[@name='querqy.queryCost']/long[@name='cost'][text()='2']",
+                "//lst[@name='querqy.queryCost']/arr[@name='degradations']/str[text()='RERANK_BOOST_QUERIES']");
+
+        req.close();
+
+        req = req("q", "o",
+                DisMaxParams.QF, "f1",
+                "defType", "querqy",
+                "debugQuery", "true",
+                "rq", "{!rerank reRankQuery=$rqq reRankDocs=10}",
+                "rqq", "f1:o",
+                QuerqyDismaxParams.MAX_QUERY_COST, "2",
+                QuerqyDismaxParams.QUERY_COST_DEGRADE, "qboostRerank",
+                PARAM_REWRITERS, "common_rules"
+        );
+
+        assertQ("Boost query moved into rerank although request has a rank query",
+                req,
+                "//str[@name='parsedquery'][not(contains(.,'QuerqyReRankQuery'))]",
+                "//str[@name='parsedquery'][contains(.,'f1:u')]",
+                "//lst[@name='querqy.queryCost']/long[@name='cost'][text()='3']",
+                "count(//lst[@name='querqy.queryCost']/arr[@name='degradations']/str)=0",
+                "//lst[@name='querqy.queryCost']/arr[@name='skippedDegradations']/str[text()='RERANK_BOOST_QUERIES']");
+
+        req.close();
+
+        // phrase boost adds o (1) + u (1)
+        req = req("q", "o u",
+                DisMaxParams.QF, "f1",
+                DisMaxParams.PF, "f1",
+                "defType", "querqy",
+                "debugQuery", "true",
+                QuerqyDismaxParams.MAX_QUERY_COST, "4",
+                QuerqyDismaxParams.QUERY_COST_DEGRADE, "phraseBoosts",
+                PARAM_REWRITERS, "common_rules"
+        );
+
+        assertQ("Phrase boost not dropped",
+                req,
+                "//str[@name='parsedquery'][not(contains(.,'f1:\"o u\"'))]",
+                "//lst[@name='querqy.queryCost']/long[@name='estimatedCost'][text()='6']",
+                "//lst[@name='querqy.queryCost']/long[@name='cost'][text()='4']",
+                "//lst[@name='querqy.queryCost']/arr[@name='degradations']/str[text()='DROP_PHRASE_BOOSTS']");
+
+        req.close();
+
+        req = req("q", "o u",
+                DisMaxParams.QF, "f1",
+                DisMaxParams.PF, "f1",
+                "defType", "querqy",
+                "debugQuery", "true",
+                PARAM_REWRITERS, "common_rules"
+        );
+
+        assertQ("Query degraded without cost limit",
+                req,
+                "//str[@name='parsedquery'][contains(.,'f1:s')]",
+                "//str[@name='parsedquery'][contains(.,'f1:\"o u\"')]",
+                "not(//lst[@name='querqy.queryCost'])");
+
+        req.close();
+    }
+
     @Test
     public void testThatAMMof2getsSetFor3optionalClauses() throws Exception {
 
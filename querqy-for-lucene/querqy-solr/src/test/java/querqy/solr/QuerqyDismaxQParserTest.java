@@ -1,6 +1,8 @@
 package querqy.solr;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
@@ -26,6 +28,7 @@ import querqy.parser.QuerqyParser;
 import querqy.rewrite.RewriteChain;
 
 import java.util.Collections;
+import java.util.HashMap;
 
 @RunWith(MockitoJUnitRunner.class)
 public class QuerqyDismaxQParserTest {
@@ -158,4 +161,55 @@ public class QuerqyDismaxQParserTest {
 
     }
 
+    @Test
+    public void testThatLuceneQueriesAreReusedWithinRequest() throws Exception {
+
+        when(request.getSchema()).thenReturn(schema);
+        when(request.getContext()).thenReturn(new HashMap<>());
+        when(schema.getQueryAnalyzer()).thenReturn(new StandardAnalyzer());
+        when(rewriteChain.rewrite(any(), any())).thenReturn(new ExpandedQuery(new MatchAllQuery()));
+
+        final ModifiableSolrParams solrParams = new ModifiableSolrParams();
+        solrParams.add("qf", "f1");
+
+        final QuerqyDismaxQParser parser1 = new QuerqyDismaxQParser("*:*", null, solrParams, request,
+                querqyParser, rewriteChain, infoLogging, null);
+        parser1.getQuery();
+
+        final QuerqyDismaxQParser parser2 = new QuerqyDismaxQParser("*:*", null, solrParams, request,
+                querqyParser, rewriteChain, infoLogging, null);
+        parser2.getQuery();
+
+        Assert.assertSame(parser1.luceneQueries, parser2.luceneQueries);
+        verify(rewriteChain, times(1)).rewrite(any(), any());
+
+    }
+
+    @Test
+    public void testThatLuceneQueriesAreNotReusedForDifferentLocalParams() throws Exception {
+
+        when(request.getSchema()).thenReturn(schema);
+        when(request.getContext()).thenReturn(new HashMap<>());
+        when(schema.getQueryAnalyzer()).thenReturn(new StandardAnalyzer());
+        when(rewriteChain.rewrite(any(), any())).thenReturn(new ExpandedQuery(new MatchAllQuery()));
+
+        final ModifiableSolrParams solrParams = new ModifiableSolrParams();
+        solrParams.add("qf", "f1");
+
+        final ModifiableSolrParams localParams = new ModifiableSolrParams();
+        localParams.add("qf", "f2");
+
+        final QuerqyDismaxQParser parser1 = new QuerqyDismaxQParser("*:*", null, solrParams, request,
+                querqyParser, rewriteChain, infoLogging, null);
+        parser1.getQuery();
+
+        final QuerqyDismaxQParser parser2 = new QuerqyDismaxQParser("*:*", localParams, solrParams, request,
+                querqyParser, rewriteChain, infoLogging, null);
+        parser2.getQuery();
+
+        Assert.assertNotSame(parser1.luceneQueries, parser2.luceneQueries);
+        verify(rewriteChain, times(2)).rewrite(any(), any());
+
+    }
+
 }
@@ -14,6 +14,12 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import querqy.solr.rewriter.commonrules.CommonRulesConfigRequestBuilder;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
 @SolrTestCaseJ4.SuppressSSL
 public class QuerqyRewriterRequestHandlerStandaloneTest extends SolrTestCaseJ4 {
 
@@ -267,4 +273,49 @@ public class QuerqyRewriterRequestHandlerStandaloneTest extends SolrTestCaseJ4 {
     }
 
 
+    @Test
+    public void testThatRewritersAreLoadedOnCoreReloadAndErrorsAreReported() throws Exception {
+
+        withCommonRulesRewriter(h.getCore(), "rewriter_reload_1", new CommonRulesConfigRequestBuilder()
+                .rules("a =>\n SYNONYM: b"));
+        withCommonRulesRewriter(h.getCore(), "rewriter_reload_2", new CommonRulesConfigRequestBuilder()
+                .rules("a =>\n SYNONYM: c"));
+
+        final File brokenRewriterFile = new File(new File(h.getCore().getResourceLoader().getConfigDir(),
+                StandAloneRewriterContainer.IO_PATH), "rewriter_reload_broken");
+        try {
+            try (final Writer writer = new OutputStreamWriter(new FileOutputStream(brokenRewriterFile),
+                    StandardCharsets.UTF_8)) {
+                writer.write("{\"class\": \"querqy.solr.NoSuchRewriterFactory\"}");
+            }
+
+            h.reload();
+
+            try (final SolrQueryRequest req = req("qt", "/querqy/rewriter")) {
+                assertQ("Rewriters not loaded",
+                        req,
+                        "//lst[@name='rewriters']/lst[@name='rewriter_reload_1']",
+                        "//lst[@name='rewriters']/lst[@name='rewriter_reload_2']",
+                        "not(//lst[@name='rewriters']/lst[@name='rewriter_reload_broken'])",
+                        "//lst[@name='loadErrors']/str[@name='rewriter_reload_broken']"
+                );
+            }
+
+            try (final SolrQueryRequest req = req("q", "a",
+                    DisMaxParams.QF, "f1 f2",
+                    DisMaxParams.MM, "1",
+                    QueryParsing.OP, "OR",
+                    "defType", "querqy",
+                    PARAM_REWRITERS, "rewriter_reload_1,rewriter_reload_2")) {
+                assertQ("Rewriters not loaded", req, "//result[@name='response' and @numFound='3']");
+            }
+
+        } finally {
+            assertTrue(brokenRewriterFile.delete());
+            deleteRewriter(h.getCore(), "rewriter_reload_1");
+            deleteRewriter(h.getCore(), "rewriter_reload_2");
+        }
+
+    }
+
 }
@@ -0,0 +1,75 @@
+package querqy.solr;
+
+import static querqy.solr.QuerqyQParserPlugin.PARAM_REWRITERS;
+import static querqy.solr.StandaloneSolrTestSupport.withCommonRulesRewriter;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.DisMaxParams;
+import org.apache.solr.request.SolrQueryRequest;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+@SolrTestCaseJ4.SuppressSSL
+public class SolrFilterCachePreloadTest extends SolrTestCaseJ4 {
+
+    private static final String STATS_PREFIX = "//lst[@name='CACHE']/lst[@name='filterCache']"
+            + "/lst[@name='stats']/*[@name='CACHE.searcher.filterCache.";
+
+    @BeforeClass
+    public static void beforeTests() throws Exception {
+        initCore("solrconfig-filter-cache-preload.xml", "schema.xml");
+        withCommonRulesRewriter(h.getCore(), "common_rules", "configs/commonrules/rules-filter-cache-preload.txt");
+    }
+
+    @Test
+    public void testThatFilterQueriesArePreloadedIntoNewSearcher() {
+
+        assertU(adoc("id", "1", "f1", "x b"));
+        assertU(adoc("id", "2", "f1", "x"));
+        assertU(adoc("id", "3", "f1", "z c"));
+        assertU(commit());
+
+        for (int i = 0; i < 3; i++) {
+            assertQ("Unexpected query result", querqyRequest("x"),
+                    "//result[@name='response'][@numFound='1']",
+                    "//str[@name='id'][text()='1']");
+        }
+
+        assertQ("Unexpected query result", querqyRequest("z"),
+                "//result[@name='response'][@numFound='1']",
+                "//str[@name='id'][text()='3']");
+
+        assertU(adoc("id", "4", "f1", "x b"));
+        assertU(commit());
+
+        // filterCache has no autowarming, the filters must have been preloaded by the listener
+        assertCacheStats(0, 0, 2);
+
+        assertQ("Unexpected query result", querqyRequest("x"),
+                "//result[@name='response'][@numFound='2']");
+
+        assertCacheStats(1, 1, 2);
+
+    }
+
+    private void assertCacheStats(final int lookups, final int hits, final int size) {
+        final SolrQueryRequest reqStats = req(
+                CommonParams.QT, "/admin/mbeans",
+                "cat", "CACHE",
+                "stats", "true"
+        );
+        assertQ("Unexpected cache stats", reqStats,
+                STATS_PREFIX + "lookups'][text()='" + lookups + "']",
+                STATS_PREFIX + "hits'][text()='" + hits + "']",
+                STATS_PREFIX + "size'][text()='" + size + "']");
+        reqStats.close();
+    }
+
+    private static SolrQueryRequest querqyRequest(final String q) {
+        return req("q", q,
+                DisMaxParams.QF, "f1",
+                "defType", "querqy",
+                PARAM_REWRITERS, "common_rules");
+    }
+}
@@ -0,0 +1,239 @@
+package querqy.solr;
+
+import static querqy.solr.QuerqyDismaxParams.QBOOST_SIMILARITY_SCORE;
+import static querqy.solr.QuerqyDismaxParams.SIMILARITY_SCORE_DFC;
+import static querqy.solr.QuerqyDismaxParams.SIMILARITY_SCORE_OFF;
+import static querqy.solr.QuerqyQParserPlugin.PARAM_REWRITERS;
+import static querqy.solr.StandaloneSolrTestSupport.withCommonRulesRewriter;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.DisMaxParams;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.QueryParsing;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import querqy.model.Clause;
+import querqy.model.ParametrizedRawQuery;
+import querqy.model.StringRawQuery;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+@SolrTestCaseJ4.SuppressSSL
+public class SolrRawQueryCacheTest extends SolrTestCaseJ4 {
+
+    private static final String STATS_PREFIX = "//lst[@name='CACHE']/lst[@name='querqyRawQueryCache']"
+            + "/lst[@name='stats']/*[@name='CACHE.searcher.querqyRawQueryCache.";
+
+    @BeforeClass
+    public static void beforeTests() throws Exception {
+        initCore("solrconfig-raw-query-cache.xml", "schema.xml");
+        withCommonRulesRewriter(h.getCore(), "common_rules", "configs/commonrules/rules-raw-query-cache.txt");
+    }
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        clearIndex();
+        assertU(adoc("id", "1", "f1", "a"));
+        assertU(adoc("id", "2", "f1", "a", "f2", "b"));
+        assertU(adoc("id", "3", "f1", "c", "f2", "c"));
+        assertU(adoc("id", "5", "f1", "x b"));
+        assertU(adoc("id", "6", "f1", "x y"));
+        assertU(commit());
+        // don't start with the entries that were copied from the previous searcher
+        h.getCore().withSearcher(searcher -> {
+            searcher.getCache("querqyRawQueryCache").clear();
+            return null;
+        });
+    }
+
+    @Test
+    public void testThatRawQueriesArePutIntoAndServedFromCache() {
+
+        for (int i = 0; i < 2; i++) {
+            final SolrQueryRequest req = querqyRequest("a");
+            assertQ("Unexpected query result", req,
+                    "//result[@name='response'][@numFound='1']",
+                    "//str[@name='id'][text()='2']");
+            req.close();
+        }
+
+        assertCacheStats(4, 2, 2);
+
+        final SolrQueryRequest req = querqyRequest("c");
+        assertQ("Unexpected query result", req,
+                "//result[@name='response'][@numFound='1']",
+                "//str[@name='id'][text()='3']");
+        req.close();
+
+        assertCacheStats(5, 2, 3);
+
+    }
+
+    @Test
+    public void testThatRawQueriesReferencingRequestParamsAreNotCached() {
+
+        final SolrQueryRequest req = querqyRequest("d", "filter", "b");
+        assertQ("Unexpected query result", req, "//result[@name='response'][@numFound='0']");
+        req.close();
+
+        assertCacheStats(0, 0, 0);
+
+    }
+
+    @Test
+    public void testThatCacheIsWarmed() {
+
+        final SolrQueryRequest req = querqyRequest("a");
+        assertQ("Unexpected query result", req, "//result[@name='response'][@numFound='1']");
+        req.close();
+
+        assertU(adoc("id", "4", "f1", "a", "f2", "b"));
+        assertU(commit());
+
+        // new searcher: the entries were copied from the old cache
+        final SolrQueryRequest req2 = querqyRequest("a");
+        assertQ("Unexpected query result", req2, "//result[@name='response'][@numFound='2']");
+        req2.close();
+
+        assertCacheStats(2, 2, 2);
+
+    }
+
+    @Test
+    public void testThatInstructionQueriesArePutIntoAndServedFromCache() {
+
+        for (int i = 0; i < 2; i++) {
+            final SolrQueryRequest req = querqyRequest("x", QBOOST_SIMILARITY_SCORE, SIMILARITY_SCORE_OFF);
+            assertQ("Unexpected query result", req,
+                    "//result[@name='response'][@numFound='1']",
+                    "//str[@name='id'][text()='5']");
+            req.close();
+        }
+
+        // filter and boost query
+        assertCacheStats(4, 2, 2);
+
+    }
+
+    @Test
+    public void testThatBoostQueriesUsingDocumentFrequencyCorrectionAreNotCached() {
+
+        for (int i = 0; i < 2; i++) {
+            final SolrQueryRequest req = querqyRequest("x", QBOOST_SIMILARITY_SCORE, SIMILARITY_SCORE_DFC);
+            assertQ("Unexpected query result", req,
+                    "//result[@name='response'][@numFound='1']",
+                    "//str[@name='id'][text()='5']");
+            req.close();
+        }
+
+        // only the filter query
+        assertCacheStats(2, 1, 1);
+
+    }
+
+    @Test
+    public void testCacheKey() {
+
+        final SolrQueryRequest req1 = req("df", "f1");
+        final SolrQueryRequest req2 = req("df", "f2");
+        try {
+
+            final StringRawQuery query = new StringRawQuery(null, "b", Clause.Occur.MUST, true);
+
+            final Optional<RawQueryCache.Key> key1 = RawQueryCache.createKey(query, req1);
+            assertTrue(key1.isPresent());
+            assertEquals(key1, RawQueryCache.createKey(new StringRawQuery(null, "b", Clause.Occur.SHOULD, true),
+                    req1));
+            assertNotEquals(key1, RawQueryCache.createKey(query, req2));
+
+            assertFalse(RawQueryCache.createKey(new StringRawQuery(null, "{!lucene v=$x}", Clause.Occur.MUST, true),
+                    req1).isPresent());
+            assertFalse(RawQueryCache.createKey(new StringRawQuery(null, "f3:[NOW-1DAY TO *]", Clause.Occur.MUST,
+                    true), req1).isPresent());
+
+            final ParametrizedRawQuery parametrizedRawQuery = new ParametrizedRawQuery(null, Arrays.asList(
+                    new ParametrizedRawQuery.Part("{!lucene df=f2 v=", ParametrizedRawQuery.Part.Type.QUERY_PART),
+                    new ParametrizedRawQuery.Part("$b", ParametrizedRawQuery.Part.Type.PARAMETER),
+                    new ParametrizedRawQuery.Part("}", ParametrizedRawQuery.Part.Type.QUERY_PART)),
+                    Clause.Occur.MUST, true);
+            assertTrue(RawQueryCache.createKey(parametrizedRawQuery, req1).isPresent());
+            assertNotEquals(key1, RawQueryCache.createKey(parametrizedRawQuery, req1));
+
+        } finally {
+            req1.close();
+            req2.close();
+        }
+
+    }
+
+    @Test
+    public void testThatOnlyQueriesForTheStandardParserAreCached() {
+
+        final SolrQueryRequest req = req("df", "f1", "qf", "f2");
+        try {
+
+            assertTrue(RawQueryCache.createKey(new StringRawQuery(null, "{!lucene q.op=AND}a b", Clause.Occur.MUST,
+                    true), req).isPresent());
+            assertTrue(RawQueryCache.createKey(new StringRawQuery(null, "{!lucene}a", Clause.Occur.MUST,
+                    true), req).isPresent());
+
+            // edismax reads qf and other request params
+            assertFalse(RawQueryCache.createKey(new StringRawQuery(null, "{!edismax}a", Clause.Occur.MUST, true),
+                    req).isPresent());
+            assertFalse(RawQueryCache.createKey(new StringRawQuery(null, "{!lucene type=edismax}a",
+                    Clause.Occur.MUST, true), req).isPresent());
+            assertFalse(RawQueryCache.createKey(new StringRawQuery(null, "{!luceneX}a", Clause.Occur.MUST, true),
+                    req).isPresent());
+            assertFalse(RawQueryCache.createKey(new StringRawQuery(null, "a AND {!edismax}b", Clause.Occur.MUST,
+                    true), req).isPresent());
+            assertFalse(RawQueryCache.createKey(new StringRawQuery(null, "a AND _query_:\"{!edismax}b\"",
+                    Clause.Occur.MUST, true), req).isPresent());
+
+            assertFalse(RawQueryCache.createKey(new ParametrizedRawQuery(null, Arrays.asList(
+                    new ParametrizedRawQuery.Part("{!edismax v=", ParametrizedRawQuery.Part.Type.QUERY_PART),
+                    new ParametrizedRawQuery.Part("b", ParametrizedRawQuery.Part.Type.PARAMETER),
+                    new ParametrizedRawQuery.Part("}", ParametrizedRawQuery.Part.Type.QUERY_PART)),
+                    Clause.Occur.MUST, true), req).isPresent());
+            assertFalse(RawQueryCache.createKey(new ParametrizedRawQuery(null, Arrays.asList(
+                    new ParametrizedRawQuery.Part("{!lucene v=", ParametrizedRawQuery.Part.Type.QUERY_PART),
+                    new ParametrizedRawQuery.Part("{!edismax}b", ParametrizedRawQuery.Part.Type.PARAMETER),
+                    new ParametrizedRawQuery.Part("}", ParametrizedRawQuery.Part.Type.QUERY_PART)),
+                    Clause.Occur.MUST, true), req).isPresent());
+
+        } finally {
+            req.close();
+        }
+
+    }
+
+    private void assertCacheStats(final int lookups, final int hits, final int size) {
+        final SolrQueryRequest reqStats = req(
+                CommonParams.QT, "/admin/mbeans",
+                "cat", "CACHE",
+                "stats", "true"
+        );
+        assertQ("Unexpected cache stats", reqStats,
+                STATS_PREFIX + "lookups'][text()='" + lookups + "']",
+                STATS_PREFIX + "hits'][text()='" + hits + "']",
+                STATS_PREFIX + "size'][text()='" + size + "']");
+        reqStats.close();
+    }
+
+    private static SolrQueryRequest querqyRequest(final String q, final String... moreParams) {
+        final String[] params = new String[] {
+                "q", q,
+                DisMaxParams.QF, "f1",
+                QueryParsing.OP, "OR",
+                "defType", "querqy",
+                PARAM_REWRITERS, "common_rules"
+        };
+        final String[] allParams = Arrays.copyOf(params, params.length + moreParams.length);
+        System.arraycopy(moreParams, 0, allParams, params.length, moreParams.length);
+        return req(allParams);
+    }
+}
@@ -0,0 +1,140 @@
+package querqy.solr;
+
+import static querqy.solr.QuerqyQParserPlugin.PARAM_REWRITERS;
+import static querqy.solr.StandaloneSolrTestSupport.withCommonRulesRewriter;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.DisMaxParams;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.QueryParsing;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+@SolrTestCaseJ4.SuppressSSL
+public class SolrRewrittenQueryCacheTest extends SolrTestCaseJ4 {
+
+    private static final String STATS_PREFIX = "//lst[@name='CACHE']/lst[@name='querqyRewrittenQueryCache']"
+            + "/lst[@name='stats']/*[@name='CACHE.searcher.querqyRewrittenQueryCache.";
+
+    @BeforeClass
+    public static void beforeTests() throws Exception {
+        initCore("solrconfig-rewritten-query-cache.xml", "schema.xml");
+        withCommonRulesRewriter(h.getCore(), "common_rules", "configs/commonrules/rules-rewritten-query-cache.txt");
+    }
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        clearIndex();
+        assertU(adoc("id", "1", "f1", "a"));
+        assertU(adoc("id", "2", "f1", "b"));
+        assertU(adoc("id", "3", "f1", "c"));
+        assertU(commit());
+        // don't start with the entries that were copied from the previous searcher
+        h.getCore().withSearcher(searcher -> {
+            searcher.getCache("querqyRewrittenQueryCache").clear();
+            return null;
+        });
+    }
+
+    @Test
+    public void testThatRewrittenQueryAndDecorationsAreServedFromCache() {
+
+        for (int i = 0; i < 2; i++) {
+            final SolrQueryRequest req = querqyRequest("a");
+            assertQ("Unexpected query result", req,
+                    "//result[@name='response'][@numFound='2']",
+                    "//arr[@name='querqy_decorations'][count(str)=1]",
+                    "//arr[@name='querqy_decorations']/str[text()='deco a']",
+                    "//lst[@name='querqy_named_decorations']/arr[@name='k1']/str[text()='named deco a']");
+            req.close();
+        }
+
+        assertCacheStats(2, 1, 1);
+
+        final SolrQueryRequest req = querqyRequest("c");
+        assertQ("Unexpected query result", req,
+                "//result[@name='response'][@numFound='1']",
+                "count(//arr[@name='querqy_decorations'])=0");
+        req.close();
+
+        assertCacheStats(3, 1, 2);
+
+    }
+
+    @Test
+    public void testThatQuerqyRequestParamsArePartOfTheKey() {
+
+        final SolrQueryRequest req1 = querqyRequest("a");
+        assertQ("Unexpected query result", req1, "//result[@name='response'][@numFound='2']");
+        req1.close();
+
+        final SolrQueryRequest req2 = querqyRequest("a", "querqy.common_rules.criteria.limit", "1");
+        assertQ("Unexpected query result", req2, "//result[@name='response'][@numFound='2']");
+        req2.close();
+
+        assertCacheStats(2, 0, 2);
+
+    }
+
+    @Test
+    public void testThatCacheIsBypassedForDebugQueries() {
+
+        final SolrQueryRequest req = querqyRequest("a", CommonParams.DEBUG_QUERY, "true");
+        assertQ("Unexpected query result", req,
+                "//result[@name='response'][@numFound='2']",
+                "//arr[@name='querqy_decorations']/str[text()='deco a']");
+        req.close();
+
+        assertCacheStats(0, 0, 0);
+
+    }
+
+    @Test
+    public void testThatEntriesAreNotFoundAfterRewriterReload() {
+
+        final SolrQueryRequest req1 = querqyRequest("a");
+        assertQ("Unexpected query result", req1, "//result[@name='response'][@numFound='2']");
+        req1.close();
+
+        withCommonRulesRewriter(h.getCore(), "common_rules", "configs/commonrules/rules-rewritten-query-cache.txt");
+
+        final SolrQueryRequest req2 = querqyRequest("a");
+        assertQ("Unexpected query result", req2, "//result[@name='response'][@numFound='2']");
+        req2.close();
+
+        assertCacheStats(2, 0, 2);
+
+    }
+
+    private void assertCacheStats(final int lookups, final int hits, final int size) {
+        final SolrQueryRequest reqStats = req(
+                CommonParams.QT, "/admin/mbeans",
+                "cat", "CACHE",
+                "stats", "true"
+        );
+        assertQ("Unexpected cache stats", reqStats,
+                STATS_PREFIX + "lookups'][text()='" + lookups + "']",
+                STATS_PREFIX + "hits'][text()='" + hits + "']",
+                STATS_PREFIX + "size'][text()='" + size + "']");
+        reqStats.close();
+    }
+
+    private static SolrQueryRequest querqyRequest(final String q, final String... moreParams) {
+        final String[] params = new String[] {
+                "q", q,
+                DisMaxParams.QF, "f1",
+                QueryParsing.OP, "OR",
+                "defType", "querqy",
+                PARAM_REWRITERS, "common_rules"
+        };
+        final String[] allParams = Arrays.copyOf(params, params.length + moreParams.length);
+        System.arraycopy(moreParams, 0, allParams, params.length, moreParams.length);
+        return req(allParams);
+    }
+}
@@ -11,6 +11,7 @@ import org.apache.solr.client.solrj.embedded.JettySolrRunner;
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.request.QueryRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.cloud.SolrZkClient;
 import org.apache.solr.common.params.DisMaxParams;
@@ -26,6 +27,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 @SolrTestCaseJ4.SuppressSSL
@@ -112,14 +116,15 @@ public class ZkRewriterContainerFileSizeTest extends AbstractQuerqySolrCloudTest
                 .process(getRandClient())
                 .getStatus());
 
+        // parsing the large rules file on each node can take a while
         final QueryResponse rsp = waitForRewriterAndQuery(
-                params("collection", COLLECTION,
+                new QueryRequest(params("collection", COLLECTION,
                         "q", "f",
                         "defType", "querqy",
                         PARAM_REWRITERS, "large_common_rules",
                         DisMaxParams.QF, "f1 f2",
-                        QueryParsing.OP, "OR"),
-                getRandClient());
+                        QueryParsing.OP, "OR")),
+                getRandClient(), 200);
 
         assertNotNull(rsp);
         assertEquals(1L, rsp.getResults().getNumFound());
@@ -156,6 +161,112 @@ public class ZkRewriterContainerFileSizeTest extends AbstractQuerqySolrCloudTest
         assertFalse(children.stream().anyMatch(name -> name.contains("delete_common_rules-")));
     }
 
+    @Test
+    public void testThatUpdateOnlyAddsChangedChunks() throws Exception {
+
+        final StringBuilder rules = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            rules.append("input").append(i).append(" =>\n SYNONYM: output").append(i).append("\n");
+        }
+
+        assertEquals(0, new CommonRulesConfigRequestBuilder()
+                .rules(rules.toString()).buildSaveRequest("chunked_common_rules")
+                .process(getRandClient())
+                .getStatus());
+
+        final List<String> chunksBefore = getDataChildren("chunked_common_rules-");
+        assertTrue(chunksBefore.size() > 10);
+
+        rules.append("f =>\n SYNONYM: a\n");
+        assertEquals(0, new CommonRulesConfigRequestBuilder()
+                .rules(rules.toString()).buildSaveRequest("chunked_common_rules")
+                .process(getRandClient())
+                .getStatus());
+
+        final List<String> chunksAfter = getDataChildren("chunked_common_rules-");
+        final List<String> newChunks = chunksAfter.stream().filter(name -> !chunksBefore.contains(name))
+                .collect(Collectors.toList());
+        assertTrue(newChunks.size() <= 2);
+        // obsolete chunks must have been removed
+        assertTrue(chunksAfter.size() <= chunksBefore.size() + newChunks.size());
+
+        final QueryResponse rsp = waitFor(new QueryRequest(params("collection", COLLECTION,
+                        "q", "f",
+                        "defType", "querqy",
+                        PARAM_REWRITERS, "chunked_common_rules",
+                        DisMaxParams.QF, "f1 f2",
+                        QueryParsing.OP, "OR")),
+                getRandClient(), response -> {
+                    if (response.getResults().getNumFound() != 1L) {
+                        throw new IllegalStateException("Rewriter not updated yet");
+                    }
+                    return response;
+                });
+        assertEquals(1L, rsp.getResults().getNumFound());
+
+        assertEquals(0, RewriterConfigRequestBuilder.buildDeleteRequest("chunked_common_rules")
+                .process(getRandClient())
+                .getStatus());
+        assertTrue(getDataChildren("chunked_common_rules-").isEmpty());
+
+    }
+
+    @Test
+    public void testThatConcurrentSavesNeverLeaveMissingChunks() throws Exception {
+
+        final String[] variants = new String[3];
+        for (int v = 0; v < variants.length; v++) {
+            final StringBuilder rules = new StringBuilder();
+            for (int i = 0; i < 200; i++) {
+                // the variants share most of their chunks
+                rules.append("input").append(i).append(" =>\n SYNONYM: output").append(i % 50 == 0 ? v : i)
+                        .append("\n");
+            }
+            variants[v] = rules.toString();
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(variants.length);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int round = 0; round < 4; round++) {
+                for (final String variant : variants) {
+                    futures.add(executor.submit(() -> {
+                        try {
+                            new CommonRulesConfigRequestBuilder()
+                                    .rules(variant).buildSaveRequest("concurrent_common_rules")
+                                    .process(getRandClient());
+                        } catch (final Exception e) {
+                            // a save can fail if the rewriter was changed concurrently
+                        }
+                    }));
+                }
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        final String inventory = new String(ZK_CLIENT.getData("/configs/fsize/" + IO_PATH + "/concurrent_common_rules",
+                null, null, true));
+        final List<String> chunks = getDataChildren("concurrent_common_rules-");
+        for (final String chunkId : inventory.split(",")) {
+            assertTrue(chunks.contains("concurrent_common_rules-" + chunkId));
+        }
+
+        assertEquals(0, RewriterConfigRequestBuilder.buildDeleteRequest("concurrent_common_rules")
+                .process(getRandClient())
+                .getStatus());
+        assertTrue(getDataChildren("concurrent_common_rules-").isEmpty());
+
+    }
+
+    private List<String> getDataChildren(final String prefix) throws KeeperException, InterruptedException {
+        return ZK_CLIENT.getChildren("/configs/fsize/" + IO_PATH + "/" + IO_DATA, null, true)
+                .stream().filter(name -> name.startsWith(prefix)).collect(Collectors.toList());
+    }
+
     private SolrClient getRandClient() {
         return getRandClient(random(), CLIENTS);
     }
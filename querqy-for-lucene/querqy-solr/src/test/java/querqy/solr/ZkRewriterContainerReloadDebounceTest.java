@@ -0,0 +1,241 @@
+package querqy.solr;
+
+import static querqy.solr.QuerqyQParserPlugin.PARAM_REWRITERS;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.embedded.JettySolrRunner;
+import org.apache.solr.client.solrj.impl.CloudSolrClient;
+import org.apache.solr.client.solrj.impl.HttpSolrClient;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.params.DisMaxParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.search.QueryParsing;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import querqy.solr.rewriter.commonrules.CommonRulesConfigRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SolrTestCaseJ4.SuppressSSL
+public class ZkRewriterContainerReloadDebounceTest extends AbstractQuerqySolrCloudTestCase {
+
+    final static String COLLECTION = "debounce1";
+
+    /** zkReloadDebounceMillis in the solrconfig.xml */
+    final static long RELOAD_DEBOUNCE_MILLIS = 500L;
+
+    /** A basic client for operations at the cloud level, default collection will be set */
+    private static CloudSolrClient CLOUD_CLIENT;
+
+    /** One client per node */
+    private static ArrayList<HttpSolrClient> CLIENTS = new ArrayList<>(5);
+
+    @BeforeClass
+    public static void setupCluster() throws Exception {
+
+        configureCluster(2)
+                .addConfig("debounce", getFile("solrcloud").toPath().resolve("configsets").resolve("reloaddebounce")
+                        .resolve("conf"))
+                .configure();
+
+        CollectionAdminRequest.createCollection(COLLECTION, "debounce", 2, 1).process(cluster.getSolrClient());
+        cluster.waitForActiveCollection(COLLECTION, 2, 2);
+
+        CLOUD_CLIENT = cluster.getSolrClient();
+        CLOUD_CLIENT.setDefaultCollection(COLLECTION);
+
+        waitForRecoveriesToFinish(CLOUD_CLIENT);
+
+        for (JettySolrRunner jetty : cluster.getJettySolrRunners()) {
+            CLIENTS.add(getHttpSolrClient(jetty.getBaseUrl() + "/" + COLLECTION + "/"));
+        }
+
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        if (CLOUD_CLIENT != null) {
+            CLOUD_CLIENT.close();
+            CLOUD_CLIENT = null;
+        }
+        for (final HttpSolrClient client : CLIENTS) {
+            client.close();
+        }
+        CLIENTS.clear();
+        CLIENTS = null;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+
+        super.setUp();
+
+        final SolrClient randClient = getRandClient();
+        randClient.deleteByQuery("*:*");
+        randClient.commit();
+
+        randClient.add(Arrays.asList(
+                sdoc("id", "1", "f1", "a"),
+                sdoc("id", "2", "f2", "b"),
+                sdoc("id", "3", "f2", "c")
+        ));
+
+        randClient.commit();
+
+    }
+
+    @Test
+    public void testThatRewritersSavedInARowAreAllLoaded() throws Exception {
+
+        final List<String> rewriterIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final String rewriterId = "debounce_rules_" + i;
+            assertEquals(0, new CommonRulesConfigRequestBuilder()
+                    .rules("a =>\n SYNONYM: b")
+                    .buildSaveRequest(rewriterId)
+                    .process(getRandClient())
+                    .getStatus());
+            rewriterIds.add(rewriterId);
+        }
+
+        for (final SolrClient client : CLIENTS) {
+            final QueryResponse rsp = waitForRewriterAndQuery(
+                    params("collection", COLLECTION,
+                            "q", "a",
+                            "defType", "querqy",
+                            PARAM_REWRITERS, String.join(",", rewriterIds),
+                            DisMaxParams.QF, "f1 f2",
+                            QueryParsing.OP, "OR"),
+                    client);
+            assertEquals(2L, rsp.getResults().getNumFound());
+        }
+
+    }
+
+    @Test
+    public void testThatUpdatesInARowAreLoaded() throws Exception {
+
+        final String rewriterId = "debounce_update";
+
+        assertEquals(0, new CommonRulesConfigRequestBuilder()
+                .rules("a =>\n SYNONYM: b")
+                .buildSaveRequest(rewriterId)
+                .process(getRandClient())
+                .getStatus());
+
+        final SolrParams params = params("collection", COLLECTION,
+                "q", "a",
+                "defType", "querqy",
+                PARAM_REWRITERS, rewriterId,
+                DisMaxParams.QF, "f1 f2",
+                QueryParsing.OP, "OR");
+
+        for (final SolrClient client : CLIENTS) {
+            assertEquals(2L, waitForRewriterAndQuery(params, client).getResults().getNumFound());
+        }
+
+        // the first update will be coalesced with the second one
+        assertEquals(0, new CommonRulesConfigRequestBuilder()
+                .rules("a =>\n SYNONYM: x")
+                .buildSaveRequest(rewriterId)
+                .process(getRandClient())
+                .getStatus());
+        assertEquals(0, new CommonRulesConfigRequestBuilder()
+                .rules("a =>\n SYNONYM: b\n SYNONYM: c")
+                .buildSaveRequest(rewriterId)
+                .process(getRandClient())
+                .getStatus());
+
+        for (final SolrClient client : CLIENTS) {
+            final Long numFound = waitFor(new QueryRequest(params), client, rsp -> {
+                if (rsp.getResults().getNumFound() != 3L) {
+                    throw new IllegalStateException("Update not loaded yet");
+                }
+                return rsp.getResults().getNumFound();
+            });
+            assertEquals(Long.valueOf(3L), numFound);
+        }
+
+    }
+
+    @Test
+    public void testThatChangesWithinDebounceWindowAreLoadedInOneBatch() throws Exception {
+
+        final List<String> rewriterIds = Arrays.asList("debounce_batch_1", "debounce_batch_2", "debounce_batch_3");
+        for (final String rewriterId : rewriterIds) {
+            assertEquals(0, new CommonRulesConfigRequestBuilder()
+                    .rules("a =>\n SYNONYM: b")
+                    .buildSaveRequest(rewriterId)
+                    .process(getRandClient())
+                    .getStatus());
+        }
+
+        final SolrParams params = params("collection", COLLECTION,
+                "q", "a",
+                "defType", "querqy",
+                PARAM_REWRITERS, String.join(",", rewriterIds),
+                DisMaxParams.QF, "f1 f2",
+                QueryParsing.OP, "OR");
+        for (final SolrClient client : CLIENTS) {
+            assertEquals(2L, waitForRewriterAndQuery(params, client).getResults().getNumFound());
+        }
+
+        for (final JettySolrRunner jetty : cluster.getJettySolrRunners()) {
+            for (final SolrCore core : jetty.getCoreContainer().getCores()) {
+
+                if (!COLLECTION.equals(core.getCoreDescriptor().getCollectionName())) {
+                    continue;
+                }
+
+                final QuerqyRewriterRequestHandler handler = (QuerqyRewriterRequestHandler) core
+                        .getRequestHandler(QuerqyRewriterRequestHandler.DEFAULT_HANDLER_NAME);
+                final ZkRewriterContainer container = (ZkRewriterContainer) handler.getRewriterContainer();
+
+                final AtomicInteger notifications = new AtomicInteger();
+                handler.getRewriterFactories((searcher, rewriters) -> notifications.incrementAndGet());
+                try {
+
+                    // a burst of changes, including a rewriter that was created and deleted within the window
+                    synchronized (container) {
+                        for (final String rewriterId : rewriterIds) {
+                            container.scheduleReload(rewriterId);
+                        }
+                        container.scheduleReload("debounce_created_and_deleted");
+                        container.scheduleReload(null);
+                    }
+
+                    final long deadline = System.currentTimeMillis() + 20 * RELOAD_DEBOUNCE_MILLIS;
+                    while (notifications.get() == 0 && System.currentTimeMillis() < deadline) {
+                        Thread.sleep(50L);
+                    }
+                    // make sure that no further batch follows
+                    Thread.sleep(2 * RELOAD_DEBOUNCE_MILLIS);
+
+                    assertEquals(1, notifications.get());
+                    assertFalse(container.getLoadErrors().containsKey("debounce_created_and_deleted"));
+                    for (final String rewriterId : rewriterIds) {
+                        assertTrue(container.getRewriterFactory(rewriterId).isPresent());
+                    }
+
+                } finally {
+                    handler.getRewriterFactories(null);
+                }
+            }
+        }
+
+    }
+
+    private SolrClient getRandClient() {
+        return getRandClient(random(), CLIENTS);
+    }
+
+}
@@ -0,0 +1,451 @@
+package querqy.solr.loadtest;
+
+import static querqy.solr.QuerqyDismaxParams.QBOOST_FIELD_BOOST;
+import static querqy.solr.QuerqyDismaxParams.QBOOST_METHOD;
+import static querqy.solr.QuerqyDismaxParams.USER_QUERY_SIMILARITY_SCORE;
+import static querqy.solr.QuerqyQParserPlugin.PARAM_REWRITERS;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.DisMaxParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import querqy.solr.RewriterConfigRequestBuilder;
+import querqy.solr.rewriter.commonrules.CommonRulesConfigRequestBuilder;
+import querqy.solr.rewriter.replace.ReplaceConfigRequestBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * <p>An end-to-end load harness that runs against an {@link EmbeddedSolrServer}, using the test configset in
+ * src/test/resources/solr.</p>
+ *
+ * <p>The harness indexes a synthetic catalog, installs generated common rules and replace rewriters through the
+ * rewriter API and replays a query set from a number of client threads. It reports QPS and p50/p99/p999 latencies
+ * for each combination of qboost.method, uq.similarityScore and qboost.fieldBoost, and for a final run during which
+ * the common rules rewriter is updated concurrently.</p>
+ *
+ * <p>Run it from the querqy-solr directory after mvn test-compile:</p>
+ * <pre>
+ *   mvn exec:java -Dexec.classpathScope=test -Dexec.mainClass=querqy.solr.loadtest.EmbeddedSolrLoadHarness \
+ *      -Dexec.args="numDocs=100000 numRules=10000 threads=8 numQueries=50000 queryFile=/path/to/queries.txt"
+ * </pre>
+ *
+ * <p>See {@link Settings} for all arguments. The query file contains one query per line. Empty lines and lines
+ * starting with # are ignored. If no query file is given, synthetic queries will be used, half of their tokens
+ * matching a rule input.</p>
+ */
+public class EmbeddedSolrLoadHarness {
+
+    public static final String CORE_NAME = "collection1";
+    public static final String REWRITER_COMMON_RULES = "common_rules";
+    public static final String REWRITER_REPLACE = "replace";
+
+    private static final String CATALOG_TITLE_FIELD = "f1";
+    private static final String CATALOG_BODY_FIELD = "f2";
+    private static final String CATALOG_BRAND_FIELD = "f3";
+
+    /**
+     * Harness arguments, passed as name=value pairs to {@link #main(String[])}.
+     */
+    public static class Settings {
+
+        public int numDocs = 100000;
+        public int numRules = 10000;
+        public int threads = 4;
+        public int numQueries = 20000;
+        public int warmupQueries = 5000;
+        public String queryFile = null;
+        public String solrConfig = "solrconfig.xml";
+        public List<String> qboostMethods = Arrays.asList("opt", "rerank");
+        public List<String> similarityScores = Arrays.asList("dfc", "on", "off");
+        public List<String> fieldBoosts = Arrays.asList("on", "off");
+        public long updateIntervalMillis = 500L;
+
+        public static Settings fromArgs(final String[] args) {
+            final Settings settings = new Settings();
+            for (final String arg : args) {
+                final int pos = arg.indexOf('=');
+                if (pos < 1) {
+                    throw new IllegalArgumentException("Expected name=value but got: " + arg);
+                }
+                final String name = arg.substring(0, pos);
+                final String value = arg.substring(pos + 1);
+                switch (name) {
+                    case "numDocs": settings.numDocs = Integer.parseInt(value); break;
+                    case "numRules": settings.numRules = Integer.parseInt(value); break;
+                    case "threads": settings.threads = Integer.parseInt(value); break;
+                    case "numQueries": settings.numQueries = Integer.parseInt(value); break;
+                    case "warmupQueries": settings.warmupQueries = Integer.parseInt(value); break;
+                    case "queryFile": settings.queryFile = value; break;
+                    case "solrConfig": settings.solrConfig = value; break;
+                    case "qboostMethods": settings.qboostMethods = Arrays.asList(value.split(",")); break;
+                    case "similarityScores": settings.similarityScores = Arrays.asList(value.split(",")); break;
+                    case "fieldBoosts": settings.fieldBoosts = Arrays.asList(value.split(",")); break;
+                    case "updateIntervalMillis": settings.updateIntervalMillis = Long.parseLong(value); break;
+                    default: throw new IllegalArgumentException("Unknown argument: " + name);
+                }
+            }
+            return settings;
+        }
+    }
+
+    public static class Result {
+
+        public final String scenario;
+        public final int numQueries;
+        public final int errors;
+        public final double qps;
+        public final double p50Millis;
+        public final double p99Millis;
+        public final double p999Millis;
+        public final int rewriterUpdates;
+
+        Result(final String scenario, final long[] latenciesNanos, final int errors, final long elapsedNanos,
+               final int rewriterUpdates) {
+            this.scenario = scenario;
+            this.numQueries = latenciesNanos.length;
+            this.errors = errors;
+            this.qps = latenciesNanos.length / (elapsedNanos / 1e9);
+            Arrays.sort(latenciesNanos);
+            this.p50Millis = percentile(latenciesNanos, 0.5) / 1e6;
+            this.p99Millis = percentile(latenciesNanos, 0.99) / 1e6;
+            this.p999Millis = percentile(latenciesNanos, 0.999) / 1e6;
+            this.rewriterUpdates = rewriterUpdates;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-45s queries=%7d errors=%4d qps=%9.1f p50=%8.3fms p99=%8.3fms "
+                            + "p999=%8.3fms updates=%d", scenario, numQueries, errors, qps, p50Millis, p99Millis,
+                    p999Millis, rewriterUpdates);
+        }
+    }
+
+    private final SolrClient client;
+    private final Settings settings;
+    private final AtomicInteger rulesVersion = new AtomicInteger();
+
+    public EmbeddedSolrLoadHarness(final SolrClient client, final Settings settings) {
+        this.client = client;
+        this.settings = settings;
+    }
+
+    public static void main(final String[] args) throws Exception {
+
+        final Settings settings = Settings.fromArgs(args);
+        final Path solrHome = createSolrHome(settings.solrConfig);
+
+        try (final EmbeddedSolrServer server = new EmbeddedSolrServer(solrHome, CORE_NAME)) {
+            final EmbeddedSolrLoadHarness harness = new EmbeddedSolrLoadHarness(server, settings);
+            harness.indexCatalog();
+            harness.installRewriters();
+            harness.runAll().forEach(System.out::println);
+        } finally {
+            FileUtils.deleteQuietly(solrHome.toFile());
+        }
+    }
+
+    /**
+     * Copies the test configset to a temporary Solr home so that saved rewriters don't end up in the source tree.
+     */
+    static Path createSolrHome(final String solrConfig) throws IOException, URISyntaxException {
+        final Path conf = Paths.get(EmbeddedSolrLoadHarness.class.getClassLoader()
+                .getResource("solr/collection1/conf/schema.xml").toURI()).getParent();
+        final Path solrHome = Files.createTempDirectory("querqy-load");
+        Files.write(solrHome.resolve("solr.xml"), Collections.singletonList("<solr/>"), StandardCharsets.UTF_8);
+        final Path instanceDir = solrHome.resolve(CORE_NAME);
+        FileUtils.copyDirectory(conf.toFile(), instanceDir.resolve("conf").toFile());
+        Files.write(instanceDir.resolve("core.properties"), Arrays.asList("name=" + CORE_NAME,
+                "config=" + solrConfig, "schema=schema.xml"), StandardCharsets.UTF_8);
+        return solrHome;
+    }
+
+    public void indexCatalog() throws IOException, SolrServerException {
+        final Random random = new Random(42L);
+        final int vocabularySize = vocabularySize();
+        final List<SolrInputDocument> batch = new ArrayList<>(1000);
+        for (int i = 0; i < settings.numDocs; i++) {
+            final SolrInputDocument doc = new SolrInputDocument();
+            doc.addField("id", Integer.toString(i));
+            doc.addField(CATALOG_TITLE_FIELD, words(random, 3, vocabularySize));
+            doc.addField(CATALOG_BODY_FIELD, words(random, 10, vocabularySize));
+            doc.addField(CATALOG_BRAND_FIELD, word(random.nextInt(100)));
+            batch.add(doc);
+            if (batch.size() == 1000) {
+                client.add(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            client.add(batch);
+        }
+        client.commit();
+    }
+
+    public void installRewriters() throws IOException, SolrServerException {
+        saveCommonRules();
+
+        final StringBuilder replaceRules = new StringBuilder();
+        // replace rules on the non-matching words of the synthetic queries
+        for (int i = 0; i < Math.max(1, settings.numRules / 10); i++) {
+            replaceRules.append(word(3 * settings.numRules + i)).append(" => ")
+                    .append(word(2 * settings.numRules + i)).append('\n');
+        }
+        checkStatus(new ReplaceConfigRequestBuilder()
+                .rules(replaceRules.toString())
+                .ignoreCase(true)
+                .buildSaveRequest(REWRITER_REPLACE)
+                .process(client)
+                .getStatus(), REWRITER_REPLACE);
+    }
+
+    public void deleteRewriters() throws IOException, SolrServerException {
+        RewriterConfigRequestBuilder.buildDeleteRequest(REWRITER_COMMON_RULES).process(client);
+        RewriterConfigRequestBuilder.buildDeleteRequest(REWRITER_REPLACE).process(client);
+    }
+
+    /**
+     * Runs a warm-up, all combinations of qboost.method, uq.similarityScore and qboost.fieldBoost and finally the
+     * first combination again while the common rules rewriter is being updated.
+     */
+    public List<Result> runAll() throws Exception {
+
+        final List<String> queries = loadQueries();
+
+        if (settings.warmupQueries > 0) {
+            run("warmup", queries, variantParams(settings.qboostMethods.get(0), settings.similarityScores.get(0),
+                    settings.fieldBoosts.get(0)), settings.warmupQueries, false);
+        }
+
+        final List<Result> results = new ArrayList<>();
+        for (final String qboostMethod : settings.qboostMethods) {
+            for (final String similarityScore : settings.similarityScores) {
+                for (final String fieldBoost : settings.fieldBoosts) {
+                    results.add(run(variantName(qboostMethod, similarityScore, fieldBoost), queries,
+                            variantParams(qboostMethod, similarityScore, fieldBoost), settings.numQueries, false));
+                }
+            }
+        }
+
+        final String qboostMethod = settings.qboostMethods.get(0);
+        final String similarityScore = settings.similarityScores.get(0);
+        final String fieldBoost = settings.fieldBoosts.get(0);
+        results.add(run(variantName(qboostMethod, similarityScore, fieldBoost) + " +updates", queries,
+                variantParams(qboostMethod, similarityScore, fieldBoost), settings.numQueries, true));
+
+        return results;
+    }
+
+    public Result run(final String scenario, final List<String> queries, final ModifiableSolrParams variantParams,
+                      final int numQueries, final boolean concurrentRewriterUpdates) throws Exception {
+
+        final int threads = settings.threads;
+        final int perThread = Math.max(1, numQueries / threads);
+        final long[][] latencies = new long[threads][perThread];
+        final AtomicInteger errors = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicInteger updates = new AtomicInteger();
+        final AtomicLong updateError = new AtomicLong();
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                final long[] threadLatencies = latencies[t];
+                final int offset = t * (queries.size() / threads);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        final ModifiableSolrParams params = new ModifiableSolrParams(variantParams);
+                        params.set(CommonParams.Q, queries.get((offset + i) % queries.size()));
+                        final long startNanos = System.nanoTime();
+                        try {
+                            client.query(params);
+                        } catch (final Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        threadLatencies[i] = System.nanoTime() - startNanos;
+                    }
+                    return null;
+                }));
+            }
+
+            if (concurrentRewriterUpdates) {
+                executor.submit(() -> {
+                    start.await();
+                    while (running.get()) {
+                        try {
+                            saveCommonRules();
+                            updates.incrementAndGet();
+                        } catch (final Exception e) {
+                            updateError.incrementAndGet();
+                        }
+                        Thread.sleep(settings.updateIntervalMillis);
+                    }
+                    return null;
+                });
+            }
+
+            final long startNanos = System.nanoTime();
+            start.countDown();
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+            final long elapsedNanos = System.nanoTime() - startNanos;
+            running.set(false);
+
+            if (updateError.get() > 0) {
+                throw new IllegalStateException("Rewriter updates failed: " + updateError.get());
+            }
+
+            final long[] allLatencies = new long[threads * perThread];
+            for (int t = 0; t < threads; t++) {
+                System.arraycopy(latencies[t], 0, allLatencies, t * perThread, perThread);
+            }
+            return new Result(scenario, allLatencies, errors.get(), elapsedNanos, updates.get());
+
+        } finally {
+            running.set(false);
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    public List<String> loadQueries() throws IOException {
+        if (settings.queryFile != null) {
+            return Files.readAllLines(new File(settings.queryFile).toPath(), StandardCharsets.UTF_8).stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .collect(Collectors.toList());
+        }
+
+        final Random random = new Random(4242L);
+        final int numRules = settings.numRules;
+        final List<String> queries = new ArrayList<>(10000);
+        for (int q = 0; q < 10000; q++) {
+            final int numTokens = 1 + random.nextInt(3);
+            final List<String> tokens = new ArrayList<>(numTokens);
+            for (int t = 0; t < numTokens; t++) {
+                tokens.add(random.nextBoolean()
+                        ? word(random.nextInt(numRules))
+                        : word(3 * numRules + random.nextInt(numRules)));
+            }
+            queries.add(String.join(" ", tokens));
+        }
+        return queries;
+    }
+
+    protected ModifiableSolrParams variantParams(final String qboostMethod, final String similarityScore,
+                                                 final String fieldBoost) {
+        final ModifiableSolrParams params = new ModifiableSolrParams();
+        params.set("defType", "querqy");
+        params.set(DisMaxParams.QF, CATALOG_TITLE_FIELD + "^10 " + CATALOG_BODY_FIELD + " " + CATALOG_BRAND_FIELD
+                + "^5");
+        params.set(PARAM_REWRITERS, REWRITER_REPLACE + "," + REWRITER_COMMON_RULES);
+        params.set(QBOOST_METHOD, qboostMethod);
+        params.set(USER_QUERY_SIMILARITY_SCORE, similarityScore);
+        params.set(QBOOST_FIELD_BOOST, fieldBoost);
+        params.set(CommonParams.FL, "id");
+        params.set(CommonParams.ROWS, 10);
+        return params;
+    }
+
+    private void saveCommonRules() throws IOException, SolrServerException {
+        final int numRules = settings.numRules;
+        final StringBuilder rules = new StringBuilder(numRules * 40);
+        for (int i = 0; i < numRules; i++) {
+            rules.append(word(i)).append(" =>\n");
+            switch (i % 4) {
+                case 0: rules.append(" SYNONYM: "); break;
+                case 1: rules.append(" UP(10): "); break;
+                case 2: rules.append(" DOWN(10): "); break;
+                default: rules.append(" FILTER: ");
+            }
+            rules.append(word(numRules + i)).append('\n');
+        }
+        // make every saved version different
+        rules.append(word(4 * numRules)).append(" =>\n SYNONYM: ").append(word(rulesVersion.incrementAndGet()))
+                .append('\n');
+
+        checkStatus(new CommonRulesConfigRequestBuilder()
+                .rules(rules.toString())
+                .ignoreCase(true)
+                .buildSaveRequest(REWRITER_COMMON_RULES)
+                .process(client)
+                .getStatus(), REWRITER_COMMON_RULES);
+    }
+
+    private int vocabularySize() {
+        return 4 * settings.numRules;
+    }
+
+    private static String variantName(final String qboostMethod, final String similarityScore,
+                                      final String fieldBoost) {
+        return QBOOST_METHOD + "=" + qboostMethod + " " + USER_QUERY_SIMILARITY_SCORE + "=" + similarityScore + " "
+                + QBOOST_FIELD_BOOST + "=" + fieldBoost;
+    }
+
+    private static void checkStatus(final int status, final String rewriterId) {
+        if (status != 0) {
+            throw new IllegalStateException("Could not save rewriter " + rewriterId + ", status: " + status);
+        }
+    }
+
+    private static String words(final Random random, final int count, final int vocabularySize) {
+        final String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            words[i] = word(random.nextInt(vocabularySize));
+        }
+        return String.join(" ", words);
+    }
+
+    /**
+     * @return A lower case word that only depends on i and that is different for every i
+     */
+    static String word(final int i) {
+        // multiplication by an odd number is a bijection on 32 bit
+        long v = ((i + 1L) * 0x9E3779B1L) & 0xffffffffL;
+        final StringBuilder sb = new StringBuilder(8);
+        do {
+            sb.append((char) ('a' + (v % 26)));
+            v /= 26;
+        } while (v > 0);
+        return sb.toString();
+    }
+
+    static long percentile(final long[] sortedValues, final double p) {
+        if (sortedValues.length == 0) {
+            return 0L;
+        }
+        final int index = (int) Math.ceil(p * sortedValues.length) - 1;
+        return sortedValues[Math.max(0, Math.min(sortedValues.length - 1, index))];
+    }
+
+}
@@ -0,0 +1,71 @@
+package querqy.solr.loadtest;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Runs the {@link EmbeddedSolrLoadHarness} on a tiny scale to make sure that it keeps working.
+ */
+@SolrTestCaseJ4.SuppressSSL
+public class EmbeddedSolrLoadHarnessTest extends SolrTestCaseJ4 {
+
+    @BeforeClass
+    public static void beforeTests() throws Exception {
+        initCore("solrconfig.xml", "schema.xml");
+    }
+
+    @Test
+    public void testThatAllScenariosAreRunWithoutErrors() throws Exception {
+
+        final EmbeddedSolrLoadHarness.Settings settings = new EmbeddedSolrLoadHarness.Settings();
+        settings.numDocs = 300;
+        settings.numRules = 40;
+        settings.threads = 2;
+        settings.numQueries = 60;
+        settings.warmupQueries = 10;
+        settings.updateIntervalMillis = 5L;
+
+        // don't close the client - this would shut down the test core container
+        final EmbeddedSolrLoadHarness harness = new EmbeddedSolrLoadHarness(
+                new EmbeddedSolrServer(h.getCoreContainer(), h.getCore().getName()), settings);
+
+        harness.indexCatalog();
+        harness.installRewriters();
+        try {
+
+            final List<EmbeddedSolrLoadHarness.Result> results = harness.runAll();
+
+            // 2 qboost.method x 3 uq.similarityScore x 2 qboost.fieldBoost + concurrent updates
+            assertEquals(13, results.size());
+            for (final EmbeddedSolrLoadHarness.Result result : results) {
+                assertEquals(result.scenario, 0, result.errors);
+                assertEquals(60, result.numQueries);
+                assertTrue(result.qps > 0.0);
+                assertTrue(result.p50Millis <= result.p99Millis);
+                assertTrue(result.p99Millis <= result.p999Millis);
+            }
+
+            final EmbeddedSolrLoadHarness.Result updateResult = results.get(12);
+            assertTrue(updateResult.scenario.endsWith("+updates"));
+            assertTrue(updateResult.rewriterUpdates > 0);
+
+        } finally {
+            harness.deleteRewriters();
+        }
+
+    }
+
+    @Test
+    public void testPercentile() {
+        final long[] values = {1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L};
+        assertEquals(5L, EmbeddedSolrLoadHarness.percentile(values, 0.5));
+        assertEquals(10L, EmbeddedSolrLoadHarness.percentile(values, 0.99));
+        assertEquals(1L, EmbeddedSolrLoadHarness.percentile(values, 0.0));
+        assertEquals(0L, EmbeddedSolrLoadHarness.percentile(new long[0], 0.5));
+    }
+
+}
@@ -373,4 +373,23 @@ public class NumberUnitRewriterTest extends SolrTestCaseJ4 {
         req.close();
     }
 
+    @Test
+    public void testThatNativeLuceneQueriesAreCreated() {
+        String q = "tv 55 zoll";
+
+        SolrQueryRequest req = req("q", q,
+                DisMaxParams.QF, "f1",
+                DisMaxParams.MM, "100%",
+                "debugQuery", "on",
+                "defType", "querqy",
+                PARAM_REWRITERS, "number_unit_standard");
+
+        assertQ("",
+                req,
+                "//str[@name='parsedquery'][contains(.,'numericBoost(')]",
+                "//str[@name='parsedquery'][not(contains(.,'frange'))]"
+        );
+        req.close();
+    }
+
 }
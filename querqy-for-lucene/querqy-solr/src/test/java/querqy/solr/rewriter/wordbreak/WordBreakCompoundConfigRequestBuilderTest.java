@@ -6,8 +6,11 @@ import static org.hamcrest.collection.IsMapContaining.hasEntry;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_ALWAYS_ADD_REVERSE_COMPOUNDS;
+import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_CACHE_SIZE;
+import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_COMPOUNDER;
 import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_DECOMPOUND;
 import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_DECOMPOUND_MAX_EXPANSIONS;
+import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_DECOMPOUND_PRECOMPUTED_DICTIONARY;
 import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_DECOMPOUND_VERIFY_COLLATION;
 import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_DICTIONARY_FIELD;
 import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_LOWER_CASE_INPUT;
@@ -18,6 +21,7 @@ import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CO
 import static querqy.solr.rewriter.wordbreak.WordBreakCompoundRewriterFactory.CONF_REVERSE_COMPOUND_TRIGGER_WORDS;
 
 import org.junit.Test;
+import querqy.lucene.contrib.rewrite.wordbreak.CompounderType;
 import querqy.lucene.contrib.rewrite.wordbreak.Morphology;
 
 import java.util.List;
@@ -82,6 +86,9 @@ public class WordBreakCompoundConfigRequestBuilderTest {
                 .morphology(Morphology.GERMAN)
                 .reverseCompoundTriggerWords("from", "of")
                 .verifyDecompoundCollation(false)
+                .precomputedDecompoundDictionary(true)
+                .cacheSize(500)
+                .compounder(CompounderType.MORPHOLOGICAL)
                 .buildConfig();
 
         final List<String> errors = new WordBreakCompoundRewriterFactory("id").validateConfiguration(config);
@@ -94,10 +101,13 @@ public class WordBreakCompoundConfigRequestBuilderTest {
         assertThat(config, hasEntry(CONF_MAX_COMBINE_WORD_LENGTH, 10));
         assertThat(config, hasEntry(CONF_MIN_SUGGESTION_FREQ, 2));
         assertThat(config, hasEntry(CONF_MORPHOLOGY, Morphology.GERMAN.name()));
+        assertThat(config, hasEntry(CONF_CACHE_SIZE, 500));
+        assertThat(config, hasEntry(CONF_COMPOUNDER, CompounderType.MORPHOLOGICAL.name()));
 
         final Map<String, Object> decompound = (Map<String, Object>) config.get(CONF_DECOMPOUND);
 
         assertThat(decompound, hasEntry(CONF_DECOMPOUND_VERIFY_COLLATION, Boolean.FALSE));
+        assertThat(decompound, hasEntry(CONF_DECOMPOUND_PRECOMPUTED_DICTIONARY, Boolean.TRUE));
         assertThat(decompound, hasEntry(CONF_DECOMPOUND_MAX_EXPANSIONS, 4));
 
         final List<String> reverseCompoundTriggerWords = (List<String>) config.get(CONF_REVERSE_COMPOUND_TRIGGER_WORDS);
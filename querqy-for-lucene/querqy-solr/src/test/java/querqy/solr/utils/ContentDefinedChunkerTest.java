@@ -0,0 +1,98 @@
+package querqy.solr.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ContentDefinedChunkerTest {
+
+    @Test
+    public void testThatChunksConcatenateToInput() throws IOException {
+
+        final byte[] data = randomRules(2000, 1);
+        final List<byte[]> chunks = new ContentDefinedChunker(64, 256, 1024).split(data);
+
+        assertThat(chunks.size()).isGreaterThan(1);
+        assertThat(concat(chunks)).isEqualTo(data);
+
+    }
+
+    @Test
+    public void testThatChunkSizesAreWithinLimits() {
+
+        final List<byte[]> chunks = new ContentDefinedChunker(64, 256, 1024).split(randomRules(2000, 2));
+
+        for (int i = 0; i < chunks.size(); i++) {
+            assertThat(chunks.get(i).length).isLessThanOrEqualTo(1024);
+            if (i < chunks.size() - 1) {
+                assertThat(chunks.get(i).length).isGreaterThanOrEqualTo(64);
+            }
+        }
+
+    }
+
+    @Test
+    public void testThatLocalChangeOnlyChangesFewChunks() {
+
+        final ContentDefinedChunker chunker = new ContentDefinedChunker(64, 256, 1024);
+
+        final byte[] data = randomRules(2000, 3);
+        final String original = new String(data, StandardCharsets.UTF_8);
+        final int pos = original.indexOf('\n', original.length() / 2);
+        final byte[] changed = (original.substring(0, pos) + "\nnew input =>\n SYNONYM: new output"
+                + original.substring(pos)).getBytes(StandardCharsets.UTF_8);
+
+        final List<byte[]> chunks = chunker.split(data);
+        final Set<String> originalChunks = chunks.stream()
+                .map(chunk -> new String(chunk, StandardCharsets.UTF_8)).collect(Collectors.toSet());
+        final Set<String> changedChunks = chunker.split(changed).stream()
+                .map(chunk -> new String(chunk, StandardCharsets.UTF_8)).collect(Collectors.toSet());
+
+        final Set<String> newChunks = new HashSet<>(changedChunks);
+        newChunks.removeAll(originalChunks);
+
+        assertThat(chunks.size()).isGreaterThan(20);
+        assertThat(newChunks.size()).isLessThanOrEqualTo(3);
+
+    }
+
+    @Test
+    public void testEmptyInput() {
+        assertThat(new ContentDefinedChunker(1, 2, 4).split(new byte[0])).isEmpty();
+    }
+
+    @Test
+    public void testThatMaxSizeMustNotBeSmallerThanAvgSize() {
+        assertThatThrownBy(() -> new ContentDefinedChunker(1, 8, 4)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] randomRules(final int numRules, final long seed) {
+        final Random random = new Random(seed);
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < numRules; i++) {
+            sb.append("input").append(random.nextInt(100000)).append(" =>\n SYNONYM: output")
+                    .append(random.nextInt(100000)).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] concat(final List<byte[]> chunks) throws IOException {
+        try (final ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            for (final byte[] chunk : chunks) {
+                bos.write(chunk);
+            }
+            return bos.toByteArray();
+        }
+    }
+
+}